@@ -8,18 +8,46 @@ import com.itmo.java.basics.initialization.impl.InitializationContextImpl;
 import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespObject;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Сервер исполняет команды на нескольких последовательных "полосах" - однопоточных исполнителях.
+ * Полоса выбирается по базе, таблице и ключу команды, поэтому команды над одним ключом выполняются
+ * в порядке поступления, а команды над разными ключами и таблицами - параллельно.
+ * Пакетная команда занимает сразу все полосы своих ключей, а команды, создающие базы и таблицы, - все полосы
+ * сервера (см. {@link DatabaseCommands#isBarrier()})
+ */
+public class DatabaseServer implements AutoCloseable {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static final DatabaseCommandArgPositions[] ROUTING_ARGS = {
+            DatabaseCommandArgPositions.DATABASE_NAME,
+            DatabaseCommandArgPositions.TABLE_NAME
+    };
 
-public class DatabaseServer {
     private final ExecutionEnvironment env;
 
-    private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService[] lanes;
+    private final Object multiLaneSubmitLock = new Object();
 
     private DatabaseServer(ExecutionEnvironment env) {
         this.env = env;
+        lanes = new ExecutorService[Math.max(1, env.getConfig().getExecutionLanes())];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = "database-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName));
+        }
     }
     /**
      * Конструктор
@@ -40,15 +68,140 @@ public class DatabaseServer {
     }
 
     public CompletableFuture<DatabaseCommandResult> executeNextCommand(RespArray message) {
-        return CompletableFuture.supplyAsync(() ->
-            DatabaseCommands
-                    .valueOf(DatabaseCommandArgPositions.COMMAND_NAME.name())
-                    .getCommand(env, message.getObjects())
-                    .execute()
-        , executorService);
+        List<RespObject> commandArgs = message.getObjects();
+        DatabaseCommands commandType;
+        try {
+            commandType = DatabaseCommands
+                    .valueOf(commandArgs.get(DatabaseCommandArgPositions.COMMAND_NAME.getPositionIndex()).asString());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | NullPointerException e) {
+            return CompletableFuture.completedFuture(DatabaseCommandResult.error(e));
+        }
+
+        Supplier<DatabaseCommandResult> execution = () -> {
+            try {
+                return commandType.getCommand(env, commandArgs).execute();
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | NullPointerException e) {
+                return DatabaseCommandResult.error(e);
+            }
+        };
+
+        List<ExecutorService> commandLanes = commandType.isBarrier()
+                ? List.of(lanes)
+                : lanesFor(commandArgs, commandType.getKeys(commandArgs));
+        if (commandLanes.size() == 1) {
+            return CompletableFuture.supplyAsync(execution, commandLanes.get(0));
+        }
+        return executeOnLanes(execution, commandLanes);
     }
 
+    /**
+     * Исполняет уже созданную команду. Аргументы такой команды неизвестны, поэтому все такие команды
+     * выполняются на одной полосе в порядке поступления
+     */
     public CompletableFuture<DatabaseCommandResult> executeNextCommand(DatabaseCommand command) {
-        return CompletableFuture.supplyAsync(command::execute, executorService);
+        return CompletableFuture.supplyAsync(command::execute, lanes[0]);
+    }
+
+    /**
+     * Дожидается выполнения уже принятых команд и закрывает все базы данных окружения.
+     * Новые команды после вызова не принимаются
+     *
+     * @throws DatabaseException если не удалось закрыть базы данных
+     */
+    @Override
+    public void close() throws DatabaseException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while shutting down", e);
+        } finally {
+            env.close();
+        }
+    }
+
+    /**
+     * Выбирает полосы по имени базы, таблицы и ключам команды. Полоса ключа считается одинаково для команд
+     * с одним ключом и пакетных команд, поэтому все команды над ключом попадают на одну полосу.
+     * Команде с одним ключом или без ключей достается одна полоса
+     */
+    private List<ExecutorService> lanesFor(List<RespObject> commandArgs, List<RespObject> keys) {
+        int hash = 0;
+        for (DatabaseCommandArgPositions position : ROUTING_ARGS) {
+            if (commandArgs.size() <= position.getPositionIndex()) {
+                break;
+            }
+            hash = 31 * hash + Objects.hashCode(commandArgs.get(position.getPositionIndex()).asString());
+        }
+
+        if (keys.isEmpty()) {
+            return List.of(lanes[Math.floorMod(hash, lanes.length)]);
+        }
+
+        Set<ExecutorService> keyLanes = new LinkedHashSet<>();
+        for (RespObject key : keys) {
+            keyLanes.add(laneForKey(hash, key));
+        }
+        return new ArrayList<>(keyLanes);
+    }
+
+    /**
+     * @param tableHash хеш имени базы и таблицы
+     */
+    private ExecutorService laneForKey(int tableHash, RespObject key) {
+        return lanes[Math.floorMod(31 * tableHash + Objects.hashCode(key.asString()), lanes.length)];
+    }
+
+    /**
+     * Исполняет команду, когда до нее дойдет очередь на всех ее полосах: на каждую полосу ставится задача,
+     * последняя из них исполняет команду, остальные ждут ее окончания. Так пакетная команда упорядочена
+     * со всеми командами над ее ключами. Задачи ставятся на все полосы атомарно, поэтому две пакетные
+     * команды не могут занять общие полосы в разном порядке и заблокировать друг друга
+     */
+    private CompletableFuture<DatabaseCommandResult> executeOnLanes(Supplier<DatabaseCommandResult> execution,
+                                                                    List<ExecutorService> commandLanes) {
+        CompletableFuture<DatabaseCommandResult> result = new CompletableFuture<>();
+        AtomicInteger waitingLanes = new AtomicInteger(commandLanes.size());
+        CountDownLatch executed = new CountDownLatch(1);
+        Runnable laneTask = () -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (waitingLanes.decrementAndGet() > 0) {
+                try {
+                    executed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+
+            try {
+                result.complete(execution.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                executed.countDown();
+            }
+        };
+
+        synchronized (multiLaneSubmitLock) {
+            try {
+                for (ExecutorService lane : commandLanes) {
+                    lane.execute(laneTask);
+                }
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+                executed.countDown();
+            }
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
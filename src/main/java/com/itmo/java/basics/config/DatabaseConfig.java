@@ -2,7 +2,16 @@ package com.itmo.java.basics.config;
 
 public class DatabaseConfig {
     public static final String DEFAULT_WORKING_PATH = "db_files";
+    public static final long DEFAULT_MAPPED_SEGMENTS_BUDGET = 1L << 30;
+    public static final long DEFAULT_SHARED_CACHE_CAPACITY = 64L << 20;
     private String workingPath;
+    private long mappedSegmentsBudget = DEFAULT_MAPPED_SEGMENTS_BUDGET;
+    private int initializationThreads = Runtime.getRuntime().availableProcessors();
+    private boolean lazyTableLoading;
+    private int executionLanes = Runtime.getRuntime().availableProcessors();
+    private boolean warmUpLazyTables;
+    private long sharedCacheCapacity = DEFAULT_SHARED_CACHE_CAPACITY;
+    private final TableConfig defaultTableConfig = new TableConfig();
 
     public DatabaseConfig(String workingPath) {
         if (workingPath.isBlank()) {
@@ -16,4 +25,79 @@ public class DatabaseConfig {
     public String getWorkingPath() {
         return workingPath;
     }
+
+    /**
+     * @return суммарный размер в байтах, который могут занимать отображенные в память сегменты всех таблиц
+     */
+    public long getMappedSegmentsBudget() {
+        return mappedSegmentsBudget;
+    }
+
+    public void setMappedSegmentsBudget(long mappedSegmentsBudget) {
+        this.mappedSegmentsBudget = mappedSegmentsBudget;
+    }
+
+    /**
+     * @return количество потоков, в которых параллельно инициализируются базы, таблицы и сегменты
+     */
+    public int getInitializationThreads() {
+        return initializationThreads;
+    }
+
+    public void setInitializationThreads(int initializationThreads) {
+        this.initializationThreads = initializationThreads;
+    }
+
+    /**
+     * @return {@code true} - если при запуске регистрируются только имена таблиц,
+     * а сегменты таблицы читаются при первом обращении к ней
+     */
+    public boolean isLazyTableLoading() {
+        return lazyTableLoading;
+    }
+
+    public void setLazyTableLoading(boolean lazyTableLoading) {
+        this.lazyTableLoading = lazyTableLoading;
+    }
+
+    /**
+     * @return {@code true} - если незагруженные таблицы загружаются в фоне после запуска
+     * (имеет смысл только вместе с {@link #isLazyTableLoading()})
+     */
+    public boolean isWarmUpLazyTables() {
+        return warmUpLazyTables;
+    }
+
+    public void setWarmUpLazyTables(boolean warmUpLazyTables) {
+        this.warmUpLazyTables = warmUpLazyTables;
+    }
+
+    /**
+     * @return количество последовательных полос, на которых сервер параллельно исполняет команды
+     */
+    public int getExecutionLanes() {
+        return executionLanes;
+    }
+
+    public void setExecutionLanes(int executionLanes) {
+        this.executionLanes = executionLanes;
+    }
+
+    /**
+     * @return размер в байтах кэша, общего для таблиц с {@link TableConfig#isSharedCache()}
+     */
+    public long getSharedCacheCapacity() {
+        return sharedCacheCapacity;
+    }
+
+    public void setSharedCacheCapacity(long sharedCacheCapacity) {
+        this.sharedCacheCapacity = sharedCacheCapacity;
+    }
+
+    /**
+     * @return настройки, с которыми создаются и загружаются таблицы, если для них не указано иное
+     */
+    public TableConfig getDefaultTableConfig() {
+        return defaultTableConfig;
+    }
 }
@@ -0,0 +1,22 @@
+package com.itmo.java.basics.config;
+
+/**
+ * Когда записанные в сегмент данные сбрасываются на диск
+ */
+public enum FsyncPolicy {
+    /**
+     * Никогда: данные остаются в кэше операционной системы, пока она сама их не запишет.
+     * Сегмент сбрасывается на диск только при слиянии
+     */
+    NEVER,
+    /**
+     * Раз в {@link TableConfig#getFsyncIntervalMillis()} миллисекунд в фоне. При сбое теряются
+     * записи за последний интервал
+     */
+    INTERVAL,
+    /**
+     * Команда завершается только после того, как ее запись сброшена на диск. Одновременные записи в таблицу
+     * собираются в одну пачку, которая дописывается и сбрасывается на диск один раз
+     */
+    ALWAYS
+}
@@ -0,0 +1,36 @@
+package com.itmo.java.basics.config;
+
+/**
+ * Настройки сетевого подключения к серверу
+ */
+public class ServerConfig {
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 8080;
+    private final String host;
+    private final int port;
+    private int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    public ServerConfig(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return количество потоков, которые обслуживают ввод-вывод всех подключений
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+}
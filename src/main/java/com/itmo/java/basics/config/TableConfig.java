@@ -0,0 +1,244 @@
+package com.itmo.java.basics.config;
+
+/**
+ * Настройки отдельной таблицы. Значения по умолчанию задаются в {@link DatabaseConfig#getDefaultTableConfig()}
+ */
+public class TableConfig {
+    public static final long DEFAULT_SEGMENT_SIZE = 100000;
+    public static final long DEFAULT_SEGMENT_ROLLOVER_MILLIS = 0;
+    public static final double DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    public static final double DEFAULT_COMPACTION_GARBAGE_RATIO = 0.5;
+    public static final int DEFAULT_COMPACTION_SEGMENT_THRESHOLD = 0;
+    public static final long DEFAULT_CACHE_CAPACITY = 16L << 20;
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_WRITE_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_WRITE_BUFFER_FLUSH_MILLIS = 0;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long segmentRolloverMillis = DEFAULT_SEGMENT_ROLLOVER_MILLIS;
+    private double bloomFilterFalsePositiveRate = DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE;
+    private boolean memoryMappedReads;
+    private boolean offHeapIndex;
+    private boolean unifiedIndex;
+    private boolean sortedSegments;
+    private double compactionGarbageRatio = DEFAULT_COMPACTION_GARBAGE_RATIO;
+    private int compactionSegmentThreshold = DEFAULT_COMPACTION_SEGMENT_THRESHOLD;
+    private long cacheCapacity = DEFAULT_CACHE_CAPACITY;
+    private boolean sharedCache;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER;
+    private long fsyncIntervalMillis = DEFAULT_FSYNC_INTERVAL_MILLIS;
+    private int writeBufferSize = DEFAULT_WRITE_BUFFER_SIZE;
+    private long writeBufferFlushMillis = DEFAULT_WRITE_BUFFER_FLUSH_MILLIS;
+
+    public TableConfig() {
+    }
+
+    /**
+     * Создает копию настроек, чтобы изменения для одной таблицы не затрагивали остальные
+     *
+     * @param other настройки, которые нужно скопировать
+     */
+    public TableConfig(TableConfig other) {
+        this.segmentSize = other.segmentSize;
+        this.segmentRolloverMillis = other.segmentRolloverMillis;
+        this.bloomFilterFalsePositiveRate = other.bloomFilterFalsePositiveRate;
+        this.memoryMappedReads = other.memoryMappedReads;
+        this.offHeapIndex = other.offHeapIndex;
+        this.unifiedIndex = other.unifiedIndex;
+        this.sortedSegments = other.sortedSegments;
+        this.compactionGarbageRatio = other.compactionGarbageRatio;
+        this.compactionSegmentThreshold = other.compactionSegmentThreshold;
+        this.cacheCapacity = other.cacheCapacity;
+        this.sharedCache = other.sharedCache;
+        this.fsyncPolicy = other.fsyncPolicy;
+        this.fsyncIntervalMillis = other.fsyncIntervalMillis;
+        this.writeBufferSize = other.writeBufferSize;
+        this.writeBufferFlushMillis = other.writeBufferFlushMillis;
+    }
+
+    /**
+     * @return размер сегмента в байтах, по достижении которого сегмент становится read-only
+     * и записи продолжаются в новый сегмент. Хранится в метаданных таблицы
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @return время в миллисекундах, через которое активный сегмент становится read-only, даже если он не заполнен.
+     * Сегмент сменяется при первой записи после этого срока. Значение не больше нуля отключает смену по времени.
+     * Хранится в метаданных таблицы
+     */
+    public long getSegmentRolloverMillis() {
+        return segmentRolloverMillis;
+    }
+
+    public void setSegmentRolloverMillis(long segmentRolloverMillis) {
+        this.segmentRolloverMillis = segmentRolloverMillis;
+    }
+
+    /**
+     * @return допустимая доля ложных срабатываний фильтров Блума read-only сегментов. По ней и числу ключей
+     * сегмента подбирается размер фильтра. Значение вне интервала (0, 1) отключает фильтры
+     */
+    public double getBloomFilterFalsePositiveRate() {
+        return bloomFilterFalsePositiveRate;
+    }
+
+    public void setBloomFilterFalsePositiveRate(double bloomFilterFalsePositiveRate) {
+        this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+    }
+
+    /**
+     * @return {@code true} - если фильтры Блума сегментов включены
+     */
+    public boolean isBloomFilterEnabled() {
+        return bloomFilterFalsePositiveRate > 0 && bloomFilterFalsePositiveRate < 1;
+    }
+
+    /**
+     * @return {@code true} - если read-only сегменты таблицы читаются через отображение файла в память
+     */
+    public boolean isMemoryMappedReads() {
+        return memoryMappedReads;
+    }
+
+    public void setMemoryMappedReads(boolean memoryMappedReads) {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    /**
+     * @return {@code true} - если индекс таблицы хранится вне кучи и держит вместо ключей их хеши
+     * (см. {@link com.itmo.java.basics.index.impl.OffHeapTableIndex}). На формат файлов таблицы не влияет
+     */
+    public boolean isOffHeapIndex() {
+        return offHeapIndex;
+    }
+
+    public void setOffHeapIndex(boolean offHeapIndex) {
+        this.offHeapIndex = offHeapIndex;
+    }
+
+    /**
+     * @return {@code true} - если индекс таблицы хранит для ключа сразу сегмент, сдвиг записи и размер значения
+     * (см. {@link com.itmo.java.basics.index.impl.UnifiedTableIndex}), а вытесненные записи убираются из индексов
+     * сегментов. Важнее {@link #isOffHeapIndex()}. На формат файлов таблицы не влияет
+     */
+    public boolean isUnifiedIndex() {
+        return unifiedIndex;
+    }
+
+    public void setUnifiedIndex(boolean unifiedIndex) {
+        this.unifiedIndex = unifiedIndex;
+    }
+
+    /**
+     * @return {@code true} - если таблица хранит данные как LSM-дерево (см. {@link com.itmo.java.basics.logic.impl.LsmTable}):
+     * записи копятся в отсортированной таблице в памяти и сбрасываются в сегменты, упорядоченные по ключу.
+     * Такая таблица поддерживает сканирование диапазона ключей. Размер таблицы в памяти, после которого она
+     * сбрасывается, - {@link #getSegmentSize()}. Хранится в метаданных таблицы
+     */
+    public boolean isSortedSegments() {
+        return sortedSegments;
+    }
+
+    public void setSortedSegments(boolean sortedSegments) {
+        this.sortedSegments = sortedSegments;
+    }
+
+    /**
+     * @return доля устаревших записей в таблице, начиная с которой запускается слияние read-only сегментов.
+     * Значение не больше нуля отключает этот критерий
+     */
+    public double getCompactionGarbageRatio() {
+        return compactionGarbageRatio;
+    }
+
+    public void setCompactionGarbageRatio(double compactionGarbageRatio) {
+        this.compactionGarbageRatio = compactionGarbageRatio;
+    }
+
+    /**
+     * @return количество read-only сегментов, начиная с которого запускается их слияние.
+     * Значение не больше нуля отключает этот критерий
+     */
+    public int getCompactionSegmentThreshold() {
+        return compactionSegmentThreshold;
+    }
+
+    public void setCompactionSegmentThreshold(int compactionSegmentThreshold) {
+        this.compactionSegmentThreshold = compactionSegmentThreshold;
+    }
+
+    /**
+     * @return размер собственного кэша таблицы в байтах. Не используется, если таблица работает с общим кэшем
+     */
+    public long getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    public void setCacheCapacity(long cacheCapacity) {
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    /**
+     * @return {@code true} - если таблица кэширует значения в общем для всех таблиц кэше,
+     * размер которого задается {@link DatabaseConfig#getSharedCacheCapacity()}
+     */
+    public boolean isSharedCache() {
+        return sharedCache;
+    }
+
+    public void setSharedCache(boolean sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
+    /**
+     * @return когда записи таблицы сбрасываются на диск
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * @return период сброса на диск для {@link FsyncPolicy#INTERVAL}, в миллисекундах
+     */
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    public void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    /**
+     * @return размер буфера, в котором записи активного сегмента собираются перед записью в файл, в байтах
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * @return сколько записи могут лежать в буфере активного сегмента, прежде чем он будет записан в файл,
+     * в миллисекундах. Буфер записывается и раньше - когда заполнится или при сбросе на диск.
+     * Значение не больше нуля - буфер записывается в файл после каждой команды
+     */
+    public long getWriteBufferFlushMillis() {
+        return writeBufferFlushMillis;
+    }
+
+    public void setWriteBufferFlushMillis(long writeBufferFlushMillis) {
+        this.writeBufferFlushMillis = writeBufferFlushMillis;
+    }
+}
@@ -0,0 +1,457 @@
+package com.itmo.java.basics.connector;
+
+import com.itmo.java.basics.DatabaseServer;
+import com.itmo.java.basics.config.DatabaseConfig;
+import com.itmo.java.basics.config.ServerConfig;
+import com.itmo.java.basics.console.impl.ExecutionEnvironmentImpl;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.initialization.impl.DatabaseInitializer;
+import com.itmo.java.basics.initialization.impl.DatabaseServerInitializer;
+import com.itmo.java.basics.initialization.impl.SegmentInitializer;
+import com.itmo.java.basics.initialization.impl.TableInitializer;
+import com.itmo.java.protocol.RespReader;
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespError;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Сетевой вход в {@link DatabaseServer}. Принимает RESP команды по TCP и отвечает сериализованными
+ * результатами их исполнения.
+ *
+ * Все подключения обслуживает небольшое фиксированное число потоков ввода-вывода ({@link ServerConfig#getIoThreads()}),
+ * каждый со своим {@link Selector}. Команды исполняются на полосах {@link DatabaseServer}, а не в потоках
+ * ввода-вывода.
+ *
+ * Клиент может отправлять команды друг за другом, не дожидаясь ответов. Независимые команды исполняются
+ * параллельно, и ответ отправляется, как только готов - в виде {@link RespArray} из {@link RespCommandId} команды
+ * и результата, чтобы клиент мог сопоставить ответ с командой. Если неотвеченных команд подключения становится
+ * больше {@link #MAX_IN_FLIGHT_COMMANDS}, чтение из него приостанавливается, пока ответы не догонят.
+ * У простаивающего подключения нет собственных буферов: чтение идет в общий буфер потока, из которого
+ * пришедшие байты один раз копируются для разбора {@link RespReader}. Недочитанную команду хранит сам декодер
+ */
+public class JavaSocketServerConnector implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(JavaSocketServerConnector.class.getName());
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_IN_FLIGHT_COMMANDS = 1024;
+    private static final int MAX_GATHERED_WRITES = 64;
+
+    private final DatabaseServer databaseServer;
+    private final ServerSocketChannel serverChannel;
+    private final IoLoop[] loops;
+    private int nextLoop;
+
+    /**
+     * Открывает серверный сокет. Подключения начинают обслуживаться после {@link #start()}
+     *
+     * @param databaseServer сервер, который исполняет команды
+     * @param config         адрес и количество потоков ввода-вывода
+     * @throws IOException если не удалось открыть сокет
+     */
+    public JavaSocketServerConnector(DatabaseServer databaseServer, ServerConfig config) throws IOException {
+        this.databaseServer = databaseServer;
+        loops = new IoLoop[Math.max(1, config.getIoThreads())];
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(config.getHost(), config.getPort()));
+            serverChannel.configureBlocking(false);
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new IoLoop("kvs-io-" + i);
+            }
+            serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Запускает потоки ввода-вывода
+     */
+    public void start() {
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * @return адрес, на котором сервер принимает подключения (полезно, если порт выбирался системой)
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Перестает принимать подключения и закрывает уже открытые. {@link DatabaseServer} не закрывается
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        for (IoLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+    }
+
+    /**
+     * Запускает сервер как отдельный процесс
+     *
+     * @param args порт (по умолчанию {@link ServerConfig#DEFAULT_PORT}), рабочая директория, адрес
+     */
+    public static void main(String[] args) throws IOException, DatabaseException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : ServerConfig.DEFAULT_PORT;
+        String workingPath = args.length > 1 ? args[1] : "";
+        String host = args.length > 2 ? args[2] : ServerConfig.DEFAULT_HOST;
+
+        DatabaseServer databaseServer = DatabaseServer.initialize(
+                new ExecutionEnvironmentImpl(new DatabaseConfig(workingPath)),
+                new DatabaseServerInitializer(new DatabaseInitializer(new TableInitializer(new SegmentInitializer()))));
+        JavaSocketServerConnector connector = new JavaSocketServerConnector(databaseServer, new ServerConfig(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                connector.close();
+                databaseServer.close();
+            } catch (IOException | DatabaseException e) {
+                LOGGER.log(Level.WARNING, "Problem with shutting down the server", e);
+            }
+        }));
+        connector.start();
+        LOGGER.info("Listening on " + connector.getAddress());
+    }
+
+    private synchronized IoLoop nextLoop() {
+        IoLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+        return loop;
+    }
+
+    private static byte[] encode(RespObject object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        object.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Поток ввода-вывода со своим селектором. Все операции с каналами его подключений выполняются в нем
+     */
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private volatile boolean running = true;
+
+        IoLoop(String name) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Выполняет действие в потоке этого цикла
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    runTasks();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    LOGGER.log(Level.SEVERE, "I/O loop " + thread.getName() + " failed", e);
+                }
+            } finally {
+                closeConnections();
+            }
+        }
+
+        void close() {
+            running = false;
+            selector.wakeup();
+            if (!thread.isAlive()) {
+                closeConnections();
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Task of I/O loop " + thread.getName() + " failed", e);
+                }
+            }
+        }
+
+        /**
+         * Обрабатывает готовность канала. Ошибка подключения, в том числе нехватка памяти на его команду,
+         * закрывает только это подключение, а не весь цикл с остальными подключениями
+         */
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Closing connection " + connection.remoteAddress, e);
+                connection.close();
+            } catch (RuntimeException | OutOfMemoryError e) {
+                LOGGER.log(Level.WARNING, "Closing connection " + connection.remoteAddress + " after failure", e);
+                connection.close();
+            }
+        }
+
+        private void accept() {
+            SocketChannel channel;
+            try {
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    SocketChannel accepted = channel;
+                    IoLoop loop = nextLoop();
+                    loop.execute(() -> loop.register(accepted));
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot accept connection", e);
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot register connection", e);
+                closeQuietly(channel);
+            }
+        }
+
+        private void closeConnections() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                LOGGER.log(Level.FINE, "Problem with closing selector", e);
+            }
+        }
+    }
+
+    /**
+     * Состояние одного подключения. Чтение, разбор команд и запись в канал выполняются в потоке {@link IoLoop},
+     * ответы добавляются в очередь из потоков исполнения команд
+     */
+    private final class Connection {
+        private final IoLoop loop;
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final ByteBuffer[] writeBatch = new ByteBuffer[MAX_GATHERED_WRITES];
+        private int writeBatchStart;
+        private int writeBatchEnd;
+        private boolean readPaused;
+        private SelectionKey key;
+        private RespReader reader;
+
+        Connection(IoLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            remoteAddress = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void onReadable(ByteBuffer loopBuffer) throws IOException {
+            loopBuffer.clear();
+            if (channel.read(loopBuffer) < 0) {
+                close();
+                return;
+            }
+            loopBuffer.flip();
+
+            // Прочитанные строки ссылаются на буфер, из которого разобраны, а общий буфер перезапишется следующим чтением
+            ByteBuffer received = ByteBuffer.allocate(loopBuffer.remaining());
+            received.put(loopBuffer).flip();
+            if (reader == null) {
+                reader = new RespReader();
+            }
+
+            Optional<RespObject> object;
+            while ((object = reader.readObject(received)).isPresent()) {
+                dispatch(object.get());
+            }
+            if (!reader.hasPartialObject()) {
+                reader = null;
+            }
+        }
+
+        /**
+         * Пишет накопившиеся ответы, по нескольку за один системный вызов
+         */
+        void flush() throws IOException {
+            while (true) {
+                while (writeBatchStart < writeBatchEnd && !writeBatch[writeBatchStart].hasRemaining()) {
+                    writeBatch[writeBatchStart++] = null;
+                }
+                if (writeBatchStart == writeBatchEnd) {
+                    writeBatchStart = 0;
+                    writeBatchEnd = 0;
+                    ByteBuffer next;
+                    while (writeBatchEnd < writeBatch.length && (next = outbound.poll()) != null) {
+                        writeBatch[writeBatchEnd++] = next;
+                    }
+                    if (writeBatchEnd == 0) {
+                        updateInterest(false);
+                        return;
+                    }
+                }
+
+                channel.write(writeBatch, writeBatchStart, writeBatchEnd - writeBatchStart);
+                if (writeBatch[writeBatchEnd - 1].hasRemaining()) {
+                    updateInterest(true);
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            outbound.clear();
+            closeQuietly(channel);
+        }
+
+        /**
+         * Отправляет команду на исполнение. Ответ отправляется, как только будет готов, с id команды.
+         * На команду без id отвечать некому - клиенту отправляется ошибка и подключение закрывается
+         */
+        private void dispatch(RespObject object) throws IOException {
+            RespCommandId commandId = commandIdOf(object);
+            if (commandId == null) {
+                outbound.add(ByteBuffer.wrap(encode(error(new IOException("Command should be a RESP array starting with a command id")))));
+                flush();
+                throw new IOException("Malformed command from " + remoteAddress);
+            }
+
+            CompletableFuture<RespObject> response;
+            try {
+                response = databaseServer.executeNextCommand((RespArray) object)
+                        .handle((result, e) -> e == null ? result.serialize() : error(e));
+            } catch (RejectedExecutionException e) {
+                response = CompletableFuture.completedFuture(error(e));
+            }
+
+            if (inFlight.incrementAndGet() >= MAX_IN_FLIGHT_COMMANDS && !readPaused) {
+                readPaused = true;
+                updateInterest((key.interestOps() & SelectionKey.OP_WRITE) != 0);
+            }
+            response.thenAccept(respObject -> send(new RespArray(commandId, respObject)));
+        }
+
+        private RespCommandId commandIdOf(RespObject object) {
+            if (!(object instanceof RespArray)) {
+                return null;
+            }
+            RespArray command = (RespArray) object;
+            if (command.getObjects().isEmpty() || !(command.getObjects().get(0) instanceof RespCommandId)) {
+                return null;
+            }
+            return (RespCommandId) command.getObjects().get(0);
+        }
+
+        private void updateInterest(boolean writePending) {
+            int ops = (readPaused ? 0 : SelectionKey.OP_READ) | (writePending ? SelectionKey.OP_WRITE : 0);
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+            }
+        }
+
+        private void send(RespObject respObject) {
+            try {
+                outbound.add(ByteBuffer.wrap(encode(respObject)));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot serialize response for " + remoteAddress, e);
+            }
+            inFlight.decrementAndGet();
+
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    flushScheduled.set(false);
+                    if (key.isValid()) {
+                        if (readPaused && inFlight.get() <= MAX_IN_FLIGHT_COMMANDS / 2) {
+                            readPaused = false;
+                        }
+                        try {
+                            flush();
+                        } catch (IOException e) {
+                            LOGGER.log(Level.FINE, "Closing connection " + remoteAddress, e);
+                            close();
+                        }
+                    }
+                });
+            }
+        }
+
+        private RespError error(Throwable e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new RespError(String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Problem with closing channel", e);
+        }
+    }
+}
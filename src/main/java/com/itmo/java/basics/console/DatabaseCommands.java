@@ -4,6 +4,7 @@ import com.itmo.java.basics.console.impl.*;
 import com.itmo.java.basics.logic.impl.DatabaseImpl;
 import com.itmo.java.protocol.model.RespObject;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,7 +16,15 @@ public enum DatabaseCommands {
     CREATE_DATABASE {
         @Override
         public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
-            return new CreateDatabaseCommand(env, DatabaseImpl::create, commandArgs);
+            return new CreateDatabaseCommand(
+                    env,
+                    (dbName, dbRoot) -> DatabaseImpl.create(dbName, dbRoot, env.getConfig().getDefaultTableConfig()),
+                    commandArgs);
+        }
+
+        @Override
+        public boolean isBarrier() {
+            return true;
         }
     },
     CREATE_TABLE {
@@ -23,6 +32,11 @@ public enum DatabaseCommands {
         public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
             return new CreateTableCommand(env, commandArgs);
         }
+
+        @Override
+        public boolean isBarrier() {
+            return true;
+        }
     },
     SET_KEY {
         @Override
@@ -41,10 +55,115 @@ public enum DatabaseCommands {
         public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
             return new DeleteKeyCommand(env, commandArgs);
         }
+    },
+    /**
+     * Как {@link #SET_KEY}, но не читает и не возвращает предыдущее значение
+     */
+    PUT_KEY {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new SetKeyCommand(env, commandArgs, false);
+        }
+    },
+    /**
+     * Как {@link #DELETE_KEY}, но не читает и не возвращает удаленное значение
+     */
+    REMOVE_KEY {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new DeleteKeyCommand(env, commandArgs, false);
+        }
+    },
+    CACHE_STATS {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new CacheStatsCommand(env, commandArgs);
+        }
+    },
+    MGET {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new MGetCommand(env, commandArgs);
+        }
+
+        @Override
+        public List<RespObject> getKeys(List<RespObject> commandArgs) {
+            return keysFrom(commandArgs, 1);
+        }
+    },
+    MSET {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new MSetCommand(env, commandArgs);
+        }
+
+        @Override
+        public List<RespObject> getKeys(List<RespObject> commandArgs) {
+            return keysFrom(commandArgs, 2);
+        }
+    },
+    MDELETE {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new MDeleteCommand(env, commandArgs);
+        }
+
+        @Override
+        public List<RespObject> getKeys(List<RespObject> commandArgs) {
+            return keysFrom(commandArgs, 1);
+        }
+    },
+    SCAN {
+        @Override
+        public DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+            return new ScanCommand(env, commandArgs);
+        }
+
+        /**
+         * Диапазон не сводится к отдельным ключам, поэтому команда исполняется на полосе таблицы
+         */
+        @Override
+        public List<RespObject> getKeys(List<RespObject> commandArgs) {
+            return List.of();
+        }
     };
 
     /**
      * Возвращает созданную команду. Каждый элемент перечисления создается со своей реализацией этого метода
      */
     public abstract DatabaseCommand getCommand(ExecutionEnvironment env, List<RespObject> commandArgs);
+
+    /**
+     * Возвращает ключи, с которыми работает команда. По ним сервер выбирает, где исполнить команду
+     *
+     * @param commandArgs аргументы команды
+     * @return ключи команды. Пустой список, если команда не работает с ключами
+     */
+    public List<RespObject> getKeys(List<RespObject> commandArgs) {
+        int keyPosition = DatabaseCommandArgPositions.KEY.getPositionIndex();
+        return commandArgs.size() > keyPosition ? List.of(commandArgs.get(keyPosition)) : List.of();
+    }
+
+    /**
+     * Команда-барьер исполняется, когда до нее дойдет очередь на всех полосах сервера, а следующие команды -
+     * только после нее. Так команды, создающие базы и таблицы, упорядочены со всеми командами над их ключами
+     *
+     * @return {@code true} - если команда должна исполняться как барьер
+     */
+    public boolean isBarrier() {
+        return false;
+    }
+
+    /**
+     * Ключи пакетной команды - аргументы, начиная с {@link DatabaseCommandArgPositions#KEY}
+     *
+     * @param step через сколько аргументов идут ключи: 1 - только ключи, 2 - пары ключ-значение
+     */
+    private static List<RespObject> keysFrom(List<RespObject> commandArgs, int step) {
+        List<RespObject> keys = new ArrayList<>();
+        for (int i = DatabaseCommandArgPositions.KEY.getPositionIndex(); i < commandArgs.size(); i += step) {
+            keys.add(commandArgs.get(i));
+        }
+        return keys;
+    }
 }
@@ -1,16 +1,23 @@
 package com.itmo.java.basics.console;
 
+import com.itmo.java.basics.config.DatabaseConfig;
+import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.logic.Database;
 
 import java.nio.file.Path;
 import java.util.Optional;
 
-public interface ExecutionEnvironment {
+public interface ExecutionEnvironment extends AutoCloseable {
     /**
      * @return путь до директории, где находятся базы данных
      */
     Path getWorkingPath();
 
+    /**
+     * @return конфигурация, с которой было создано окружение
+     */
+    DatabaseConfig getConfig();
+
     /**
      * Возвращает {@code Optional<Database>} или {@code Optional#EMPTY}.
      *
@@ -25,4 +32,12 @@ public interface ExecutionEnvironment {
      * @param db база данных, которую нужно добавить
      */
     void addDatabase(Database db);
+
+    /**
+     * Закрывает все базы данных текущего окружения.
+     *
+     * @throws DatabaseException если не удалось закрыть хотя бы одну базу данных
+     */
+    @Override
+    void close() throws DatabaseException;
 }
@@ -0,0 +1,81 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommand;
+import com.itmo.java.basics.console.DatabaseCommandArgPositions;
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.CacheStats;
+import com.itmo.java.basics.logic.Database;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Команда для получения статистики кэша таблицы
+ */
+public class CacheStatsCommand implements DatabaseCommand {
+    private final ExecutionEnvironment env;
+    private final int id;
+    private final String databaseName;
+    private final String tableName;
+
+    /**
+     * Создает команду
+     * <br/>
+     * Обратите внимание, что в конструкторе нет логики проверки валидности данных. Не проверяется, можно ли исполнить команду. Только формальные признаки (например, количество переданных значений или ненуловость объектов
+     *
+     * @param env         env
+     * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
+     *                    Id команды, имя команды, имя бд, имя таблицы
+     * @throws IllegalArgumentException если передано неправильное количество аргументов
+     */
+    public CacheStatsCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        if (env == null) {
+            throw new IllegalArgumentException("env is null");
+        }
+
+        if (commandArgs.size() != 4) {
+            throw new IllegalArgumentException("invalid commandArgs");
+        }
+
+        this.env = env;
+        try {
+            id = Integer.parseInt(commandArgs.get(DatabaseCommandArgPositions.COMMAND_ID.getPositionIndex()).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid commandId");
+        }
+        databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
+        tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+    }
+
+    /**
+     * Собирает статистику кэша таблицы
+     *
+     * @return {@link DatabaseCommandResult#success(byte[])} со статистикой. Например,
+     * "hits=90 misses=10 hitRate=0.9000 loads=10 evictions=0 entries=10 bytes=1000 ...".
+     * Null, если таблица не кэширует значения
+     */
+    @Override
+    public DatabaseCommandResult execute() {
+        Optional<CacheStats> stats;
+        try {
+            Optional<Database> database = env.getDatabase(databaseName);
+            if (database.isEmpty()) {
+                return DatabaseCommandResult.error("Database " + databaseName + " is not present");
+            }
+
+            stats = database.get().getCacheStats(tableName);
+        } catch (DatabaseException e) {
+            return DatabaseCommandResult.error(e);
+        }
+
+        if (stats.isEmpty()) {
+            return DatabaseCommandResult.success(null);
+        }
+
+        return DatabaseCommandResult.success(stats.get().toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,6 @@
 package com.itmo.java.basics.console.impl;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.console.DatabaseCommand;
 import com.itmo.java.basics.console.DatabaseCommandArgPositions;
 import com.itmo.java.basics.console.DatabaseCommandResult;
@@ -13,13 +14,24 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * Команда для создания базы таблицы
+ * Команда для создания базы таблицы.
+ * Необязательные аргументы после имени таблицы - размер сегмента в байтах, время смены сегмента в миллисекундах
+ * и признак сегментов, упорядоченных по ключу (см. {@link TableConfig#getSegmentSize()},
+ * {@link TableConfig#getSegmentRolloverMillis()} и {@link TableConfig#isSortedSegments()}).
+ * Не указанные настройки берутся из настроек таблиц по умолчанию
  */
 public class CreateTableCommand implements DatabaseCommand {
+    private static final int SEGMENT_SIZE_POSITION = DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex() + 1;
+    private static final int SEGMENT_ROLLOVER_MILLIS_POSITION = SEGMENT_SIZE_POSITION + 1;
+    private static final int SORTED_SEGMENTS_POSITION = SEGMENT_ROLLOVER_MILLIS_POSITION + 1;
+
     private final ExecutionEnvironment env;
     private final int id;
     private final String databaseName;
     private final String tableName;
+    private final Long segmentSize;
+    private final Long segmentRolloverMillis;
+    private final boolean sortedSegments;
 
     /**
      * Создает команду
@@ -29,6 +41,7 @@ public class CreateTableCommand implements DatabaseCommand {
      * @param env         env
      * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
      *                    Id команды, имя команды, имя бд, имя таблицы
+     *                    [, размер сегмента [, время смены сегмента [, сегменты упорядочены по ключу]]]
      * @throws IllegalArgumentException если передано неправильное количество аргументов
      */
     public CreateTableCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
@@ -36,7 +49,7 @@ public class CreateTableCommand implements DatabaseCommand {
             throw new IllegalArgumentException("env is null");
         }
 
-        if (commandArgs.size() != 4) {
+        if (commandArgs.size() < 4 || commandArgs.size() > 7) {
             throw new IllegalArgumentException("invalid commandArgs");
         }
 
@@ -48,6 +61,10 @@ public class CreateTableCommand implements DatabaseCommand {
         }
         databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
         tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+        segmentSize = parseOption(commandArgs, SEGMENT_SIZE_POSITION, "invalid segment size");
+        segmentRolloverMillis = parseOption(commandArgs, SEGMENT_ROLLOVER_MILLIS_POSITION, "invalid segment rollover");
+        sortedSegments = commandArgs.size() > SORTED_SEGMENTS_POSITION
+                && Boolean.parseBoolean(commandArgs.get(SORTED_SEGMENTS_POSITION).asString());
     }
 
     /**
@@ -63,11 +80,37 @@ public class CreateTableCommand implements DatabaseCommand {
                 return DatabaseCommandResult.error("Database " + databaseName + " is not present");
             }
 
-            database.get().createTableIfNotExists(tableName);
+            if (segmentSize == null && segmentRolloverMillis == null && !sortedSegments) {
+                database.get().createTableIfNotExists(tableName);
+            } else {
+                TableConfig tableConfig = new TableConfig(env.getConfig().getDefaultTableConfig());
+                if (segmentSize != null) {
+                    tableConfig.setSegmentSize(segmentSize);
+                }
+                if (segmentRolloverMillis != null) {
+                    tableConfig.setSegmentRolloverMillis(segmentRolloverMillis);
+                }
+                if (sortedSegments) {
+                    tableConfig.setSortedSegments(true);
+                }
+                database.get().createTableIfNotExists(tableName, tableConfig);
+            }
         } catch (DatabaseException e) {
             return DatabaseCommandResult.error(e);
         }
 
         return DatabaseCommandResult.success(("Table " + tableName + " in database " + databaseName + " created").getBytes(StandardCharsets.UTF_8));
     }
+
+    private static Long parseOption(List<RespObject> commandArgs, int position, String errorMessage) {
+        if (commandArgs.size() <= position) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(commandArgs.get(position).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
 }
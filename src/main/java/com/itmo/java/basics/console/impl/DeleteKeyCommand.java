@@ -21,6 +21,7 @@ public class DeleteKeyCommand implements DatabaseCommand {
     private final String databaseName;
     private final String tableName;
     private final String objectKey;
+    private final boolean returnPreviousValue;
     /**
      * Создает команду.
      * <br/>
@@ -29,9 +30,10 @@ public class DeleteKeyCommand implements DatabaseCommand {
      * @param env         env
      * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
      *                    Id команды, имя команды, имя бд, таблицы, ключ
+     * @param returnPreviousValue {@code false} - не возвращать удаленное значение. Тогда оно не читается вовсе
      * @throws IllegalArgumentException если передано неправильное количество аргументов
      */
-    public DeleteKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+    public DeleteKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs, boolean returnPreviousValue) {
         if (env == null) {
             throw new IllegalArgumentException("env is null");
         }
@@ -49,12 +51,23 @@ public class DeleteKeyCommand implements DatabaseCommand {
         databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
         tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
         objectKey = commandArgs.get(DatabaseCommandArgPositions.KEY.getPositionIndex()).asString();
+        this.returnPreviousValue = returnPreviousValue;
+    }
+
+    /**
+     * Создает команду, которая возвращает удаленное значение
+     *
+     * @see #DeleteKeyCommand(ExecutionEnvironment, List, boolean)
+     */
+    public DeleteKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        this(env, commandArgs, true);
     }
 
     /**
      * Удаляет значение по ключу
      *
-     * @return {@link DatabaseCommandResult#success(byte[])} с удаленным значением. Например, "previous"
+     * @return {@link DatabaseCommandResult#success(byte[])} с удаленным значением. Например, "previous".
+     * Null, если удаленное значение не запрашивалось
      */
     @Override
     public DatabaseCommandResult execute() {
@@ -65,8 +78,12 @@ public class DeleteKeyCommand implements DatabaseCommand {
                 return DatabaseCommandResult.error("Database " + databaseName + " is not present");
             }
 
-            deletingValue = database.get().read(tableName, objectKey);
-            database.get().delete(tableName, objectKey);
+            if (returnPreviousValue) {
+                deletingValue = database.get().getAndDelete(tableName, objectKey);
+            } else {
+                database.get().delete(tableName, objectKey);
+                deletingValue = Optional.empty();
+            }
         } catch (DatabaseException e) {
             return DatabaseCommandResult.error(e);
         }
@@ -2,29 +2,36 @@ package com.itmo.java.basics.console.impl;
 
 import com.itmo.java.basics.config.DatabaseConfig;
 import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.logic.Database;
+import com.itmo.java.basics.logic.impl.DatabaseCacheImpl;
+import com.itmo.java.basics.logic.impl.SegmentMappingBudget;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExecutionEnvironmentImpl implements ExecutionEnvironment {
+    private final DatabaseConfig config;
     private final Path workingPath;
     private final Map<String, Database> databases;
 
     public ExecutionEnvironmentImpl(DatabaseConfig config) {
+        this.config = config;
         workingPath = Paths.get(config.getWorkingPath());
-        databases = new HashMap<>();
+        databases = new ConcurrentHashMap<>();
+        SegmentMappingBudget.getInstance().setCapacity(config.getMappedSegmentsBudget());
+        DatabaseCacheImpl.getSharedInstance().setCapacity(config.getSharedCacheCapacity());
     }
 
     @Override
     public Optional<Database> getDatabase(String name) {
-        if (!databases.containsKey(name)) {
+        if (name == null) {
             return Optional.empty();
         }
-        return Optional.of(databases.get(name));
+        return Optional.ofNullable(databases.get(name));
     }
 
     @Override
@@ -38,4 +45,29 @@ public class ExecutionEnvironmentImpl implements ExecutionEnvironment {
     public Path getWorkingPath() {
         return workingPath;
     }
+
+    @Override
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        DatabaseException closeException = null;
+        for (Database database : databases.values()) {
+            try {
+                database.close();
+            } catch (DatabaseException e) {
+                if (closeException == null) {
+                    closeException = e;
+                } else {
+                    closeException.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
 }
@@ -34,6 +34,6 @@ public class FailedDatabaseCommandResult implements DatabaseCommandResult {
      */
     @Override
     public RespObject serialize() {
-        return new RespError(payload.getBytes(StandardCharsets.UTF_8));
+        return new RespError(String.valueOf(payload).getBytes(StandardCharsets.UTF_8));
     }
 }
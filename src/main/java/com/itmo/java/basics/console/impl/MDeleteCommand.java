@@ -0,0 +1,81 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommand;
+import com.itmo.java.basics.console.DatabaseCommandArgPositions;
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.Database;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Команда для удаления нескольких ключей одной таблицы
+ */
+public class MDeleteCommand implements DatabaseCommand {
+    private final ExecutionEnvironment env;
+    private final int id;
+    private final String databaseName;
+    private final String tableName;
+    private final Set<String> objectKeys;
+
+    /**
+     * Создает команду.
+     * <br/>
+     * Обратите внимание, что в конструкторе нет логики проверки валидности данных. Не проверяется, можно ли исполнить команду. Только формальные признаки (например, количество переданных значений или ненуловость объектов
+     *
+     * @param env         env
+     * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
+     *                    Id команды, имя команды, имя бд, таблицы, ключи
+     * @throws IllegalArgumentException если передано неправильное количество аргументов
+     */
+    public MDeleteCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        if (env == null) {
+            throw new IllegalArgumentException("env is null");
+        }
+
+        if (commandArgs.size() < 5) {
+            throw new IllegalArgumentException("invalid commandArgs");
+        }
+
+        this.env = env;
+        try {
+            id = Integer.parseInt(commandArgs.get(DatabaseCommandArgPositions.COMMAND_ID.getPositionIndex()).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid commandId");
+        }
+        databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
+        tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+        objectKeys = new LinkedHashSet<>();
+        for (int i = DatabaseCommandArgPositions.KEY.getPositionIndex(); i < commandArgs.size(); i++) {
+            objectKeys.add(commandArgs.get(i).asString());
+        }
+    }
+
+    /**
+     * Удаляет ключи одной пачкой. Ключи, которых нет в таблице, пропускаются
+     *
+     * @return {@link DatabaseCommandResult#success(byte[])} с количеством удаленных ключей. Например, "2"
+     */
+    @Override
+    public DatabaseCommandResult execute() {
+        int deletedCount;
+        try {
+            Optional<Database> database = env.getDatabase(databaseName);
+            if (database.isEmpty()) {
+                return DatabaseCommandResult.error("Database " + databaseName + " is not present");
+            }
+
+            deletedCount = database.get().delete(tableName, objectKeys);
+        } catch (DatabaseException e) {
+            return DatabaseCommandResult.error(e);
+        }
+
+        return DatabaseCommandResult.success(String.valueOf(deletedCount).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommand;
+import com.itmo.java.basics.console.DatabaseCommandArgPositions;
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.Database;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Команда для получения значений нескольких ключей одной таблицы
+ */
+public class MGetCommand implements DatabaseCommand {
+    private final ExecutionEnvironment env;
+    private final int id;
+    private final String databaseName;
+    private final String tableName;
+    private final List<String> objectKeys;
+
+    /**
+     * Создает команду.
+     * <br/>
+     * Обратите внимание, что в конструкторе нет логики проверки валидности данных. Не проверяется, можно ли исполнить команду. Только формальные признаки (например, количество переданных значений или ненуловость объектов
+     *
+     * @param env         env
+     * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
+     *                    Id команды, имя команды, имя бд, таблицы, ключи
+     * @throws IllegalArgumentException если передано неправильное количество аргументов
+     */
+    public MGetCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        if (env == null) {
+            throw new IllegalArgumentException("env is null");
+        }
+
+        if (commandArgs.size() < 5) {
+            throw new IllegalArgumentException("invalid commandArgs");
+        }
+
+        this.env = env;
+        try {
+            id = Integer.parseInt(commandArgs.get(DatabaseCommandArgPositions.COMMAND_ID.getPositionIndex()).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid commandId");
+        }
+        databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
+        tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+        objectKeys = new ArrayList<>(commandArgs.size() - DatabaseCommandArgPositions.KEY.getPositionIndex());
+        for (int i = DatabaseCommandArgPositions.KEY.getPositionIndex(); i < commandArgs.size(); i++) {
+            objectKeys.add(commandArgs.get(i).asString());
+        }
+    }
+
+    /**
+     * Читает значения ключей
+     *
+     * @return {@link DatabaseCommandResult#successValues(List)} со значениями в порядке ключей. Например,
+     * ["value1", null, "value3"]. Null, если такого ключа нет
+     */
+    @Override
+    public DatabaseCommandResult execute() {
+        Map<String, byte[]> values;
+        try {
+            Optional<Database> database = env.getDatabase(databaseName);
+            if (database.isEmpty()) {
+                return DatabaseCommandResult.error("Database " + databaseName + " is not present");
+            }
+
+            values = database.get().read(tableName, objectKeys);
+        } catch (DatabaseException e) {
+            return DatabaseCommandResult.error(e);
+        }
+
+        List<byte[]> results = new ArrayList<>(objectKeys.size());
+        for (String objectKey : objectKeys) {
+            results.add(values.get(objectKey));
+        }
+        return DatabaseCommandResult.successValues(results);
+    }
+}
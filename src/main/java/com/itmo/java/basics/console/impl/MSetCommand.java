@@ -0,0 +1,82 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommand;
+import com.itmo.java.basics.console.DatabaseCommandArgPositions;
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.Database;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Команда для записи значений нескольких ключей одной таблицы
+ */
+public class MSetCommand implements DatabaseCommand {
+    private final ExecutionEnvironment env;
+    private final int id;
+    private final String databaseName;
+    private final String tableName;
+    private final Map<String, byte[]> objects;
+
+    /**
+     * Создает команду.
+     * <br/>
+     * Обратите внимание, что в конструкторе нет логики проверки валидности данных. Не проверяется, можно ли исполнить команду. Только формальные признаки (например, количество переданных значений или ненуловость объектов
+     *
+     * @param env         env
+     * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
+     *                    Id команды, имя команды, имя бд, таблицы, пары ключ-значение. Если ключ повторяется,
+     *                    записывается последнее значение
+     * @throws IllegalArgumentException если передано неправильное количество аргументов
+     */
+    public MSetCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        if (env == null) {
+            throw new IllegalArgumentException("env is null");
+        }
+
+        int keyPosition = DatabaseCommandArgPositions.KEY.getPositionIndex();
+        if (commandArgs.size() <= keyPosition || (commandArgs.size() - keyPosition) % 2 != 0) {
+            throw new IllegalArgumentException("invalid commandArgs");
+        }
+
+        this.env = env;
+        try {
+            id = Integer.parseInt(commandArgs.get(DatabaseCommandArgPositions.COMMAND_ID.getPositionIndex()).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid commandId");
+        }
+        databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
+        tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+        objects = new LinkedHashMap<>();
+        for (int i = keyPosition; i < commandArgs.size(); i += 2) {
+            objects.put(commandArgs.get(i).asString(), commandArgs.get(i + 1).asBytes());
+        }
+    }
+
+    /**
+     * Записывает значения одной пачкой
+     *
+     * @return {@link DatabaseCommandResult#success(byte[])} с количеством записанных ключей. Например, "3"
+     */
+    @Override
+    public DatabaseCommandResult execute() {
+        try {
+            Optional<Database> database = env.getDatabase(databaseName);
+            if (database.isEmpty()) {
+                return DatabaseCommandResult.error("Database " + databaseName + " is not present");
+            }
+
+            database.get().write(tableName, objects);
+        } catch (DatabaseException e) {
+            return DatabaseCommandResult.error(e);
+        }
+
+        return DatabaseCommandResult.success(String.valueOf(objects.size()).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Результат успешной команды, которая возвращает несколько значений
+ */
+public class MultiValueDatabaseCommandResult implements DatabaseCommandResult {
+    private final List<byte[]> payloads;
+
+    public MultiValueDatabaseCommandResult(List<byte[]> payloads) {
+        this.payloads = new ArrayList<>(payloads);
+    }
+
+    /**
+     * @return значения, разделенные пробелом. Отсутствующие значения - "null"
+     */
+    @Override
+    public String getPayLoad() {
+        return payloads.stream()
+                .map(payload -> payload == null ? null : new String(payload, StandardCharsets.UTF_8))
+                .map(String::valueOf)
+                .collect(Collectors.joining(" "));
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return true;
+    }
+
+    /**
+     * Сериализуется в {@link RespArray} из {@link RespBulkString} в порядке значений
+     */
+    @Override
+    public RespObject serialize() {
+        RespObject[] objects = new RespObject[payloads.size()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new RespBulkString(payloads.get(i));
+        }
+        return new RespArray(objects);
+    }
+}
@@ -0,0 +1,118 @@
+package com.itmo.java.basics.console.impl;
+
+import com.itmo.java.basics.console.DatabaseCommand;
+import com.itmo.java.basics.console.DatabaseCommandArgPositions;
+import com.itmo.java.basics.console.DatabaseCommandResult;
+import com.itmo.java.basics.console.ExecutionEnvironment;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.Database;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Команда для чтения диапазона ключей таблицы в порядке ключей. Таблица должна хранить сегменты,
+ * упорядоченные по ключу (см. {@link com.itmo.java.basics.config.TableConfig#isSortedSegments()}).
+ * Диапазон читается страницами: ответ содержит ключ, с которого начинается следующая страница
+ */
+public class ScanCommand implements DatabaseCommand {
+    /**
+     * Число ключей в странице, если ограничение не передано
+     */
+    public static final int DEFAULT_LIMIT = 1000;
+    /**
+     * Наибольшее число ключей в странице: больший лимит уменьшается до него, чтобы одна команда
+     * не держала поток исполнения и не собирала в памяти весь диапазон. Клиент дочитывает диапазон
+     * со следующего ключа страницы
+     */
+    public static final int MAX_LIMIT = 10_000;
+
+    private final ExecutionEnvironment env;
+    private final int id;
+    private final String databaseName;
+    private final String tableName;
+    private final String fromKey;
+    private final String toKey;
+    private final int limit;
+
+    /**
+     * Создает команду.
+     * <br/>
+     * Обратите внимание, что в конструкторе нет логики проверки валидности данных. Не проверяется, можно ли исполнить команду. Только формальные признаки (например, количество переданных значений или ненуловость объектов
+     *
+     * @param env         env
+     * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
+     *                    Id команды, имя команды, имя бд, таблицы, первый ключ диапазона и необязательные:
+     *                    ключ, перед которым диапазон заканчивается (пустая строка - до конца таблицы),
+     *                    и наибольшее число ключей в странице (не больше нуля - {@value #DEFAULT_LIMIT},
+     *                    больше {@value #MAX_LIMIT} - {@value #MAX_LIMIT})
+     * @throws IllegalArgumentException если передано неправильное количество аргументов
+     */
+    public ScanCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        if (env == null) {
+            throw new IllegalArgumentException("env is null");
+        }
+
+        int keyPosition = DatabaseCommandArgPositions.KEY.getPositionIndex();
+        if (commandArgs.size() < keyPosition + 1 || commandArgs.size() > keyPosition + 3) {
+            throw new IllegalArgumentException("invalid commandArgs");
+        }
+
+        this.env = env;
+        try {
+            id = Integer.parseInt(commandArgs.get(DatabaseCommandArgPositions.COMMAND_ID.getPositionIndex()).asString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid commandId");
+        }
+        databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
+        tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
+        fromKey = commandArgs.get(keyPosition).asString();
+
+        String to = commandArgs.size() > keyPosition + 1 ? commandArgs.get(keyPosition + 1).asString() : "";
+        toKey = to.isEmpty() ? null : to;
+        try {
+            int requestedLimit = commandArgs.size() > keyPosition + 2
+                    ? Integer.parseInt(commandArgs.get(keyPosition + 2).asString())
+                    : 0;
+            limit = requestedLimit > 0 ? Math.min(requestedLimit, MAX_LIMIT) : DEFAULT_LIMIT;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid limit");
+        }
+    }
+
+    /**
+     * Читает страницу диапазона: не больше limit ключей и еще один ключ, с которого начнется следующая страница
+     *
+     * @return {@link DatabaseCommandResult#successValues(List)}: первым идет ключ, с которого нужно запросить
+     * следующую страницу (null, если диапазон прочитан до конца), затем ключи и значения вперемешку в порядке ключей.
+     * Например, ["key3", "key1", "value1", "key2", "value2"]. Удаленных ключей в ответе нет
+     */
+    @Override
+    public DatabaseCommandResult execute() {
+        List<byte[]> results = new ArrayList<>();
+        results.add(null);
+        try {
+            Optional<Database> database = env.getDatabase(databaseName);
+            if (database.isEmpty()) {
+                return DatabaseCommandResult.error("Database " + databaseName + " is not present");
+            }
+
+            database.get().scan(tableName, fromKey, toKey, (key, value) -> {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                if (results.size() / 2 == limit) {
+                    results.set(0, keyBytes);
+                    return false;
+                }
+                results.add(keyBytes);
+                results.add(value);
+                return true;
+            });
+        } catch (DatabaseException e) {
+            return DatabaseCommandResult.error(e);
+        }
+        return DatabaseCommandResult.successValues(results);
+    }
+}
@@ -8,7 +8,6 @@ import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.logic.Database;
 import com.itmo.java.protocol.model.RespObject;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +21,7 @@ public class SetKeyCommand implements DatabaseCommand {
     private final String tableName;
     private final String objectKey;
     private final byte[] objectValue;
+    private final boolean returnPreviousValue;
     /**
      * Создает команду.
      * <br/>
@@ -30,9 +30,10 @@ public class SetKeyCommand implements DatabaseCommand {
      * @param env         env
      * @param commandArgs аргументы для создания (порядок - {@link DatabaseCommandArgPositions}.
      *                    Id команды, имя команды, имя бд, таблицы, ключ, значение
+     * @param returnPreviousValue {@code false} - не возвращать предыдущее значение. Тогда оно не читается вовсе
      * @throws IllegalArgumentException если передано неправильное количество аргументов
      */
-    public SetKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+    public SetKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs, boolean returnPreviousValue) {
         if (env == null) {
             throw new IllegalArgumentException("env is null");
         }
@@ -50,13 +51,24 @@ public class SetKeyCommand implements DatabaseCommand {
         databaseName = commandArgs.get(DatabaseCommandArgPositions.DATABASE_NAME.getPositionIndex()).asString();
         tableName = commandArgs.get(DatabaseCommandArgPositions.TABLE_NAME.getPositionIndex()).asString();
         objectKey = commandArgs.get(DatabaseCommandArgPositions.KEY.getPositionIndex()).asString();
-        objectValue = commandArgs.get(DatabaseCommandArgPositions.VALUE.getPositionIndex()).asString().getBytes(StandardCharsets.UTF_8);
+        objectValue = commandArgs.get(DatabaseCommandArgPositions.VALUE.getPositionIndex()).asBytes();
+        this.returnPreviousValue = returnPreviousValue;
+    }
+
+    /**
+     * Создает команду, которая возвращает предыдущее значение
+     *
+     * @see #SetKeyCommand(ExecutionEnvironment, List, boolean)
+     */
+    public SetKeyCommand(ExecutionEnvironment env, List<RespObject> commandArgs) {
+        this(env, commandArgs, true);
     }
 
     /**
      * Записывает значение
      *
-     * @return {@link DatabaseCommandResult#success(byte[])} c предыдущим значением. Например, "previous" или null, если такого не было
+     * @return {@link DatabaseCommandResult#success(byte[])} c предыдущим значением. Например, "previous" или null, если такого не было.
+     * Null, если предыдущее значение не запрашивалось
      */
     @Override
     public DatabaseCommandResult execute() {
@@ -67,8 +79,12 @@ public class SetKeyCommand implements DatabaseCommand {
                 return DatabaseCommandResult.error("Database " + databaseName + " is not present");
             }
 
-            previousValue = database.get().read(tableName, objectKey);
-            database.get().write(tableName, objectKey, objectValue);
+            if (returnPreviousValue) {
+                previousValue = database.get().getAndWrite(tableName, objectKey, objectValue);
+            } else {
+                database.get().write(tableName, objectKey, objectValue);
+                previousValue = Optional.empty();
+            }
         } catch (DatabaseException e) {
             return DatabaseCommandResult.error(e);
         }
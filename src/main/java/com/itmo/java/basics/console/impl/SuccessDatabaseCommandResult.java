@@ -4,6 +4,7 @@ import com.itmo.java.basics.console.DatabaseCommandResult;
 import com.itmo.java.protocol.model.RespBulkString;
 import com.itmo.java.protocol.model.RespObject;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -23,7 +24,7 @@ public class SuccessDatabaseCommandResult implements DatabaseCommandResult {
             return null;
         }
 
-        return new String(payload);
+        return new String(payload, StandardCharsets.UTF_8);
     }
 
     @Override
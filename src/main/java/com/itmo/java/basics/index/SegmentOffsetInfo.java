@@ -2,4 +2,9 @@ package com.itmo.java.basics.index;
 
 public interface SegmentOffsetInfo {
     long getOffset();
+
+    /**
+     * @return размер значения записи, как он записан в ее заголовке: -1 - для записи об удалении
+     */
+    int getValueSize();
 }
@@ -0,0 +1,106 @@
+package com.itmo.java.basics.index.impl;
+
+/**
+ * Фильтр Блума по ключам сегмента: отвечает, что ключа в сегменте точно нет или что он там может быть.
+ * Размер подбирается по числу ключей и допустимой доле ложных срабатываний. Ключ хешируется один раз
+ * (см. {@link KeyHash}), позиции битов получаются из двух хешей двойным хешированием (Kirsch-Mitzenmacher)
+ *
+ * Фильтр заполняется до того, как становится доступен другим потокам, и после этого не меняется,
+ * поэтому читается без синхронизации
+ */
+public class BloomFilter {
+    private static final int MAX_HASH_FUNCTIONS = 30;
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    /**
+     * Создает пустой фильтр, рассчитанный на заданное число ключей
+     *
+     * @param expectedKeys      число ключей, которые будут добавлены
+     * @param falsePositiveRate допустимая доля ложных срабатываний, от 0 до 1 не включительно
+     */
+    public static BloomFilter create(long expectedKeys, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate should be in (0, 1)");
+        }
+
+        long keys = Math.max(1, expectedKeys);
+        double optimalBits = -keys * Math.log(falsePositiveRate) / (LN2 * LN2);
+        long words = Math.min(MAX_WORDS, Math.max(1, (long) Math.ceil(optimalBits / Long.SIZE)));
+        int hashFunctions = (int) Math.round((double) words * Long.SIZE / keys * LN2);
+        return new BloomFilter(new long[(int) words], Math.max(1, Math.min(MAX_HASH_FUNCTIONS, hashFunctions)));
+    }
+
+    /**
+     * Восстанавливает фильтр из сохраненных битов
+     *
+     * @param bits          биты фильтра, массив не копируется
+     * @param hashFunctions число хеш-функций
+     */
+    public BloomFilter(long[] bits, int hashFunctions) {
+        if (bits.length == 0 || hashFunctions <= 0) {
+            throw new IllegalArgumentException("Bloom filter should have bits and hash functions");
+        }
+
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        bitCount = (long) bits.length * Long.SIZE;
+    }
+
+    public void add(String key) {
+        long hash = KeyHash.hash(key);
+        long combinedHash = hash;
+        long step = KeyHash.mix(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = bitIndex(combinedHash);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+            combinedHash += step;
+        }
+    }
+
+    /**
+     * @return {@code false} - если ключ точно не добавлялся в фильтр
+     */
+    public boolean mightContain(String key) {
+        long hash = KeyHash.hash(key);
+        long combinedHash = hash;
+        long step = KeyHash.mix(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = bitIndex(combinedHash);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+            combinedHash += step;
+        }
+        return true;
+    }
+
+    /**
+     * @return биты фильтра для сохранения на диск. Массив не копируется, менять его нельзя
+     */
+    public long[] getBits() {
+        return bits;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * @return память, занятая битами фильтра, в байтах
+     */
+    public long getSizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    /**
+     * Номер бита для хеша: старшие биты произведения хеша на число битов фильтра, без деления
+     */
+    private long bitIndex(long hash) {
+        return Math.multiplyHigh(hash >>> 1, bitCount << 1);
+    }
+}
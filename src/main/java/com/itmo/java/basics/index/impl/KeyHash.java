@@ -0,0 +1,61 @@
+package com.itmo.java.basics.index.impl;
+
+/**
+ * Хеширование ключей для структур, которые хранят не сами ключи, а их хеши (см. {@link BloomFilter},
+ * {@link OffHeapTableIndex}). Значения хешей сохраняются на диск, поэтому алгоритм менять нельзя
+ */
+final class KeyHash {
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long MURMUR_MULTIPLIER = 0xC6A4A7935BD1E995L;
+    private static final int MURMUR_SHIFT = 47;
+
+    private KeyHash() {
+    }
+
+    /**
+     * MurmurHash64A по UTF-16 символам строки, по четыре символа в блоке
+     */
+    static long hash(String key) {
+        int length = key.length();
+        long hash = SEED ^ (length * MURMUR_MULTIPLIER);
+
+        int blocksEnd = length & ~3;
+        for (int i = 0; i < blocksEnd; i += 4) {
+            long block = key.charAt(i)
+                    | (long) key.charAt(i + 1) << 16
+                    | (long) key.charAt(i + 2) << 32
+                    | (long) key.charAt(i + 3) << 48;
+            block *= MURMUR_MULTIPLIER;
+            block ^= block >>> MURMUR_SHIFT;
+            block *= MURMUR_MULTIPLIER;
+            hash ^= block;
+            hash *= MURMUR_MULTIPLIER;
+        }
+
+        if (blocksEnd < length) {
+            long tail = 0;
+            for (int i = length - 1; i >= blocksEnd; i--) {
+                tail = tail << 16 | key.charAt(i);
+            }
+            hash ^= tail;
+            hash *= MURMUR_MULTIPLIER;
+        }
+
+        hash ^= hash >>> MURMUR_SHIFT;
+        hash *= MURMUR_MULTIPLIER;
+        hash ^= hash >>> MURMUR_SHIFT;
+        return hash;
+    }
+
+    /**
+     * Второй хеш для двойного хеширования: финализатор MurmurHash3, примененный к первому хешу
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash | 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.itmo.java.basics.index.impl;
+
+/**
+ * Хеш-таблица с открытой адресацией и линейным пробированием - общая часть индексов ({@link RecordTable},
+ * {@link OffHeapTableIndex}): порядок пробирования, поиск слота ключа и удаление ключа со сдвигом следующих
+ * слотов цепочки назад, без пометок об удалении. Как хранятся слоты и как сравниваются ключи, решают наследники.
+ * <p>
+ * Изменения выполняются под блокировкой записи индекса. Поиск может идти без блокировки одновременно с ними:
+ * тогда он может не найти ключ или найти не тот слот, и его результат нужно проверить
+ */
+abstract class LinearProbingTable {
+    /**
+     * Результат {@link #find(long, String)}, если ключа нет и свободных слотов тоже
+     */
+    static final long NO_SLOT = Long.MIN_VALUE;
+
+    final long capacity;
+
+    LinearProbingTable(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return первый слот пробирования для хеша
+     */
+    abstract long home(long hash);
+
+    /**
+     * @return хеш ключа, лежащего в занятом слоте
+     */
+    abstract long hashAt(long slot);
+
+    abstract boolean isFree(long slot);
+
+    /**
+     * @return лежит ли в слоте указанный ключ. Слот мог освободиться, если поиск идет без блокировки
+     */
+    abstract boolean matches(long slot, long hash, String key);
+
+    /**
+     * Переносит содержимое занятого слота в свободный
+     */
+    abstract void move(long from, long to);
+
+    abstract void free(long slot);
+
+    final long next(long slot) {
+        return slot + 1 == capacity ? 0 : slot + 1;
+    }
+
+    /**
+     * @return слот ключа, {@code -(номер свободного слота, в который ключ нужно добавить) - 1}, если ключа нет,
+     * или {@link #NO_SLOT}, если ключа нет, а свободных слотов не осталось
+     */
+    final long find(long hash, String key) {
+        long slot = home(hash);
+        for (long probes = 0; probes < capacity; probes++) {
+            if (isFree(slot)) {
+                return -slot - 1;
+            }
+            if (matches(slot, hash, key)) {
+                return slot;
+            }
+            slot = next(slot);
+        }
+
+        return NO_SLOT;
+    }
+
+    /**
+     * @return первый свободный слот в цепочке пробирования хеша - куда кладется ключ при перестроении таблицы,
+     * когда ключи заведомо различны
+     */
+    final long freeSlotFor(long hash) {
+        long slot = home(hash);
+        while (!isFree(slot)) {
+            slot = next(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Освобождает слот, сдвигая назад следующие за ним слоты той же цепочки пробирования,
+     * чтобы поиск не останавливался на образовавшейся дыре
+     */
+    final void remove(long slot) {
+        long hole = slot;
+        long next = next(hole);
+        while (!isFree(next)) {
+            long home = home(hashAt(next));
+            boolean homeBetween = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (!homeBetween) {
+                move(next, hole);
+                hole = next;
+            }
+            next = next(next);
+        }
+
+        free(hole);
+    }
+}
@@ -2,12 +2,17 @@ package com.itmo.java.basics.index.impl;
 
 import com.itmo.java.basics.index.KvsIndex;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Индекс на основе хеш-таблицы. Допускает одновременное чтение и обновление из разных потоков
+ */
 public class MapBasedKvsIndex<K, V> implements KvsIndex<K, V> {
-    private final Map<K, V> index = new HashMap<>(200);
+    private final Map<K, V> index = new ConcurrentHashMap<>(200);
 
     @Override
     public void onIndexedEntityUpdated(K key, V value) {
@@ -18,4 +23,33 @@ public class MapBasedKvsIndex<K, V> implements KvsIndex<K, V> {
     public Optional<V> searchForKey(K key) {
         return Optional.ofNullable(index.get(key));
     }
+
+    /**
+     * Заменяет значение по ключу, только если в индексе сейчас лежит ожидаемое значение.
+     *
+     * @return {@code true} - если значение было заменено
+     */
+    public boolean replaceIfMatches(K key, V expectedValue, V newValue) {
+        return index.replace(key, expectedValue, newValue);
+    }
+
+    /**
+     * Удаляет ключ из индекса, только если в индексе сейчас лежит ожидаемое значение.
+     *
+     * @return {@code true} - если ключ был удален
+     */
+    public boolean removeIfMatches(K key, V expectedValue) {
+        return index.remove(key, expectedValue);
+    }
+
+    /**
+     * @return неизменяемое представление ключей индекса
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    public int size() {
+        return index.size();
+    }
 }
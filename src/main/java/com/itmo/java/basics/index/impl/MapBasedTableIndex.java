@@ -0,0 +1,9 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.logic.Segment;
+
+/**
+ * Индекс таблицы на основе хеш-таблицы в куче: ключи хранятся как строки
+ */
+public class MapBasedTableIndex extends MapBasedKvsIndex<String, Segment> implements TableIndex {
+}
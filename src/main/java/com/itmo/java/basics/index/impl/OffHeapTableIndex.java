@@ -0,0 +1,462 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.logic.Segment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Индекс таблицы вне кучи: хеш-таблица с открытой адресацией в direct буферах (линейное пробирование,
+ * см. {@link LinearProbingTable}). Ключи в индексе не хранятся: слот занимает 16 байт - 64-битный хеш ключа (см. {@link KeyHash})
+ * и упакованные номер сегмента и сдвиг последней записи ключа в нем. Совпадение хеша подтверждается чтением
+ * ключа из записи (см. {@link Segment#isRecordOf(long, String)}), поэтому ключи с одинаковым хешем не путаются,
+ * а поиск существующего ключа стоит одного чтения заголовка записи. Перед чтением ключ проверяется фильтром Блума
+ * сегмента (см. {@link Segment#mightContain(String)}): при совпадении хешей разных ключей чтение обычно не нужно
+ * <p>
+ * - размер значения берется из того же заголовка (см. {@link Segment#readValueSize(long, String)}), поэтому чтение
+ * значения не обращается к индексу сегмента, а read-only сегменты не держат своих индексов (см. {@link #needsSegmentKeys()}).
+ * Ключи в куче есть только у индекса активного сегмента
+ * <p>
+ * - сегменты нумеруются самим индексом, номер освобождается, когда на сегмент не остается ключей
+ * - слоты лежат в буферах по {@value #CHUNK_SLOTS} штук, поэтому размер индекса не ограничен размером одного буфера.
+ * Буферы освобождаются сборщиком мусора, их суммарный размер ограничен {@code -XX:MaxDirectMemorySize}
+ * - при заполнении на {@value #MAX_LOAD_FACTOR} индекс перестраивается вдвое большим, поиск на это время ждет
+ * - поиск идет без блокировок и перечитывается под блокировкой, только если индекс менялся во время поиска.
+ * Изменения индекса выполняются по одному
+ */
+public class OffHeapTableIndex implements TableIndex {
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final int CHUNK_SLOTS_BITS = 20;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SLOTS_BITS;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final long EMPTY = 0;
+    private static final int OFFSET_BITS = 40;
+    private static final long MAX_OFFSET = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_SEGMENTS = 1 << (Long.SIZE - OFFSET_BITS);
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Slots slots = new Slots(INITIAL_CAPACITY);
+    private volatile int size;
+    private Segment[] segmentsById = new Segment[16];
+    private int[] keysBySegmentId = new int[16];
+    private final Map<Segment, Integer> segmentIds = new HashMap<>();
+    private final Deque<Integer> freeSegmentIds = new ArrayDeque<>();
+    private int nextSegmentId;
+
+    /**
+     * Запоминает последнюю запись ключа в сегменте. Сдвиг записи берется у сегмента
+     * (см. {@link Segment#findOffset(String)}), поэтому запись уже должна быть в сегменте
+     *
+     * @throws UncheckedIOException если не удалось прочитать ключ записи, на которую указывает индекс
+     */
+    @Override
+    public synchronized void onIndexedEntityUpdated(String key, Segment segment) {
+        long hash = hashOf(key);
+        long offset = offsetOf(key, segment);
+        long slot = findSlot(slots, hash, key);
+
+        long stamp = lock.writeLock();
+        try {
+            if (slot >= 0) {
+                replaceLocation(slots, slot, segment, offset);
+                return;
+            }
+
+            insert(-slot - 1, hash, segment, offset);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException если не удалось прочитать ключ записи, на которую указывает индекс
+     */
+    @Override
+    public Optional<Segment> searchForKey(String key) {
+        List<Candidate> candidates = findCandidates(key);
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        for (Candidate candidate : candidates) {
+            if (isRecordOf(candidate.segment, candidate.offset, key)) {
+                return Optional.of(candidate.segment);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Находит запись тем же поиском, что и {@link #searchForKey(String)}: заголовок, подтверждающий ключ,
+     * дает и размер значения
+     *
+     * @throws UncheckedIOException если не удалось прочитать заголовок записи, на которую указывает индекс
+     */
+    @Override
+    public Optional<RecordLocation> searchForRecord(String key) {
+        List<Candidate> candidates = findCandidates(key);
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        for (Candidate candidate : candidates) {
+            OptionalInt valueSize = readValueSize(candidate.segment, candidate.offset, key);
+            if (valueSize.isPresent()) {
+                return Optional.of(new RecordLocation(candidate.segment, candidate.offset, valueSize.getAsInt()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Расположение записей хранится в слотах, а ключ сверяется с записью, поэтому индексы read-only сегментов не нужны
+     */
+    @Override
+    public boolean needsSegmentKeys() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean replaceIfMatches(String key, Segment expectedSegment, Segment newSegment) {
+        Slots currentSlots = slots;
+        long slot = findSlot(currentSlots, hashOf(key), key);
+        if (slot < 0 || segmentAt(currentSlots, slot) != expectedSegment) {
+            return false;
+        }
+
+        long offset = offsetOf(key, newSegment);
+        long stamp = lock.writeLock();
+        try {
+            replaceLocation(currentSlots, slot, newSegment, offset);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public synchronized boolean removeIfMatches(String key, Segment expectedSegment) {
+        Slots currentSlots = slots;
+        long slot = findSlot(currentSlots, hashOf(key), key);
+        if (slot < 0 || segmentAt(currentSlots, slot) != expectedSegment) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            releaseSegment(segmentId(currentSlots.location(slot)));
+            currentSlots.remove(slot);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return память вне кучи, занятая слотами индекса, в байтах
+     */
+    public long getSizeInBytes() {
+        return slots.capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Собирает кандидатов без блокировки и повторяет сбор под блокировкой чтения, если индекс менялся во время сбора
+     */
+    private List<Candidate> findCandidates(String key) {
+        long hash = hashOf(key);
+
+        long stamp = lock.tryOptimisticRead();
+        List<Candidate> candidates = collectCandidates(hash);
+        if (lock.validate(stamp)) {
+            return candidates;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return collectCandidates(hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Собирает записи, на которые указывают слоты с тем же хешем. Вызывается без блокировки или под блокировкой чтения,
+     * поэтому при чтении без блокировки результат может оказаться несогласованным - его нужно проверить
+     *
+     * @return кандидаты в порядке пробирования или null, если таких слотов нет
+     */
+    private List<Candidate> collectCandidates(long hash) {
+        Slots currentSlots = slots;
+        Segment[] segments = segmentsById;
+        List<Candidate> candidates = null;
+
+        long slot = currentSlots.home(hash);
+        for (long probes = 0; probes < currentSlots.capacity; probes++) {
+            long slotHash = currentSlots.hashAt(slot);
+            if (slotHash == EMPTY) {
+                break;
+            }
+            if (slotHash == hash) {
+                long location = currentSlots.location(slot);
+                int segmentId = segmentId(location);
+                Segment segment = segmentId < segments.length ? segments[segmentId] : null;
+                if (segment != null) {
+                    if (candidates == null) {
+                        candidates = new ArrayList<>(1);
+                    }
+                    candidates.add(new Candidate(segment, offset(location)));
+                }
+            }
+            slot = currentSlots.next(slot);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Ищет слот ключа, подтверждая совпадение хеша чтением записи. Вызывается только при изменении индекса
+     *
+     * @return номер слота ключа или {@code -(номер пустого слота для вставки) - 1}, если ключа в индексе нет
+     */
+    private static long findSlot(Slots currentSlots, long hash, String key) {
+        long slot = currentSlots.find(hash, key);
+        if (slot == LinearProbingTable.NO_SLOT) {
+            throw new IllegalStateException("Off-heap index has no free slots");
+        }
+        return slot;
+    }
+
+    /**
+     * Вставляет новый ключ в пустой слот, найденный {@link #findSlot}. Вызывается под блокировкой записи
+     */
+    private void insert(long slot, long hash, Segment segment, long offset) {
+        Slots currentSlots = slots;
+        currentSlots.put(slot, hash, location(acquireSegment(segment), offset));
+        size++;
+
+        if (size > currentSlots.capacity * MAX_LOAD_FACTOR) {
+            slots = rehash(currentSlots, currentSlots.capacity * 2);
+        }
+    }
+
+    /**
+     * Переводит ключ на другую запись. Вызывается под блокировкой записи
+     */
+    private void replaceLocation(Slots currentSlots, long slot, Segment segment, long offset) {
+        int previousSegmentId = segmentId(currentSlots.location(slot));
+        int segmentId = acquireSegment(segment);
+        currentSlots.put(slot, currentSlots.hashAt(slot), location(segmentId, offset));
+        releaseSegment(previousSegmentId);
+    }
+
+    private Slots rehash(Slots currentSlots, long capacity) {
+        Slots newSlots = new Slots(capacity);
+        for (long slot = 0; slot < currentSlots.capacity; slot++) {
+            if (currentSlots.isFree(slot)) {
+                continue;
+            }
+
+            long hash = currentSlots.hashAt(slot);
+            newSlots.put(newSlots.freeSlotFor(hash), hash, currentSlots.location(slot));
+        }
+        return newSlots;
+    }
+
+    /**
+     * Возвращает номер сегмента, выдавая новый, если у сегмента его еще нет, и учитывает еще один ключ сегмента.
+     * Вызывается под блокировкой записи
+     */
+    private int acquireSegment(Segment segment) {
+        Integer segmentId = segmentIds.get(segment);
+        if (segmentId == null) {
+            segmentId = freeSegmentIds.isEmpty() ? nextSegmentId++ : freeSegmentIds.pop();
+            if (segmentId >= MAX_SEGMENTS) {
+                throw new IllegalStateException("Off-heap index supports at most " + MAX_SEGMENTS + " segments");
+            }
+            if (segmentId >= segmentsById.length) {
+                int length = Math.min(MAX_SEGMENTS, segmentsById.length * 2);
+                segmentsById = Arrays.copyOf(segmentsById, length);
+                keysBySegmentId = Arrays.copyOf(keysBySegmentId, length);
+            }
+            segmentsById[segmentId] = segment;
+            segmentIds.put(segment, segmentId);
+        }
+
+        keysBySegmentId[segmentId]++;
+        return segmentId;
+    }
+
+    /**
+     * Учитывает, что на сегмент стало на один ключ меньше, и освобождает его номер, если ключей не осталось.
+     * Вызывается под блокировкой записи
+     */
+    private void releaseSegment(int segmentId) {
+        if (--keysBySegmentId[segmentId] > 0) {
+            return;
+        }
+
+        segmentIds.remove(segmentsById[segmentId]);
+        segmentsById[segmentId] = null;
+        freeSegmentIds.push(segmentId);
+    }
+
+    private Segment segmentAt(Slots currentSlots, long slot) {
+        return segmentsById[segmentId(currentSlots.location(slot))];
+    }
+
+    private static long hashOf(String key) {
+        long hash = KeyHash.hash(key);
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static long offsetOf(String key, Segment segment) {
+        OptionalLong offset = segment.findOffset(key);
+        if (offset.isEmpty()) {
+            throw new IllegalStateException("Segment " + segment.getName() + " has no record of the key");
+        }
+        if (offset.getAsLong() > MAX_OFFSET) {
+            throw new IllegalStateException("Offset " + offset.getAsLong() + " does not fit into off-heap index");
+        }
+        return offset.getAsLong();
+    }
+
+    private static boolean isRecordOf(Segment segment, long offset, String key) {
+        if (!segment.mightContain(key)) {
+            return false;
+        }
+
+        try {
+            return segment.isRecordOf(offset, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("IOException while checking key in segment " + segment.getName(), e);
+        }
+    }
+
+    private static OptionalInt readValueSize(Segment segment, long offset, String key) {
+        if (!segment.mightContain(key)) {
+            return OptionalInt.empty();
+        }
+
+        try {
+            return segment.readValueSize(offset, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("IOException while reading record header in segment " + segment.getName(), e);
+        }
+    }
+
+    private static long location(int segmentId, long offset) {
+        return (long) segmentId << OFFSET_BITS | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offset(long location) {
+        return location & MAX_OFFSET;
+    }
+
+    private static final class Candidate {
+        final Segment segment;
+        final long offset;
+
+        Candidate(Segment segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Слоты индекса: пары (хеш ключа, расположение записи), разложенные по direct буферам. Хеш {@value #EMPTY}
+     * отмечает свободный слот. Ключ слота подтверждается чтением записи, на которую слот указывает
+     */
+    private final class Slots extends LinearProbingTable {
+        final ByteBuffer[] chunks;
+
+        Slots(long capacity) {
+            super(capacity);
+            chunks = new ByteBuffer[(int) ((capacity + CHUNK_SLOTS - 1) >>> CHUNK_SLOTS_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long chunkSlots = Math.min(CHUNK_SLOTS, capacity - ((long) i << CHUNK_SLOTS_BITS));
+                chunks[i] = ByteBuffer.allocateDirect((int) chunkSlots * SLOT_SIZE);
+            }
+        }
+
+        /**
+         * Первый слот пробирования: старшие биты произведения хеша на число слотов, без деления
+         */
+        @Override
+        long home(long hash) {
+            return Math.multiplyHigh(hash >>> 1, capacity << 1);
+        }
+
+        @Override
+        long hashAt(long slot) {
+            return chunk(slot).getLong(position(slot));
+        }
+
+        @Override
+        boolean isFree(long slot) {
+            return hashAt(slot) == EMPTY;
+        }
+
+        /**
+         * Вызывается только при изменении индекса: читает ключ записи с диска
+         */
+        @Override
+        boolean matches(long slot, long hash, String key) {
+            if (hashAt(slot) != hash) {
+                return false;
+            }
+
+            long location = location(slot);
+            return isRecordOf(segmentsById[segmentId(location)], offset(location), key);
+        }
+
+        @Override
+        void move(long from, long to) {
+            put(to, hashAt(from), location(from));
+        }
+
+        @Override
+        void free(long slot) {
+            put(slot, EMPTY, 0);
+        }
+
+        long location(long slot) {
+            return chunk(slot).getLong(position(slot) + Long.BYTES);
+        }
+
+        void put(long slot, long hash, long location) {
+            ByteBuffer chunk = chunk(slot);
+            int position = position(slot);
+            chunk.putLong(position, hash);
+            chunk.putLong(position + Long.BYTES, location);
+        }
+
+        private ByteBuffer chunk(long slot) {
+            return chunks[(int) (slot >>> CHUNK_SLOTS_BITS)];
+        }
+
+        private int position(long slot) {
+            return (int) (slot & (CHUNK_SLOTS - 1)) * SLOT_SIZE;
+        }
+    }
+}
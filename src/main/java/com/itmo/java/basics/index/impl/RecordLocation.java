@@ -0,0 +1,32 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.logic.Segment;
+
+/**
+ * Расположение последней записи ключа в таблице: сегмент, сдвиг записи в нем и размер значения
+ * (-1 для записи об удалении). По нему значение читается без обращения к индексу сегмента
+ * (см. {@link Segment#readRecord(long, String, int)})
+ */
+public class RecordLocation {
+    private final Segment segment;
+    private final long offset;
+    private final int valueSize;
+
+    public RecordLocation(Segment segment, long offset, int valueSize) {
+        this.segment = segment;
+        this.offset = offset;
+        this.valueSize = valueSize;
+    }
+
+    public Segment getSegment() {
+        return segment;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getValueSize() {
+        return valueSize;
+    }
+}
@@ -0,0 +1,140 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.logic.Segment;
+
+/**
+ * Слоты индекса в куче (см. {@link SegmentIndex}, {@link UnifiedTableIndex}): ключи, их хеши, сдвиги записей
+ * и размеры значений в параллельных массивах и, для индекса таблицы, сегменты записей. Размер - степень двойки.
+ * <p>
+ * Хеш ключа - закэшированный {@link String#hashCode()}, перемешанный финализатором MurmurHash3 со случайным
+ * для каждого индекса числом: ключи, перебираемые в порядке слотов другого индекса (например, из файла-подсказки),
+ * иначе ложились бы в новый индекс длинными цепочками. Первый слот пробирования - старшие биты хеша, а сам хеш
+ * хранится в таблице: при пробировании он сравнивается раньше ключей и не пересчитывается при расширении
+ */
+final class RecordTable extends LinearProbingTable {
+    final String[] keys;
+    final int[] hashes;
+    final long[] offsets;
+    final int[] valueSizes;
+    /**
+     * Сегменты записей или null, если индекс принадлежит одному сегменту
+     */
+    final Segment[] segments;
+    private final int shift;
+    private final int seed;
+
+    /**
+     * @param capacity     число слотов, степень двойки
+     * @param seed         число, с которым перемешиваются хеши ключей
+     * @param withSegments хранить ли для ключей сегменты записей
+     */
+    RecordTable(int capacity, int seed, boolean withSegments) {
+        super(capacity);
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        offsets = new long[capacity];
+        valueSizes = new int[capacity];
+        segments = withSegments ? new Segment[capacity] : null;
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.seed = seed;
+    }
+
+    /**
+     * @return слот ключа или -1, если ключа нет
+     */
+    int slotOf(String key) {
+        long slot = find(hash(key), key);
+        return slot < 0 ? -1 : (int) slot;
+    }
+
+    /**
+     * @return слот ключа или свободный слот, в который его нужно добавить - тогда в нем уже записан хеш ключа
+     * @throws IllegalStateException если ключа нет, а свободных слотов не осталось
+     */
+    int slotFor(String key) {
+        int hash = hash(key);
+        long slot = find(hash, key);
+        if (slot >= 0) {
+            return (int) slot;
+        }
+        if (slot == NO_SLOT) {
+            throw new IllegalStateException("Index has no free slots");
+        }
+
+        int freeSlot = (int) (-slot - 1);
+        hashes[freeSlot] = hash;
+        return freeSlot;
+    }
+
+    RecordTable resize(int capacity) {
+        RecordTable resized = new RecordTable(capacity, seed, segments != null);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == null) {
+                continue;
+            }
+
+            int newSlot = (int) resized.freeSlotFor(hashes[slot]);
+            resized.keys[newSlot] = keys[slot];
+            resized.hashes[newSlot] = hashes[slot];
+            resized.offsets[newSlot] = offsets[slot];
+            resized.valueSizes[newSlot] = valueSizes[slot];
+            if (segments != null) {
+                resized.segments[newSlot] = segments[slot];
+            }
+        }
+        return resized;
+    }
+
+    @Override
+    long home(long hash) {
+        return (int) hash >>> shift;
+    }
+
+    @Override
+    long hashAt(long slot) {
+        return hashes[(int) slot];
+    }
+
+    @Override
+    boolean isFree(long slot) {
+        return keys[(int) slot] == null;
+    }
+
+    @Override
+    boolean matches(long slot, long hash, String key) {
+        int index = (int) slot;
+        String slotKey = keys[index];
+        return slotKey != null && hashes[index] == (int) hash && slotKey.equals(key);
+    }
+
+    @Override
+    void move(long from, long to) {
+        int source = (int) from;
+        int target = (int) to;
+        keys[target] = keys[source];
+        hashes[target] = hashes[source];
+        offsets[target] = offsets[source];
+        valueSizes[target] = valueSizes[source];
+        if (segments != null) {
+            segments[target] = segments[source];
+        }
+    }
+
+    @Override
+    void free(long slot) {
+        keys[(int) slot] = null;
+        if (segments != null) {
+            segments[(int) slot] = null;
+        }
+    }
+
+    private int hash(String key) {
+        int hash = key.hashCode() ^ seed;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
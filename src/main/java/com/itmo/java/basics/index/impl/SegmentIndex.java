@@ -1,6 +1,247 @@
 package com.itmo.java.basics.index.impl;
 
+import com.itmo.java.basics.index.KvsIndex;
 import com.itmo.java.basics.index.SegmentOffsetInfo;
 
-public class SegmentIndex extends MapBasedKvsIndex<String, SegmentOffsetInfo> {
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Индекс сегмента: для каждого ключа - сдвиг его последней записи в сегменте и размер значения этой записи
+ * (-1 для записи об удалении), по которым вместе с длиной ключа определяется длина записи.
+ * <p>
+ * Хранится в хеш-таблице с открытой адресацией ({@link RecordTable}): ключи, сдвиги и размеры лежат в параллельных массивах,
+ * поэтому обновление индекса не создает объектов, кроме самого ключа. {@link SegmentOffsetInfo} создается,
+ * только когда его просят через {@link #searchForKey(String)}. Обновления выполняются по одному, поиск идет
+ * без блокировок и повторяется под блокировкой, только если индекс менялся во время поиска.
+ * Ключи удаляются со сдвигом следующих слотов цепочки назад, без пометок об удалении
+ */
+public class SegmentIndex implements KvsIndex<String, SegmentOffsetInfo> {
+    public static final long NOT_FOUND = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final StampedLock lock = new StampedLock();
+    private final Set<String> keys = new KeySet();
+    private final int seed = ThreadLocalRandom.current().nextInt();
+    private volatile RecordTable entries = new RecordTable(INITIAL_CAPACITY, seed, false);
+    private volatile int size;
+
+    /**
+     * Получатель записей индекса при обходе (см. {@link #forEach(EntryConsumer)})
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(String key, long offset, int valueSize);
+    }
+
+    @Override
+    public void onIndexedEntityUpdated(String key, SegmentOffsetInfo offsetInfo) {
+        put(key, offsetInfo.getOffset(), offsetInfo.getValueSize());
+    }
+
+    /**
+     * Запоминает последнюю запись ключа
+     *
+     * @param key       ключ
+     * @param offset    сдвиг записи в сегменте
+     * @param valueSize размер значения записи, -1 - для записи об удалении
+     */
+    public void put(String key, long offset, int valueSize) {
+        long stamp = lock.writeLock();
+        try {
+            RecordTable currentEntries = entries;
+            int slot = currentEntries.slotFor(key);
+            currentEntries.offsets[slot] = offset;
+            currentEntries.valueSizes[slot] = valueSize;
+            if (currentEntries.keys[slot] != null) {
+                return;
+            }
+
+            currentEntries.keys[slot] = key;
+            size++;
+            if (size > currentEntries.keys.length * MAX_LOAD_FACTOR && currentEntries.keys.length < MAX_CAPACITY) {
+                entries = currentEntries.resize(currentEntries.keys.length * 2);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Optional<SegmentOffsetInfo> searchForKey(String key) {
+        long stamp = lock.tryOptimisticRead();
+        RecordTable currentEntries = entries;
+        int slot = currentEntries.slotOf(key);
+        long offset = slot < 0 ? NOT_FOUND : currentEntries.offsets[slot];
+        int valueSize = slot < 0 ? 0 : currentEntries.valueSizes[slot];
+
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                currentEntries = entries;
+                slot = currentEntries.slotOf(key);
+                offset = slot < 0 ? NOT_FOUND : currentEntries.offsets[slot];
+                valueSize = slot < 0 ? 0 : currentEntries.valueSizes[slot];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return offset == NOT_FOUND ? Optional.empty() : Optional.of(new SegmentOffsetInfoImpl(offset, valueSize));
+    }
+
+    /**
+     * Убирает ключ из индекса. Индекс, в котором осталась четверть от допустимого числа ключей, сжимается вдвое
+     *
+     * @return {@code true} - если ключ был в индексе
+     */
+    public boolean remove(String key) {
+        long stamp = lock.writeLock();
+        try {
+            RecordTable currentEntries = entries;
+            int slot = currentEntries.slotOf(key);
+            if (slot < 0) {
+                return false;
+            }
+
+            currentEntries.remove(slot);
+            size--;
+            if (size < currentEntries.keys.length * MAX_LOAD_FACTOR / 4 && currentEntries.keys.length > INITIAL_CAPACITY) {
+                entries = currentEntries.resize(currentEntries.keys.length / 2);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ищет сдвиг последней записи ключа, не создавая объектов
+     *
+     * @return сдвиг записи или {@link #NOT_FOUND}, если ключа в индексе нет
+     */
+    public long getOffset(String key) {
+        long stamp = lock.tryOptimisticRead();
+        long offset = offsetOf(entries, key);
+        if (lock.validate(stamp)) {
+            return offset;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return offsetOf(entries, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Передает получателю все записи индекса. Индекс на время обхода закрыт для изменений
+     */
+    public void forEach(EntryConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            RecordTable currentEntries = entries;
+            for (int slot = 0; slot < currentEntries.keys.length; slot++) {
+                String key = currentEntries.keys[slot];
+                if (key != null) {
+                    consumer.accept(key, currentEntries.offsets[slot], currentEntries.valueSizes[slot]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Удаляет все ключи, например, если индекс заполнялся из поврежденного файла-подсказки
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            entries = new RecordTable(INITIAL_CAPACITY, seed, false);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return неизменяемое представление ключей индекса. Обход идет по копии слотов, снятой в его начале:
+     * он видит ключи, которые были в индексе в этот момент, и не видит изменений во время обхода
+     */
+    public Set<String> keys() {
+        return keys;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static long offsetOf(RecordTable currentEntries, String key) {
+        int slot = currentEntries.slotOf(key);
+        return slot < 0 ? NOT_FOUND : currentEntries.offsets[slot];
+    }
+
+    /**
+     * Копирует слоты ключей: удаление сдвигает ключи назад, и обход по самому массиву мог бы пропустить ключ
+     */
+    private String[] snapshotKeys() {
+        long stamp = lock.readLock();
+        try {
+            return entries.keys.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            String[] snapshot = snapshotKeys();
+            return new Iterator<>() {
+                private int slot = advance(0);
+
+                @Override
+                public boolean hasNext() {
+                    return slot < snapshot.length;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String key = snapshot[slot];
+                    slot = advance(slot + 1);
+                    return key;
+                }
+
+                private int advance(int from) {
+                    int next = from;
+                    while (next < snapshot.length && snapshot[next] == null) {
+                        next++;
+                    }
+                    return next;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return key instanceof String && getOffset((String) key) != NOT_FOUND;
+        }
+    }
 }
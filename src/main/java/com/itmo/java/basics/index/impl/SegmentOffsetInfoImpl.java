@@ -4,13 +4,20 @@ import com.itmo.java.basics.index.SegmentOffsetInfo;
 
 public class SegmentOffsetInfoImpl implements SegmentOffsetInfo {
     private final long offset;
+    private final int valueSize;
 
-    public SegmentOffsetInfoImpl(long offset) {
+    public SegmentOffsetInfoImpl(long offset, int valueSize) {
         this.offset = offset;
+        this.valueSize = valueSize;
     }
 
     @Override
     public long getOffset() {
         return this.offset;
     }
+
+    @Override
+    public int getValueSize() {
+        return this.valueSize;
+    }
 }
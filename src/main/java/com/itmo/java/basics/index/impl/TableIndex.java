@@ -1,6 +1,71 @@
 package com.itmo.java.basics.index.impl;
 
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.index.KvsIndex;
 import com.itmo.java.basics.logic.Segment;
 
-public class TableIndex extends MapBasedKvsIndex<String, Segment> {
+import java.util.Optional;
+
+/**
+ * Индекс таблицы: для каждого ключа - сегмент с последней записью этого ключа. Обновления индекса
+ * выполняются по одному (под блокировкой дозаписи или слияния таблицы), поиск - параллельно с ними
+ */
+public interface TableIndex extends KvsIndex<String, Segment> {
+    /**
+     * Создает индекс, который хранит ключи так, как задано в настройках таблицы
+     * (см. {@link TableConfig#isUnifiedIndex()}, {@link TableConfig#isOffHeapIndex()})
+     *
+     * @param tableConfig настройки таблицы
+     */
+    static TableIndex create(TableConfig tableConfig) {
+        if (tableConfig.isUnifiedIndex()) {
+            return new UnifiedTableIndex();
+        }
+        return tableConfig.isOffHeapIndex() ? new OffHeapTableIndex() : new MapBasedTableIndex();
+    }
+
+    /**
+     * Ищет расположение последней записи ключа. По умолчанию ищет сегмент ключа, а затем запись в индексе сегмента
+     *
+     * @return сегмент, сдвиг записи и размер значения или {@link Optional#empty()}, если ключа в индексе нет
+     */
+    default Optional<RecordLocation> searchForRecord(String key) {
+        Optional<Segment> segment = searchForKey(key);
+        if (segment.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return segment.get().findRecord(key)
+                .map(offsetInfo -> new RecordLocation(segment.get(), offsetInfo.getOffset(), offsetInfo.getValueSize()));
+    }
+
+    /**
+     * Нужны ли индексу ключи read-only сегментов. Индексу, который сам хранит расположение записей и сверяет ключ
+     * с записью в сегменте, они не нужны - индексы таких сегментов освобождаются (см. {@link Segment#releaseIndex()}).
+     * Индекс активного сегмента нужен всегда: по нему индекс таблицы узнает сдвиг новой записи
+     *
+     * @return {@code true} - если индекс ищет записи по индексам сегментов
+     */
+    default boolean needsSegmentKeys() {
+        return true;
+    }
+
+    /**
+     * Заменяет сегмент ключа, только если ключ сейчас указывает на ожидаемый сегмент.
+     *
+     * @return {@code true} - если сегмент был заменен
+     */
+    boolean replaceIfMatches(String key, Segment expectedSegment, Segment newSegment);
+
+    /**
+     * Удаляет ключ из индекса, только если ключ сейчас указывает на ожидаемый сегмент.
+     *
+     * @return {@code true} - если ключ был удален
+     */
+    boolean removeIfMatches(String key, Segment expectedSegment);
+
+    /**
+     * @return число ключей в индексе
+     */
+    int size();
 }
@@ -0,0 +1,163 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.index.SegmentOffsetInfo;
+import com.itmo.java.basics.logic.Segment;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Единый индекс таблицы: для каждого ключа - сегмент с последней записью ключа, сдвиг этой записи и размер значения
+ * (-1 для записи об удалении). Чтение ключа стоит одного поиска в этом индексе и одного чтения записи
+ * (см. {@link Segment#readRecord(long, String, int)}), индекс сегмента при этом не нужен
+ * <p>
+ * - когда ключ переходит в другой сегмент, его запись в прежнем сегменте вытеснена, и ключ убирается из индекса
+ * прежнего сегмента (см. {@link Segment#dropKey(String)}). Поэтому индексы сегментов держат только живые ключи,
+ * а не все когда-либо записанные. Сегменты, из которых ключи переносятся слиянием, не меняются - их файлы удаляются
+ * - хранится так же, как {@link SegmentIndex}: хеш-таблица с открытой адресацией на параллельных массивах
+ * ({@link RecordTable}), ключ хешируется один раз - закэшированным {@link String#hashCode()}
+ * - поиск идет без блокировок и повторяется под блокировкой, только если индекс менялся во время поиска.
+ * Изменения индекса выполняются по одному
+ */
+public class UnifiedTableIndex implements TableIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final StampedLock lock = new StampedLock();
+    private final int seed = ThreadLocalRandom.current().nextInt();
+    private volatile RecordTable entries = new RecordTable(INITIAL_CAPACITY, seed, true);
+    private volatile int size;
+
+    /**
+     * Запоминает последнюю запись ключа в сегменте. Сдвиг и размер значения берутся у сегмента
+     * (см. {@link Segment#findRecord(String)}), поэтому запись уже должна быть в сегменте.
+     * Если ключ был в другом сегменте, он убирается из индекса того сегмента
+     */
+    @Override
+    public synchronized void onIndexedEntityUpdated(String key, Segment segment) {
+        SegmentOffsetInfo record = recordOf(key, segment);
+
+        Segment previousSegment;
+        long stamp = lock.writeLock();
+        try {
+            RecordTable currentEntries = entries;
+            int slot = currentEntries.slotFor(key);
+            previousSegment = currentEntries.segments[slot];
+            currentEntries.segments[slot] = segment;
+            currentEntries.offsets[slot] = record.getOffset();
+            currentEntries.valueSizes[slot] = record.getValueSize();
+            if (currentEntries.keys[slot] == null) {
+                currentEntries.keys[slot] = key;
+                size++;
+                if (size > currentEntries.keys.length * MAX_LOAD_FACTOR && currentEntries.keys.length < MAX_CAPACITY) {
+                    entries = currentEntries.resize(currentEntries.keys.length * 2);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (previousSegment != null && previousSegment != segment) {
+            previousSegment.dropKey(key);
+        }
+    }
+
+    @Override
+    public Optional<Segment> searchForKey(String key) {
+        long stamp = lock.tryOptimisticRead();
+        Segment segment = segmentOf(entries, key);
+        if (lock.validate(stamp)) {
+            return Optional.ofNullable(segment);
+        }
+
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(segmentOf(entries, key));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Находит расположение записи одним поиском, не обращаясь к сегменту
+     */
+    @Override
+    public Optional<RecordLocation> searchForRecord(String key) {
+        long stamp = lock.tryOptimisticRead();
+        RecordLocation location = locationOf(entries, key);
+        if (lock.validate(stamp)) {
+            return Optional.ofNullable(location);
+        }
+
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(locationOf(entries, key));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public synchronized boolean replaceIfMatches(String key, Segment expectedSegment, Segment newSegment) {
+        int slot = entries.slotOf(key);
+        if (slot < 0 || entries.segments[slot] != expectedSegment) {
+            return false;
+        }
+
+        SegmentOffsetInfo record = recordOf(key, newSegment);
+        long stamp = lock.writeLock();
+        try {
+            RecordTable currentEntries = entries;
+            currentEntries.segments[slot] = newSegment;
+            currentEntries.offsets[slot] = record.getOffset();
+            currentEntries.valueSizes[slot] = record.getValueSize();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public synchronized boolean removeIfMatches(String key, Segment expectedSegment) {
+        int slot = entries.slotOf(key);
+        if (slot < 0 || entries.segments[slot] != expectedSegment) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            entries.remove(slot);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static Segment segmentOf(RecordTable currentEntries, String key) {
+        int slot = currentEntries.slotOf(key);
+        return slot < 0 ? null : currentEntries.segments[slot];
+    }
+
+    private static RecordLocation locationOf(RecordTable currentEntries, String key) {
+        int slot = currentEntries.slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        Segment segment = currentEntries.segments[slot];
+        return segment == null ? null : new RecordLocation(segment, currentEntries.offsets[slot], currentEntries.valueSizes[slot]);
+    }
+
+    private static SegmentOffsetInfo recordOf(String key, Segment segment) {
+        return segment.findRecord(key).orElseThrow(() ->
+                new IllegalStateException("Segment " + segment.getName() + " has no record of the key"));
+    }
+}
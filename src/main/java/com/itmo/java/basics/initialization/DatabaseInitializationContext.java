@@ -34,4 +34,19 @@ public interface DatabaseInitializationContext {
      * @param table таблица, которую нужно добавить
      */
     void addTable(Table table);
+
+    /**
+     * Запоминает, сколько заняла инициализация таблицы.
+     *
+     * @param tableName имя таблицы
+     * @param nanos     время инициализации в наносекундах
+     */
+    void addTableInitializationTime(String tableName, long nanos);
+
+    /**
+     * Возвращает время инициализации таблиц, накопленное на данном этапе инициализации.
+     *
+     * @return время инициализации в наносекундах по именам таблиц
+     */
+    Map<String, Long> getTableInitializationTimes();
 }
\ No newline at end of file
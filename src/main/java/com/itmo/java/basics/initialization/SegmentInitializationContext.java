@@ -1,5 +1,6 @@
 package com.itmo.java.basics.initialization;
 
+import com.itmo.java.basics.index.impl.BloomFilter;
 import com.itmo.java.basics.index.impl.SegmentIndex;
 
 import java.nio.file.Path;
@@ -32,4 +33,11 @@ public interface SegmentInitializationContext {
      * @return текущий размер инициализируемого сегмента
      */
     long getCurrentSize();
+
+    /**
+     * Возвращает фильтр Блума по ключам сегмента, если он был загружен или построен при инициализации.
+     *
+     * @return фильтр Блума сегмента или null
+     */
+    BloomFilter getBloomFilter();
 }
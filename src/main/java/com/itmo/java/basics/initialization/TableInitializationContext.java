@@ -1,9 +1,11 @@
 package com.itmo.java.basics.initialization;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.index.impl.TableIndex;
 import com.itmo.java.basics.logic.Segment;
 
 import java.nio.file.Path;
+import java.util.List;
 
 public interface TableInitializationContext {
     /**
@@ -27,6 +29,13 @@ public interface TableInitializationContext {
      */
     TableIndex getTableIndex();
 
+    /**
+     * Возвращает настройки инициализируемой таблицы.
+     *
+     * @return настройки инициализируемой таблицы
+     */
+    TableConfig getTableConfig();
+
     /**
      * Возвращает текущий активный сегмент для инициализируемой таблицы.
      *
@@ -41,5 +50,12 @@ public interface TableInitializationContext {
      */
     void updateCurrentSegment(Segment segment);
 
+    /**
+     * Возвращает все сегменты инициализируемой таблицы в порядке их создания.
+     *
+     * @return сегменты инициализируемой таблицы
+     */
+    List<Segment> getSegments();
+
     void setTableIndex(TableIndex index);
 }
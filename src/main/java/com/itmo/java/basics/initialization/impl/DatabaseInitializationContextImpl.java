@@ -5,18 +5,20 @@ import com.itmo.java.basics.logic.Table;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DatabaseInitializationContextImpl implements DatabaseInitializationContext {
     private final String dbName;
     private final Path databasePath;
     private Map<String, Table> tables;
+    private final Map<String, Long> tableInitializationTimes;
 
     public DatabaseInitializationContextImpl(String dbName, Path databaseRoot) {
         this.dbName = dbName;
         this.databasePath = Paths.get(databaseRoot.toString(), dbName);
-        tables = new HashMap<>();
+        tables = new ConcurrentHashMap<>();
+        tableInitializationTimes = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -38,4 +40,14 @@ public class DatabaseInitializationContextImpl implements DatabaseInitialization
     public void addTable(Table table) {
         tables.put(table.getName(), table);
     }
+
+    @Override
+    public void addTableInitializationTime(String tableName, long nanos) {
+        tableInitializationTimes.put(tableName, nanos);
+    }
+
+    @Override
+    public Map<String, Long> getTableInitializationTimes() {
+        return tableInitializationTimes;
+    }
 }
@@ -1,14 +1,21 @@
 package com.itmo.java.basics.initialization.impl;
 
+import com.itmo.java.basics.config.DatabaseConfig;
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.index.impl.TableIndex;
+import com.itmo.java.basics.initialization.DatabaseInitializationContext;
 import com.itmo.java.basics.initialization.InitializationContext;
 import com.itmo.java.basics.initialization.Initializer;
 import com.itmo.java.basics.initialization.TableInitializationContext;
+import com.itmo.java.basics.logic.Table;
 import com.itmo.java.basics.logic.impl.DatabaseImpl;
+import com.itmo.java.basics.logic.impl.LazyTable;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseInitializer implements Initializer {
     private TableInitializer tableInitializer;
@@ -19,7 +26,8 @@ public class DatabaseInitializer implements Initializer {
 
     /**
      * Добавляет в контекст информацию об инициализируемой бд.
-     * Запускает инициализацию всех таблиц это базы
+     * Запускает инициализацию всех таблиц это базы (параллельно, если инициализация идет в пуле).
+     * При ленивой загрузке таблиц только регистрирует их, инициализация таблицы произойдет при первом обращении
      *
      * @param initialContext контекст с информацией об инициализируемой бд и об окружении
      * @throws DatabaseException если в контексте лежит неправильный путь к базе, невозможно прочитать содержимого папки,
@@ -36,14 +44,19 @@ public class DatabaseInitializer implements Initializer {
 
         File[] files = rootDirectory.listFiles();
 
+        DatabaseConfig config = initialContext.executionEnvironment().getConfig();
         if (files != null) {
+            List<InitializationTasks.Task> tasks = new ArrayList<>();
             for (var file : files) {
-                if (file.isDirectory()) {
+                if (file.isDirectory() && config.isLazyTableLoading()) {
+                    initialContext.currentDbContext().addTable(createLazyTable(initialContext, file.getName()));
+                } else if (file.isDirectory()) {
                     TableInitializationContext tableContext =
                             new TableInitializationContextImpl(
                                     file.getName(),
                                     workingPath,
-                                    new TableIndex()
+                                    TableIndex.create(config.getDefaultTableConfig()),
+                                    new TableConfig(config.getDefaultTableConfig())
                             );
 
                     InitializationContext newContext =
@@ -54,11 +67,51 @@ public class DatabaseInitializer implements Initializer {
                                     initialContext.currentSegmentContext()
                             );
 
-                    tableInitializer.perform(newContext);
+                    tasks.add(() -> tableInitializer.perform(newContext));
                 }
             }
+            InitializationTasks.runAll(tasks);
 
-            initialContext.executionEnvironment().addDatabase(DatabaseImpl.initializeFromContext(initialContext.currentDbContext()));
+            initialContext.executionEnvironment().addDatabase(DatabaseImpl.initializeFromContext(
+                    initialContext.currentDbContext(),
+                    config.getDefaultTableConfig()));
         }
     }
+
+    /**
+     * Создает таблицу, которая будет проинициализирована этим же чейном при первом обращении.
+     * Каждая попытка загрузки начинается с чистого контекста таблицы
+     */
+    private LazyTable createLazyTable(InitializationContext initialContext, String tableName) {
+        DatabaseInitializationContext dbContext = initialContext.currentDbContext();
+        DatabaseConfig config = initialContext.executionEnvironment().getConfig();
+
+        LazyTable table = new LazyTable(tableName, () -> {
+            DatabaseInitializationContext loadingDbContext =
+                    new DatabaseInitializationContextImpl(dbContext.getDbName(), dbContext.getDatabasePath().getParent());
+            TableInitializationContext tableContext =
+                    new TableInitializationContextImpl(
+                            tableName,
+                            dbContext.getDatabasePath(),
+                            TableIndex.create(config.getDefaultTableConfig()),
+                            new TableConfig(config.getDefaultTableConfig()));
+
+            tableInitializer.perform(new InitializationContextImpl(
+                    initialContext.executionEnvironment(),
+                    loadingDbContext,
+                    tableContext,
+                    initialContext.currentSegmentContext()));
+
+            Table loadedTable = loadingDbContext.getTables().get(tableName);
+            if (loadedTable == null) {
+                throw new DatabaseException("Table " + tableName + " was not initialized");
+            }
+            return loadedTable;
+        });
+
+        if (config.isWarmUpLazyTables()) {
+            table.warmUpInBackground();
+        }
+        return table;
+    }
 }
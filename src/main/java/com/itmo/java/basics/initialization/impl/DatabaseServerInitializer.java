@@ -7,8 +7,17 @@ import com.itmo.java.basics.initialization.Initializer;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 public class DatabaseServerInitializer implements Initializer {
+    private static final Logger LOGGER = Logger.getLogger(DatabaseServerInitializer.class.getName());
+
     private DatabaseInitializer databaseInitializer;
     
     public DatabaseServerInitializer(DatabaseInitializer databaseInitializer) {
@@ -17,13 +26,17 @@ public class DatabaseServerInitializer implements Initializer {
 
     /**
      * Если заданная в окружении директория не существует - создает ее
-     * Добавляет информацию о существующих в директории базах, начинает их инициализацию
+     * Добавляет информацию о существующих в директории базах, начинает их инициализацию.
+     * Базы, таблицы и сегменты инициализируются параллельно в пуле из
+     * {@link com.itmo.java.basics.config.DatabaseConfig#getInitializationThreads()} потоков.
+     * По завершении в лог пишется общее время и время инициализации каждой таблицы
      *
      * @param context контекст, содержащий информацию об окружении
      * @throws DatabaseException если произошла ошибка при создании директории, ее обходе или ошибка инициализации бд
      */
     @Override
     public void perform(InitializationContext context) throws DatabaseException {
+        long startTime = System.nanoTime();
         Path workingPath = context.executionEnvironment().getWorkingPath();
 
         File rootDirectory = new File(String.valueOf(workingPath));
@@ -36,6 +49,8 @@ public class DatabaseServerInitializer implements Initializer {
         File[] files = rootDirectory.listFiles();
 
         if (files != null) {
+            List<DatabaseInitializationContext> dbContexts = new ArrayList<>();
+            List<InitializationTasks.Task> tasks = new ArrayList<>();
             for (var file : files) {
                 if (file.isDirectory()) {
                     DatabaseInitializationContext dbContext =
@@ -51,9 +66,49 @@ public class DatabaseServerInitializer implements Initializer {
                                     context.currentSegmentContext()
                             );
 
-                    databaseInitializer.perform(newContext);
+                    dbContexts.add(dbContext);
+                    tasks.add(() -> databaseInitializer.perform(newContext));
                 }
             }
+
+            runInPool(tasks, context.executionEnvironment().getConfig().getInitializationThreads());
+            report(dbContexts, System.nanoTime() - startTime);
+        }
+    }
+
+    private static void runInPool(List<InitializationTasks.Task> tasks, int threads) throws DatabaseException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.submit(() -> {
+                InitializationTasks.runAll(tasks);
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while initializing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DatabaseException) {
+                throw (DatabaseException) e.getCause();
+            }
+            throw new DatabaseException("Initialization failed", e.getCause());
+        } finally {
+            pool.shutdown();
         }
     }
+
+    private static void report(List<DatabaseInitializationContext> dbContexts, long totalNanos) {
+        StringBuilder report = new StringBuilder();
+        int tablesCount = 0;
+        for (DatabaseInitializationContext dbContext : dbContexts) {
+            for (Map.Entry<String, Long> tableTime : dbContext.getTableInitializationTimes().entrySet()) {
+                tablesCount++;
+                report.append(System.lineSeparator())
+                        .append("  ").append(dbContext.getDbName()).append('/').append(tableTime.getKey())
+                        .append(": ").append(TimeUnit.NANOSECONDS.toMillis(tableTime.getValue())).append(" ms");
+            }
+        }
+
+        LOGGER.info("Initialized " + dbContexts.size() + " databases and " + tablesCount + " tables in "
+                + TimeUnit.NANOSECONDS.toMillis(totalNanos) + " ms" + report);
+    }
 }
@@ -0,0 +1,77 @@
+package com.itmo.java.basics.initialization.impl;
+
+import com.itmo.java.basics.exceptions.DatabaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Запускает независимые шаги инициализации. Внутри пула инициализации (см. {@link DatabaseServerInitializer})
+ * шаги выполняются параллельно, вне его - по очереди. Ожидающий поток пула сам выполняет вложенные шаги,
+ * поэтому вложенный параллелизм (базы - таблицы - сегменты) не приводит к взаимной блокировке
+ */
+class InitializationTasks {
+    @FunctionalInterface
+    interface Task {
+        void run() throws DatabaseException;
+    }
+
+    private InitializationTasks() {
+    }
+
+    /**
+     * Выполняет все шаги и дожидается их завершения
+     *
+     * @param tasks шаги инициализации
+     * @throws DatabaseException первая из ошибок шагов, остальные добавлены как suppressed
+     */
+    static void runAll(List<Task> tasks) throws DatabaseException {
+        if (!ForkJoinTask.inForkJoinPool() || tasks.size() < 2) {
+            for (Task task : tasks) {
+                task.run();
+            }
+            return;
+        }
+
+        List<ForkJoinTask<Void>> forkedTasks = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            forkedTasks.add(ForkJoinTask.adapt(() -> {
+                task.run();
+                return null;
+            }));
+        }
+        ForkJoinTask.invokeAll(forkedTasks);
+
+        DatabaseException failure = null;
+        for (ForkJoinTask<Void> task : forkedTasks) {
+            Throwable exception = task.getException();
+            if (exception == null) {
+                continue;
+            }
+
+            DatabaseException cause = unwrap(exception);
+            if (failure == null) {
+                failure = cause;
+            } else {
+                failure.addSuppressed(cause);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Пул оборачивает исключения шагов в RuntimeException, достаем исходный {@link DatabaseException}
+     */
+    private static DatabaseException unwrap(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DatabaseException) {
+                return (DatabaseException) cause;
+            }
+        }
+        return new DatabaseException("Initialization failed", exception);
+    }
+}
@@ -1,5 +1,6 @@
 package com.itmo.java.basics.initialization.impl;
 
+import com.itmo.java.basics.index.impl.BloomFilter;
 import com.itmo.java.basics.index.impl.SegmentIndex;
 import com.itmo.java.basics.initialization.SegmentInitializationContext;
 
@@ -11,19 +12,27 @@ public class SegmentInitializationContextImpl implements SegmentInitializationCo
     private final Path segmentPath;
     private final long currentSize;
     private final SegmentIndex segmentIndex;
+    private final BloomFilter bloomFilter;
 
-    public SegmentInitializationContextImpl(String segmentName, Path segmentPath, int currentSize, SegmentIndex index) {
+    public SegmentInitializationContextImpl(String segmentName, Path segmentPath, long currentSize, SegmentIndex index) {
+        this(segmentName, segmentPath, currentSize, index, null);
+    }
+
+    public SegmentInitializationContextImpl(String segmentName, Path segmentPath, long currentSize, SegmentIndex index,
+                                            BloomFilter bloomFilter) {
         this.segmentName = segmentName;
         this.segmentPath = segmentPath;
         this.currentSize = currentSize;
         segmentIndex = index;
+        this.bloomFilter = bloomFilter;
     }
 
-    public SegmentInitializationContextImpl(String segmentName, Path tablePath, int currentSize) {
+    public SegmentInitializationContextImpl(String segmentName, Path tablePath, long currentSize) {
         this.segmentName = segmentName;
         this.segmentPath = Paths.get(tablePath.toString(), segmentName);
         this.currentSize = currentSize;
         this.segmentIndex = new SegmentIndex();
+        bloomFilter = null;
     }
 
     public SegmentInitializationContextImpl(String segmentName, Path tablePath) {
@@ -49,4 +58,9 @@ public class SegmentInitializationContextImpl implements SegmentInitializationCo
     public long getCurrentSize() {
         return currentSize;
     }
+
+    @Override
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
 }
@@ -1,7 +1,9 @@
 package com.itmo.java.basics.initialization.impl;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
-import com.itmo.java.basics.index.impl.SegmentOffsetInfoImpl;
+import com.itmo.java.basics.index.impl.BloomFilter;
+import com.itmo.java.basics.index.impl.SegmentIndex;
 import com.itmo.java.basics.initialization.InitializationContext;
 import com.itmo.java.basics.initialization.Initializer;
 import com.itmo.java.basics.initialization.SegmentInitializationContext;
@@ -9,22 +11,30 @@ import com.itmo.java.basics.logic.DatabaseRecord;
 import com.itmo.java.basics.logic.Segment;
 import com.itmo.java.basics.logic.impl.SegmentImpl;
 import com.itmo.java.basics.logic.io.DatabaseInputStream;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+import com.itmo.java.basics.logic.io.SegmentHintFile;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 public class SegmentInitializer implements Initializer {
+    private static final int REMOVED_VALUE_SIZE = -1;
 
     /**
      * Добавляет в контекст информацию об инициализируемом сегменте.
-     * Составляет индекс сегмента
-     * Обновляет инфу в индексе таблицы
+     * Составляет индекс сегмента: по файлу-подсказке, если он есть и соответствует сегменту, иначе - читая все записи.
+     * После полного чтения заполненного сегмента оставляет подсказку для следующих запусков.
+     * Фильтр Блума сегмента загружается из файла, а для заполненного сегмента без файла строится и сохраняется.
+     * Индекс таблицы не меняется: ключи сегментов переносятся в него один раз, после чтения всех сегментов таблицы
+     * (см. {@link TableInitializer})
      *
      * @param context контекст с информацией об инициализируемой бд и об окружении
      * @throws DatabaseException если в контексте лежит неправильный путь к сегменту, невозможно прочитать содержимое. Ошибка в содержании
@@ -32,44 +42,111 @@ public class SegmentInitializer implements Initializer {
     @Override
     public void perform(InitializationContext context) throws DatabaseException {
         Path workingPath = context.currentSegmentContext().getSegmentPath();
+        SegmentIndex segmentIndex = context.currentSegmentContext().getIndex();
 
         File file = new File(String.valueOf(workingPath));
+        if (!file.exists()) {
+            throw new DatabaseException("File not found exception", new FileNotFoundException(file.getPath()));
+        }
 
-        try (DatabaseInputStream input = new DatabaseInputStream(new FileInputStream(file))) {
-            Set<String> set = new HashSet<>();
-            long currentSize = 0;
-            if (file.length() != 0) {
-                Optional<DatabaseRecord> databaseRecord = input.readDbUnit();
+        long currentSize = file.length();
+        if (!SegmentHintFile.read(workingPath, currentSize, segmentIndex::put)) {
+            segmentIndex.clear();
+            currentSize = scanSegment(workingPath, segmentIndex,
+                    context.currentTableContext().getTableConfig().getSegmentSize());
+        }
 
-                while (databaseRecord.isPresent()) {
-                    String key = new String(databaseRecord.get().getKey());
-                    set.add(key);
+        BloomFilter bloomFilter = loadBloomFilter(workingPath, currentSize, segmentIndex.keys(),
+                context.currentTableContext().getTableConfig());
 
-                    context.currentSegmentContext().getIndex().onIndexedEntityUpdated(key, new SegmentOffsetInfoImpl(currentSize));
-                    currentSize += databaseRecord.get().size();
+        SegmentInitializationContext newContext =
+                new SegmentInitializationContextImpl(
+                        context.currentSegmentContext().getSegmentName(),
+                        workingPath,
+                        currentSize,
+                        segmentIndex,
+                        bloomFilter
+                );
 
-                    databaseRecord = input.readDbUnit();
-                }
-            }
+        Segment initializeSegment = SegmentImpl.initializeFromContext(
+                newContext, context.currentTableContext().getTableConfig());
+        context.currentTableContext().updateCurrentSegment(initializeSegment);
+    }
+
+    /**
+     * Загружает сохраненный фильтр Блума сегмента. Заполненный сегмент уже read-only, поэтому фильтр для него
+     * строится по ключам, если сохраненного нет. Незаполненный сегмент без фильтра может оказаться активным - для него null
+     */
+    private static BloomFilter loadBloomFilter(Path workingPath, long currentSize, Set<String> keys, TableConfig tableConfig) {
+        if (!tableConfig.isBloomFilterEnabled()) {
+            return null;
+        }
+
+        Optional<BloomFilter> savedFilter = SegmentBloomFile.read(workingPath, currentSize);
+        if (savedFilter.isPresent()) {
+            return savedFilter.get();
+        }
+        if (currentSize < tableConfig.getSegmentSize()) {
+            return null;
+        }
+
+        BloomFilter filter = SegmentImpl.buildBloomFilter(keys, tableConfig.getBloomFilterFalsePositiveRate());
+        try {
+            SegmentBloomFile.write(workingPath, currentSize, filter);
+        } catch (IOException ignored) {
+            // фильтр уже построен, файл только избавляет от этого при следующем запуске
+        }
+        return filter;
+    }
 
-            SegmentInitializationContext newContext =
-                    new SegmentInitializationContextImpl(
-                            context.currentSegmentContext().getSegmentName(),
-                            workingPath,
-                            (int) currentSize,
-                            context.currentSegmentContext().getIndex()
-                    );
+    /**
+     * Читает все записи сегмента
+     *
+     * @return размер прочитанных записей
+     */
+    private long scanSegment(Path workingPath, SegmentIndex segmentIndex, long maxSegmentSize) throws DatabaseException {
+        List<SegmentHintFile.Entry> entries = new ArrayList<>();
+        long currentSize = 0;
 
-            Segment initializeSegment = SegmentImpl.initializeFromContext(newContext);
-            context.currentTableContext().updateCurrentSegment(initializeSegment);
+        try (DatabaseInputStream input = new DatabaseInputStream(new BufferedInputStream(new FileInputStream(workingPath.toFile())))) {
+            Optional<DatabaseRecord> databaseRecord = input.readDbUnit();
 
-            for (var key : set) {
-                context.currentTableContext().getTableIndex().onIndexedEntityUpdated(key, initializeSegment);
+            while (databaseRecord.isPresent()) {
+                segmentIndex.put(new String(databaseRecord.get().getKey()), currentSize,
+                        databaseRecord.get().isValuePresented() ? databaseRecord.get().getValue().length : REMOVED_VALUE_SIZE);
+                entries.add(new SegmentHintFile.Entry(
+                        databaseRecord.get().getKey(),
+                        currentSize,
+                        (int) databaseRecord.get().size(),
+                        !databaseRecord.get().isValuePresented()));
+                currentSize += databaseRecord.get().size();
+
+                databaseRecord = input.readDbUnit();
             }
         } catch (FileNotFoundException e) {
             throw new DatabaseException("File not found exception", e);
         } catch (IOException e) {
             throw new DatabaseException("IOException", e);
         }
+
+        if (currentSize >= maxSegmentSize) {
+            try {
+                SegmentHintFile.write(workingPath, currentSize, latestEntries(entries, segmentIndex));
+            } catch (IOException ignored) {
+                // подсказка только ускоряет следующий запуск, сегмент уже проиндексирован
+            }
+        }
+
+        return currentSize;
+    }
+
+    private static List<SegmentHintFile.Entry> latestEntries(List<SegmentHintFile.Entry> entries, SegmentIndex segmentIndex) {
+        List<SegmentHintFile.Entry> latest = new ArrayList<>(segmentIndex.size());
+        for (var entry : entries) {
+            if (segmentIndex.getOffset(new String(entry.getKey())) == entry.getOffset()) {
+                latest.add(entry);
+            }
+        }
+        return latest;
     }
 }
@@ -1,22 +1,32 @@
 package com.itmo.java.basics.initialization.impl;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.index.impl.TableIndex;
 import com.itmo.java.basics.initialization.TableInitializationContext;
 import com.itmo.java.basics.logic.Segment;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TableInitializationContextImpl implements TableInitializationContext {
     private final String tableName;
     private final Path tablePath;
     public TableIndex tableIndex;
+    private final TableConfig tableConfig;
     private Segment segment;
+    private final List<Segment> segments = new ArrayList<>();
 
     public TableInitializationContextImpl(String tableName, Path databasePath, TableIndex tableIndex) {
+        this(tableName, databasePath, tableIndex, new TableConfig());
+    }
+
+    public TableInitializationContextImpl(String tableName, Path databasePath, TableIndex tableIndex, TableConfig tableConfig) {
         this.tableName = tableName;
         this.tablePath = Paths.get(databasePath.toString(), tableName);
         this.tableIndex = tableIndex;
+        this.tableConfig = tableConfig;
         segment = null;
     }
 
@@ -35,6 +45,11 @@ public class TableInitializationContextImpl implements TableInitializationContex
         return tableIndex;
     }
 
+    @Override
+    public TableConfig getTableConfig() {
+        return tableConfig;
+    }
+
     @Override
     public Segment getCurrentSegment() {
         return segment;
@@ -43,6 +58,12 @@ public class TableInitializationContextImpl implements TableInitializationContex
     @Override
     public void updateCurrentSegment(Segment segment) {
         this.segment = segment;
+        segments.add(segment);
+    }
+
+    @Override
+    public List<Segment> getSegments() {
+        return segments;
     }
 
     @Override
@@ -5,12 +5,20 @@ import com.itmo.java.basics.index.impl.SegmentIndex;
 import com.itmo.java.basics.initialization.InitializationContext;
 import com.itmo.java.basics.initialization.Initializer;
 import com.itmo.java.basics.initialization.SegmentInitializationContext;
+import com.itmo.java.basics.initialization.TableInitializationContext;
+import com.itmo.java.basics.logic.Segment;
+import com.itmo.java.basics.logic.impl.LsmTable;
+import com.itmo.java.basics.logic.impl.SegmentImpl;
 import com.itmo.java.basics.logic.impl.TableImpl;
+import com.itmo.java.basics.logic.io.TableMetadataFile;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class TableInitializer implements Initializer {
     private SegmentInitializer segmentInitializer;
@@ -21,7 +29,14 @@ public class TableInitializer implements Initializer {
 
     /**
      * Добавляет в контекст информацию об инициализируемой таблице.
-     * Запускает инициализацию всех сегментов в порядке их создания (из имени)
+     * Сегменты читаются параллельно (если инициализация идет в пуле), каждый в свой индекс сегмента,
+     * после чего ключи сегментов переносятся в индекс таблицы строго в порядке создания сегментов (из имени),
+     * чтобы более новая запись ключа оставалась последней. Каждый ключ попадает в индекс таблицы один раз,
+     * промежуточного индекса таблицы в куче нет - иначе индексы вне кучи и единый индекс теряли бы смысл при запуске.
+     * Индексу, которому ключи read-only сегментов не нужны, индексы таких сегментов освобождаются сразу после переноса.
+     * Настройки, сохраненные в метаданных таблицы (см. {@link TableMetadataFile}), переносятся в настройки таблицы
+     * до чтения сегментов. Таблица с сегментами, упорядоченными по ключу, загружается целиком
+     * (см. {@link LsmTable#initialize}). Файлы, не являющиеся сегментами (метаданные, подсказки, временные файлы), пропускаются
      *
      * @param context контекст с информацией об инициализируемой бд, окружении, таблицы
      * @throws DatabaseException если в контексте лежит неправильный путь к таблице, невозможно прочитать содержимого папки,
@@ -29,38 +44,77 @@ public class TableInitializer implements Initializer {
      */
     @Override
     public void perform(InitializationContext context) throws DatabaseException {
-        Path workingPath = context.currentTableContext().getTablePath();
+        long startTime = System.nanoTime();
+        TableInitializationContext tableContext = context.currentTableContext();
+        Path workingPath = tableContext.getTablePath();
 
         File rootDirectory = new File(String.valueOf(workingPath));
         if (!rootDirectory.exists()) {
             throw new DatabaseException("Problem with directory");
         }
 
+        try {
+            TableMetadataFile.readInto(workingPath, tableContext.getTableConfig());
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while reading table metadata", e);
+        }
+
+        if (tableContext.getTableConfig().isSortedSegments()) {
+            context.currentDbContext().addTable(
+                    LsmTable.initialize(tableContext.getTableName(), workingPath.getParent(), tableContext.getTableConfig()));
+            context.currentDbContext().addTableInitializationTime(tableContext.getTableName(), System.nanoTime() - startTime);
+            return;
+        }
+
         File[] files = rootDirectory.listFiles();
         if (files != null) {
             Arrays.sort(files);
 
-                for(var file : files) {
-                    if (file.isFile()) {
-                        SegmentInitializationContext segmentContext =
-                                new SegmentInitializationContextImpl(
-                                        file.getName(),
-                                        Paths.get(workingPath.toString(), file.getName()),
-                                        0,
-                                        new SegmentIndex());
+            List<TableInitializationContext> segmentTableContexts = new ArrayList<>();
+            List<InitializationTasks.Task> tasks = new ArrayList<>();
+            for (var file : files) {
+                if (file.isFile() && SegmentImpl.isSegmentFileName(tableContext.getTableName(), file.getName())) {
+                    SegmentInitializationContext segmentContext =
+                            new SegmentInitializationContextImpl(
+                                    file.getName(),
+                                    Paths.get(workingPath.toString(), file.getName()),
+                                    0,
+                                    new SegmentIndex());
 
-                        InitializationContext newContext =
-                                new InitializationContextImpl(
-                                        context.executionEnvironment(),
-                                        context.currentDbContext(),
-                                        context.currentTableContext(),
-                                        segmentContext);
+                    // индекс таблицы заполняется ниже, после чтения всех сегментов
+                    TableInitializationContext segmentTableContext =
+                            new TableInitializationContextImpl(
+                                    tableContext.getTableName(),
+                                    workingPath.getParent(),
+                                    null,
+                                    tableContext.getTableConfig());
 
-                        segmentInitializer.perform(newContext);
-                    }
+                    InitializationContext newContext =
+                            new InitializationContextImpl(
+                                    context.executionEnvironment(),
+                                    context.currentDbContext(),
+                                    segmentTableContext,
+                                    segmentContext);
+
+                    segmentTableContexts.add(segmentTableContext);
+                    tasks.add(() -> segmentInitializer.perform(newContext));
+                }
+            }
+            InitializationTasks.runAll(tasks);
+
+            for (TableInitializationContext segmentTableContext : segmentTableContexts) {
+                Segment segment = segmentTableContext.getCurrentSegment();
+                tableContext.updateCurrentSegment(segment);
+                for (String key : segment.getKeys()) {
+                    tableContext.getTableIndex().onIndexedEntityUpdated(key, segment);
+                }
+                if (segment.isReadOnly() && !tableContext.getTableIndex().needsSegmentKeys()) {
+                    segment.releaseIndex();
                 }
+            }
 
-            context.currentDbContext().addTable(TableImpl.initializeFromContext(context.currentTableContext()));
+            context.currentDbContext().addTable(TableImpl.initializeFromContext(tableContext));
+            context.currentDbContext().addTableInitializationTime(tableContext.getTableName(), System.nanoTime() - startTime);
         }
     }
 }
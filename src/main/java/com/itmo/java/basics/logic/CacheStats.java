@@ -0,0 +1,131 @@
+package com.itmo.java.basics.logic;
+
+import java.util.Locale;
+
+/**
+ * Снимок статистики кэша одной таблицы
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long evictionCount;
+    private final long entryCount;
+    private final long weightedSize;
+    private final long[] loadLatencyBoundsMicros;
+    private final long[] loadLatencyCounts;
+
+    /**
+     * @param hitCount                количество чтений, обслуженных кэшем
+     * @param missCount               количество чтений, не найденных в кэше
+     * @param loadCount               количество чтений из таблицы при промахе кэша
+     * @param evictionCount           количество значений, вытесненных из кэша
+     * @param entryCount              количество значений в кэше
+     * @param weightedSize            размер значений в кэше в байтах
+     * @param loadLatencyBoundsMicros верхние границы корзин гистограммы времени чтения из таблицы, в микросекундах
+     * @param loadLatencyCounts       количество чтений из таблицы в каждой корзине
+     */
+    public CacheStats(long hitCount, long missCount, long loadCount, long evictionCount, long entryCount,
+                      long weightedSize, long[] loadLatencyBoundsMicros, long[] loadLatencyCounts) {
+        if (loadLatencyBoundsMicros.length != loadLatencyCounts.length) {
+            throw new IllegalArgumentException("Histogram bounds and counts differ in length");
+        }
+
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.evictionCount = evictionCount;
+        this.entryCount = entryCount;
+        this.weightedSize = weightedSize;
+        this.loadLatencyBoundsMicros = loadLatencyBoundsMicros.clone();
+        this.loadLatencyCounts = loadLatencyCounts.clone();
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return доля чтений, обслуженных кэшем. 0, если чтений не было
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long[] getLoadLatencyBoundsMicros() {
+        return loadLatencyBoundsMicros.clone();
+    }
+
+    public long[] getLoadLatencyCounts() {
+        return loadLatencyCounts.clone();
+    }
+
+    /**
+     * Оценивает перцентиль времени чтения из таблицы по гистограмме
+     *
+     * @param percentile перцентиль от 0 до 100
+     * @return верхняя граница корзины, в которую попадает перцентиль, в микросекундах. 0, если чтений не было
+     */
+    public long getLoadLatencyPercentileMicros(double percentile) {
+        long total = 0;
+        for (long count : loadLatencyCounts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < loadLatencyCounts.length; i++) {
+            seen += loadLatencyCounts[i];
+            if (seen >= Math.max(1, rank)) {
+                return loadLatencyBoundsMicros[i];
+            }
+        }
+        return loadLatencyBoundsMicros[loadLatencyBoundsMicros.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < loadLatencyCounts.length; i++) {
+            if (loadLatencyCounts[i] == 0) {
+                continue;
+            }
+            if (histogram.length() > 0) {
+                histogram.append(", ");
+            }
+            long bound = loadLatencyBoundsMicros[i];
+            histogram.append(bound == Long.MAX_VALUE ? "inf" : "<=" + bound).append("us: ").append(loadLatencyCounts[i]);
+        }
+
+        return String.format(
+                Locale.ROOT,
+                "hits=%d misses=%d hitRate=%.4f loads=%d evictions=%d entries=%d bytes=%d "
+                        + "loadLatencyP50us=%d loadLatencyP99us=%d loadLatency=[%s]",
+                hitCount, missCount, getHitRate(), loadCount, evictionCount, entryCount, weightedSize,
+                getLoadLatencyPercentileMicros(50), getLoadLatencyPercentileMicros(99), histogram);
+    }
+}
@@ -1,10 +1,14 @@
 package com.itmo.java.basics.logic;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiPredicate;
 
-public interface Database {
+public interface Database extends AutoCloseable {
     /**
      * Возвращает имя базы данных.
      *
@@ -20,6 +24,15 @@ public interface Database {
      */
     void createTableIfNotExists(String tableName) throws DatabaseException;
 
+    /**
+     * Создает таблицу с указанным именем и настройками, если это имя еще не занято.
+     *
+     * @param tableName   имя таблицы
+     * @param tableConfig настройки таблицы
+     * @throws DatabaseException если таблица с данным именем уже существует или если произошла ошибка ввода-вывода
+     */
+    void createTableIfNotExists(String tableName, TableConfig tableConfig) throws DatabaseException;
+
     /**
      * Записывает значение в указанную таблицу по переданному ключу.
      *
@@ -41,4 +54,84 @@ public interface Database {
     Optional<byte[]> read(String tableName, String objectKey) throws DatabaseException;
 
     void delete(String tableName, String objectKey) throws DatabaseException;
+
+    /**
+     * Записывает значение в указанную таблицу и возвращает предыдущее значение по ключу.
+     *
+     * @param tableName таблица, в которую нужно записать значение
+     * @param objectKey ключ, по которому нужно записать значение
+     * @param objectValue значение, которое нужно записать
+     * @return предыдущее значение по ключу
+     * @throws DatabaseException если указанная таблица не была найдена или если произошла ошибка ввода-вывода
+     */
+    Optional<byte[]> getAndWrite(String tableName, String objectKey, byte[] objectValue) throws DatabaseException;
+
+    /**
+     * Удаляет значение из указанной таблицы и возвращает его.
+     *
+     * @param tableName таблица, из которой нужно удалить значение
+     * @param objectKey ключ, который нужно удалить
+     * @return удаленное значение
+     * @throws DatabaseException если указанная таблица или ключ не были найдены или если произошла ошибка ввода-вывода
+     */
+    Optional<byte[]> getAndDelete(String tableName, String objectKey) throws DatabaseException;
+
+    /**
+     * Записывает несколько значений в указанную таблицу.
+     *
+     * @param tableName таблица, в которую нужно записать значения
+     * @param objects   ключи и значения, которые нужно записать
+     * @throws DatabaseException если указанная таблица не была найдена или если произошла ошибка ввода-вывода
+     */
+    void write(String tableName, Map<String, byte[]> objects) throws DatabaseException;
+
+    /**
+     * Считывает значения нескольких ключей из указанной таблицы.
+     *
+     * @param tableName  таблица, из которой нужно считать значения
+     * @param objectKeys ключи, значения которых нужно получить
+     * @return значения найденных ключей
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    Map<String, byte[]> read(String tableName, Collection<String> objectKeys) throws DatabaseException;
+
+    /**
+     * Удаляет несколько ключей из указанной таблицы. Ключи, которых нет в таблице, пропускаются.
+     *
+     * @param tableName  таблица, из которой нужно удалить ключи
+     * @param objectKeys ключи, которые нужно удалить
+     * @return количество удаленных ключей
+     * @throws DatabaseException если указанная таблица не была найдена или если произошла ошибка ввода-вывода
+     */
+    int delete(String tableName, Collection<String> objectKeys) throws DatabaseException;
+
+    /**
+     * Передает ключи указанной таблицы из полуинтервала [fromKey, toKey) и их значения в порядке ключей,
+     * пока получатель не откажется от следующего ключа (см. {@link Table#scan(String, String, BiPredicate)}).
+     *
+     * @param tableName таблица, из которой нужно считать значения
+     * @param fromKey   первый ключ диапазона
+     * @param toKey     ключ, перед которым диапазон заканчивается, null - до конца таблицы
+     * @param consumer  получатель ключа и значения. Возвращает false, если следующие ключи ему не нужны
+     * @throws DatabaseException если указанная таблица не была найдена, не поддерживает сканирование
+     *                           или если произошла ошибка ввода-вывода
+     */
+    void scan(String tableName, String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException;
+
+    /**
+     * Возвращает статистику кэша указанной таблицы.
+     *
+     * @param tableName таблица, статистику которой нужно получить
+     * @return снимок статистики или {@code Optional.empty()}, если таблица не кэширует значения
+     * @throws DatabaseException если указанная таблица не была найдена
+     */
+    Optional<CacheStats> getCacheStats(String tableName) throws DatabaseException;
+
+    /**
+     * Закрывает все таблицы базы данных.
+     *
+     * @throws DatabaseException если не удалось закрыть хотя бы одну таблицу
+     */
+    @Override
+    void close() throws DatabaseException;
 }
\ No newline at end of file
@@ -6,4 +6,19 @@ public interface DatabaseCache {
     void set(String key, byte[] value);
 
     void delete(String key);
+
+    /**
+     * @return количество значений в кэше
+     */
+    long getEntryCount();
+
+    /**
+     * @return суммарный размер закэшированных ключей и значений в байтах
+     */
+    long getWeightedSize();
+
+    /**
+     * @return количество значений, вытесненных из кэша из-за нехватки места
+     */
+    long getEvictionCount();
 }
@@ -1,7 +1,14 @@
 package com.itmo.java.basics.logic;
 
+import com.itmo.java.basics.index.SegmentOffsetInfo;
+
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
 
 /**
  * Сегмент - append-only файл, хранящий пары ключ-значение, разделенные специальным символом.
@@ -9,8 +16,23 @@ import java.util.Optional;
  * - при превышении размера сегмента создается новый сегмент и дальнейшие операции записи производятся в него
  * - именование файла-сегмента должно позволять установить очередность их появления
  * - является неизменяемым после появления более нового сегмента
+ * - держит открытым поток записи, пока доступен для записи. Освобождается вызовом {@link #close()}
  */
-public interface Segment {
+public interface Segment extends AutoCloseable {
+    /**
+     * Получатель последних записей ключей сегмента (см. {@link #forEachRecord(RecordConsumer)})
+     */
+    @FunctionalInterface
+    interface RecordConsumer {
+        /**
+         * @param key       ключ
+         * @param offset    сдвиг последней записи ключа в сегменте
+         * @param valueSize размер значения записи, -1 - для записи об удалении
+         * @throws IOException если получатель не смог обработать запись
+         */
+        void accept(String key, long offset, int valueSize) throws IOException;
+    }
+
     /**
      * Возвращает имя сегмента.
      *
@@ -37,6 +59,25 @@ public interface Segment {
      */
     Optional<byte[]> read(String objectKey) throws IOException;
 
+    /**
+     * Записывает в сегмент несколько значений одной операцией записи. Пачка целиком попадает в этот сегмент,
+     * даже если сегмент при этом превысит максимальный размер.
+     *
+     * @param objects ключи и значения, которые нужно записать. Null вместо значения записывается как удаление ключа
+     * @return {@code true} - если значения записались, {@code false} - если сегмент уже read-only
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    boolean write(Map<String, byte[]> objects) throws IOException;
+
+    /**
+     * Считывает значения нескольких ключей за один проход по сегменту в порядке их расположения в файле.
+     *
+     * @param objectKeys ключи, значения которых нужно получить
+     * @return значения ключей, которые есть в сегменте. Ключей без записи или с записью об удалении в ответе нет
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    Map<String, byte[]> read(Collection<String> objectKeys) throws IOException;
+
     /**
      * Возвращает {@code true} - если данный сегмент открыт только на чтение, {@code false} - если данный сегмент открыт на чтение и запись.
      *
@@ -45,4 +86,155 @@ public interface Segment {
     boolean isReadOnly();
 
     boolean delete(String objectKey) throws IOException;
+
+    /**
+     * Записывает в сегмент удаление нескольких ключей одной операцией записи.
+     *
+     * @param objectKeys ключи, которые нужно удалить
+     * @return {@code true} - если удаления записались, {@code false} - если сегмент уже read-only
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    boolean delete(Collection<String> objectKeys) throws IOException;
+
+    /**
+     * Возвращает ключи, для которых в сегменте есть запись (в том числе запись об удалении),
+     * кроме убранных из индекса сегмента (см. {@link #dropKey(String)}).
+     *
+     * @return неизменяемое множество ключей сегмента
+     */
+    Set<String> getKeys();
+
+    /**
+     * Возвращает сдвиг последней записи ключа в сегменте (в том числе записи об удалении).
+     *
+     * @param objectKey ключ
+     * @return сдвиг записи или {@link OptionalLong#empty()}, если записи ключа в сегменте нет
+     */
+    OptionalLong findOffset(String objectKey);
+
+    /**
+     * Возвращает расположение последней записи ключа в сегменте: сдвиг записи и размер значения.
+     *
+     * @param objectKey ключ
+     * @return сдвиг и размер значения (-1 для записи об удалении) или {@link Optional#empty()}, если записи ключа
+     * в сегменте нет
+     */
+    Optional<SegmentOffsetInfo> findRecord(String objectKey);
+
+    /**
+     * Считывает значение записи по известным сдвигу и размеру значения, не обращаясь к индексу сегмента.
+     * Запись читается одним обращением к файлу. Нужна индексам, которые хранят расположение записей сами.
+     *
+     * @param offset    сдвиг записи в сегменте
+     * @param objectKey ключ записи
+     * @param valueSize размер значения записи, -1 - для записи об удалении
+     * @return значение, если запись не является удалением
+     * @throws IOException если произошла ошибка ввода-вывода или по сдвигу лежит запись другого размера
+     */
+    Optional<byte[]> readRecord(long offset, String objectKey, int valueSize) throws IOException;
+
+    /**
+     * Передает получателю последнюю запись каждого ключа сегмента, в том числе записи об удалении.
+     * Если индекс сегмента освобожден (см. {@link #releaseIndex()}), записи берутся из файла-подсказки,
+     * а без него - из самого файла сегмента
+     *
+     * @param consumer получатель записей
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void forEachRecord(RecordConsumer consumer) throws IOException;
+
+    /**
+     * Освобождает индекс read-only сегмента, когда расположение записей сегмента хранит индекс таблицы
+     * (см. {@link com.itmo.java.basics.index.impl.TableIndex#needsSegmentKeys()}). После этого сегмент не ищет
+     * записи по ключу: {@link #read(String)}, {@link #read(Collection)},
+     * {@link #findOffset(String)} и {@link #findRecord(String)} ничего не находят, {@link #getKeys()} пуст,
+     * а ключи индекса учитываются в {@link #getDroppedKeyCount()}. Записи читаются по известному расположению
+     *
+     * @throws IllegalStateException если сегмент еще доступен для записи
+     */
+    void releaseIndex();
+
+    /**
+     * Убирает ключ из индекса сегмента, когда его запись вытеснена записью в более новом сегменте.
+     * Файл сегмента не меняется, после перезапуска ключ снова попадет в индекс сегмента.
+     *
+     * @param objectKey ключ
+     * @return {@code true} - если ключ был в индексе сегмента
+     */
+    boolean dropKey(String objectKey);
+
+    /**
+     * @return число ключей, убранных из индекса сегмента (см. {@link #dropKey(String)})
+     */
+    int getDroppedKeyCount();
+
+    /**
+     * Проверяет, что запись, начинающаяся с указанного сдвига, является записью этого ключа. Читается только
+     * ключ записи. Нужна индексам, которые хранят вместо ключей их хеши.
+     *
+     * @param offset    сдвиг записи в сегменте
+     * @param objectKey ключ
+     * @return {@code true} - если запись по сдвигу есть и ее ключ совпадает с переданным
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    boolean isRecordOf(long offset, String objectKey) throws IOException;
+
+    /**
+     * Проверяет, как {@link #isRecordOf(long, String)}, что по сдвигу лежит запись ключа, и читает из того же
+     * заголовка размер ее значения. Нужна индексам, которые хранят вместо ключей их хеши и не хранят размеры значений.
+     *
+     * @param offset    сдвиг записи в сегменте
+     * @param objectKey ключ
+     * @return размер значения записи (-1 для записи об удалении) или {@link OptionalInt#empty()},
+     * если записи ключа по сдвигу нет
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    OptionalInt readValueSize(long offset, String objectKey) throws IOException;
+
+    /**
+     * Проверяет по фильтру Блума, может ли ключ быть в сегменте, не обращаясь к индексу и файлу сегмента.
+     * Фильтр есть только у read-only сегментов, для активного сегмента ответ всегда {@code true}
+     *
+     * @param objectKey ключ
+     * @return {@code false} - если ключа в сегменте точно нет
+     */
+    boolean mightContain(String objectKey);
+
+    /**
+     * @return память, занятая фильтром Блума сегмента, в байтах. 0, если фильтра нет
+     */
+    long getBloomFilterSize();
+
+    /**
+     * Записывает в файл записи, накопленные в буфере записи сегмента. После этого они видны
+     * в файле сегмента, но могут еще не лежать на диске (см. {@link #sync()})
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void flush() throws IOException;
+
+    /**
+     * Записывает буфер записи в файл (см. {@link #flush()}) и сбрасывает на диск все, что уже записано в сегмент.
+     * Ничего не делает, если сегмент закрыт для записи:
+     * при закрытии потока записи данные сбрасываются на диск, если этого требуют настройки таблицы
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void sync() throws IOException;
+
+    /**
+     * Делает сегмент read-only, не дожидаясь достижения максимального размера.
+     * Поток записи при этом закрывается
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void markReadOnly() throws IOException;
+
+    /**
+     * Освобождает файловые ресурсы сегмента.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    @Override
+    void close() throws IOException;
 }
\ No newline at end of file
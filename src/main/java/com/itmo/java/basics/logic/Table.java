@@ -2,7 +2,10 @@ package com.itmo.java.basics.logic;
 
 import com.itmo.java.basics.exceptions.DatabaseException;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiPredicate;
 
 /**
  * Таблица - логическая сущность, представляющая собой набор файлов-сегментов, которые объединены одним
@@ -12,8 +15,9 @@ import java.util.Optional;
  * - имеет единый размер сегмента
  * - представляет из себя директорию в файловой системе, именованную как таблица
  * и хранящую файлы-сегменты данной таблицы
+ * - держит открытым активный сегмент, пока не будет закрыта
  */
-public interface Table {
+public interface Table extends AutoCloseable {
     /**
      * Возвращает имя таблицы.
      *
@@ -40,5 +44,87 @@ public interface Table {
     Optional<byte[]> read(String objectKey) throws DatabaseException;
 
     void delete(String objectKey) throws DatabaseException;
+
+    /**
+     * Записывает значение и возвращает предыдущее. Предыдущее значение берется из кэша, если он есть,
+     * иначе читается из сегмента, на который указывает индекс.
+     *
+     * @param objectKey ключ, по которому нужно записать значение
+     * @param objectValue значение, которое нужно записать
+     * @return предыдущее значение по ключу
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    Optional<byte[]> getAndWrite(String objectKey, byte[] objectValue) throws DatabaseException;
+
+    /**
+     * Удаляет значение и возвращает его. Значение берется из кэша, если он есть,
+     * иначе читается из сегмента, на который указывает индекс.
+     *
+     * @param objectKey ключ, который нужно удалить
+     * @return удаленное значение
+     * @throws DatabaseException если ключа нет в таблице или произошла ошибка ввода-вывода
+     */
+    Optional<byte[]> getAndDelete(String objectKey) throws DatabaseException;
+
+    /**
+     * Записывает в таблицу несколько значений. Все значения дописываются в активный сегмент одной операцией записи.
+     *
+     * @param objects ключи и значения, которые нужно записать
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    void write(Map<String, byte[]> objects) throws DatabaseException;
+
+    /**
+     * Считывает значения нескольких ключей. Ключи группируются по сегментам, и каждый сегмент читается за один проход.
+     *
+     * @param objectKeys ключи, значения которых нужно получить
+     * @return значения найденных ключей. Отсутствующих и удаленных ключей в ответе нет
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    Map<String, byte[]> read(Collection<String> objectKeys) throws DatabaseException;
+
+    /**
+     * Удаляет несколько ключей. Ключи, которых нет в таблице, пропускаются.
+     *
+     * @param objectKeys ключи, которые нужно удалить
+     * @return количество удаленных ключей
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    int delete(Collection<String> objectKeys) throws DatabaseException;
+
+    /**
+     * Передает ключи из полуинтервала [fromKey, toKey) и их значения в порядке ключей, пока получатель не откажется
+     * от следующего ключа. Ключи читаются по мере обхода, а не собираются заранее.
+     * Поддерживается только таблицами с сегментами, упорядоченными по ключу (см. {@link com.itmo.java.basics.config.TableConfig#isSortedSegments()}).
+     *
+     * @param fromKey  первый ключ диапазона
+     * @param toKey    ключ, перед которым диапазон заканчивается, null - до конца таблицы
+     * @param consumer получатель ключа и значения. Возвращает false, если следующие ключи ему не нужны.
+     *                 Удаленные ключи не передаются
+     * @throws DatabaseException если таблица не поддерживает сканирование или произошла ошибка ввода-вывода
+     */
+    void scan(String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException;
+
+    /**
+     * Возвращает статистику кэша таблицы.
+     *
+     * @return снимок статистики или {@code Optional.empty()}, если таблица не кэширует значения
+     */
+    Optional<CacheStats> getCacheStats();
+
+    /**
+     * Возвращает память, занятую фильтрами Блума сегментов таблицы.
+     *
+     * @return суммарный размер фильтров в байтах
+     */
+    long getBloomFilterSize();
+
+    /**
+     * Закрывает таблицу и освобождает файловые ресурсы ее сегментов.
+     *
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    @Override
+    void close() throws DatabaseException;
 }
 
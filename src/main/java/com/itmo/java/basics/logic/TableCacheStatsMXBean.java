@@ -0,0 +1,34 @@
+package com.itmo.java.basics.logic;
+
+/**
+ * JMX-представление статистики кэша таблицы. Регистрируется для каждой таблицы под именем
+ * {@code com.itmo.java.basics:type=TableCache,database=<имя БД>,table=<имя таблицы>}
+ */
+public interface TableCacheStatsMXBean {
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadCount();
+
+    long getEvictionCount();
+
+    long getEntryCount();
+
+    long getWeightedSize();
+
+    long getLoadLatencyP50Micros();
+
+    long getLoadLatencyP99Micros();
+
+    long[] getLoadLatencyBoundsMicros();
+
+    long[] getLoadLatencyCounts();
+
+    /**
+     * Память фильтров Блума сегментов таблицы. К кэшу не относится, но публикуется вместе со статистикой таблицы
+     */
+    long getBloomFilterBytes();
+}
@@ -0,0 +1,92 @@
+package com.itmo.java.basics.logic.impl;
+
+/**
+ * Приближенный счетчик частоты обращений к ключам (count-min sketch) для политики вытеснения TinyLFU.
+ * Каждый ключ учитывается в четырех счетчиках, оценка частоты - минимальный из них.
+ * Счетчики ограничены значением {@link #MAX_FREQUENCY} и периодически делятся пополам,
+ * чтобы давно популярные ключи постепенно "остывали"
+ */
+class CacheFrequencySketch {
+    static final int MAX_FREQUENCY = 15;
+    private static final int DEPTH = 4;
+    private static final int MIN_WIDTH = 256;
+    private static final int MAX_WIDTH = 1 << 22;
+    private static final int SAMPLE_FACTOR = 10;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries примерное количество ключей, которые помещаются в кэш
+     */
+    CacheFrequencySketch(long expectedEntries) {
+        int width = widthFor(expectedEntries);
+        counters = new byte[width * DEPTH];
+        mask = width - 1;
+        sampleSize = width * SAMPLE_FACTOR;
+    }
+
+    /**
+     * Накопленные частоты посчитаны по индексам старой ширины и в новый счетчик не переносятся
+     *
+     * @param expectedEntries примерное количество ключей, которые помещаются в кэш после изменения его размера
+     * @return этот же счетчик, если ширина не меняется, иначе новый пустой счетчик
+     */
+    CacheFrequencySketch resize(long expectedEntries) {
+        return widthFor(expectedEntries) == mask + 1 ? this : new CacheFrequencySketch(expectedEntries);
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_FREQUENCY) {
+                counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        int rowHash = spread(hash * SEEDS[row]);
+        return row * (mask + 1) + (rowHash & mask);
+    }
+
+    private static int widthFor(long expectedEntries) {
+        int width = MIN_WIDTH;
+        while (width < expectedEntries && width < MAX_WIDTH) {
+            width <<= 1;
+        }
+        return width;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
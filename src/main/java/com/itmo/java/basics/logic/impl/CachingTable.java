@@ -1,21 +1,44 @@
 package com.itmo.java.basics.logic.impl;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.CacheStats;
 import com.itmo.java.basics.logic.DatabaseCache;
 import com.itmo.java.basics.logic.Table;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
 
 /**
- * Декоратор для таблицы. Кэширует данные
+ * Декоратор для таблицы. Кэширует данные и считает попадания, промахи и время чтения из таблицы при промахе
  */
 public class CachingTable implements Table {
     private final Table decoratingTable;
     private final DatabaseCache databaseCache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
 
     public CachingTable(Table table) {
+        this(table, new TableConfig());
+    }
+
+    /**
+     * @param table  таблица, значения которой кэшируются
+     * @param config настройки таблицы: размер собственного кэша или использование общего
+     */
+    public CachingTable(Table table, TableConfig config) {
         decoratingTable = table;
-        databaseCache = new DatabaseCacheImpl();
+        databaseCache = config.isSharedCache()
+                ? DatabaseCacheImpl.getSharedInstance().newNamespace()
+                : new DatabaseCacheImpl(config.getCacheCapacity());
     }
 
     @Override
@@ -45,8 +68,12 @@ public class CachingTable implements Table {
 
         byte[] getValueFromCache = databaseCache.get(objectKey);
         if (getValueFromCache == null) {
+            missCount.increment();
             try {
+                long loadStart = System.nanoTime();
                 Optional<byte[]> getValue = decoratingTable.read(objectKey);
+                loadLatency.record(System.nanoTime() - loadStart);
+                loadCount.increment();
 
                 if (getValue.isEmpty()) {
                     return Optional.empty();
@@ -59,6 +86,7 @@ public class CachingTable implements Table {
             }
         }
 
+        hitCount.increment();
         return Optional.of(getValueFromCache);
     }
 
@@ -75,4 +103,135 @@ public class CachingTable implements Table {
             throw new DatabaseException("IOException while deleting", e);
         }
     }
+
+    /**
+     * Предыдущее значение берется из кэша, из таблицы оно читается только при промахе.
+     * Статистику чтений не меняет
+     */
+    @Override
+    public Optional<byte[]> getAndWrite(String objectKey, byte[] objectValue) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        byte[] cachedValue = databaseCache.get(objectKey);
+        Optional<byte[]> previousValue;
+        if (cachedValue == null) {
+            previousValue = decoratingTable.getAndWrite(objectKey, objectValue);
+        } else {
+            decoratingTable.write(objectKey, objectValue);
+            previousValue = Optional.of(cachedValue);
+        }
+
+        databaseCache.set(objectKey, objectValue);
+        return previousValue;
+    }
+
+    /**
+     * Удаленное значение берется из кэша, из таблицы оно читается только при промахе.
+     * Статистику чтений не меняет
+     */
+    @Override
+    public Optional<byte[]> getAndDelete(String objectKey) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        byte[] cachedValue = databaseCache.get(objectKey);
+        Optional<byte[]> deletedValue;
+        if (cachedValue == null) {
+            deletedValue = decoratingTable.getAndDelete(objectKey);
+        } else {
+            decoratingTable.delete(objectKey);
+            deletedValue = Optional.of(cachedValue);
+        }
+
+        databaseCache.delete(objectKey);
+        return deletedValue;
+    }
+
+    @Override
+    public void write(Map<String, byte[]> objects) throws DatabaseException {
+        decoratingTable.write(objects);
+        for (Map.Entry<String, byte[]> object : objects.entrySet()) {
+            databaseCache.set(object.getKey(), object.getValue());
+        }
+    }
+
+    /**
+     * Значения, которых нет в кэше, дочитываются из таблицы одним пакетным чтением
+     */
+    @Override
+    public Map<String, byte[]> read(Collection<String> objectKeys) throws DatabaseException {
+        Map<String, byte[]> values = new HashMap<>();
+        List<String> missedKeys = new ArrayList<>();
+        for (String objectKey : objectKeys) {
+            if (objectKey == null) {
+                throw new DatabaseException("Key could not be a null");
+            }
+
+            byte[] valueFromCache = databaseCache.get(objectKey);
+            if (valueFromCache == null) {
+                missedKeys.add(objectKey);
+            } else {
+                values.put(objectKey, valueFromCache);
+            }
+        }
+        hitCount.add(objectKeys.size() - missedKeys.size());
+        if (missedKeys.isEmpty()) {
+            return values;
+        }
+
+        missCount.add(missedKeys.size());
+        long loadStart = System.nanoTime();
+        Map<String, byte[]> loadedValues = decoratingTable.read(missedKeys);
+        loadLatency.record(System.nanoTime() - loadStart);
+        loadCount.add(missedKeys.size());
+
+        for (Map.Entry<String, byte[]> loadedValue : loadedValues.entrySet()) {
+            databaseCache.set(loadedValue.getKey(), loadedValue.getValue());
+        }
+        values.putAll(loadedValues);
+        return values;
+    }
+
+    @Override
+    public int delete(Collection<String> objectKeys) throws DatabaseException {
+        int deletedCount = decoratingTable.delete(objectKeys);
+        for (String objectKey : objectKeys) {
+            databaseCache.delete(objectKey);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Диапазон читается из таблицы в обход кэша: кэш не знает, все ли ключи диапазона в нем есть
+     */
+    @Override
+    public void scan(String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException {
+        decoratingTable.scan(fromKey, toKey, consumer);
+    }
+
+    @Override
+    public Optional<CacheStats> getCacheStats() {
+        return Optional.of(new CacheStats(
+                hitCount.sum(),
+                missCount.sum(),
+                loadCount.sum(),
+                databaseCache.getEvictionCount(),
+                databaseCache.getEntryCount(),
+                databaseCache.getWeightedSize(),
+                LatencyHistogram.bucketBoundsMicros(),
+                loadLatency.snapshot()));
+    }
+
+    @Override
+    public long getBloomFilterSize() {
+        return decoratingTable.getBloomFilterSize();
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        decoratingTable.close();
+    }
 }
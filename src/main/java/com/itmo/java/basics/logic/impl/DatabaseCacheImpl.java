@@ -1,40 +1,143 @@
 package com.itmo.java.basics.logic.impl;
 
+import com.itmo.java.basics.config.DatabaseConfig;
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.logic.DatabaseCache;
 
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Кэш значений, ограниченный суммарным размером в байтах.
+ *
+ * Вытеснение устроено по схеме W-TinyLFU:
+ * - новые ключи попадают в небольшое LRU-"окно";
+ * - вытесненный из окна ключ попадает в основную область (сегментированный LRU из испытательной
+ * и защищенной частей), только если по {@link CacheFrequencySketch} к нему обращались чаще, чем к кандидату
+ * на вытеснение. Поэтому однократный проход по большому числу ключей не вымывает из кэша часто читаемые значения
+ *
+ * Ключи распределены по независимым шардам со своими блокировками, чтобы обращения из разных потоков
+ * не выстраивались в очередь к одному монитору.
+ * Один экземпляр можно разделить между несколькими таблицами через {@link #newNamespace()}
+ */
 public class DatabaseCacheImpl implements DatabaseCache {
-    private final int MAX_CAPACITY = 5_000;
+    public static final long DEFAULT_CAPACITY = TableConfig.DEFAULT_CACHE_CAPACITY;
+    private static final long MIN_SHARD_CAPACITY = 1L << 20;
+    private static final int MAX_SHARDS = 16;
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int AVERAGE_ENTRY_SIZE = 256;
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
 
-    Map<String, byte[]> cache = new LinkedHashMap<>(MAX_CAPACITY) {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
-            return size() > MAX_CAPACITY;
+    private static final DatabaseCacheImpl SHARED_INSTANCE = new DatabaseCacheImpl(DatabaseConfig.DEFAULT_SHARED_CACHE_CAPACITY, MAX_SHARDS);
+
+    private final Shard[] shards;
+    private final Usage usage = new Usage();
+    private final AtomicInteger namespaces = new AtomicInteger();
+
+    public DatabaseCacheImpl() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальный суммарный размер ключей и значений в байтах
+     */
+    public DatabaseCacheImpl(long capacity) {
+        this(capacity, shardCountFor(capacity));
+    }
+
+    private DatabaseCacheImpl(long capacity, int shardCount) {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(capacity / shardCount);
         }
-    };
+    }
 
+    /**
+     * @return кэш, общий для всех таблиц процесса. Размер задается {@link #setCapacity(long)}
+     */
+    public static DatabaseCacheImpl getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Меняет размер кэша и сразу вытесняет лишние значения
+     *
+     * @param capacity максимальный суммарный размер ключей и значений в байтах
+     */
+    public void setCapacity(long capacity) {
+        for (Shard shard : shards) {
+            shard.setCapacity(capacity / shards.length);
+        }
+    }
+
+    public long getCapacity() {
+        long capacity = 0;
+        for (Shard shard : shards) {
+            capacity += shard.getCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * @return количество значений во всех пространствах кэша
+     */
     @Override
-    public byte[] get(String key) {
-        if (key == null) {
-            return null;
+    public long getEntryCount() {
+        long entryCount = 0;
+        for (Shard shard : shards) {
+            entryCount += shard.getEntryCount();
         }
+        return entryCount;
+    }
 
-        if (!cache.containsKey(key)) {
+    /**
+     * @return суммарный размер ключей и значений во всех пространствах кэша в байтах
+     */
+    @Override
+    public long getWeightedSize() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.getWeightedSize();
+        }
+        return size;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        long evictionCount = 0;
+        for (Shard shard : shards) {
+            evictionCount += shard.getEvictionCount();
+        }
+        return evictionCount;
+    }
+
+    /**
+     * Создает представление кэша с собственным пространством ключей.
+     * Одинаковые ключи разных пространств не пересекаются, а память делится между всеми пространствами
+     */
+    public DatabaseCache newNamespace() {
+        return new Namespace(namespaces.incrementAndGet());
+    }
+
+    @Override
+    public byte[] get(String key) {
+        if (key == null) {
             return null;
         }
 
-        return cache.get(key);
+        return shardFor(key).get(key);
     }
 
     @Override
     public void set(String key, byte[] value) {
-        if (key == null) {
+        if (key == null || value == null) {
             return;
         }
 
-        cache.put(key, value);
+        shardFor(key).put(key, value, weigh(key, value), usage);
     }
 
     @Override
@@ -43,6 +146,381 @@ public class DatabaseCacheImpl implements DatabaseCache {
             return;
         }
 
-        cache.remove(key);
+        shardFor(key).remove(key);
+    }
+
+    private Shard shardFor(Object key) {
+        int hash = key.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private static long weigh(String key, byte[] value) {
+        return ENTRY_OVERHEAD + 2L * key.length() + value.length;
+    }
+
+    private static int shardCountFor(long capacity) {
+        int shardCount = 1;
+        while (shardCount < MAX_SHARDS && capacity / (shardCount * 2L) >= MIN_SHARD_CAPACITY) {
+            shardCount *= 2;
+        }
+        return shardCount;
+    }
+
+    /**
+     * Ключ в общем кэше: имя ключа в таблице плюс номер пространства таблицы
+     */
+    private static final class NamespacedKey {
+        private final int namespace;
+        private final String key;
+
+        NamespacedKey(int namespace, String key) {
+            this.namespace = namespace;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NamespacedKey)) {
+                return false;
+            }
+            NamespacedKey that = (NamespacedKey) o;
+            return namespace == that.namespace && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * namespace + key.hashCode();
+        }
+    }
+
+    private final class Namespace implements DatabaseCache {
+        private final int id;
+        private final Usage usage = new Usage();
+
+        Namespace(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public byte[] get(String key) {
+            if (key == null) {
+                return null;
+            }
+
+            NamespacedKey namespacedKey = new NamespacedKey(id, key);
+            return shardFor(namespacedKey).get(namespacedKey);
+        }
+
+        @Override
+        public void set(String key, byte[] value) {
+            if (key == null || value == null) {
+                return;
+            }
+
+            NamespacedKey namespacedKey = new NamespacedKey(id, key);
+            shardFor(namespacedKey).put(namespacedKey, value, weigh(key, value) + Integer.BYTES, usage);
+        }
+
+        @Override
+        public void delete(String key) {
+            if (key == null) {
+                return;
+            }
+
+            NamespacedKey namespacedKey = new NamespacedKey(id, key);
+            shardFor(namespacedKey).remove(namespacedKey);
+        }
+
+        @Override
+        public long getEntryCount() {
+            return usage.entries.sum();
+        }
+
+        @Override
+        public long getWeightedSize() {
+            return usage.weight.sum();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return usage.evictions.sum();
+        }
+    }
+
+    /**
+     * Занятое место и вытеснения одного пространства ключей. Узлы пространства лежат в разных шардах,
+     * поэтому счетчики обновляются без общей блокировки
+     */
+    private static final class Usage {
+        final LongAdder entries = new LongAdder();
+        final LongAdder weight = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static final class Node {
+        final Object key;
+        final Usage usage;
+        byte[] value;
+        long weight;
+        Region region;
+        Node prev;
+        Node next;
+
+        Node(Object key, Usage usage, byte[] value, long weight) {
+            this.key = key;
+            this.usage = usage;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Двусвязный список в порядке обращений: в начале - давно не использованные узлы
+     */
+    private static final class AccessOrder {
+        Node head;
+        Node tail;
+        long weight;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    private static final class Shard {
+        private final Map<Object, Node> nodes = new HashMap<>();
+        private final AccessOrder window = new AccessOrder();
+        private final AccessOrder probation = new AccessOrder();
+        private final AccessOrder protectedRegion = new AccessOrder();
+        private CacheFrequencySketch sketch;
+        private long capacity;
+        private long windowCapacity;
+        private long mainCapacity;
+        private long protectedCapacity;
+        private long evictionCount;
+
+        Shard(long capacity) {
+            sketch = new CacheFrequencySketch(capacity / AVERAGE_ENTRY_SIZE);
+            resize(capacity);
+        }
+
+        synchronized void setCapacity(long capacity) {
+            resize(capacity);
+            sketch = sketch.resize(this.capacity / AVERAGE_ENTRY_SIZE);
+            evict();
+        }
+
+        synchronized long getCapacity() {
+            return capacity;
+        }
+
+        synchronized long getEntryCount() {
+            return nodes.size();
+        }
+
+        synchronized long getWeightedSize() {
+            return window.weight + probation.weight + protectedRegion.weight;
+        }
+
+        synchronized long getEvictionCount() {
+            return evictionCount;
+        }
+
+        synchronized byte[] get(Object key) {
+            sketch.increment(key);
+            Node node = nodes.get(key);
+            if (node == null) {
+                return null;
+            }
+
+            onHit(node);
+            return node.value;
+        }
+
+        synchronized void put(Object key, byte[] value, long weight, Usage usage) {
+            Node node = nodes.get(key);
+            if (weight > mainCapacity) {
+                if (node != null) {
+                    remove(node);
+                }
+                return;
+            }
+
+            sketch.increment(key);
+            if (node != null) {
+                node.usage.weight.add(weight - node.weight);
+                orderOf(node).remove(node);
+                node.value = value;
+                node.weight = weight;
+                orderOf(node).addLast(node);
+                onHit(node);
+            } else {
+                node = new Node(key, usage, value, weight);
+                node.region = Region.WINDOW;
+                window.addLast(node);
+                nodes.put(key, node);
+                usage.entries.increment();
+                usage.weight.add(weight);
+            }
+            evict();
+        }
+
+        synchronized void remove(Object key) {
+            Node node = nodes.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        }
+
+        private void resize(long capacity) {
+            this.capacity = Math.max(0, capacity);
+            windowCapacity = (long) (this.capacity * WINDOW_RATIO);
+            mainCapacity = this.capacity - windowCapacity;
+            protectedCapacity = (long) (mainCapacity * PROTECTED_RATIO);
+        }
+
+        private void onHit(Node node) {
+            switch (node.region) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    node.region = Region.PROTECTED;
+                    protectedRegion.addLast(node);
+                    demoteProtected();
+                    break;
+                case PROTECTED:
+                    protectedRegion.moveToLast(node);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown cache region " + node.region);
+            }
+        }
+
+        /**
+         * Лишние давно не использованные узлы защищенной части возвращаются в испытательную
+         */
+        private void demoteProtected() {
+            while (protectedRegion.weight > protectedCapacity && protectedRegion.head != null) {
+                Node demoted = protectedRegion.head;
+                protectedRegion.remove(demoted);
+                demoted.region = Region.PROBATION;
+                probation.addLast(demoted);
+            }
+        }
+
+        private void evict() {
+            while (window.weight > windowCapacity && window.head != null) {
+                Node candidate = window.head;
+                window.remove(candidate);
+                candidate.region = Region.PROBATION;
+                admit(candidate);
+            }
+
+            while (probation.weight + protectedRegion.weight > mainCapacity) {
+                Node victim = probation.head != null ? probation.head : protectedRegion.head;
+                if (victim == null) {
+                    break;
+                }
+                discard(victim);
+            }
+        }
+
+        /**
+         * Кандидат из окна вытесняет узлы основной области, только пока обращений к нему было больше,
+         * чем к очередной жертве. Иначе вытесняется сам кандидат
+         */
+        private void admit(Node candidate) {
+            int candidateFrequency = sketch.frequency(candidate.key);
+            while (probation.weight + protectedRegion.weight + candidate.weight > mainCapacity) {
+                Node victim = probation.head != null ? probation.head : protectedRegion.head;
+                if (victim == null) {
+                    break;
+                }
+                if (candidateFrequency <= sketch.frequency(victim.key)) {
+                    forget(candidate);
+                    onEvicted(candidate);
+                    return;
+                }
+                discard(victim);
+            }
+            probation.addLast(candidate);
+        }
+
+        private void discard(Node node) {
+            remove(node);
+            onEvicted(node);
+        }
+
+        private void remove(Node node) {
+            orderOf(node).remove(node);
+            forget(node);
+        }
+
+        /**
+         * Убирает узел из таблицы ключей и учета места. Из списков обращений узел должен быть уже удален
+         */
+        private void forget(Node node) {
+            nodes.remove(node.key);
+            node.usage.entries.decrement();
+            node.usage.weight.add(-node.weight);
+        }
+
+        private void onEvicted(Node node) {
+            evictionCount++;
+            node.usage.evictions.increment();
+        }
+
+        private AccessOrder orderOf(Node node) {
+            switch (node.region) {
+                case WINDOW:
+                    return window;
+                case PROBATION:
+                    return probation;
+                case PROTECTED:
+                    return protectedRegion;
+                default:
+                    throw new IllegalStateException("Unknown cache region " + node.region);
+            }
+        }
     }
 }
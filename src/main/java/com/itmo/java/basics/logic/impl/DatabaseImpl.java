@@ -1,27 +1,41 @@
 package com.itmo.java.basics.logic.impl;
 
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.index.impl.TableIndex;
 import com.itmo.java.basics.initialization.DatabaseInitializationContext;
+import com.itmo.java.basics.logic.CacheStats;
 import com.itmo.java.basics.logic.Database;
 import com.itmo.java.basics.logic.Table;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
 
 public class DatabaseImpl implements Database {
     private final String name;
     private final Path path;
     private Map<String, Table> tables;
+    private final TableConfig defaultTableConfig;
 
     /**
      * @param databaseRoot путь к директории, которая может содержать несколько БД,
      *                     поэтому при создании БД необходимо создать директорию внутри databaseRoot.
      */
     public static Database create(String dbName, Path databaseRoot) throws DatabaseException {
+        return create(dbName, databaseRoot, new TableConfig());
+    }
+
+    /**
+     * @param databaseRoot       путь к директории, которая может содержать несколько БД
+     * @param defaultTableConfig настройки, с которыми создаются таблицы этой БД, если иные не указаны
+     */
+    public static Database create(String dbName, Path databaseRoot, TableConfig defaultTableConfig) throws DatabaseException {
         if (dbName == null) {
             throw new DatabaseException("Database should have a name");
         }
@@ -36,26 +50,29 @@ public class DatabaseImpl implements Database {
             }
         }
 
-        return new DatabaseImpl(dbName, databaseRoot);
-    }
-
-    private DatabaseImpl(String name, Path root) {
-        this.name = name;
-        this.path = root.resolve(name);
-        tables = new HashMap<>();
+        return new DatabaseImpl(dbName, databaseRoot, new ConcurrentHashMap<>(), defaultTableConfig);
     }
 
-    private DatabaseImpl(String name, Path root, Map<String, Table> tables) {
+    private DatabaseImpl(String name, Path root, Map<String, Table> tables, TableConfig defaultTableConfig) {
         this.name = name;
         this.path = root.resolve(name);
         this.tables = tables;
+        this.defaultTableConfig = defaultTableConfig;
+        for (Table table : tables.values()) {
+            TableCacheStatsMXBeanImpl.register(name, table);
+        }
     }
 
     public static Database initializeFromContext(DatabaseInitializationContext context) {
+        return initializeFromContext(context, new TableConfig());
+    }
+
+    public static Database initializeFromContext(DatabaseInitializationContext context, TableConfig defaultTableConfig) {
         return new DatabaseImpl(
                 context.getDbName(),
-                context.getDatabasePath().getRoot(),
-                new HashMap<>(context.getTables()));
+                context.getDatabasePath().getParent(),
+                new ConcurrentHashMap<>(context.getTables()),
+                defaultTableConfig);
     }
 
     @Override
@@ -65,6 +82,11 @@ public class DatabaseImpl implements Database {
 
     @Override
     public void createTableIfNotExists(String tableName) throws DatabaseException {
+        createTableIfNotExists(tableName, new TableConfig(defaultTableConfig));
+    }
+
+    @Override
+    public synchronized void createTableIfNotExists(String tableName, TableConfig tableConfig) throws DatabaseException {
         if (tableName == null) {
             throw new DatabaseException("Table name should have a name");
         }
@@ -72,8 +94,11 @@ public class DatabaseImpl implements Database {
             throw new DatabaseException("Table already exists");
         }
 
-        Table newTable = TableImpl.create(tableName, path, new TableIndex());
+        Table newTable = tableConfig.isSortedSegments()
+                ? LsmTable.create(tableName, path, tableConfig)
+                : TableImpl.create(tableName, path, TableIndex.create(tableConfig), tableConfig);
         tables.put(tableName, newTable);
+        TableCacheStatsMXBeanImpl.register(name, newTable);
     }
 
     @Override
@@ -84,11 +109,12 @@ public class DatabaseImpl implements Database {
         if (objectKey == null) {
             throw new DatabaseException("Key could not be a null");
         }
-        if (!tables.containsKey(tableName)) {
+        Table table = tables.get(tableName);
+        if (table == null) {
             throw new DatabaseException("This table isn't existing");
         }
 
-        tables.get(tableName).write(objectKey, objectValue);
+        table.write(objectKey, objectValue);
     }
 
     @Override
@@ -99,11 +125,12 @@ public class DatabaseImpl implements Database {
         if (objectKey == null) {
             throw new DatabaseException("Key could not be a null");
         }
-        if (!tables.containsKey(tableName)) {
+        Table table = tables.get(tableName);
+        if (table == null) {
             return Optional.empty();
         }
 
-        return tables.get(tableName).read(objectKey);
+        return table.read(objectKey);
     }
 
     @Override
@@ -114,10 +141,132 @@ public class DatabaseImpl implements Database {
         if (objectKey == null) {
             throw new DatabaseException("Key could not be a null");
         }
-        if (!tables.containsKey(tableName)) {
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        table.delete(objectKey);
+    }
+
+    @Override
+    public Optional<byte[]> getAndWrite(String tableName, String objectKey, byte[] objectValue) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
             throw new DatabaseException("This table isn't existing");
         }
 
-        tables.get(tableName).delete(objectKey);
+        return table.getAndWrite(objectKey, objectValue);
+    }
+
+    @Override
+    public Optional<byte[]> getAndDelete(String tableName, String objectKey) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        return table.getAndDelete(objectKey);
+    }
+
+    @Override
+    public void write(String tableName, Map<String, byte[]> objects) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        table.write(objects);
+    }
+
+    @Override
+    public Map<String, byte[]> read(String tableName, Collection<String> objectKeys) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            return Collections.emptyMap();
+        }
+
+        return table.read(objectKeys);
+    }
+
+    @Override
+    public int delete(String tableName, Collection<String> objectKeys) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        return table.delete(objectKeys);
+    }
+
+    @Override
+    public void scan(String tableName, String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        if (fromKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        table.scan(fromKey, toKey, consumer);
+    }
+
+    @Override
+    public Optional<CacheStats> getCacheStats(String tableName) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table name should have a name");
+        }
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw new DatabaseException("This table isn't existing");
+        }
+
+        return table.getCacheStats();
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        DatabaseException closeException = null;
+        for (Table table : tables.values()) {
+            TableCacheStatsMXBeanImpl.unregister(name, table.getName());
+            try {
+                table.close();
+            } catch (DatabaseException e) {
+                if (closeException == null) {
+                    closeException = new DatabaseException("Problem with closing database " + name, e);
+                } else {
+                    closeException.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeException != null) {
+            throw closeException;
+        }
     }
 }
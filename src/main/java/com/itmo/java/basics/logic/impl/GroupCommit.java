@@ -0,0 +1,110 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.exceptions.DatabaseException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Групповая запись: одновременные записи собираются в одну пачку, которую записывает и сбрасывает на диск
+ * один из пишущих потоков - лидер. Остальные ждут, пока лидер не закончит. Записи, пришедшие, пока
+ * лидер пишет, образуют следующую пачку, и ее записывает первый освободившийся из них поток.
+ * Поэтому чем больше одновременных записей, тем больше пачка и тем реже сброс на диск
+ */
+class GroupCommit {
+    @FunctionalInterface
+    interface Committer {
+        /**
+         * Записывает пачку и сбрасывает ее на диск
+         *
+         * @param records ключи и значения пачки в порядке поступления. Null вместо значения - удаление ключа
+         * @throws DatabaseException если произошла ошибка ввода-вывода
+         */
+        void commit(Map<String, byte[]> records) throws DatabaseException;
+    }
+
+    private static final class Request {
+        private final Map<String, byte[]> records;
+        private boolean done;
+        private DatabaseException failure;
+
+        private Request(Map<String, byte[]> records) {
+            this.records = records;
+        }
+    }
+
+    private final Committer committer;
+    private List<Request> pendingRequests = new ArrayList<>();
+    private boolean committing;
+
+    GroupCommit(Committer committer) {
+        this.committer = committer;
+    }
+
+    /**
+     * Записывает значения в составе ближайшей пачки и возвращается, только когда пачка сброшена на диск
+     *
+     * @param records ключи и значения. Null вместо значения - удаление ключа
+     * @throws DatabaseException если пачку не удалось записать
+     */
+    void commit(Map<String, byte[]> records) throws DatabaseException {
+        Request request = new Request(records);
+        List<Request> batch;
+        boolean interrupted = false;
+        synchronized (this) {
+            pendingRequests.add(request);
+            while (committing && !request.done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // запись уже могла попасть в пачку, поэтому ждем ее окончания в любом случае
+                    interrupted = true;
+                }
+            }
+
+            if (request.done) {
+                batch = null;
+            } else {
+                committing = true;
+                batch = pendingRequests;
+                pendingRequests = new ArrayList<>();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (batch != null) {
+            commitBatch(batch);
+        }
+        if (request.failure != null) {
+            throw new DatabaseException(request.failure.getMessage(), request.failure);
+        }
+    }
+
+    private void commitBatch(List<Request> batch) {
+        DatabaseException failure = null;
+        try {
+            Map<String, byte[]> records = new LinkedHashMap<>();
+            for (Request request : batch) {
+                records.putAll(request.records);
+            }
+            committer.commit(records);
+        } catch (DatabaseException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new DatabaseException("Group commit failed", e);
+        }
+
+        synchronized (this) {
+            for (Request request : batch) {
+                request.failure = failure;
+                request.done = true;
+            }
+            committing = false;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.itmo.java.basics.logic.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с экспоненциальными корзинами: 1, 2, 4, ... микросекунд.
+ * Последняя корзина собирает все, что больше предыдущей границы
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 24;
+    private static final long[] BUCKET_BOUNDS_MICROS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            BUCKET_BOUNDS_MICROS[i] = 1L << i;
+        }
+        BUCKET_BOUNDS_MICROS[BUCKETS - 1] = Long.MAX_VALUE;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+    }
+
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return верхние границы корзин в микросекундах. У последней корзины границы нет - {@link Long#MAX_VALUE}
+     */
+    static long[] bucketBoundsMicros() {
+        return BUCKET_BOUNDS_MICROS.clone();
+    }
+}
@@ -0,0 +1,166 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.CacheStats;
+import com.itmo.java.basics.logic.Table;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Декоратор для таблицы, которая загружается с диска только при первом обращении.
+ * Одновременные первые обращения дожидаются одной и той же загрузки. Если загрузка не удалась,
+ * следующее обращение попробует загрузить таблицу снова
+ */
+public class LazyTable implements Table {
+    private static final Logger LOGGER = Logger.getLogger(LazyTable.class.getName());
+
+    /**
+     * Прогрев идет в одном фоновом потоке, чтобы не отнимать диск у запросов к уже горячим таблицам
+     */
+    private static final ExecutorService WARM_UP_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @FunctionalInterface
+    public interface TableLoader {
+        /**
+         * Читает сегменты таблицы и строит ее индекс
+         *
+         * @return загруженная таблица
+         * @throws DatabaseException если произошла ошибка инициализации таблицы
+         */
+        Table load() throws DatabaseException;
+    }
+
+    private final String name;
+    private final TableLoader loader;
+    private volatile Table loadedTable;
+    private boolean closed;
+
+    public LazyTable(String name, TableLoader loader) {
+        this.name = name;
+        this.loader = loader;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void write(String objectKey, byte[] objectValue) throws DatabaseException {
+        getTable().write(objectKey, objectValue);
+    }
+
+    @Override
+    public Optional<byte[]> read(String objectKey) throws DatabaseException {
+        return getTable().read(objectKey);
+    }
+
+    @Override
+    public void delete(String objectKey) throws DatabaseException {
+        getTable().delete(objectKey);
+    }
+
+    @Override
+    public Optional<byte[]> getAndWrite(String objectKey, byte[] objectValue) throws DatabaseException {
+        return getTable().getAndWrite(objectKey, objectValue);
+    }
+
+    @Override
+    public Optional<byte[]> getAndDelete(String objectKey) throws DatabaseException {
+        return getTable().getAndDelete(objectKey);
+    }
+
+    @Override
+    public void write(Map<String, byte[]> objects) throws DatabaseException {
+        getTable().write(objects);
+    }
+
+    @Override
+    public Map<String, byte[]> read(Collection<String> objectKeys) throws DatabaseException {
+        return getTable().read(objectKeys);
+    }
+
+    @Override
+    public int delete(Collection<String> objectKeys) throws DatabaseException {
+        return getTable().delete(objectKeys);
+    }
+
+    @Override
+    public void scan(String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException {
+        getTable().scan(fromKey, toKey, consumer);
+    }
+
+    /**
+     * Статистика незагруженной таблицы пуста: ради нее таблица не загружается
+     */
+    @Override
+    public Optional<CacheStats> getCacheStats() {
+        Table table = loadedTable;
+        return table == null ? Optional.empty() : table.getCacheStats();
+    }
+
+    @Override
+    public long getBloomFilterSize() {
+        Table table = loadedTable;
+        return table == null ? 0 : table.getBloomFilterSize();
+    }
+
+    /**
+     * Закрывает таблицу, если она была загружена. Незагруженная таблица после закрытия уже не загрузится
+     */
+    @Override
+    public synchronized void close() throws DatabaseException {
+        closed = true;
+        if (loadedTable != null) {
+            loadedTable.close();
+        }
+    }
+
+    /**
+     * @return {@code true} - если таблица уже загружена с диска
+     */
+    public boolean isLoaded() {
+        return loadedTable != null;
+    }
+
+    /**
+     * Загружает таблицу в фоне, если к ней еще не обращались
+     */
+    public void warmUpInBackground() {
+        WARM_UP_EXECUTOR.execute(() -> {
+            try {
+                getTable();
+            } catch (DatabaseException e) {
+                LOGGER.log(Level.WARNING, "Background loading of table " + name + " failed", e);
+            }
+        });
+    }
+
+    private Table getTable() throws DatabaseException {
+        Table table = loadedTable;
+        if (table != null) {
+            return table;
+        }
+
+        synchronized (this) {
+            if (loadedTable == null) {
+                if (closed) {
+                    throw new DatabaseException("Table " + name + " is closed");
+                }
+                loadedTable = loader.load();
+            }
+            return loadedTable;
+        }
+    }
+}
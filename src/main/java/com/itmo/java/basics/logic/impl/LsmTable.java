@@ -0,0 +1,872 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.config.FsyncPolicy;
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.CacheStats;
+import com.itmo.java.basics.logic.DatabaseRecord;
+import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.io.DatabaseInputStream;
+import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+import com.itmo.java.basics.logic.io.TableMetadataFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Таблица, хранящая данные как LSM-дерево (см. {@link TableConfig#isSortedSegments()}):
+ * <p>
+ * - записи дописываются в журнал ({@code <таблица>_<номер>.wal}, записи в формате {@link DatabaseOutputStream})
+ * и попадают в отсортированную таблицу в памяти ({@link Memtable}). Журнал сбрасывается на диск согласно
+ * {@link FsyncPolicy}, при {@link FsyncPolicy#ALWAYS} одновременные записи объединяются (см. {@link GroupCommit})
+ * - когда таблица в памяти вырастает до {@link TableConfig#getSegmentSize()}, записи переходят в новую таблицу
+ * и новый журнал, а заполненная таблица сбрасывается в сегмент, упорядоченный по ключу
+ * ({@code <таблица>_<номер>-<номер>.sst}, см. {@link SortedSegment}). После этого ее журнал удаляется
+ * - ключ ищется от новых данных к старым: таблица в памяти, таблицы, ожидающие сброса, сегменты от нового к старому.
+ * Удаление хранится как запись об удалении и закрывает более старые значения ключа
+ * - диапазон ключей читается слиянием упорядоченных обходов всех таблиц и сегментов (см. {@link MergingIterator})
+ * - сегменты сливаются в фоне по ярусам: когда подряд идут {@link TableConfig#getCompactionSegmentThreshold()}
+ * сегментов близкого размера, они сливаются в один ({@code <таблица>_<первый номер>-<последний номер>.sst}).
+ * Каждая запись переписывается примерно один раз на ярус, а не при каждом слиянии. Записи об удалении
+ * отбрасываются, только если слияние доходит до самого старого сегмента
+ * - при загрузке сегменты, номера которых покрыты слитым сегментом, и журналы уже сброшенных таблиц удаляются,
+ * а записи оставшихся журналов сбрасываются в сегмент
+ */
+public class LsmTable implements Table {
+    private static final Logger LOGGER = Logger.getLogger(LsmTable.class.getName());
+    private static final String LOG_EXTENSION = ".wal";
+    private static final int DEFAULT_COMPACTION_SEGMENT_THRESHOLD = 4;
+    /**
+     * Во сколько раз самый большой сегмент яруса может превосходить самый маленький
+     */
+    private static final int TIER_SIZE_RATIO = 2;
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final Path path;
+    private final TableConfig config;
+    private final Lock appendLock = new ReentrantLock();
+    private final Lock flushLock = new ReentrantLock();
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final Object stateLock = new Object();
+    private volatile State state;
+    private volatile CommitLog log;
+    private long nextSequence;
+    private Future<?> compaction;
+    private volatile boolean closed;
+    private final GroupCommit groupCommit;
+    private final Future<?> fsyncTask;
+
+    /**
+     * Таблицы в памяти и сегменты, из которых сейчас читается таблица. Не меняется - подменяется целиком
+     */
+    private static final class State {
+        private final Memtable memtable;
+        private final List<Memtable> flushingMemtables;
+        private final List<SortedSegment> segments;
+
+        /**
+         * @param flushingMemtables заполненные таблицы, ожидающие сброса, от новой к старой
+         * @param segments          сегменты от нового к старому
+         */
+        private State(Memtable memtable, List<Memtable> flushingMemtables, List<SortedSegment> segments) {
+            this.memtable = memtable;
+            this.flushingMemtables = Collections.unmodifiableList(flushingMemtables);
+            this.segments = Collections.unmodifiableList(segments);
+        }
+    }
+
+    /**
+     * Файл сегмента, найденный при загрузке, и номера таблиц в памяти, которые он покрывает
+     */
+    private static final class SegmentFile {
+        private final Path path;
+        private final long firstSequence;
+        private final long sequence;
+
+        private SegmentFile(Path path, long firstSequence, long sequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.sequence = sequence;
+        }
+    }
+
+    public static Table create(String tableName, Path pathToDatabaseRoot, TableConfig tableConfig) throws DatabaseException {
+        if (tableName == null) {
+            throw new DatabaseException("Table should have a name");
+        }
+        if (pathToDatabaseRoot == null) {
+            throw new DatabaseException("Table should have a root");
+        }
+        if (tableConfig == null) {
+            throw new DatabaseException("Problem with table config");
+        }
+        if (tableConfig.getSegmentSize() <= 0) {
+            throw new DatabaseException("Segment size should be positive");
+        }
+
+        File directory = new File(String.valueOf(pathToDatabaseRoot.resolve(tableName)));
+        if (!directory.exists()) {
+            if (!directory.mkdirs()) {
+                throw new DatabaseException("Problem with directory");
+            }
+        }
+
+        try {
+            TableMetadataFile.write(directory.toPath(), tableConfig);
+            Table table = new LsmTable(tableName, pathToDatabaseRoot, tableConfig, new ArrayList<>(), 1);
+            return new CachingTable(table, tableConfig);
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while creating table", e);
+        }
+    }
+
+    /**
+     * Загружает таблицу из ее директории: открывает сегменты, удаляет файлы, оставшиеся от прерванных
+     * сбросов и слияний, и сбрасывает в сегмент записи из журналов
+     *
+     * @param tableName          имя таблицы
+     * @param pathToDatabaseRoot путь до директории БД
+     * @param tableConfig        настройки таблицы, уже прочитанные из метаданных
+     * @throws DatabaseException если произошла ошибка ввода-вывода
+     */
+    public static Table initialize(String tableName, Path pathToDatabaseRoot, TableConfig tableConfig) throws DatabaseException {
+        Path tablePath = pathToDatabaseRoot.resolve(tableName);
+        File[] files = tablePath.toFile().listFiles();
+        if (files == null) {
+            throw new DatabaseException("Problem with directory");
+        }
+
+        Pattern segmentPattern = segmentNamePattern(tableName);
+        Pattern logPattern = logNamePattern(tableName);
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        List<SegmentFile> segmentFiles = new ArrayList<>();
+        try {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (!file.isFile()) {
+                    continue;
+                }
+                if (fileName.endsWith(SortedSegment.TEMPORARY_SUFFIX)
+                        && segmentPattern.matcher(fileName.substring(0, fileName.length() - SortedSegment.TEMPORARY_SUFFIX.length())).matches()) {
+                    Files.deleteIfExists(file.toPath());
+                    continue;
+                }
+
+                Matcher logName = logPattern.matcher(fileName);
+                if (logName.matches()) {
+                    logs.put(Long.parseLong(logName.group(1)), file.toPath());
+                    continue;
+                }
+
+                Matcher segmentName = segmentPattern.matcher(fileName);
+                if (segmentName.matches()) {
+                    segmentFiles.add(new SegmentFile(file.toPath(),
+                            Long.parseLong(segmentName.group(1)), Long.parseLong(segmentName.group(2))));
+                }
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while initializing table " + tableName, e);
+        }
+
+        List<SortedSegment> segments = new ArrayList<>();
+        try {
+            // слитый сегмент покрывает номера всех своих исходных сегментов: если слияние прервалось
+            // до их удаления, они отбрасываются. При сортировке по первому номеру покрытый сегмент
+            // идет после покрывающего
+            segmentFiles.sort(Comparator.comparingLong((SegmentFile segmentFile) -> segmentFile.firstSequence)
+                    .thenComparing(Comparator.comparingLong((SegmentFile segmentFile) -> segmentFile.sequence).reversed()));
+            long coveredSequence = -1;
+            for (SegmentFile segmentFile : segmentFiles) {
+                if (segmentFile.sequence <= coveredSequence) {
+                    deleteSegmentFiles(segmentFile.path);
+                } else {
+                    segments.add(SortedSegment.open(segmentFile.path, segmentFile.firstSequence, segmentFile.sequence, tableConfig));
+                    coveredSequence = segmentFile.sequence;
+                }
+            }
+            segments.sort(Comparator.comparingLong(SortedSegment::getSequence).reversed());
+
+            long newestSegmentSequence = segments.isEmpty() ? 0 : segments.get(0).getSequence();
+            Memtable replayed = null;
+            long firstReplayedSequence = 0;
+            for (Map.Entry<Long, Path> log : logs.entrySet()) {
+                if (log.getKey() <= newestSegmentSequence) {
+                    Files.deleteIfExists(log.getValue());
+                    continue;
+                }
+
+                if (replayed == null) {
+                    replayed = new Memtable(logs.lastKey());
+                    firstReplayedSequence = log.getKey();
+                }
+                replayLog(log.getValue(), replayed);
+            }
+
+            long lastSequence = newestSegmentSequence;
+            if (replayed != null) {
+                lastSequence = replayed.getSequence();
+                if (!replayed.isEmpty()) {
+                    segments.add(0, writeSegment(tablePath, tableName, replayed, firstReplayedSequence, tableConfig));
+                }
+                for (Path log : logs.tailMap(newestSegmentSequence, false).values()) {
+                    Files.deleteIfExists(log);
+                }
+            }
+
+            LsmTable table = new LsmTable(tableName, pathToDatabaseRoot, tableConfig, segments, lastSequence + 1);
+            table.scheduleCompactionIfNeeded();
+            return new CachingTable(table, tableConfig);
+        } catch (IOException e) {
+            for (SortedSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            throw new DatabaseException("IOException while initializing table " + tableName, e);
+        }
+    }
+
+    private LsmTable(String tableName, Path pathToDatabaseRoot, TableConfig tableConfig,
+                     List<SortedSegment> segments, long firstSequence) throws IOException {
+        name = tableName;
+        path = pathToDatabaseRoot.resolve(tableName);
+        config = tableConfig;
+        nextSequence = firstSequence + 1;
+        log = new CommitLog(logPath(firstSequence));
+        state = new State(new Memtable(firstSequence), List.of(), new ArrayList<>(segments));
+        groupCommit = tableConfig.getFsyncPolicy() == FsyncPolicy.ALWAYS
+                ? new GroupCommit(records -> appendRecords(records, true))
+                : null;
+        fsyncTask = tableConfig.getFsyncPolicy() == FsyncPolicy.INTERVAL
+                ? TableImpl.flushScheduler().scheduleWithFixedDelay(this::syncLog,
+                        tableConfig.getFsyncIntervalMillis(), tableConfig.getFsyncIntervalMillis(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void write(String objectKey, byte[] objectValue) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        append(Collections.singletonMap(objectKey, objectValue));
+    }
+
+    @Override
+    public Optional<byte[]> read(String objectKey) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            return valueOf(lookup(objectKey));
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while reading", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String objectKey) throws DatabaseException {
+        getAndDelete(objectKey);
+    }
+
+    @Override
+    public Optional<byte[]> getAndWrite(String objectKey, byte[] objectValue) throws DatabaseException {
+        Optional<byte[]> previousValue = read(objectKey);
+        write(objectKey, objectValue);
+        return previousValue;
+    }
+
+    @Override
+    public Optional<byte[]> getAndDelete(String objectKey) throws DatabaseException {
+        Optional<byte[]> deletedValue = read(objectKey);
+        if (deletedValue.isEmpty()) {
+            throw new DatabaseException("Key was not found");
+        }
+
+        append(Collections.singletonMap(objectKey, null));
+        return deletedValue;
+    }
+
+    @Override
+    public void write(Map<String, byte[]> objects) throws DatabaseException {
+        checkKeys(objects.keySet());
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        append(objects);
+    }
+
+    @Override
+    public Map<String, byte[]> read(Collection<String> objectKeys) throws DatabaseException {
+        checkKeys(objectKeys);
+
+        segmentsLock.readLock().lock();
+        try {
+            Map<String, byte[]> values = new HashMap<>();
+            for (String objectKey : objectKeys) {
+                valueOf(lookup(objectKey)).ifPresent(value -> values.put(objectKey, value));
+            }
+            return values;
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while reading", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(Collection<String> objectKeys) throws DatabaseException {
+        Map<String, byte[]> existingValues = read(objectKeys);
+        Map<String, byte[]> removals = new LinkedHashMap<>();
+        for (String objectKey : objectKeys) {
+            if (existingValues.containsKey(objectKey)) {
+                removals.put(objectKey, null);
+            }
+        }
+        if (removals.isEmpty()) {
+            return 0;
+        }
+
+        append(removals);
+        return removals.size();
+    }
+
+    /**
+     * Сливает упорядоченные обходы таблиц в памяти и сегментов. Читаются только ключи, которые получатель успел
+     * принять, и блоки сегментов, в которые они попадают. Получатель вызывается под блокировкой чтения сегментов,
+     * поэтому не должен ждать других операций с таблицей
+     */
+    @Override
+    public void scan(String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException {
+        if (fromKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+        if (toKey != null && fromKey.compareTo(toKey) >= 0) {
+            return;
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            State currentState = state;
+            List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+            sources.add(currentState.memtable.iterator(fromKey, toKey));
+            for (Memtable memtable : currentState.flushingMemtables) {
+                sources.add(memtable.iterator(fromKey, toKey));
+            }
+            for (SortedSegment segment : currentState.segments) {
+                sources.add(segment.iterator(fromKey, toKey));
+            }
+
+            MergingIterator records = new MergingIterator(sources);
+            while (records.hasNext()) {
+                Map.Entry<String, byte[]> record = records.next();
+                if (record.getValue() != Memtable.TOMBSTONE && !consumer.test(record.getKey(), record.getValue())) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while scanning", e);
+        } catch (UncheckedIOException e) {
+            throw new DatabaseException("IOException while scanning", e.getCause());
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<CacheStats> getCacheStats() {
+        return Optional.empty();
+    }
+
+    @Override
+    public long getBloomFilterSize() {
+        long size = 0;
+        for (SortedSegment segment : state.segments) {
+            size += segment.getBloomFilterSize();
+        }
+        return size;
+    }
+
+    /**
+     * Закрывает журнал и сегменты. Таблицы в памяти не сбрасываются: их записи есть в журналах
+     * и будут сброшены при следующей загрузке
+     */
+    @Override
+    public void close() throws DatabaseException {
+        if (fsyncTask != null) {
+            fsyncTask.cancel(false);
+        }
+        closed = true;
+        awaitCompaction();
+
+        DatabaseException closeException = null;
+        List<AutoCloseable> resources = new ArrayList<>(state.segments);
+        resources.add(log);
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (closeException == null) {
+                    closeException = new DatabaseException("IOException while closing", e);
+                } else {
+                    closeException.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    /**
+     * Ищет последнюю запись ключа от новых данных к старым. Вызывается под блокировкой чтения сегментов
+     *
+     * @return значение, {@link Memtable#TOMBSTONE} - если ключ удален, null - если ключа в таблице нет
+     */
+    private byte[] lookup(String objectKey) throws IOException {
+        State currentState = state;
+        byte[] value = currentState.memtable.get(objectKey);
+        if (value != null) {
+            return value;
+        }
+
+        for (Memtable memtable : currentState.flushingMemtables) {
+            value = memtable.get(objectKey);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        for (SortedSegment segment : currentState.segments) {
+            value = segment.get(objectKey);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static Optional<byte[]> valueOf(byte[] record) {
+        return record == null || record == Memtable.TOMBSTONE ? Optional.empty() : Optional.of(record);
+    }
+
+    private void append(Map<String, byte[]> records) throws DatabaseException {
+        if (groupCommit != null) {
+            groupCommit.commit(records);
+        } else {
+            appendRecords(records, false);
+        }
+    }
+
+    /**
+     * Дописывает записи в журнал и таблицу в памяти. Null вместо значения - удаление ключа.
+     * Заполненная таблица сбрасывается в сегмент записывающим потоком, но уже без блокировки дозаписи
+     *
+     * @param sync сбросить журнал на диск до того, как записи станут видны читателям
+     */
+    private void appendRecords(Map<String, byte[]> records, boolean sync) throws DatabaseException {
+        Memtable fullMemtable = null;
+        appendLock.lock();
+        try {
+            log.append(records);
+            if (sync) {
+                log.sync();
+            }
+
+            Memtable memtable = state.memtable;
+            for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                memtable.put(record.getKey(), record.getValue());
+            }
+            if (memtable.getSizeInBytes() >= config.getSegmentSize()) {
+                fullMemtable = rotateMemtable();
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while writing", e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (fullMemtable != null) {
+            flushMemtables(fullMemtable.getSequence());
+        }
+    }
+
+    /**
+     * Переводит записи в новую таблицу в памяти и новый журнал. Вызывается под блокировкой дозаписи
+     *
+     * @return заполненная таблица, ожидающая сброса
+     */
+    private Memtable rotateMemtable() throws IOException {
+        long sequence = nextSequence;
+        CommitLog fullLog = log;
+        log = new CommitLog(logPath(sequence));
+        nextSequence++;
+
+        Memtable fullMemtable;
+        synchronized (stateLock) {
+            State currentState = state;
+            fullMemtable = currentState.memtable;
+            List<Memtable> flushingMemtables = new ArrayList<>(currentState.flushingMemtables);
+            flushingMemtables.add(0, fullMemtable);
+            state = new State(new Memtable(sequence), flushingMemtables, currentState.segments);
+        }
+
+        fullLog.close();
+        return fullMemtable;
+    }
+
+    /**
+     * Сбрасывает в сегменты ожидающие таблицы с номерами до {@code sequence} включительно - строго от старой к новой,
+     * чтобы более новый сегмент никогда не оказался под более старой таблицей в памяти
+     */
+    private void flushMemtables(long sequence) throws DatabaseException {
+        flushLock.lock();
+        try {
+            while (true) {
+                List<Memtable> flushingMemtables = state.flushingMemtables;
+                if (flushingMemtables.isEmpty()) {
+                    break;
+                }
+                Memtable oldestMemtable = flushingMemtables.get(flushingMemtables.size() - 1);
+                if (oldestMemtable.getSequence() > sequence) {
+                    break;
+                }
+
+                SortedSegment segment = writeSegment(path, name, oldestMemtable, oldestMemtable.getSequence(), config);
+                synchronized (stateLock) {
+                    State currentState = state;
+                    List<Memtable> remainingMemtables = new ArrayList<>(currentState.flushingMemtables);
+                    remainingMemtables.remove(oldestMemtable);
+                    List<SortedSegment> segments = new ArrayList<>(currentState.segments);
+                    segments.add(0, segment);
+                    state = new State(currentState.memtable, remainingMemtables, segments);
+                }
+                Files.deleteIfExists(logPath(oldestMemtable.getSequence()));
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while flushing memtable of table " + name, e);
+        } finally {
+            flushLock.unlock();
+        }
+
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * @param firstSequence номер самого старого журнала, записи которого есть в таблице в памяти
+     */
+    private static SortedSegment writeSegment(Path tablePath, String tableName, Memtable memtable,
+                                              long firstSequence, TableConfig tableConfig) throws IOException {
+        long sequence = memtable.getSequence();
+        Path segmentPath = tablePath.resolve(segmentName(tableName, firstSequence, sequence));
+        try (SortedSegment.Writer writer = new SortedSegment.Writer(segmentPath, firstSequence, sequence,
+                memtable.getEntryCount(), tableConfig)) {
+            Iterator<Map.Entry<String, byte[]>> records = memtable.iterator("", null);
+            while (records.hasNext()) {
+                Map.Entry<String, byte[]> record = records.next();
+                writer.write(record.getKey(), record.getValue());
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Запускает фоновое слияние, если появился ярус из достаточного числа сегментов
+     */
+    private synchronized void scheduleCompactionIfNeeded() {
+        if (closed || compaction != null && !compaction.isDone()) {
+            return;
+        }
+
+        if (findCompactionRun(state.segments) != null) {
+            compaction = SegmentCompactor.executor().submit(this::compactSegments);
+        }
+    }
+
+    /**
+     * Ищет ярус для слияния: идущие подряд сегменты, самый большой из которых не больше чем в
+     * {@link #TIER_SIZE_RATIO} раз превосходит самый маленький. Сегменты меньше {@link TableConfig#getSegmentSize()}
+     * считаются сегментами этого размера, чтобы мелкие сегменты не дробили первый ярус. Сливаются только
+     * идущие подряд сегменты - иначе слитый сегмент оказался бы новее сегментов, которые должны закрывать его записи
+     *
+     * @param segments сегменты от нового к старому
+     * @return самый новый ярус из не меньше чем {@link TableConfig#getCompactionSegmentThreshold()} сегментов,
+     * null - если такого нет
+     */
+    private List<SortedSegment> findCompactionRun(List<SortedSegment> segments) {
+        int threshold = Math.max(2, config.getCompactionSegmentThreshold() > 0
+                ? config.getCompactionSegmentThreshold()
+                : DEFAULT_COMPACTION_SEGMENT_THRESHOLD);
+        for (int first = 0; first + threshold <= segments.size(); first++) {
+            long minSize = Long.MAX_VALUE;
+            long maxSize = 0;
+            int end = first;
+            while (end < segments.size()) {
+                long size = Math.max(segments.get(end).getSize(), config.getSegmentSize());
+                if (Math.max(maxSize, size) > TIER_SIZE_RATIO * Math.min(minSize, size)) {
+                    break;
+                }
+                minSize = Math.min(minSize, size);
+                maxSize = Math.max(maxSize, size);
+                end++;
+            }
+            if (end - first >= threshold) {
+                return segments.subList(first, end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сливает ярусы сегментов, пока они находятся. Новый сегмент пишется без блокировок, встает под блокировкой
+     * состояния на место слитых, а слитые сегменты закрываются, когда их дочитают начатые чтения
+     */
+    private void compactSegments() {
+        while (!closed) {
+            List<SortedSegment> currentSegments = state.segments;
+            List<SortedSegment> mergedSegments = findCompactionRun(currentSegments);
+            if (mergedSegments == null) {
+                return;
+            }
+
+            boolean includesOldest = mergedSegments.get(mergedSegments.size() - 1) == currentSegments.get(currentSegments.size() - 1);
+            if (!compactRun(new ArrayList<>(mergedSegments), includesOldest)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сливает идущие подряд сегменты в один
+     *
+     * @param mergedSegments сегменты от нового к старому
+     * @param dropTombstones отбросить записи об удалении: под слитыми сегментами нет более старых,
+     *                       и удаления больше ничего не закрывают
+     * @return удалось ли слить сегменты
+     */
+    private boolean compactRun(List<SortedSegment> mergedSegments, boolean dropTombstones) {
+        SortedSegment newestSegment = mergedSegments.get(0);
+        SortedSegment oldestSegment = mergedSegments.get(mergedSegments.size() - 1);
+        long expectedKeys = 0;
+        for (SortedSegment segment : mergedSegments) {
+            expectedKeys += segment.getRecordCount();
+        }
+
+        SortedSegment compactedSegment;
+        Path segmentPath = path.resolve(segmentName(name, oldestSegment.getFirstSequence(), newestSegment.getSequence()));
+        try (SortedSegment.Writer writer = new SortedSegment.Writer(segmentPath, oldestSegment.getFirstSequence(),
+                newestSegment.getSequence(), expectedKeys, config)) {
+            List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+            for (SortedSegment segment : mergedSegments) {
+                sources.add(segment.iterator("", null));
+            }
+
+            MergingIterator records = new MergingIterator(sources);
+            while (records.hasNext()) {
+                Map.Entry<String, byte[]> record = records.next();
+                if (!dropTombstones || record.getValue() != Memtable.TOMBSTONE) {
+                    writer.write(record.getKey(), record.getValue());
+                }
+            }
+            compactedSegment = writer.finish();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "Compaction of table " + name + " failed", e);
+            return false;
+        }
+
+        synchronized (stateLock) {
+            State currentState = state;
+            List<SortedSegment> segments = new ArrayList<>(currentState.segments);
+            int position = segments.indexOf(newestSegment);
+            segments.removeAll(mergedSegments);
+            segments.add(position, compactedSegment);
+            state = new State(currentState.memtable, currentState.flushingMemtables, segments);
+        }
+
+        segmentsLock.writeLock().lock();
+        try {
+            for (SortedSegment segment : mergedSegments) {
+                try {
+                    segment.close();
+                    deleteSegmentFiles(segment.getPath());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not delete compacted segment " + segment.getName(), e);
+                }
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    private void awaitCompaction() throws DatabaseException {
+        Future<?> runningCompaction;
+        synchronized (this) {
+            runningCompaction = compaction;
+        }
+
+        if (runningCompaction == null) {
+            return;
+        }
+
+        try {
+            runningCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for compaction", e);
+        } catch (ExecutionException e) {
+            throw new DatabaseException("Compaction failed", e.getCause());
+        }
+    }
+
+    private void syncLog() {
+        CommitLog currentLog = log;
+        try {
+            currentLog.sync();
+        } catch (ClosedChannelException e) {
+            // журнал сменился: записи закрытого журнала сбрасываются на диск вместе с сегментом
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not sync log of table " + name, e);
+        }
+    }
+
+    /**
+     * Дописывает в таблицу в памяти записи журнала. Недописанная последняя запись (запись, прерванная сбоем)
+     * пропускается: такая запись не была подтверждена
+     */
+    private static void replayLog(Path logPath, Memtable memtable) throws IOException {
+        try (DatabaseInputStream input = new DatabaseInputStream(
+                new BufferedInputStream(new FileInputStream(logPath.toFile()), LOG_BUFFER_SIZE))) {
+            while (true) {
+                Optional<DatabaseRecord> record;
+                try {
+                    record = input.readDbUnit();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Log " + logPath.getFileName() + " ends with an incomplete record", e);
+                    return;
+                }
+                if (record.isEmpty()) {
+                    return;
+                }
+
+                DatabaseRecord databaseRecord = record.get();
+                memtable.put(new String(databaseRecord.getKey()),
+                        databaseRecord.isValuePresented() ? databaseRecord.getValue() : null);
+            }
+        }
+    }
+
+    private static void deleteSegmentFiles(Path segmentPath) throws IOException {
+        Files.deleteIfExists(segmentPath);
+        Files.deleteIfExists(SegmentBloomFile.pathFor(segmentPath));
+    }
+
+    private static void checkKeys(Collection<String> objectKeys) throws DatabaseException {
+        for (String objectKey : objectKeys) {
+            if (objectKey == null) {
+                throw new DatabaseException("Key could not be a null");
+            }
+        }
+    }
+
+    private Path logPath(long sequence) {
+        return path.resolve(name + "_" + sequence + LOG_EXTENSION);
+    }
+
+    /**
+     * @param firstSequence номер самой старой таблицы в памяти, записи которой есть в сегменте
+     * @param sequence      номер самой новой такой таблицы
+     */
+    private static String segmentName(String tableName, long firstSequence, long sequence) {
+        return tableName + "_" + firstSequence + "-" + sequence + SortedSegment.EXTENSION;
+    }
+
+    private static Pattern segmentNamePattern(String tableName) {
+        return Pattern.compile(Pattern.quote(tableName) + "_(\\d+)-(\\d+)" + Pattern.quote(SortedSegment.EXTENSION));
+    }
+
+    private static Pattern logNamePattern(String tableName) {
+        return Pattern.compile(Pattern.quote(tableName) + "_(\\d+)" + Pattern.quote(LOG_EXTENSION));
+    }
+
+    /**
+     * Журнал таблицы в памяти. Каждая дозапись сразу передается в файл, на диск журнал сбрасывается отдельно
+     */
+    private static final class CommitLog implements AutoCloseable {
+        private final FileOutputStream fileStream;
+        private final DatabaseOutputStream stream;
+
+        private CommitLog(Path path) throws IOException {
+            fileStream = new FileOutputStream(path.toFile(), true);
+            stream = new DatabaseOutputStream(new BufferedOutputStream(fileStream, LOG_BUFFER_SIZE));
+        }
+
+        /**
+         * @param records ключи и значения. Null вместо значения - удаление ключа
+         */
+        private void append(Map<String, byte[]> records) throws IOException {
+            for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                byte[] key = record.getKey().getBytes();
+                stream.write(record.getValue() == null
+                        ? new RemoveDatabaseRecord(key)
+                        : new SetDatabaseRecord(key, record.getValue()));
+            }
+            stream.flush();
+        }
+
+        private void sync() throws IOException {
+            fileStream.getChannel().force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.itmo.java.basics.logic.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Таблица в памяти для {@link LsmTable}: последние записи ключей, упорядоченные по ключу.
+ * Удаление хранится как {@link #TOMBSTONE}, чтобы закрывать более старые значения ключа в сегментах.
+ * Записи выполняются по одному, чтения и обход - параллельно с ними
+ */
+class Memtable {
+    /**
+     * Значение-метка удаления ключа. Сравнивается по ссылке, поэтому пустые значения пользователя с ней не путаются
+     */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    /**
+     * Примерные накладные расходы на запись: узел списка с пропусками, заголовки ключа и значения
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final ConcurrentSkipListMap<String, byte[]> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong sizeInBytes = new AtomicLong();
+    private final long sequence;
+
+    /**
+     * @param sequence номер таблицы: под ним пишется ее журнал и сегмент, в который она сбрасывается
+     */
+    Memtable(long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @param value значение или null - удаление ключа
+     */
+    void put(String key, byte[] value) {
+        byte[] previous = entries.put(key, value == null ? TOMBSTONE : value);
+        long delta = value == null ? 0 : value.length;
+        if (previous == null) {
+            delta += (long) key.length() * Character.BYTES + ENTRY_OVERHEAD;
+        } else {
+            delta -= previous.length;
+        }
+        sizeInBytes.addAndGet(delta);
+    }
+
+    /**
+     * @return значение, {@link #TOMBSTONE} - если ключ удален, null - если записи ключа в таблице нет
+     */
+    byte[] get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Обходит записи с ключами из полуинтервала [fromKey, toKey) в порядке ключей, включая удаления.
+     * Обход слабо согласован: записи, сделанные во время обхода, могут в него попасть
+     *
+     * @param toKey верхняя граница, null - без границы
+     */
+    Iterator<Map.Entry<String, byte[]>> iterator(String fromKey, String toKey) {
+        return (toKey == null ? entries.tailMap(fromKey) : entries.subMap(fromKey, toKey)).entrySet().iterator();
+    }
+
+    int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return примерная память, занятая записями, в байтах
+     */
+    long getSizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package com.itmo.java.basics.logic.impl;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Слияние нескольких упорядоченных по ключу обходов в один. Обходы передаются от более нового к более старому:
+ * если ключ есть в нескольких обходах, остается запись из самого нового, остальные пропускаются.
+ * Удаления ({@link Memtable#TOMBSTONE}) возвращаются как обычные записи - их отбрасывает вызывающий
+ */
+class MergingIterator implements Iterator<Map.Entry<String, byte[]>> {
+    private static final class Source {
+        private final int rank;
+        private final Iterator<Map.Entry<String, byte[]>> iterator;
+        private Map.Entry<String, byte[]> current;
+
+        private Source(int rank, Iterator<Map.Entry<String, byte[]>> iterator) {
+            this.rank = rank;
+            this.iterator = iterator;
+        }
+    }
+
+    private final PriorityQueue<Source> heads = new PriorityQueue<>(
+            Comparator.<Source, String>comparing(source -> source.current.getKey()).thenComparingInt(source -> source.rank));
+
+    /**
+     * @param sources обходы в порядке от более нового к более старому
+     */
+    MergingIterator(List<Iterator<Map.Entry<String, byte[]>>> sources) {
+        for (int rank = 0; rank < sources.size(); rank++) {
+            advance(new Source(rank, sources.get(rank)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, byte[]> next() {
+        Source newest = heads.poll();
+        if (newest == null) {
+            throw new NoSuchElementException();
+        }
+
+        Map.Entry<String, byte[]> entry = newest.current;
+        advance(newest);
+        while (!heads.isEmpty() && heads.peek().current.getKey().equals(entry.getKey())) {
+            advance(heads.poll());
+        }
+        return entry;
+    }
+
+    private void advance(Source source) {
+        if (source.iterator.hasNext()) {
+            source.current = source.iterator.next();
+            heads.add(source);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.index.impl.SegmentIndex;
+import com.itmo.java.basics.initialization.impl.SegmentInitializationContextImpl;
+import com.itmo.java.basics.logic.Segment;
+import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Сливает read-only сегменты таблицы в новые сегменты, в которых остается только последнее значение каждого ключа.
+ * Записи об удалении не переносятся: сливаются все сегменты, кроме активного, поэтому более старых значений
+ * удаленного ключа после слияния не остается
+ */
+class SegmentCompactor {
+    private static final String TEMPORARY_SUFFIX = ".compacting";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Слияние - фоновая дисковая работа, одного потока на все таблицы достаточно
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path tablePath;
+    private final TableConfig tableConfig;
+
+    SegmentCompactor(Path tablePath, TableConfig tableConfig) {
+        this.tablePath = tablePath;
+        this.tableConfig = tableConfig;
+    }
+
+    static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Результат слияния: новые сегменты и сегмент, в который попал каждый живой ключ.
+     * Ключи, последней записью которых было удаление, сопоставлены с {@code null}
+     */
+    static class Result {
+        private final List<Segment> segments;
+        private final Map<String, Segment> keyLocations;
+
+        private Result(List<Segment> segments, Map<String, Segment> keyLocations) {
+            this.segments = segments;
+            this.keyLocations = keyLocations;
+        }
+
+        List<Segment> getSegments() {
+            return segments;
+        }
+
+        Map<String, Segment> getKeyLocations() {
+            return keyLocations;
+        }
+    }
+
+    /**
+     * Переписывает последние значения ключей из переданных сегментов в новые файлы.
+     * Переданные сегменты не изменяются и не удаляются
+     *
+     * @param mergedSegments read-only сегменты в порядке их создания
+     * @return новые сегменты, уже read-only
+     * @throws DatabaseException если произошла ошибка ввода-вывода. Временные файлы при этом удаляются
+     */
+    Result compact(List<Segment> mergedSegments) throws DatabaseException {
+        String lastMergedSegmentName = mergedSegments.get(mergedSegments.size() - 1).getName();
+        Set<String> processedKeys = new HashSet<>();
+        Set<String> removedKeys = new HashSet<>();
+        Outputs outputs = new Outputs(lastMergedSegmentName);
+        List<Segment> outputSegments;
+
+        try {
+            for (int i = mergedSegments.size() - 1; i >= 0; i--) {
+                Segment segment = mergedSegments.get(i);
+                segment.forEachRecord((key, offset, valueSize) -> {
+                    if (!processedKeys.add(key)) {
+                        return;
+                    }
+
+                    Optional<byte[]> value = segment.readRecord(offset, key, valueSize);
+                    if (value.isEmpty()) {
+                        removedKeys.add(key);
+                        return;
+                    }
+
+                    outputs.write(key, value.get());
+                });
+            }
+
+            outputSegments = outputs.finish();
+        } catch (IOException e) {
+            outputs.discard();
+            throw new DatabaseException("IOException while compacting", e);
+        }
+
+        Map<String, Segment> keyLocations = new HashMap<>(processedKeys.size());
+        for (Segment segment : outputSegments) {
+            for (String key : segment.getKeys()) {
+                keyLocations.put(key, segment);
+            }
+        }
+        for (String key : removedKeys) {
+            keyLocations.put(key, null);
+        }
+
+        return new Result(outputSegments, keyLocations);
+    }
+
+    /**
+     * Новые сегменты слияния: следующий начинается, когда текущий достиг размера сегмента
+     */
+    private class Outputs {
+        private final String lastMergedSegmentName;
+        private final List<Segment> segments = new ArrayList<>();
+        private Output current;
+
+        private Outputs(String lastMergedSegmentName) {
+            this.lastMergedSegmentName = lastMergedSegmentName;
+        }
+
+        private void write(String key, byte[] value) throws IOException {
+            if (current == null || current.size >= tableConfig.getSegmentSize()) {
+                if (current != null) {
+                    segments.add(current.finish());
+                }
+                current = new Output(SegmentImpl.createCompactedSegmentName(lastMergedSegmentName, segments.size()));
+            }
+
+            current.write(key, value);
+        }
+
+        private List<Segment> finish() throws IOException {
+            if (current != null) {
+                segments.add(current.finish());
+                current = null;
+            }
+            return segments;
+        }
+
+        private void discard() {
+            if (current != null) {
+                current.discard();
+            }
+        }
+    }
+
+    /**
+     * Новый сегмент, который пишется во временный файл и получает свое имя только после записи на диск
+     */
+    private class Output {
+        private final String name;
+        private final Path temporaryPath;
+        private final FileOutputStream fileStream;
+        private final DatabaseOutputStream stream;
+        private final SegmentIndex index = new SegmentIndex();
+        private long size;
+
+        private Output(String name) throws IOException {
+            this.name = name;
+            temporaryPath = tablePath.resolve(name + TEMPORARY_SUFFIX);
+            fileStream = new FileOutputStream(temporaryPath.toFile());
+            stream = new DatabaseOutputStream(new BufferedOutputStream(fileStream, OUTPUT_BUFFER_SIZE));
+        }
+
+        private void write(String key, byte[] value) throws IOException {
+            index.put(key, size, value.length);
+            size += stream.write(new SetDatabaseRecord(key.getBytes(), value));
+        }
+
+        private Segment finish() throws IOException {
+            try {
+                stream.flush();
+                fileStream.getChannel().force(true);
+            } finally {
+                stream.close();
+            }
+
+            Files.move(temporaryPath, tablePath.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+
+            Segment segment = SegmentImpl.initializeFromContext(
+                    new SegmentInitializationContextImpl(name, tablePath.resolve(name), size, index),
+                    tableConfig);
+            segment.markReadOnly();
+            return segment;
+        }
+
+        private void discard() {
+            try {
+                stream.close();
+                Files.deleteIfExists(temporaryPath);
+            } catch (IOException ignored) {
+                // слияние уже провалилось, оставшийся временный файл игнорируется при инициализации
+            }
+        }
+    }
+}
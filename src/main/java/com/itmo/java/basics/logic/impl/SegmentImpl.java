@@ -1,35 +1,111 @@
 package com.itmo.java.basics.logic.impl;
 
+import com.itmo.java.basics.config.FsyncPolicy;
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.index.SegmentOffsetInfo;
+import com.itmo.java.basics.index.impl.BloomFilter;
 import com.itmo.java.basics.index.impl.SegmentIndex;
-import com.itmo.java.basics.index.impl.SegmentOffsetInfoImpl;
-import com.itmo.java.basics.logic.DatabaseRecord;
 import com.itmo.java.basics.initialization.SegmentInitializationContext;
+import com.itmo.java.basics.logic.DatabaseRecord;
 import com.itmo.java.basics.logic.Segment;
 import com.itmo.java.basics.exceptions.DatabaseException;
 import com.itmo.java.basics.logic.WritableDatabaseRecord;
 import com.itmo.java.basics.logic.io.DatabaseInputStream;
-import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+import com.itmo.java.basics.logic.io.SegmentHintFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Сегмент - append-only файл, хранящий пары ключ-значение, разделенные специальным символом.
- * - имеет ограниченный размер, большие значения (>100000) записываются в последний сегмент, если он не read-only
+ * - имеет ограниченный размер ({@link TableConfig#getSegmentSize()}), большие значения записываются в последний сегмент,
+ * если он не read-only
  * - при превышении размера сегмента создается новый сегмент и дальнейшие операции записи производятся в него
  * - именование файла-сегмента должно позволять установить очередность их появления
  * - является неизменяемым после появления более нового сегмента
+ * - записи активного сегмента собираются в direct буфере и попадают в файл одним вызовом записи: после каждой команды
+ * или, если таблица это разрешает, когда буфер заполнится, по таймеру или при сбросе на диск.
+ * Записи, которые еще лежат в буфере, читаются прямо из него
+ * - у read-only сегмента есть фильтр Блума по ключам (см. {@link BloomFilter}), по которому можно отсечь ключи,
+ * которых в сегменте точно нет, не обращаясь к индексу и файлу
+ * - файл-подсказка и фильтр Блума сегмента, ставшего read-only, пишутся в фоне: запись в таблицу сразу переходит
+ * в новый сегмент. Пока файлов нет, инициализация читает сегмент целиком, а фильтр пропускает все ключи
  */
 public class SegmentImpl implements Segment {
-    private final long MAX_SIZE = 100000;
+    private static final Logger LOGGER = Logger.getLogger(SegmentImpl.class.getName());
+
+    /**
+     * Файлы сегментов, ставших read-only, пишутся в одном фоновом потоке для всех таблиц
+     */
+    private static final ExecutorService SEAL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-seal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int INT_SIZE = Integer.BYTES;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int BATCH_READ_BUFFER_SIZE = 64 * 1024;
+    private static final int REMOVED_OBJECT_SIZE = -1;
     private final String name;
     private final Path path;
-    private SegmentIndex index;
-    private long size;
+    /**
+     * Индекс сегмента или null, если он освобожден (см. {@link #releaseIndex()})
+     */
+    private volatile SegmentIndex index;
+    private final AtomicInteger droppedKeys = new AtomicInteger();
+    private volatile long size;
+    private volatile long flushedSize;
+    private volatile boolean readOnly;
+    private boolean sealed;
+    private volatile Future<?> sealFiles;
+    private final Object writeLock = new Object();
+    private FileChannel writeChannel;
+    private ByteBuffer writeBuffer;
+    private final long maxSize;
+    private final int writeBufferSize;
+    private final boolean flushEachWrite;
+    private volatile FileChannel readChannel;
+    private final boolean memoryMapped;
+    private final FsyncPolicy fsyncPolicy;
+    private final boolean bloomFilterEnabled;
+    private final double bloomFilterFalsePositiveRate;
+    private volatile BloomFilter bloomFilter;
+    private volatile MappedByteBuffer mapping;
+    /**
+     * Признак обращения к отображению со времени последней проверки бюджетом (см. {@link SegmentMappingBudget})
+     */
+    private volatile boolean mappingAccessed;
 
     public static Segment create(String segmentName, Path tableRootPath) throws DatabaseException {
+        return create(segmentName, tableRootPath, new TableConfig());
+    }
+
+    public static Segment create(String segmentName, Path tableRootPath, TableConfig tableConfig) throws DatabaseException {
         if (segmentName == null) {
             throw new DatabaseException("Segment should have a name");
         }
@@ -48,33 +124,87 @@ public class SegmentImpl implements Segment {
             }
         }
 
-        return new SegmentImpl(segmentName, tableRootPath);
+        return new SegmentImpl(segmentName, tableRootPath, new SegmentIndex(), 0, null, tableConfig);
     }
 
     public static Segment initializeFromContext(SegmentInitializationContext context) {
+        return initializeFromContext(context, new TableConfig());
+    }
+
+    public static Segment initializeFromContext(SegmentInitializationContext context, TableConfig tableConfig) {
         return new SegmentImpl(
                 context.getSegmentName(),
                 context.getSegmentPath().getParent(),
                 context.getIndex(),
-                context.getCurrentSize());
+                context.getCurrentSize(),
+                context.getBloomFilter(),
+                tableConfig);
     }
 
-    static String createSegmentName(String tableName) {
-        return tableName + "_" + System.currentTimeMillis();
+    /**
+     * Имя нового сегмента из времени его создания. Время берется хотя бы на миллисекунду больше, чем у предыдущего
+     * сегмента, поэтому сегменты, созданные в одну миллисекунду, не получают одно имя
+     *
+     * @param tableName           имя таблицы
+     * @param previousSegmentName имя предыдущего активного сегмента таблицы или null, если его нет
+     */
+    static String createSegmentName(String tableName, String previousSegmentName) {
+        long creationTime = System.currentTimeMillis();
+        if (previousSegmentName != null) {
+            creationTime = Math.max(creationTime, getCreationTime(tableName, previousSegmentName) + 1);
+        }
+        return tableName + "_" + creationTime;
     }
 
-    private SegmentImpl(String name, Path tableRootPath) {
-        this.name = name;
-        path = tableRootPath.resolve(name);
-        index = new SegmentIndex();
-        size = 0;
+    /**
+     * @param tableName   имя таблицы
+     * @param segmentName имя сегмента таблицы
+     * @return время создания сегмента из его имени. Для сегмента, полученного слиянием, - время создания
+     * последнего из слитых сегментов
+     */
+    static long getCreationTime(String tableName, String segmentName) {
+        String suffix = segmentName.substring(tableName.length() + 1);
+        int end = suffix.indexOf('_');
+        return Long.parseLong(end < 0 ? suffix : suffix.substring(0, end));
+    }
+
+    /**
+     * Имя сегмента, полученного слиянием сегментов. Оно следует сразу за именем последнего из слитых сегментов,
+     * поэтому при инициализации сохраняется очередность сегментов таблицы
+     *
+     * @param lastMergedSegmentName имя самого нового из слитых сегментов
+     * @param sequence              номер сегмента среди результатов слияния
+     */
+    static String createCompactedSegmentName(String lastMergedSegmentName, int sequence) {
+        return String.format("%s_%04d", lastMergedSegmentName, sequence);
+    }
+
+    /**
+     * Проверяет, является ли файл сегментом таблицы, а не временным или служебным файлом
+     *
+     * @param tableName имя таблицы
+     * @param fileName  имя файла в директории таблицы
+     */
+    public static boolean isSegmentFileName(String tableName, String fileName) {
+        String prefix = tableName + "_";
+        return fileName.startsWith(prefix) && fileName.substring(prefix.length()).matches("\\d+(_\\d+)*");
     }
 
-    private SegmentImpl(String name, Path tableRootPath, SegmentIndex index, long size) {
+    private SegmentImpl(String name, Path tableRootPath, SegmentIndex index, long size, BloomFilter bloomFilter,
+                        TableConfig tableConfig) {
         this.name = name;
         path = tableRootPath.resolve(name);
         this.index = index;
         this.size = size;
+        this.bloomFilter = bloomFilter;
+        flushedSize = size;
+        maxSize = tableConfig.getSegmentSize();
+        memoryMapped = tableConfig.isMemoryMappedReads();
+        fsyncPolicy = tableConfig.getFsyncPolicy();
+        bloomFilterEnabled = tableConfig.isBloomFilterEnabled();
+        bloomFilterFalsePositiveRate = tableConfig.getBloomFilterFalsePositiveRate();
+        writeBufferSize = tableConfig.getWriteBufferSize();
+        flushEachWrite = tableConfig.getWriteBufferFlushMillis() <= 0;
     }
 
     @Override
@@ -92,12 +222,27 @@ public class SegmentImpl implements Segment {
             return false;
         }
 
-        WritableDatabaseRecord record = new SetDatabaseRecord(objectKey.getBytes(), objectValue);
-        int offset = streamWrite(record);
+        append(objectKey, new SetDatabaseRecord(objectKey.getBytes(), objectValue));
+        return true;
+    }
 
-        index.onIndexedEntityUpdated(objectKey, new SegmentOffsetInfoImpl(size));
-        size += offset;
+    @Override
+    public boolean write(Map<String, byte[]> objects) throws IOException {
+        List<WritableDatabaseRecord> records = new ArrayList<>(objects.size());
+        for (Map.Entry<String, byte[]> object : objects.entrySet()) {
+            if (object.getKey() == null) {
+                throw new IOException("Key could not be a null");
+            }
+            records.add(object.getValue() == null
+                    ? new RemoveDatabaseRecord(object.getKey().getBytes())
+                    : new SetDatabaseRecord(object.getKey().getBytes(), object.getValue()));
+        }
+
+        if (isReadOnly()) {
+            return false;
+        }
 
+        appendAll(new ArrayList<>(objects.keySet()), records);
         return true;
     }
 
@@ -106,32 +251,223 @@ public class SegmentImpl implements Segment {
         if (objectKey == null) {
             throw new IOException("Key could not be a null");
         }
+        long offset = offsetOf(objectKey);
+        if (offset == SegmentIndex.NOT_FOUND) {
+            return Optional.empty();
+        }
+
+        int keySize = objectKey.getBytes().length;
+
+        MappedByteBuffer mappedSegment = getMapping();
+        if (mappedSegment != null) {
+            return readMappedValue(mappedSegment, offset, keySize).map(SegmentImpl::toByteArray);
+        }
 
-        try (InputStream stream = new FileInputStream(path.toFile())) {
-            DatabaseInputStream databaseStream = new DatabaseInputStream(stream);
+        return readValue(offset, keySize);
+    }
 
-            Optional<SegmentOffsetInfo> readSegmentOffsetInfo = index.searchForKey(objectKey);
-            if (readSegmentOffsetInfo.isEmpty()) {
-                return Optional.empty();
+    /**
+     * Ключи сортируются по сдвигу их записей. Записи читаются из общего окна в {@value #BATCH_READ_BUFFER_SIZE} байт,
+     * которое сдвигается вперед, только когда очередная запись в него не попала, поэтому близко лежащие
+     * записи читаются одним обращением к файлу
+     */
+    @Override
+    public Map<String, byte[]> read(Collection<String> objectKeys) throws IOException {
+        List<LocatedKey> locatedKeys = new ArrayList<>(objectKeys.size());
+        for (String objectKey : objectKeys) {
+            if (objectKey == null) {
+                throw new IOException("Key could not be a null");
             }
+            long offset = offsetOf(objectKey);
+            if (offset != SegmentIndex.NOT_FOUND) {
+                locatedKeys.add(new LocatedKey(objectKey, offset));
+            }
+        }
+        locatedKeys.sort(Comparator.comparingLong(locatedKey -> locatedKey.offset));
 
-            if (databaseStream.skip(readSegmentOffsetInfo.get().getOffset()) !=
-                    readSegmentOffsetInfo.get().getOffset()) {
-                throw new IOException("IOException while reading");
+        Map<String, byte[]> values = new HashMap<>();
+        MappedByteBuffer mappedSegment = getMapping();
+        if (mappedSegment != null) {
+            for (LocatedKey locatedKey : locatedKeys) {
+                readMappedValue(mappedSegment, locatedKey.offset, locatedKey.keySize())
+                        .ifPresent(value -> values.put(locatedKey.key, toByteArray(value)));
             }
+            return values;
+        }
 
-            Optional<DatabaseRecord> record = databaseStream.readDbUnit();
-            if (record.isPresent()) {
-                if (record.get().isValuePresented())
-                    return Optional.ofNullable(record.get().getValue());
+        long fileSize = flushedSize;
+        ReadWindow window = new ReadWindow(getReadChannel(), fileSize);
+        for (LocatedKey locatedKey : locatedKeys) {
+            int keySize = locatedKey.keySize();
+            if (locatedKey.offset >= fileSize) {
+                readValue(locatedKey.offset, keySize).ifPresent(value -> values.put(locatedKey.key, value));
+                continue;
             }
-            return Optional.empty();
+
+            int headerSize = INT_SIZE + keySize + INT_SIZE;
+            ByteBuffer header = window.slice(locatedKey.offset, headerSize);
+            if (header == null) {
+                readValue(locatedKey.offset, keySize).ifPresent(value -> values.put(locatedKey.key, value));
+                continue;
+            }
+
+            if (header.getInt() != keySize) {
+                throw new IOException("Wrong input");
+            }
+            int valueSize = header.getInt(INT_SIZE + keySize);
+            if (valueSize <= REMOVED_OBJECT_SIZE) {
+                continue;
+            }
+
+            ByteBuffer record = window.slice(locatedKey.offset, headerSize + valueSize);
+            if (record == null) {
+                readValue(locatedKey.offset, keySize).ifPresent(value -> values.put(locatedKey.key, value));
+                continue;
+            }
+
+            byte[] value = new byte[valueSize];
+            record.position(headerSize);
+            record.get(value);
+            values.put(locatedKey.key, value);
         }
+
+        return values;
     }
 
     @Override
     public boolean isReadOnly() {
-        return size >= MAX_SIZE;
+        return readOnly || size >= maxSize;
+    }
+
+    @Override
+    public Set<String> getKeys() {
+        SegmentIndex currentIndex = index;
+        return currentIndex == null ? Set.of() : currentIndex.keys();
+    }
+
+    @Override
+    public OptionalLong findOffset(String objectKey) {
+        long offset = offsetOf(objectKey);
+        return offset == SegmentIndex.NOT_FOUND ? OptionalLong.empty() : OptionalLong.of(offset);
+    }
+
+    @Override
+    public Optional<SegmentOffsetInfo> findRecord(String objectKey) {
+        SegmentIndex currentIndex = index;
+        return currentIndex == null ? Optional.empty() : currentIndex.searchForKey(objectKey);
+    }
+
+    @Override
+    public Optional<byte[]> readRecord(long offset, String objectKey, int valueSize) throws IOException {
+        if (valueSize <= REMOVED_OBJECT_SIZE) {
+            return Optional.empty();
+        }
+
+        int keySize = objectKey.getBytes().length;
+        if (offset >= flushedSize) {
+            synchronized (writeLock) {
+                if (offset >= flushedSize) {
+                    return readBufferedValue(offset, keySize);
+                }
+            }
+        }
+
+        MappedByteBuffer mappedSegment = getMapping();
+        if (mappedSegment != null) {
+            return readMappedValue(mappedSegment, offset, keySize).map(SegmentImpl::toByteArray);
+        }
+
+        int headerSize = INT_SIZE + keySize + INT_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(headerSize + valueSize);
+        readFully(getReadChannel(), record, offset, headerSize + valueSize);
+        if (record.getInt(0) != keySize || record.getInt(INT_SIZE + keySize) != valueSize) {
+            throw new IOException("Wrong input");
+        }
+
+        return Optional.of(Arrays.copyOfRange(record.array(), headerSize, headerSize + valueSize));
+    }
+
+    @Override
+    public boolean dropKey(String objectKey) {
+        SegmentIndex currentIndex = index;
+        if (currentIndex == null || !currentIndex.remove(objectKey)) {
+            return false;
+        }
+
+        droppedKeys.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public int getDroppedKeyCount() {
+        return droppedKeys.get();
+    }
+
+    @Override
+    public void forEachRecord(RecordConsumer consumer) throws IOException {
+        SegmentIndex records = index;
+        if (records == null) {
+            records = loadIndex();
+        }
+
+        for (String key : records.keys()) {
+            Optional<SegmentOffsetInfo> record = records.searchForKey(key);
+            if (record.isPresent()) {
+                consumer.accept(key, record.get().getOffset(), record.get().getValueSize());
+            }
+        }
+    }
+
+    @Override
+    public void releaseIndex() {
+        if (!isReadOnly()) {
+            throw new IllegalStateException("Segment " + name + " is still writable");
+        }
+
+        SegmentIndex releasedIndex = index;
+        if (releasedIndex == null) {
+            return;
+        }
+        index = null;
+        droppedKeys.addAndGet(releasedIndex.size());
+    }
+
+    @Override
+    public boolean isRecordOf(long offset, String objectKey) throws IOException {
+        byte[] keyBytes = objectKey.getBytes();
+        ByteBuffer header = readHeader(offset, INT_SIZE + keyBytes.length);
+        return header != null && hasKey(header, keyBytes);
+    }
+
+    @Override
+    public OptionalInt readValueSize(long offset, String objectKey) throws IOException {
+        byte[] keyBytes = objectKey.getBytes();
+        ByteBuffer header = readHeader(offset, INT_SIZE + keyBytes.length + INT_SIZE);
+        if (header == null) {
+            return OptionalInt.empty();
+        }
+
+        int valueSize = header.getInt(INT_SIZE + keyBytes.length);
+        return hasKey(header, keyBytes) ? OptionalInt.of(valueSize) : OptionalInt.empty();
+    }
+
+    @Override
+    public boolean mightContain(String objectKey) {
+        BloomFilter filter = bloomFilter;
+        return filter == null || filter.mightContain(objectKey);
+    }
+
+    @Override
+    public long getBloomFilterSize() {
+        BloomFilter filter = bloomFilter;
+        return filter == null ? 0 : filter.getSizeInBytes();
+    }
+
+    @Override
+    public void markReadOnly() throws IOException {
+        flush();
+        readOnly = true;
+        seal();
     }
 
     @Override
@@ -144,19 +480,612 @@ public class SegmentImpl implements Segment {
             return false;
         }
 
-        WritableDatabaseRecord record = new RemoveDatabaseRecord(objectKey.getBytes());
-        int offset = streamWrite(record);
+        append(objectKey, new RemoveDatabaseRecord(objectKey.getBytes()));
+        return true;
+    }
 
-        index.onIndexedEntityUpdated(objectKey, new SegmentOffsetInfoImpl(size));
-        size += offset;
+    @Override
+    public boolean delete(Collection<String> objectKeys) throws IOException {
+        List<WritableDatabaseRecord> records = new ArrayList<>(objectKeys.size());
+        for (String objectKey : objectKeys) {
+            if (objectKey == null) {
+                throw new IOException("Key could not be a null");
+            }
+            records.add(new RemoveDatabaseRecord(objectKey.getBytes()));
+        }
 
+        if (isReadOnly()) {
+            return false;
+        }
+
+        appendAll(new ArrayList<>(objectKeys), records);
         return true;
     }
 
-    private int streamWrite(WritableDatabaseRecord record) throws IOException {
-        try (OutputStream stream = new FileOutputStream(path.toFile(), true)) {
-            DatabaseOutputStream databaseStream = new DatabaseOutputStream(stream);
-            return databaseStream.write(record);
+    /**
+     * Может вызываться из другого потока одновременно с записью
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            flushWriteBuffer();
+        }
+    }
+
+    /**
+     * Может вызываться из другого потока одновременно с записью: сбрасывается все, что было записано до вызова
+     */
+    @Override
+    public void sync() throws IOException {
+        FileChannel channel;
+        synchronized (writeLock) {
+            flushWriteBuffer();
+            channel = writeChannel;
+        }
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // поток записи закрыли, пока шел сброс. При закрытии данные уже сброшены на диск
+        }
+    }
+
+    /**
+     * Закрывает поток записи сегмента. Повторный вызов ничего не делает
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    @Override
+    public void close() throws IOException {
+        awaitSealFiles();
+        try {
+            closeWriteChannel();
+        } finally {
+            releaseMapping();
+            SegmentMappingBudget.getInstance().onRelease(this);
+            closeReadChannel();
+        }
+    }
+
+    /**
+     * Забывает отображение сегмента. Явно отображение не закрывается: чтение, которое уже получило отображение,
+     * может еще из него читать. Память освобождается сборщиком мусора, когда на отображение не останется ссылок
+     */
+    void releaseMapping() {
+        mapping = null;
+    }
+
+    /**
+     * Возвращает признак обращения к отображению и сбрасывает его
+     */
+    boolean takeMappingAccess() {
+        boolean accessed = mappingAccessed;
+        mappingAccessed = false;
+        return accessed;
+    }
+
+    /**
+     * Возвращает отображение read-only сегмента в память, при необходимости создавая его.
+     * Для активного сегмента и таблиц без отображения возвращает null.
+     * Бюджет блокируется только при создании отображения, обращение к готовому отображению лишь выставляет признак
+     */
+    private MappedByteBuffer getMapping() throws IOException {
+        if (!memoryMapped || !isReadOnly() || size > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        MappedByteBuffer mappedSegment = mapping;
+        if (mappedSegment == null) {
+            synchronized (this) {
+                mappedSegment = mapping;
+                if (mappedSegment == null) {
+                    mappedSegment = getReadChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    mapping = mappedSegment;
+                    SegmentMappingBudget.getInstance().onMapped(this, size);
+                    return mappedSegment;
+                }
+            }
+        }
+
+        if (!mappingAccessed) {
+            // запись только при смене значения, чтобы частые чтения не делили строку кэша между ядрами
+            mappingAccessed = true;
+        }
+        return mappedSegment;
+    }
+
+    /**
+     * Декодирует значение записи прямо из отображения, не копируя его
+     *
+     * @return срез отображения только для чтения, если запись не является удалением
+     */
+    private static Optional<ByteBuffer> readMappedValue(MappedByteBuffer mappedSegment, long offset, int keySize) throws IOException {
+        int position = (int) offset;
+        if (mappedSegment.getInt(position) != keySize) {
+            throw new IOException("Wrong input");
+        }
+
+        int valueSize = mappedSegment.getInt(position + INT_SIZE + keySize);
+        if (valueSize <= REMOVED_OBJECT_SIZE) {
+            return Optional.empty();
+        }
+
+        int valueStart = position + INT_SIZE + keySize + INT_SIZE;
+        ByteBuffer value = mappedSegment.duplicate();
+        value.position(valueStart).limit(valueStart + valueSize);
+        return Optional.of(value.slice().asReadOnlyBuffer());
+    }
+
+    /**
+     * Читает значение записи, начинающейся с указанного сдвига, позиционными чтениями из общего канала.
+     * Первым чтением забирается заголовок записи вместе с началом значения, вторым - остаток значения,
+     * если оно не поместилось в буфер
+     *
+     * @param offset  сдвиг записи в сегменте
+     * @param keySize размер ключа записи в байтах
+     * @return значение, если запись не является удалением
+     * @throws IOException если произошла ошибка ввода-вывода или запись повреждена
+     */
+    private Optional<byte[]> readValue(long offset, int keySize) throws IOException {
+        if (offset >= flushedSize) {
+            synchronized (writeLock) {
+                if (offset >= flushedSize) {
+                    return readBufferedValue(offset, keySize);
+                }
+            }
+        }
+
+        FileChannel channel = getReadChannel();
+        int headerSize = INT_SIZE + keySize + INT_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(READ_BUFFER_SIZE, headerSize));
+        readFully(channel, buffer, offset, headerSize);
+        buffer.flip();
+
+        if (buffer.getInt() != keySize) {
+            throw new IOException("Wrong input");
+        }
+        buffer.position(INT_SIZE + keySize);
+
+        int valueSize = buffer.getInt();
+        if (valueSize <= REMOVED_OBJECT_SIZE) {
+            return Optional.empty();
+        }
+
+        byte[] value = new byte[valueSize];
+        int alreadyRead = Math.min(valueSize, buffer.remaining());
+        buffer.get(value, 0, alreadyRead);
+
+        if (alreadyRead < valueSize) {
+            ByteBuffer rest = ByteBuffer.wrap(value, alreadyRead, valueSize - alreadyRead);
+            readFully(channel, rest, offset + headerSize + alreadyRead, valueSize - alreadyRead);
+        }
+
+        return Optional.of(value);
+    }
+
+    /**
+     * Читает значение записи, которая еще лежит в буфере записи. Вызывается под блокировкой записи
+     */
+    private Optional<byte[]> readBufferedValue(long offset, int keySize) throws IOException {
+        int position = (int) (offset - flushedSize);
+        if (writeBuffer.getInt(position) != keySize) {
+            throw new IOException("Wrong input");
+        }
+
+        int valueSize = writeBuffer.getInt(position + INT_SIZE + keySize);
+        if (valueSize <= REMOVED_OBJECT_SIZE) {
+            return Optional.empty();
+        }
+
+        byte[] value = new byte[valueSize];
+        ByteBuffer record = writeBuffer.duplicate();
+        record.position(position + INT_SIZE + keySize + INT_SIZE);
+        record.get(value);
+        return Optional.of(value);
+    }
+
+    /**
+     * @return сдвиг последней записи ключа или {@link SegmentIndex#NOT_FOUND}, если ключа нет или индекс освобожден
+     */
+    private long offsetOf(String objectKey) {
+        SegmentIndex currentIndex = index;
+        return currentIndex == null ? SegmentIndex.NOT_FOUND : currentIndex.getOffset(objectKey);
+    }
+
+    /**
+     * Читает начало записи - из буфера записи, отображения или канала чтения
+     *
+     * @return буфер, начинающийся с записи и содержащий не меньше {@code headerSize} байт,
+     * или null, если сегмент по этому сдвигу короче
+     */
+    private ByteBuffer readHeader(long offset, int headerSize) throws IOException {
+        if (offset < 0 || offset + headerSize > size) {
+            return null;
+        }
+
+        if (offset >= flushedSize) {
+            synchronized (writeLock) {
+                if (offset >= flushedSize) {
+                    ByteBuffer record = writeBuffer.duplicate();
+                    record.limit(record.position()).position((int) (offset - flushedSize));
+                    if (record.remaining() < headerSize) {
+                        return null;
+                    }
+                    record.limit(record.position() + headerSize);
+                    return ByteBuffer.allocate(headerSize).put(record).flip();
+                }
+            }
+        }
+
+        MappedByteBuffer mappedSegment = getMapping();
+        if (mappedSegment != null) {
+            ByteBuffer record = mappedSegment.duplicate();
+            record.position((int) offset).limit((int) offset + headerSize);
+            return record.slice();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(headerSize);
+        readFully(getReadChannel(), record, offset, headerSize);
+        return record.flip();
+    }
+
+    /**
+     * Сравнивает ключ записи, начинающейся с текущей позиции буфера, с переданным ключом
+     */
+    private static boolean hasKey(ByteBuffer record, byte[] keyBytes) {
+        if (record.remaining() < INT_SIZE + keyBytes.length || record.getInt() != keyBytes.length) {
+            return false;
+        }
+
+        record.limit(record.position() + keyBytes.length);
+        return record.equals(ByteBuffer.wrap(keyBytes));
+    }
+
+    private static byte[] toByteArray(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Читает из канала, начиная с позиции, не меньше {@code minBytes} байт (или до заполнения буфера)
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int minBytes) throws IOException {
+        int read = 0;
+        while (read < minBytes && buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + read);
+            if (count < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+            read += count;
+        }
+    }
+
+    private FileChannel getReadChannel() throws IOException {
+        FileChannel channel = readChannel;
+        if (channel == null) {
+            synchronized (this) {
+                channel = readChannel;
+                if (channel == null) {
+                    channel = FileChannel.open(path, StandardOpenOption.READ);
+                    readChannel = channel;
+                }
+            }
+        }
+
+        return channel;
+    }
+
+    private synchronized void closeReadChannel() throws IOException {
+        if (readChannel == null) {
+            return;
+        }
+
+        try {
+            readChannel.close();
+        } finally {
+            readChannel = null;
+        }
+    }
+
+    private void append(String objectKey, WritableDatabaseRecord record) throws IOException {
+        appendAll(List.of(objectKey), List.of(record));
+    }
+
+    /**
+     * Кладет записи в буфер записи. Если таблица не разрешает держать записи в буфере или сегмент заполнился,
+     * буфер сразу записывается в файл. Размер и индекс сегмента обновляются последними: читатель, нашедший
+     * ключ в индексе, найдет запись в буфере или в файле, а отображение read-only сегмента не выйдет за конец файла
+     */
+    private void appendAll(List<String> objectKeys, List<WritableDatabaseRecord> records) throws IOException {
+        synchronized (writeLock) {
+            // фильтр есть у сегмента, ставшего read-only. Запись в него возможна, только если после перезапуска
+            // незаполненный сегмент оказался последним - тогда фильтр больше не описывает его ключи
+            bloomFilter = null;
+            openWriteChannel();
+
+            long[] offsets = new long[records.size()];
+            long recordOffset = size;
+            for (int i = 0; i < records.size(); i++) {
+                offsets[i] = recordOffset;
+                recordOffset += bufferRecord(records.get(i));
+            }
+            if (flushEachWrite || recordOffset >= maxSize) {
+                flushWriteBuffer();
+            }
+
+            size = recordOffset;
+            for (int i = 0; i < offsets.length; i++) {
+                index.put(objectKeys.get(i), offsets[i], records.get(i).getValueSize());
+            }
+        }
+
+        if (isReadOnly()) {
+            seal();
+        }
+    }
+
+    /**
+     * Кладет запись в буфер записи, при необходимости освобождая его. Запись, которая больше всего буфера,
+     * пишется в файл напрямую
+     *
+     * @return размер записи
+     */
+    private int bufferRecord(WritableDatabaseRecord record) throws IOException {
+        int recordSize = (int) record.size();
+        if (writeBuffer.remaining() < recordSize) {
+            flushWriteBuffer();
+        }
+
+        if (writeBuffer.remaining() < recordSize) {
+            writeRecord(record);
+            flushedSize += recordSize;
+            return recordSize;
+        }
+
+        writeBuffer.putInt(record.getKeySize());
+        writeBuffer.put(record.getKey());
+        writeBuffer.putInt(record.getValueSize());
+        if (record.isValuePresented()) {
+            writeBuffer.put(record.getValue());
+        }
+        return recordSize;
+    }
+
+    private void writeRecord(WritableDatabaseRecord record) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(INT_SIZE + record.getKeySize() + INT_SIZE);
+        header.putInt(record.getKeySize());
+        header.put(record.getKey());
+        header.putInt(record.getValueSize());
+        header.flip();
+
+        ByteBuffer[] parts = record.isValuePresented()
+                ? new ByteBuffer[]{header, ByteBuffer.wrap(record.getValue())}
+                : new ByteBuffer[]{header};
+        while (parts[parts.length - 1].hasRemaining()) {
+            writeChannel.write(parts);
+        }
+    }
+
+    /**
+     * Записывает содержимое буфера записи в файл. Вызывается под блокировкой записи
+     */
+    private void flushWriteBuffer() throws IOException {
+        if (writeBuffer == null || writeBuffer.position() == 0) {
+            return;
+        }
+
+        writeBuffer.flip();
+        int bufferedBytes = writeBuffer.remaining();
+        while (writeBuffer.hasRemaining()) {
+            writeChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+        flushedSize += bufferedBytes;
+    }
+
+    /**
+     * Закрывает поток записи сегмента, ставшего read-only, и ставит в очередь запись файла-подсказки
+     * для быстрой инициализации (см. {@link SegmentHintFile}) и фильтра Блума по ключам (см. {@link SegmentBloomFile}).
+     * Их построение для большого сегмента занимает секунды, а сегмент обычно запечатывает поток, пишущий в таблицу
+     */
+    private void seal() throws IOException {
+        if (sealed) {
+            return;
+        }
+        sealed = true;
+
+        closeWriteChannel();
+        SegmentIndex sealedIndex = index;
+        sealFiles = SEAL_EXECUTOR.submit(() -> writeSealFiles(sealedIndex));
+    }
+
+    /**
+     * Дожидается фоновой записи файлов сегмента, чтобы после закрытия сегмента их можно было удалить
+     * вместе с ним и чтобы закрытая таблица оставила их на диске
+     */
+    private void awaitSealFiles() {
+        Future<?> pendingFiles = sealFiles;
+        if (pendingFiles == null) {
+            return;
+        }
+
+        try {
+            pendingFiles.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Could not write files of segment " + name, e.getCause());
+        }
+    }
+
+    /**
+     * @param sealedIndex индекс сегмента на момент, когда он стал read-only: сам сегмент к этому времени
+     *                    может его освободить
+     */
+    private void writeSealFiles(SegmentIndex sealedIndex) {
+        try {
+            SegmentHintFile.write(path, size, collectHintEntries(sealedIndex));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write hint file for segment " + name, e);
+        }
+
+        if (bloomFilterEnabled && bloomFilter == null) {
+            BloomFilter filter = buildBloomFilter(sealedIndex.keys(), bloomFilterFalsePositiveRate);
+            bloomFilter = filter;
+            try {
+                SegmentBloomFile.write(path, size, filter);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not write Bloom filter for segment " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Строит фильтр Блума, рассчитанный на переданные ключи
+     *
+     * @param keys              все ключи сегмента
+     * @param falsePositiveRate допустимая доля ложных срабатываний
+     */
+    public static BloomFilter buildBloomFilter(Collection<String> keys, double falsePositiveRate) {
+        BloomFilter filter = BloomFilter.create(keys.size(), falsePositiveRate);
+        for (String key : keys) {
+            filter.add(key);
+        }
+        return filter;
+    }
+
+    /**
+     * Собирает последние записи каждого ключа. Размеры записей берутся из индекса, файл сегмента не читается
+     */
+    private static List<SegmentHintFile.Entry> collectHintEntries(SegmentIndex sealedIndex) {
+        List<SegmentHintFile.Entry> entries = new ArrayList<>(sealedIndex.size());
+        sealedIndex.forEach((key, offset, valueSize) -> {
+            byte[] keyBytes = key.getBytes();
+            boolean removed = valueSize <= REMOVED_OBJECT_SIZE;
+            int recordSize = INT_SIZE + keyBytes.length + INT_SIZE + (removed ? 0 : valueSize);
+            entries.add(new SegmentHintFile.Entry(keyBytes, offset, recordSize, removed));
+        });
+        return entries;
+    }
+
+    /**
+     * Строит индекс освобожденного сегмента заново: по файлу-подсказке, а если его нет или он не подходит
+     * к сегменту - читая все записи. Нужен только для обхода записей (см. {@link #forEachRecord(RecordConsumer)})
+     */
+    private SegmentIndex loadIndex() throws IOException {
+        SegmentIndex loadedIndex = new SegmentIndex();
+        if (SegmentHintFile.read(path, size, loadedIndex::put)) {
+            return loadedIndex;
+        }
+
+        loadedIndex.clear();
+        try (DatabaseInputStream input = new DatabaseInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            long offset = 0;
+            Optional<DatabaseRecord> record = input.readDbUnit();
+            while (record.isPresent() && offset < size) {
+                loadedIndex.put(new String(record.get().getKey()), offset,
+                        record.get().isValuePresented() ? record.get().getValue().length : REMOVED_OBJECT_SIZE);
+                offset += record.get().size();
+                record = input.readDbUnit();
+            }
+        }
+        return loadedIndex;
+    }
+
+    /**
+     * Открывает канал записи и берет буфер записи. Канал открыт, пока сегмент доступен для записи,
+     * и закрывается, как только сегмент становится read-only. Вызывается под блокировкой записи
+     */
+    private void openWriteChannel() throws IOException {
+        if (writeChannel != null) {
+            return;
+        }
+
+        writeChannel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeBuffer = SegmentWriteBuffers.getInstance().acquire(writeBufferSize);
+    }
+
+    /**
+     * Записывает остаток буфера и закрывает канал записи, возвращая буфер в пул. Если таблица сбрасывает записи
+     * на диск, перед закрытием сбрасывает остаток, чтобы сегмент, ставший read-only, целиком лежал на диске
+     */
+    private void closeWriteChannel() throws IOException {
+        synchronized (writeLock) {
+            if (writeChannel == null) {
+                return;
+            }
+
+            try {
+                flushWriteBuffer();
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    writeChannel.force(false);
+                }
+            } finally {
+                SegmentWriteBuffers.getInstance().release(writeBuffer);
+                writeBuffer = null;
+                try {
+                    writeChannel.close();
+                } finally {
+                    writeChannel = null;
+                }
+            }
+        }
+    }
+
+    private static final class LocatedKey {
+        final String key;
+        final long offset;
+
+        LocatedKey(String key, long offset) {
+            this.key = key;
+            this.offset = offset;
+        }
+
+        int keySize() {
+            return key.getBytes().length;
+        }
+    }
+
+    /**
+     * Окно последовательного чтения сегмента. Окно перечитывается с нужного сдвига, только если
+     * запрошенный диапазон в него не попадает
+     */
+    private static final class ReadWindow {
+        private final FileChannel channel;
+        private final long segmentSize;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BATCH_READ_BUFFER_SIZE);
+        private long start = -1;
+
+        ReadWindow(FileChannel channel, long segmentSize) {
+            this.channel = channel;
+            this.segmentSize = segmentSize;
+        }
+
+        /**
+         * @return срез окна с данными {@code [offset, offset + length)}, позиция среза - 0.
+         * null, если диапазон больше окна
+         */
+        ByteBuffer slice(long offset, int length) throws IOException {
+            if (length > buffer.capacity()) {
+                return null;
+            }
+
+            if (start < 0 || offset < start || offset + length > start + buffer.limit()) {
+                int windowLength = (int) Math.min(buffer.capacity(), Math.max(length, segmentSize - offset));
+                buffer.clear().limit(windowLength);
+                readFully(channel, buffer, offset, windowLength);
+                buffer.flip();
+                start = offset;
+            }
+
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) (offset - start)).limit((int) (offset - start) + length);
+            return slice.slice();
         }
     }
 }
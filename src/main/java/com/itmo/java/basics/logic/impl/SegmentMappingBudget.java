@@ -0,0 +1,87 @@
+package com.itmo.java.basics.logic.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограничивает суммарный размер отображенных в память сегментов.
+ * Адресное пространство - ресурс процесса, поэтому бюджет один на все таблицы.
+ * При превышении бюджета отображения освобождаются по алгоритму "второго шанса": сегменты стоят в очереди
+ * в порядке отображения, а чтение из отображения только выставляет сегменту признак обращения
+ * (см. {@link SegmentImpl#takeMappingAccess()}), не блокируя бюджет. Сегмент с признаком при вытеснении
+ * переносится в конец очереди, без признака - теряет отображение.
+ * <p>
+ * Бюджет ограничивает отображения, которые держат сегменты. Сама память отображения освобождается сборщиком мусора,
+ * когда на нее не останется ссылок (см. {@link SegmentImpl#releaseMapping()}), поэтому до ближайшей сборки
+ * процесс может занимать больше адресного пространства, чем задано бюджетом
+ */
+public class SegmentMappingBudget {
+    private static final SegmentMappingBudget INSTANCE = new SegmentMappingBudget();
+
+    private final Map<SegmentImpl, Long> mappedSegments = new LinkedHashMap<>();
+    private long capacity = Long.MAX_VALUE;
+    private long mappedBytes;
+
+    public static SegmentMappingBudget getInstance() {
+        return INSTANCE;
+    }
+
+    SegmentMappingBudget() {
+    }
+
+    /**
+     * Устанавливает бюджет и сразу освобождает лишние отображения
+     *
+     * @param capacity суммарный размер отображений в байтах
+     */
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evictExceeding();
+    }
+
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Учитывает в бюджете новое отображение сегмента. Обращения к уже учтенному отображению бюджет не отмечает
+     *
+     * @param segment     сегмент
+     * @param mappingSize размер отображения в байтах
+     */
+    synchronized void onMapped(SegmentImpl segment, long mappingSize) {
+        Long previousSize = mappedSegments.put(segment, mappingSize);
+        mappedBytes += mappingSize - (previousSize == null ? 0 : previousSize);
+        evictExceeding();
+    }
+
+    /**
+     * Убирает сегмент из учета, например, при его закрытии
+     */
+    synchronized void onRelease(SegmentImpl segment) {
+        Long mappingSize = mappedSegments.remove(segment);
+        if (mappingSize != null) {
+            mappedBytes -= mappingSize;
+        }
+    }
+
+    /**
+     * Каждый сегмент получает не больше одного второго шанса за вызов, поэтому постоянные чтения
+     * не могут зациклить вытеснение
+     */
+    private void evictExceeding() {
+        int secondChances = mappedSegments.size();
+        while (mappedBytes > capacity && mappedSegments.size() > 1) {
+            Map.Entry<SegmentImpl, Long> eldest = mappedSegments.entrySet().iterator().next();
+            SegmentImpl segment = eldest.getKey();
+            Long mappingSize = mappedSegments.remove(segment);
+            if (segment.takeMappingAccess() && secondChances-- > 0) {
+                mappedSegments.put(segment, mappingSize);
+                continue;
+            }
+
+            mappedBytes -= mappingSize;
+            segment.releaseMapping();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.itmo.java.basics.logic.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Пул direct буферов записи активных сегментов. Буфер нужен сегменту, только пока тот доступен для записи,
+ * поэтому буфер сегмента, ставшего read-only, переходит к следующему сегменту, а не выделяется заново
+ */
+class SegmentWriteBuffers {
+    private static final SegmentWriteBuffers INSTANCE = new SegmentWriteBuffers();
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    static SegmentWriteBuffers getInstance() {
+        return INSTANCE;
+    }
+
+    SegmentWriteBuffers() {
+    }
+
+    /**
+     * @param capacity размер буфера в байтах
+     * @return пустой буфер указанного размера из пула или новый, если подходящего в пуле нет
+     */
+    synchronized ByteBuffer acquire(int capacity) {
+        Iterator<ByteBuffer> iterator = buffers.iterator();
+        while (iterator.hasNext()) {
+            ByteBuffer buffer = iterator.next();
+            if (buffer.capacity() == capacity) {
+                iterator.remove();
+                return buffer.clear();
+            }
+        }
+
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Возвращает буфер в пул. Если пул полон, буфер освобождается сборщиком мусора
+     */
+    synchronized void release(ByteBuffer buffer) {
+        if (buffers.size() >= MAX_POOLED_BUFFERS) {
+            buffers.pollLast();
+        }
+        buffers.addFirst(buffer);
+    }
+}
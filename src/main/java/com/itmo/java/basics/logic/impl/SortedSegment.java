@@ -0,0 +1,472 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.index.impl.BloomFilter;
+import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Сегмент {@link LsmTable}: неизменяемый файл, в котором лежит по одной записи на ключ в порядке ключей. Формат:
+ * - записи в формате {@link DatabaseOutputStream}, удаление - запись с размером значения -1
+ * - разреженный индекс: для каждого блока записей (блок начинается, когда предыдущий занял не меньше
+ * {@value #BLOCK_SIZE} байт) - размер первого ключа блока, сам ключ и сдвиг блока
+ * - сдвиг разреженного индекса, число блоков, число записей и магическое число
+ * <p>
+ * Разреженный индекс держится в памяти, поэтому поиск ключа - двоичный поиск блока и одно чтение блока.
+ * Ключи, которых в сегменте точно нет, отсекаются фильтром Блума (см. {@link SegmentBloomFile}).
+ * Чтения идут позиционно через общий канал и выполняются параллельно
+ */
+class SortedSegment implements AutoCloseable {
+    static final String EXTENSION = ".sst";
+    static final int BLOCK_SIZE = 4096;
+    private static final int MAGIC = 0x4B565353;
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int INT_SIZE = Integer.BYTES;
+    private static final int REMOVED_OBJECT_SIZE = -1;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path path;
+    private final long firstSequence;
+    private final long sequence;
+    private final FileChannel channel;
+    private final long size;
+    private final long indexOffset;
+    private final String[] blockKeys;
+    private final long[] blockOffsets;
+    private final long recordCount;
+    private final BloomFilter bloomFilter;
+
+    private SortedSegment(Path path, long firstSequence, long sequence, FileChannel channel, long size, long indexOffset,
+                          String[] blockKeys, long[] blockOffsets, long recordCount, BloomFilter bloomFilter) {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.size = size;
+        this.indexOffset = indexOffset;
+        this.blockKeys = blockKeys;
+        this.blockOffsets = blockOffsets;
+        this.recordCount = recordCount;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Открывает записанный сегмент: читает разреженный индекс и сохраненный фильтр Блума
+     *
+     * @param path          путь до файла сегмента
+     * @param firstSequence номер самой старой таблицы в памяти, записи которой есть в сегменте
+     * @param sequence      номер самой новой такой таблицы: более новые сегменты имеют больший номер
+     * @param tableConfig   настройки таблицы
+     * @throws IOException если произошла ошибка ввода-вывода или файл поврежден
+     */
+    static SortedSegment open(Path path, long firstSequence, long sequence, TableConfig tableConfig) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Sorted segment " + path + " is damaged");
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            readFully(channel, footer, size - FOOTER_SIZE);
+            footer.flip();
+            long indexOffset = footer.getLong();
+            int blockCount = footer.getInt();
+            long recordCount = footer.getLong();
+            if (footer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - FOOTER_SIZE || blockCount < 0) {
+                throw new IOException("Sorted segment " + path + " is damaged");
+            }
+
+            ByteBuffer index = ByteBuffer.allocate((int) (size - FOOTER_SIZE - indexOffset));
+            readFully(channel, index, indexOffset);
+            index.flip();
+
+            String[] blockKeys = new String[blockCount];
+            long[] blockOffsets = new long[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                byte[] key = new byte[index.getInt()];
+                index.get(key);
+                blockKeys[i] = new String(key);
+                blockOffsets[i] = index.getLong();
+            }
+
+            BloomFilter bloomFilter = tableConfig.isBloomFilterEnabled()
+                    ? SegmentBloomFile.read(path, size).orElse(null)
+                    : null;
+            return new SortedSegment(path, firstSequence, sequence, channel, size, indexOffset,
+                    blockKeys, blockOffsets, recordCount, bloomFilter);
+        } catch (IOException | BufferUnderflowException | NegativeArraySizeException e) {
+            channel.close();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Sorted segment " + path + " is damaged", e);
+        }
+    }
+
+    String getName() {
+        return path.getFileName().toString();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return размер файла сегмента в байтах
+     */
+    long getSize() {
+        return size;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return память, занятая фильтром Блума сегмента, в байтах. 0, если фильтра нет
+     */
+    long getBloomFilterSize() {
+        return bloomFilter == null ? 0 : bloomFilter.getSizeInBytes();
+    }
+
+    /**
+     * Ищет запись ключа: блок, в который попадает ключ, читается целиком одним обращением к файлу
+     *
+     * @return значение, {@link Memtable#TOMBSTONE} - если записан удаленный ключ, null - если записи ключа нет
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    byte[] get(String key) throws IOException {
+        if (bloomFilter != null && !bloomFilter.mightContain(key)) {
+            return null;
+        }
+
+        int block = blockOf(key);
+        if (block < 0) {
+            return null;
+        }
+
+        long blockEnd = block + 1 < blockOffsets.length ? blockOffsets[block + 1] : indexOffset;
+        ByteBuffer records = ByteBuffer.allocate((int) (blockEnd - blockOffsets[block]));
+        readFully(channel, records, blockOffsets[block]);
+        records.flip();
+
+        ByteBuffer keyBytes = ByteBuffer.wrap(key.getBytes());
+        while (records.hasRemaining()) {
+            int keySize = records.getInt();
+            boolean matches = keySize == keyBytes.remaining()
+                    && records.slice().limit(keySize).equals(keyBytes);
+            records.position(records.position() + keySize);
+
+            int valueSize = records.getInt();
+            if (matches) {
+                if (valueSize <= REMOVED_OBJECT_SIZE) {
+                    return Memtable.TOMBSTONE;
+                }
+                byte[] value = new byte[valueSize];
+                records.get(value);
+                return value;
+            }
+            if (valueSize > 0) {
+                records.position(records.position() + valueSize);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Обходит записи с ключами из полуинтервала [fromKey, toKey) в порядке ключей, включая удаления.
+     * Чтение начинается с блока, в который попадает fromKey, и идет последовательно окнами по
+     * {@value #SCAN_BUFFER_SIZE} байт. Ошибки ввода-вывода при обходе выбрасываются как {@link UncheckedIOException}
+     *
+     * @param toKey верхняя граница, null - без границы
+     */
+    Iterator<Map.Entry<String, byte[]>> iterator(String fromKey, String toKey) throws IOException {
+        int block = Math.max(0, blockOf(fromKey));
+        long start = blockOffsets.length == 0 ? indexOffset : blockOffsets[block];
+        return new RecordIterator(start, fromKey, toKey);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return номер блока, в который попадает ключ, или -1, если ключ меньше первого ключа сегмента
+     */
+    private int blockOf(String key) {
+        int position = Arrays.binarySearch(blockKeys, key);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long read = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + read);
+            if (count < 0) {
+                throw new IOException("Unexpected end of sorted segment");
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * Последовательное чтение записей сегмента через окно, которое сдвигается позиционными чтениями
+     */
+    private final class RecordIterator implements Iterator<Map.Entry<String, byte[]>> {
+        private final String toKey;
+        private ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_SIZE).flip();
+        private long windowEnd;
+        private Map.Entry<String, byte[]> nextEntry;
+
+        RecordIterator(long start, String fromKey, String toKey) throws IOException {
+            this.toKey = toKey;
+            windowEnd = start;
+            do {
+                nextEntry = readRecord();
+            } while (nextEntry != null && nextEntry.getKey().compareTo(fromKey) < 0);
+            checkUpperBound();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEntry != null;
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            if (nextEntry == null) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<String, byte[]> entry = nextEntry;
+            try {
+                nextEntry = readRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException("IOException while scanning " + getName(), e);
+            }
+            checkUpperBound();
+            return entry;
+        }
+
+        private void checkUpperBound() {
+            if (nextEntry != null && toKey != null && nextEntry.getKey().compareTo(toKey) >= 0) {
+                nextEntry = null;
+            }
+        }
+
+        /**
+         * @return следующая запись или null, если записи сегмента кончились
+         */
+        private Map.Entry<String, byte[]> readRecord() throws IOException {
+            if (!ensureAvailable(INT_SIZE)) {
+                return null;
+            }
+            int keySize = window.getInt();
+            requireAvailable(keySize + INT_SIZE);
+            byte[] key = new byte[keySize];
+            window.get(key);
+
+            int valueSize = window.getInt();
+            if (valueSize <= REMOVED_OBJECT_SIZE) {
+                return new AbstractMap.SimpleImmutableEntry<>(new String(key), Memtable.TOMBSTONE);
+            }
+
+            requireAvailable(valueSize);
+            byte[] value = new byte[valueSize];
+            window.get(value);
+            return new AbstractMap.SimpleImmutableEntry<>(new String(key), value);
+        }
+
+        private void requireAvailable(int bytes) throws IOException {
+            if (!ensureAvailable(bytes)) {
+                throw new IOException("Unexpected end of sorted segment " + getName());
+            }
+        }
+
+        /**
+         * Дочитывает окно, чтобы в нем было не меньше {@code bytes} байт записей
+         *
+         * @return {@code false} - если записи сегмента кончились раньше
+         */
+        private boolean ensureAvailable(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return true;
+            }
+            if (window.remaining() + indexOffset - windowEnd < bytes) {
+                return false;
+            }
+
+            if (window.capacity() < bytes) {
+                window = ByteBuffer.allocate(bytes).put(window).flip();
+            }
+            window.compact();
+            while (window.position() < bytes) {
+                window.limit((int) Math.min(window.capacity(), window.position() + indexOffset - windowEnd));
+                int count = channel.read(window, windowEnd);
+                if (count < 0) {
+                    throw new IOException("Unexpected end of sorted segment " + getName());
+                }
+                windowEnd += count;
+            }
+            window.flip();
+            return true;
+        }
+    }
+
+    /**
+     * Записывает новый сегмент во временный файл. Сегмент получает свое имя, только когда записан и сброшен на диск.
+     * Незаконченный сегмент удаляется при закрытии писателя
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path path;
+        private final Path temporaryPath;
+        private final long firstSequence;
+        private final long sequence;
+        private final TableConfig tableConfig;
+        private final FileOutputStream fileStream;
+        private final DatabaseOutputStream stream;
+        private final BloomFilter bloomFilter;
+        private final List<byte[]> blockKeys = new ArrayList<>();
+        private final List<Long> blockOffsets = new ArrayList<>();
+        private long size;
+        private long recordCount;
+        private String lastKey;
+        private boolean finished;
+
+        /**
+         * @param path          путь, под которым появится сегмент
+         * @param firstSequence номер самой старой таблицы в памяти, записи которой попадут в сегмент
+         * @param sequence      номер самой новой такой таблицы
+         * @param expectedKeys  сколько примерно ключей будет записано - по нему подбирается размер фильтра Блума
+         * @param tableConfig   настройки таблицы
+         */
+        Writer(Path path, long firstSequence, long sequence, long expectedKeys, TableConfig tableConfig) throws IOException {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.sequence = sequence;
+            this.tableConfig = tableConfig;
+            temporaryPath = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+            fileStream = new FileOutputStream(temporaryPath.toFile());
+            stream = new DatabaseOutputStream(new BufferedOutputStream(fileStream, OUTPUT_BUFFER_SIZE));
+            bloomFilter = tableConfig.isBloomFilterEnabled()
+                    ? BloomFilter.create(expectedKeys, tableConfig.getBloomFilterFalsePositiveRate())
+                    : null;
+        }
+
+        /**
+         * Дописывает запись ключа. Ключи должны идти строго по возрастанию
+         *
+         * @param value значение или {@link Memtable#TOMBSTONE} - удаление ключа
+         */
+        void write(String key, byte[] value) throws IOException {
+            if (lastKey != null && key.compareTo(lastKey) <= 0) {
+                throw new IllegalStateException("Keys of sorted segment should be written in ascending order");
+            }
+
+            byte[] keyBytes = key.getBytes();
+            if (blockOffsets.isEmpty() || size - blockOffsets.get(blockOffsets.size() - 1) >= BLOCK_SIZE) {
+                blockKeys.add(keyBytes);
+                blockOffsets.add(size);
+            }
+
+            size += stream.write(value == Memtable.TOMBSTONE
+                    ? new RemoveDatabaseRecord(keyBytes)
+                    : new SetDatabaseRecord(keyBytes, value));
+            if (bloomFilter != null) {
+                bloomFilter.add(key);
+            }
+            recordCount++;
+            lastKey = key;
+        }
+
+        /**
+         * Дописывает разреженный индекс, сбрасывает файл на диск и дает ему постоянное имя
+         *
+         * @return открытый сегмент
+         */
+        SortedSegment finish() throws IOException {
+            long indexOffset = size;
+            try {
+                for (int i = 0; i < blockKeys.size(); i++) {
+                    stream.writeInt(blockKeys.get(i).length);
+                    stream.write(blockKeys.get(i));
+                    stream.writeLong(blockOffsets.get(i));
+                }
+                stream.writeLong(indexOffset);
+                stream.writeInt(blockKeys.size());
+                stream.writeLong(recordCount);
+                stream.writeInt(MAGIC);
+                stream.flush();
+                fileStream.getChannel().force(true);
+            } finally {
+                stream.close();
+            }
+
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            long fileSize = channel.size();
+            if (bloomFilter != null) {
+                try {
+                    SegmentBloomFile.write(path, fileSize, bloomFilter);
+                } catch (IOException ignored) {
+                    // без сохраненного фильтра сегмент после перезапуска читается без отсечения ключей
+                }
+            }
+
+            String[] keys = new String[blockKeys.size()];
+            long[] offsets = new long[blockOffsets.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = new String(blockKeys.get(i));
+                offsets[i] = blockOffsets.get(i);
+            }
+            return new SortedSegment(path, firstSequence, sequence, channel, fileSize, indexOffset,
+                    keys, offsets, recordCount, bloomFilter);
+        }
+
+        /**
+         * Удаляет временный файл, если сегмент не был дописан
+         */
+        @Override
+        public void close() throws IOException {
+            if (finished) {
+                return;
+            }
+
+            stream.close();
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+}
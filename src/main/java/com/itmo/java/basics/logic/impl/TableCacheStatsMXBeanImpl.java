@@ -0,0 +1,125 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.logic.CacheStats;
+import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.TableCacheStatsMXBean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Отдает в JMX статистику кэша таблицы. Каждый атрибут читается из свежего снимка {@link Table#getCacheStats()}.
+ * Для таблицы без кэша все счетчики равны нулю
+ */
+public class TableCacheStatsMXBeanImpl implements TableCacheStatsMXBean {
+    private static final Logger LOGGER = Logger.getLogger(TableCacheStatsMXBeanImpl.class.getName());
+    private static final CacheStats EMPTY_STATS = new CacheStats(0, 0, 0, 0, 0, 0, new long[0], new long[0]);
+
+    private final Table table;
+
+    TableCacheStatsMXBeanImpl(Table table) {
+        this.table = table;
+    }
+
+    /**
+     * Регистрирует статистику таблицы в платформенном MBean-сервере, заменяя прежнюю регистрацию с тем же именем.
+     * Ошибка регистрации не мешает работе таблицы и только пишется в лог
+     */
+    static void register(String databaseName, Table table) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = objectName(databaseName, table.getName());
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new TableCacheStatsMXBeanImpl(table), name);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Cannot register cache stats of table " + databaseName + "/" + table.getName(), e);
+        }
+    }
+
+    static void unregister(String databaseName, String tableName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = objectName(databaseName, tableName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Cannot unregister cache stats of table " + databaseName + "/" + tableName, e);
+        }
+    }
+
+    private static ObjectName objectName(String databaseName, String tableName) throws JMException {
+        return new ObjectName("com.itmo.java.basics:type=TableCache,database=" + ObjectName.quote(databaseName)
+                + ",table=" + ObjectName.quote(tableName));
+    }
+
+    private CacheStats stats() {
+        return table.getCacheStats().orElse(EMPTY_STATS);
+    }
+
+    @Override
+    public long getHitCount() {
+        return stats().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return stats().getMissCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return stats().getHitRate();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return stats().getLoadCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return stats().getEvictionCount();
+    }
+
+    @Override
+    public long getEntryCount() {
+        return stats().getEntryCount();
+    }
+
+    @Override
+    public long getWeightedSize() {
+        return stats().getWeightedSize();
+    }
+
+    @Override
+    public long getLoadLatencyP50Micros() {
+        return stats().getLoadLatencyPercentileMicros(50);
+    }
+
+    @Override
+    public long getLoadLatencyP99Micros() {
+        return stats().getLoadLatencyPercentileMicros(99);
+    }
+
+    @Override
+    public long[] getLoadLatencyBoundsMicros() {
+        return stats().getLoadLatencyBoundsMicros();
+    }
+
+    @Override
+    public long[] getLoadLatencyCounts() {
+        return stats().getLoadLatencyCounts();
+    }
+
+    @Override
+    public long getBloomFilterBytes() {
+        return table.getBloomFilterSize();
+    }
+}
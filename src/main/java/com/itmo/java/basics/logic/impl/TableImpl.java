@@ -1,15 +1,46 @@
 package com.itmo.java.basics.logic.impl;
 
+import com.itmo.java.basics.config.FsyncPolicy;
+import com.itmo.java.basics.config.TableConfig;
 import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.index.impl.RecordLocation;
 import com.itmo.java.basics.index.impl.TableIndex;
+import com.itmo.java.basics.logic.CacheStats;
 import com.itmo.java.basics.logic.Segment;
 import com.itmo.java.basics.initialization.TableInitializationContext;
 import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+import com.itmo.java.basics.logic.io.SegmentHintFile;
+import com.itmo.java.basics.logic.io.TableMetadataFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Таблица - логическая сущность, представляющая собой набор файлов-сегментов, которые объединены одним
@@ -19,14 +50,49 @@ import java.util.Optional;
  * - имеет единый размер сегмента
  * - представляет из себя директорию в файловой системе, именованную как таблица
  * и хранящую файлы-сегменты данной таблицы
+ * - read-only сегменты периодически сливаются в фоне (см. {@link SegmentCompactor}). Чтение и запись
+ * блокируются только на время подмены сегментов в индексе
+ * - чтения выполняются параллельно друг с другом и с записью, записи в активный сегмент - по одной
+ * - записи сбрасываются на диск согласно {@link FsyncPolicy}. При {@link FsyncPolicy#ALWAYS} одновременные
+ * записи объединяются в одну пачку (см. {@link GroupCommit}) и видны читателям только после сброса на диск
+ * - значение читается по расположению записи из индекса таблицы (см. {@link TableIndex#searchForRecord(String)}).
+ * С единым индексом ({@link TableConfig#isUnifiedIndex()}) это один поиск, и вытесненные ключи убираются
+ * из индексов сегментов, в том числе из сегментов, созданных слиянием. Индексу, которому ключи read-only сегментов
+ * не нужны ({@link TableIndex#needsSegmentKeys()}), индексы сегментов освобождаются, как только сегмент
+ * перестает быть активным или слияние переключило на него ключи
  */
 public class TableImpl implements Table {
+    private static final Logger LOGGER = Logger.getLogger(TableImpl.class.getName());
+
+    /**
+     * Периодическая запись буферов активных сегментов в файл и сброс на диск для {@link FsyncPolicy#INTERVAL},
+     * общие для всех таблиц
+     */
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final String name;
     private final Path path;
     private TableIndex index;
-    private Segment actualSegment;
+    private volatile Segment actualSegment;
+    private final List<Segment> segments;
+    private final TableConfig config;
+    private final SegmentCompactor compactor;
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final Lock appendLock = new ReentrantLock();
+    private Future<?> compaction;
+    private final GroupCommit groupCommit;
+    private final Future<?> fsyncTask;
+    private final Future<?> flushTask;
 
     public static Table create(String tableName, Path pathToDatabaseRoot, TableIndex tableIndex) throws DatabaseException {
+        return create(tableName, pathToDatabaseRoot, tableIndex, new TableConfig());
+    }
+
+    public static Table create(String tableName, Path pathToDatabaseRoot, TableIndex tableIndex, TableConfig tableConfig) throws DatabaseException {
         if (tableName == null) {
             throw new DatabaseException("Table should have a name");
         }
@@ -45,21 +111,40 @@ public class TableImpl implements Table {
             throw new DatabaseException("Problem with table index");
         }
 
-        Table table = new TableImpl(tableName, pathToDatabaseRoot, tableIndex);
-        return new CachingTable(table);
-    }
+        if (tableConfig == null) {
+            throw new DatabaseException("Problem with table config");
+        }
+        if (tableConfig.getSegmentSize() <= 0) {
+            throw new DatabaseException("Segment size should be positive");
+        }
 
-    private TableImpl(String tableName, Path pathToDatabaseRoot, TableIndex tableIndex) {
-        name = tableName;
-        path = pathToDatabaseRoot.resolve(tableName);
-        index = tableIndex;
+        try {
+            TableMetadataFile.write(directory.toPath(), tableConfig);
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while writing table metadata", e);
+        }
+
+        Table table = new TableImpl(tableName, pathToDatabaseRoot, tableIndex, new ArrayList<>(), tableConfig);
+        return new CachingTable(table, tableConfig);
     }
 
-    private TableImpl(String tableName, Path pathToDatabaseRoot, TableIndex tableIndex, Segment actualSegment) {
+    private TableImpl(String tableName, Path pathToDatabaseRoot, TableIndex tableIndex, List<Segment> segments, TableConfig tableConfig) {
         name = tableName;
         path = pathToDatabaseRoot.resolve(tableName);
         index = tableIndex;
-        this.actualSegment = actualSegment;
+        config = tableConfig;
+        this.segments = new CopyOnWriteArrayList<>(segments);
+        compactor = new SegmentCompactor(path, tableConfig);
+        actualSegment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        groupCommit = tableConfig.getFsyncPolicy() == FsyncPolicy.ALWAYS ? new GroupCommit(this::commitDurably) : null;
+        fsyncTask = tableConfig.getFsyncPolicy() == FsyncPolicy.INTERVAL
+                ? FLUSH_SCHEDULER.scheduleWithFixedDelay(this::syncActualSegment,
+                        tableConfig.getFsyncIntervalMillis(), tableConfig.getFsyncIntervalMillis(), TimeUnit.MILLISECONDS)
+                : null;
+        flushTask = tableConfig.getWriteBufferFlushMillis() > 0
+                ? FLUSH_SCHEDULER.scheduleWithFixedDelay(this::flushActualSegment,
+                        tableConfig.getWriteBufferFlushMillis(), tableConfig.getWriteBufferFlushMillis(), TimeUnit.MILLISECONDS)
+                : null;
     }
 
     public static Table initializeFromContext(TableInitializationContext context) {
@@ -67,8 +152,16 @@ public class TableImpl implements Table {
                 context.getTableName(),
                 context.getTablePath().getParent(),
                 context.getTableIndex(),
-                context.getCurrentSegment());
-        return new CachingTable(table);
+                context.getSegments(),
+                context.getTableConfig());
+        return new CachingTable(table, context.getTableConfig());
+    }
+
+    /**
+     * Планировщик периодического сброса на диск, общий для всех таблиц
+     */
+    static ScheduledExecutorService flushScheduler() {
+        return FLUSH_SCHEDULER;
     }
 
     @Override
@@ -82,15 +175,13 @@ public class TableImpl implements Table {
             throw new DatabaseException("Key could not be a null");
         }
 
+        segmentsLock.readLock().lock();
         try {
-            if (actualSegment == null || actualSegment.isReadOnly()) {
-                actualSegment = SegmentImpl.create(SegmentImpl.createSegmentName(name), path);
-            }
-            if (actualSegment.write(objectKey, objectValue)) {
-                index.onIndexedEntityUpdated(objectKey, actualSegment);
-            }
+            appendValue(objectKey, objectValue);
         } catch (IOException e) {
             throw new DatabaseException("IOException while writing", e);
+        } finally {
+            segmentsLock.readLock().unlock();
         }
     }
 
@@ -100,15 +191,13 @@ public class TableImpl implements Table {
             throw new DatabaseException("Key could not be a null");
         }
 
-        Optional<Segment> readSegment = index.searchForKey(objectKey);
-        if (readSegment.isEmpty()) {
-            return Optional.empty();
-        }
-
+        segmentsLock.readLock().lock();
         try {
-            return readSegment.get().read(objectKey);
+            return readValue(objectKey);
         } catch (IOException e) {
             throw new DatabaseException("IOException while reading", e);
+        } finally {
+            segmentsLock.readLock().unlock();
         }
     }
 
@@ -118,21 +207,515 @@ public class TableImpl implements Table {
             throw new DatabaseException("Key could not be a null");
         }
 
-        Optional<Segment> readSegment = index.searchForKey(objectKey);
-        if (readSegment.isEmpty()) {
-            throw new DatabaseException("Key was not found");
+        segmentsLock.readLock().lock();
+        try {
+            if (searchSegment(objectKey).isEmpty()) {
+                throw new DatabaseException("Key was not found");
+            }
+            appendRemoval(objectKey);
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while deleting", e);
+        } finally {
+            segmentsLock.readLock().unlock();
         }
+    }
 
+    /**
+     * Предыдущее значение читается до записи через общий канал чтения сегмента, поэтому запись
+     * в активный сегмент на время чтения не блокируется
+     */
+    @Override
+    public Optional<byte[]> getAndWrite(String objectKey, byte[] objectValue) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            Optional<byte[]> previousValue = readValue(objectKey);
+            appendValue(objectKey, objectValue);
+            return previousValue;
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while writing", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getAndDelete(String objectKey) throws DatabaseException {
+        if (objectKey == null) {
+            throw new DatabaseException("Key could not be a null");
+        }
+
+        segmentsLock.readLock().lock();
         try {
-            if (actualSegment == null || actualSegment.isReadOnly()) {
-                actualSegment = SegmentImpl.create(SegmentImpl.createSegmentName(name), path);
+            Optional<RecordLocation> location = searchRecord(objectKey);
+            if (location.isEmpty()) {
+                throw new DatabaseException("Key was not found");
             }
 
-            if (readSegment.get().delete(objectKey)) {
-                index.onIndexedEntityUpdated(objectKey, actualSegment);
+            Optional<byte[]> deletedValue = readRecord(objectKey, location.get());
+            appendRemoval(objectKey);
+            return deletedValue;
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while deleting", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(Map<String, byte[]> objects) throws DatabaseException {
+        checkKeys(objects.keySet());
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            appendValues(objects);
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while writing", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> read(Collection<String> objectKeys) throws DatabaseException {
+        checkKeys(objectKeys);
+
+        segmentsLock.readLock().lock();
+        try {
+            Map<String, RecordLocation> locations = new HashMap<>();
+            Map<Segment, List<String>> keysBySegment = new HashMap<>();
+            for (String objectKey : objectKeys) {
+                Optional<RecordLocation> location = searchRecord(objectKey);
+                if (location.isPresent()) {
+                    locations.put(objectKey, location.get());
+                    keysBySegment.computeIfAbsent(location.get().getSegment(), segment -> new ArrayList<>()).add(objectKey);
+                }
+            }
+
+            Map<String, byte[]> values = new HashMap<>();
+            for (Map.Entry<Segment, List<String>> segmentKeys : keysBySegment.entrySet()) {
+                Map<String, byte[]> segmentValues = segmentKeys.getKey().read(segmentKeys.getValue());
+                values.putAll(segmentValues);
+                // ключ мог быть перезаписан и убран из индекса сегмента после поиска - читаем его по расположению
+                for (String objectKey : segmentKeys.getValue()) {
+                    if (!segmentValues.containsKey(objectKey)) {
+                        readRecord(objectKey, locations.get(objectKey)).ifPresent(value -> values.put(objectKey, value));
+                    }
+                }
+            }
+            return values;
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while reading", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(Collection<String> objectKeys) throws DatabaseException {
+        checkKeys(objectKeys);
+
+        segmentsLock.readLock().lock();
+        try {
+            Map<String, byte[]> removals = new LinkedHashMap<>();
+            for (String objectKey : objectKeys) {
+                if (searchSegment(objectKey).isPresent()) {
+                    removals.put(objectKey, null);
+                }
+            }
+            if (removals.isEmpty()) {
+                return 0;
             }
+
+            appendValues(removals);
+            return removals.size();
         } catch (IOException e) {
             throw new DatabaseException("IOException while deleting", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записи таблицы лежат в сегментах в порядке поступления, поэтому диапазон ключей не прочитать,
+     * не перебрав все ключи. Сканирование поддерживают таблицы с сегментами, упорядоченными по ключу
+     * (см. {@link TableConfig#isSortedSegments()})
+     */
+    @Override
+    public void scan(String fromKey, String toKey, BiPredicate<String, byte[]> consumer) throws DatabaseException {
+        throw new DatabaseException("Table " + name + " does not support scans: its segments are not sorted by key");
+    }
+
+    @Override
+    public Optional<CacheStats> getCacheStats() {
+        return Optional.empty();
+    }
+
+    @Override
+    public long getBloomFilterSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.getBloomFilterSize();
+        }
+        return size;
+    }
+
+    /**
+     * Закрывает все сегменты таблицы: активный сегмент освобождает поток записи,
+     * read-only сегменты - каналы чтения
+     */
+    @Override
+    public void close() throws DatabaseException {
+        if (fsyncTask != null) {
+            fsyncTask.cancel(false);
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        awaitCompaction();
+
+        DatabaseException closeException = null;
+        for (Segment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                if (closeException == null) {
+                    closeException = new DatabaseException("IOException while closing", e);
+                } else {
+                    closeException.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    /**
+     * Ищет сегмент ключа в индексе таблицы. Индекс, хранящий вместо ключей их хеши, сверяет ключ с записью
+     * в сегменте - ошибка этого чтения пробрасывается как обычная ошибка ввода-вывода
+     */
+    private Optional<Segment> searchSegment(String objectKey) throws IOException {
+        try {
+            return index.searchForKey(objectKey);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void updateIndex(String objectKey, Segment segment) throws IOException {
+        try {
+            index.onIndexedEntityUpdated(objectKey, segment);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Ищет расположение последней записи ключа (см. {@link TableIndex#searchForRecord(String)})
+     */
+    private Optional<RecordLocation> searchRecord(String objectKey) throws IOException {
+        try {
+            return index.searchForRecord(objectKey);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Читает значение из записи, на которую указывает индекс. Вызывается под блокировкой чтения сегментов
+     */
+    private Optional<byte[]> readValue(String objectKey) throws IOException {
+        Optional<RecordLocation> location = searchRecord(objectKey);
+        if (location.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return readRecord(objectKey, location.get());
+    }
+
+    private static Optional<byte[]> readRecord(String objectKey, RecordLocation location) throws IOException {
+        return location.getSegment().readRecord(location.getOffset(), objectKey, location.getValueSize());
+    }
+
+    /**
+     * Дописывает значение в активный сегмент. Вызывается под блокировкой чтения сегментов
+     */
+    private void appendValue(String objectKey, byte[] objectValue) throws IOException, DatabaseException {
+        if (groupCommit != null) {
+            groupCommit.commit(Collections.singletonMap(objectKey, objectValue));
+            return;
+        }
+
+        appendLock.lock();
+        try {
+            prepareActualSegment();
+            if (actualSegment.write(objectKey, objectValue)) {
+                updateIndex(objectKey, actualSegment);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает удаление ключа в активный сегмент. Вызывается под блокировкой чтения сегментов
+     */
+    private void appendRemoval(String objectKey) throws IOException, DatabaseException {
+        if (groupCommit != null) {
+            groupCommit.commit(Collections.singletonMap(objectKey, null));
+            return;
+        }
+
+        appendLock.lock();
+        try {
+            prepareActualSegment();
+            if (actualSegment.delete(objectKey)) {
+                updateIndex(objectKey, actualSegment);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает пачку значений в активный сегмент одной записью. Null вместо значения - удаление ключа.
+     * Вызывается под блокировкой чтения сегментов
+     */
+    private void appendValues(Map<String, byte[]> objects) throws IOException, DatabaseException {
+        if (groupCommit != null) {
+            groupCommit.commit(objects);
+            return;
+        }
+
+        appendLock.lock();
+        try {
+            prepareActualSegment();
+            if (actualSegment.write(objects)) {
+                for (String objectKey : objects.keySet()) {
+                    updateIndex(objectKey, actualSegment);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает пачку {@link GroupCommit} и сбрасывает ее на диск. Индекс таблицы обновляется после сброса,
+     * поэтому читатели не видят записи, которые еще могут потеряться при сбое
+     */
+    private void commitDurably(Map<String, byte[]> records) throws DatabaseException {
+        segmentsLock.readLock().lock();
+        appendLock.lock();
+        try {
+            prepareActualSegment();
+            Segment segment = actualSegment;
+            if (!segment.write(records)) {
+                throw new DatabaseException("Active segment " + segment.getName() + " is read-only");
+            }
+            segment.sync();
+
+            for (String objectKey : records.keySet()) {
+                updateIndex(objectKey, segment);
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("IOException while writing", e);
+        } finally {
+            appendLock.unlock();
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    private void syncActualSegment() {
+        Segment segment = actualSegment;
+        if (segment == null) {
+            return;
+        }
+
+        try {
+            segment.sync();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not sync segment " + segment.getName(), e);
+        }
+    }
+
+    private void flushActualSegment() {
+        Segment segment = actualSegment;
+        if (segment == null) {
+            return;
+        }
+
+        try {
+            segment.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not flush segment " + segment.getName(), e);
+        }
+    }
+
+    private static void checkKeys(Collection<String> objectKeys) throws DatabaseException {
+        for (String objectKey : objectKeys) {
+            if (objectKey == null) {
+                throw new DatabaseException("Key could not be a null");
+            }
+        }
+    }
+
+    /**
+     * Готовит активный сегмент к записи: создает новый, если активного нет, он заполнился
+     * или пришло время сменить его (см. {@link TableConfig#getSegmentRolloverMillis()}).
+     * Вызывается под блокировкой дозаписи
+     */
+    private void prepareActualSegment() throws IOException, DatabaseException {
+        if (actualSegment != null && !actualSegment.isReadOnly() && isRolloverDue()) {
+            actualSegment.markReadOnly();
+        }
+        if (actualSegment == null || actualSegment.isReadOnly()) {
+            createNextSegment();
+        }
+    }
+
+    private boolean isRolloverDue() {
+        return config.getSegmentRolloverMillis() > 0 && System.currentTimeMillis()
+                - SegmentImpl.getCreationTime(name, actualSegment.getName()) >= config.getSegmentRolloverMillis();
+    }
+
+    private void createNextSegment() throws DatabaseException {
+        String previousSegmentName = actualSegment == null ? null : actualSegment.getName();
+        if (actualSegment != null && !index.needsSegmentKeys()) {
+            // все записи прежнего активного сегмента уже в индексе таблицы: они попадают в него под той же блокировкой
+            actualSegment.releaseIndex();
+        }
+        actualSegment = SegmentImpl.create(SegmentImpl.createSegmentName(name, previousSegmentName), path, config);
+        segments.add(actualSegment);
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Запускает фоновое слияние, если read-only сегментов стало слишком много
+     * или в них накопилось слишком много устаревших записей
+     */
+    private synchronized void scheduleCompactionIfNeeded() {
+        if (compaction != null && !compaction.isDone()) {
+            return;
+        }
+
+        int readOnlySegmentsCount = segments.size() - 1;
+        if (readOnlySegmentsCount < 1) {
+            return;
+        }
+
+        boolean tooManySegments = config.getCompactionSegmentThreshold() > 0
+                && readOnlySegmentsCount >= config.getCompactionSegmentThreshold();
+        if (tooManySegments || config.getCompactionGarbageRatio() > 0 && garbageRatio() >= config.getCompactionGarbageRatio()) {
+            compaction = SegmentCompactor.executor().submit(this::compactReadOnlySegments);
+        }
+    }
+
+    /**
+     * Оценивает долю устаревших записей: ключ, записанный в нескольких сегментах, жив только в одном из них.
+     * Ключи, уже убранные из индексов сегментов как вытесненные, тоже считаются
+     */
+    private double garbageRatio() {
+        long indexedKeys = 0;
+        for (Segment segment : segments) {
+            indexedKeys += segment.getKeys().size() + segment.getDroppedKeyCount();
+        }
+
+        if (indexedKeys == 0) {
+            return 0;
+        }
+
+        return 1.0 - (double) index.size() / indexedKeys;
+    }
+
+    /**
+     * Сливает все сегменты, кроме активного. Новые файлы пишутся без блокировок, после чего
+     * под блокировкой записи индекс переключается на новые сегменты - только для тех ключей,
+     * которые не были перезаписаны за время слияния. Старые файлы удаляются
+     */
+    private void compactReadOnlySegments() {
+        List<Segment> mergedSegments = new ArrayList<>(segments);
+        mergedSegments.remove(actualSegment);
+        if (mergedSegments.isEmpty()) {
+            return;
+        }
+
+        SegmentCompactor.Result result;
+        try {
+            result = compactor.compact(mergedSegments);
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.WARNING, "Compaction of table " + name + " failed", e);
+            return;
+        }
+
+        Set<Segment> mergedSegmentsSet = new HashSet<>(mergedSegments);
+        segmentsLock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Segment> location : result.getKeyLocations().entrySet()) {
+                Optional<Segment> currentSegment = index.searchForKey(location.getKey());
+                if (currentSegment.isEmpty() || !mergedSegmentsSet.contains(currentSegment.get())) {
+                    if (config.isUnifiedIndex() && location.getValue() != null) {
+                        location.getValue().dropKey(location.getKey());
+                    }
+                    continue;
+                }
+
+                if (location.getValue() == null) {
+                    index.removeIfMatches(location.getKey(), currentSegment.get());
+                } else {
+                    index.replaceIfMatches(location.getKey(), currentSegment.get(), location.getValue());
+                }
+            }
+
+            segments.removeAll(mergedSegments);
+            segments.addAll(0, result.getSegments());
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+
+        if (!index.needsSegmentKeys()) {
+            for (Segment segment : result.getSegments()) {
+                segment.releaseIndex();
+            }
+        }
+
+        for (Segment segment : mergedSegments) {
+            try {
+                segment.close();
+                Files.deleteIfExists(path.resolve(segment.getName()));
+                Files.deleteIfExists(SegmentHintFile.pathFor(path.resolve(segment.getName())));
+                Files.deleteIfExists(SegmentBloomFile.pathFor(path.resolve(segment.getName())));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete compacted segment " + segment.getName(), e);
+            }
+        }
+    }
+
+    private void awaitCompaction() throws DatabaseException {
+        Future<?> runningCompaction;
+        synchronized (this) {
+            runningCompaction = compaction;
+        }
+
+        if (runningCompaction == null) {
+            return;
+        }
+
+        try {
+            runningCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for compaction", e);
+        } catch (ExecutionException e) {
+            throw new DatabaseException("Compaction failed", e.getCause());
         }
     }
 }
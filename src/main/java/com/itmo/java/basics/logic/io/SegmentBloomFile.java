@@ -0,0 +1,116 @@
+package com.itmo.java.basics.logic.io;
+
+import com.itmo.java.basics.index.impl.BloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Файл с фильтром Блума сегмента (см. {@link BloomFilter}). Пишется рядом с сегментом, когда тот становится read-only,
+ * чтобы при следующем запуске не строить фильтр заново. Формат:
+ * - магическое число и версия формата
+ * - размер сегмента в байтах, для которого построен фильтр
+ * - число хеш-функций
+ * - число 64-битных слов фильтра и сами слова
+ * - контрольная сумма CRC32 всего перечисленного
+ */
+public class SegmentBloomFile {
+    public static final String EXTENSION = ".bloom";
+    private static final int MAGIC = 0x4B56424C;
+    private static final int VERSION = 1;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private SegmentBloomFile() {
+    }
+
+    /**
+     * @param segmentPath путь до файла сегмента
+     * @return путь до фильтра этого сегмента
+     */
+    public static Path pathFor(Path segmentPath) {
+        return segmentPath.resolveSibling(segmentPath.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Атомарно записывает фильтр: сначала во временный файл, затем переименовывает его
+     *
+     * @param segmentPath путь до файла сегмента
+     * @param segmentSize размер сегмента в байтах
+     * @param filter      фильтр ключей сегмента
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public static void write(Path segmentPath, long segmentSize, BloomFilter filter) throws IOException {
+        Path filterPath = pathFor(segmentPath);
+        Path temporaryPath = filterPath.resolveSibling(filterPath.getFileName() + TEMPORARY_SUFFIX);
+
+        CRC32 checksum = new CRC32();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            DataOutputStream checkedOutput = new DataOutputStream(new CheckedOutputStream(output, checksum));
+            checkedOutput.writeInt(MAGIC);
+            checkedOutput.writeInt(VERSION);
+            checkedOutput.writeLong(segmentSize);
+            checkedOutput.writeInt(filter.getHashFunctions());
+            checkedOutput.writeInt(filter.getBits().length);
+            for (long word : filter.getBits()) {
+                checkedOutput.writeLong(word);
+            }
+            checkedOutput.flush();
+            output.writeLong(checksum.getValue());
+        }
+
+        Files.move(temporaryPath, filterPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Читает фильтр сегмента, если он есть и построен для текущего содержимого сегмента
+     *
+     * @param segmentPath путь до файла сегмента
+     * @param segmentSize текущий размер файла сегмента
+     * @return фильтр или {@link Optional#empty()}, если файла нет или он поврежден/устарел
+     */
+    public static Optional<BloomFilter> read(Path segmentPath, long segmentSize) {
+        Path filterPath = pathFor(segmentPath);
+        if (!Files.isRegularFile(filterPath)) {
+            return Optional.empty();
+        }
+
+        CRC32 checksum = new CRC32();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(filterPath)))) {
+            DataInputStream checkedInput = new DataInputStream(new CheckedInputStream(input, checksum));
+            if (checkedInput.readInt() != MAGIC || checkedInput.readInt() != VERSION
+                    || checkedInput.readLong() != segmentSize) {
+                return Optional.empty();
+            }
+
+            int hashFunctions = checkedInput.readInt();
+            int words = checkedInput.readInt();
+            if (hashFunctions <= 0 || words <= 0 || (long) words * Long.BYTES > Files.size(filterPath)) {
+                return Optional.empty();
+            }
+
+            long[] bits = new long[words];
+            for (int i = 0; i < words; i++) {
+                bits[i] = checkedInput.readLong();
+            }
+
+            long expectedChecksum = checksum.getValue();
+            if (input.readLong() != expectedChecksum) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new BloomFilter(bits, hashFunctions));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.itmo.java.basics.logic.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Файл-подсказка сегмента: компактный список записей сегмента без значений.
+ * Пишется рядом с сегментом, когда тот становится read-only, и позволяет построить индекс сегмента,
+ * не читая значения. Формат:
+ * - магическое число и версия формата
+ * - размер сегмента в байтах, для которого составлена подсказка
+ * - количество записей
+ * - для каждой записи: размер ключа, ключ, сдвиг записи, размер записи, признак удаления
+ * - контрольная сумма CRC32 всего перечисленного
+ */
+public class SegmentHintFile {
+    public static final String EXTENSION = ".hint";
+    private static final int MAGIC = 0x4B565348;
+    private static final int VERSION = 1;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int KEY_BUFFER_SIZE = 256;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int REMOVED_VALUE_SIZE = -1;
+
+    /**
+     * Запись сегмента, как она хранится в подсказке
+     */
+    public static class Entry {
+        private final byte[] key;
+        private final long offset;
+        private final int recordSize;
+        private final boolean removed;
+
+        public Entry(byte[] key, long offset, int recordSize, boolean removed) {
+            this.key = key;
+            this.offset = offset;
+            this.recordSize = recordSize;
+            this.removed = removed;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getRecordSize() {
+            return recordSize;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+
+    /**
+     * Получатель записей подсказки при чтении (см. {@link #read(Path, long, EntryConsumer)})
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * @param key       ключ записи
+         * @param offset    сдвиг записи в сегменте
+         * @param valueSize размер значения записи, -1 - для записи об удалении
+         */
+        void accept(String key, long offset, int valueSize);
+    }
+
+    private SegmentHintFile() {
+    }
+
+    /**
+     * @param segmentPath путь до файла сегмента
+     * @return путь до подсказки этого сегмента
+     */
+    public static Path pathFor(Path segmentPath) {
+        return segmentPath.resolveSibling(segmentPath.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Атомарно записывает подсказку: сначала во временный файл, затем переименовывает его
+     *
+     * @param segmentPath путь до файла сегмента
+     * @param segmentSize размер сегмента в байтах
+     * @param entries     записи сегмента
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public static void write(Path segmentPath, long segmentSize, List<Entry> entries) throws IOException {
+        Path hintPath = pathFor(segmentPath);
+        Path temporaryPath = hintPath.resolveSibling(hintPath.getFileName() + TEMPORARY_SUFFIX);
+
+        CRC32 checksum = new CRC32();
+        try (OutputStream output = Files.newOutputStream(temporaryPath)) {
+            // Буфер стоит над подсчетом контрольной суммы, чтобы она считалась по блокам, а не по байту
+            DataOutputStream checkedOutput = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(output, checksum)));
+            checkedOutput.writeInt(MAGIC);
+            checkedOutput.writeInt(VERSION);
+            checkedOutput.writeLong(segmentSize);
+            checkedOutput.writeInt(entries.size());
+            for (Entry entry : entries) {
+                checkedOutput.writeInt(entry.getKey().length);
+                checkedOutput.write(entry.getKey());
+                checkedOutput.writeLong(entry.getOffset());
+                checkedOutput.writeInt(entry.getRecordSize());
+                checkedOutput.writeBoolean(entry.isRemoved());
+            }
+            checkedOutput.flush();
+            new DataOutputStream(output).writeLong(checksum.getValue());
+        }
+
+        Files.move(temporaryPath, hintPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Передает получателю записи подсказки сегмента, если она есть и соответствует текущему содержимому сегмента.
+     * Записи читаются потоком, не собираясь в список, а контрольная сумма проверяется в конце, поэтому при
+     * {@code false} все уже переданные записи нужно отбросить
+     *
+     * @param segmentPath путь до файла сегмента
+     * @param segmentSize текущий размер файла сегмента
+     * @param consumer    получатель записей
+     * @return {@code true} - если подсказка прочитана целиком, {@code false} - если ее нет или она повреждена/устарела
+     */
+    public static boolean read(Path segmentPath, long segmentSize, EntryConsumer consumer) {
+        Path hintPath = pathFor(segmentPath);
+        if (!Files.isRegularFile(hintPath)) {
+            return false;
+        }
+
+        CRC32 checksum = new CRC32();
+        try (InputStream input = Files.newInputStream(hintPath)) {
+            long checkedSize = Files.size(hintPath) - Long.BYTES;
+            if (checkedSize < 0) {
+                return false;
+            }
+            DataInputStream checkedInput = new DataInputStream(
+                    new BufferedInputStream(new CheckedInputStream(new LimitedInputStream(input, checkedSize), checksum)));
+            if (checkedInput.readInt() != MAGIC || checkedInput.readInt() != VERSION
+                    || checkedInput.readLong() != segmentSize) {
+                return false;
+            }
+
+            int count = checkedInput.readInt();
+            if (count < 0) {
+                return false;
+            }
+
+            byte[] key = new byte[KEY_BUFFER_SIZE];
+            for (int i = 0; i < count; i++) {
+                int keySize = checkedInput.readInt();
+                if (keySize < 0) {
+                    return false;
+                }
+                if (keySize > key.length) {
+                    key = new byte[keySize];
+                }
+                checkedInput.readFully(key, 0, keySize);
+
+                long offset = checkedInput.readLong();
+                int recordSize = checkedInput.readInt();
+                boolean removed = checkedInput.readBoolean();
+                consumer.accept(new String(key, 0, keySize), offset,
+                        removed ? REMOVED_VALUE_SIZE : recordSize - RECORD_HEADER_SIZE - keySize);
+            }
+
+            if (checkedInput.read() != -1) {
+                return false;
+            }
+            return new DataInputStream(input).readLong() == checksum.getValue();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Поток, отдающий не больше заданного числа байт: буфер над ним не дочитывает контрольную сумму в конце файла
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream input, long limit) {
+            super(input);
+            remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int result = super.read();
+            if (result != -1) {
+                remaining--;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int result = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (result > 0) {
+                remaining -= result;
+            }
+            return result;
+        }
+    }
+}
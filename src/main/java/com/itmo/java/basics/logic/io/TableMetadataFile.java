@@ -0,0 +1,97 @@
+package com.itmo.java.basics.logic.io;
+
+import com.itmo.java.basics.config.TableConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Файл метаданных таблицы: настройки, заданные при создании таблицы, которые должны сохраняться между запусками.
+ * Лежит в директории таблицы рядом с сегментами и хранится в формате {@link Properties}:
+ * - segmentSize - размер сегмента в байтах ({@link TableConfig#getSegmentSize()})
+ * - segmentRolloverMillis - смена сегмента по времени ({@link TableConfig#getSegmentRolloverMillis()})
+ * - sortedSegments - таблица хранит сегменты, упорядоченные по ключу ({@link TableConfig#isSortedSegments()}).
+ * Если значения нет, таблица создана до появления таких сегментов и хранит записи в порядке поступления
+ * Таблицы, созданные до появления метаданных, файла не имеют и используют настройки по умолчанию
+ */
+public class TableMetadataFile {
+    public static final String FILE_NAME = "table.properties";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String SEGMENT_SIZE = "segmentSize";
+    private static final String SEGMENT_ROLLOVER_MILLIS = "segmentRolloverMillis";
+    private static final String SORTED_SEGMENTS = "sortedSegments";
+
+    private TableMetadataFile() {
+    }
+
+    /**
+     * @param tablePath путь до директории таблицы
+     * @return путь до файла метаданных этой таблицы
+     */
+    public static Path pathFor(Path tablePath) {
+        return tablePath.resolve(FILE_NAME);
+    }
+
+    /**
+     * Атомарно записывает метаданные: сначала во временный файл, затем переименовывает его
+     *
+     * @param tablePath   путь до директории таблицы
+     * @param tableConfig настройки таблицы
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public static void write(Path tablePath, TableConfig tableConfig) throws IOException {
+        Path metadataPath = pathFor(tablePath);
+        Path temporaryPath = metadataPath.resolveSibling(FILE_NAME + TEMPORARY_SUFFIX);
+
+        Properties properties = new Properties();
+        properties.setProperty(SEGMENT_SIZE, String.valueOf(tableConfig.getSegmentSize()));
+        properties.setProperty(SEGMENT_ROLLOVER_MILLIS, String.valueOf(tableConfig.getSegmentRolloverMillis()));
+        properties.setProperty(SORTED_SEGMENTS, String.valueOf(tableConfig.isSortedSegments()));
+        try (Writer writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+
+        Files.move(temporaryPath, metadataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Переносит сохраненные настройки таблицы в {@code tableConfig}. Если файла нет, таблица создана до появления
+     * метаданных, и из настроек меняется только признак сегментов, упорядоченных по ключу, - таких сегментов у нее нет
+     *
+     * @param tablePath   путь до директории таблицы
+     * @param tableConfig настройки, в которые записываются сохраненные значения
+     * @throws IOException если файл не удалось прочитать или он поврежден
+     */
+    public static void readInto(Path tablePath, TableConfig tableConfig) throws IOException {
+        Path metadataPath = pathFor(tablePath);
+        if (!Files.isRegularFile(metadataPath)) {
+            tableConfig.setSortedSegments(false);
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(metadataPath, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        try {
+            String segmentSize = properties.getProperty(SEGMENT_SIZE);
+            if (segmentSize != null) {
+                tableConfig.setSegmentSize(Long.parseLong(segmentSize));
+            }
+            String segmentRolloverMillis = properties.getProperty(SEGMENT_ROLLOVER_MILLIS);
+            if (segmentRolloverMillis != null) {
+                tableConfig.setSegmentRolloverMillis(Long.parseLong(segmentRolloverMillis));
+            }
+            tableConfig.setSortedSegments(Boolean.parseBoolean(properties.getProperty(SORTED_SEGMENTS)));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed table metadata " + metadataPath, e);
+        }
+    }
+}
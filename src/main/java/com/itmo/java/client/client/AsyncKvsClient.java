@@ -0,0 +1,101 @@
+package com.itmo.java.client.client;
+
+import com.itmo.java.client.exception.DatabaseExecutionException;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный клиент для доступа к БД. Методы только отправляют команду и сразу возвращают future,
+ * вызывающий поток не ждет ни сети, ни исполнения команды.
+ * Если команда не выполнилась, future завершается с {@link DatabaseExecutionException}
+ */
+public interface AsyncKvsClient {
+    CompletableFuture<String> createDatabase();
+
+    CompletableFuture<String> createTable(String tableName);
+
+    /**
+     * Создает таблицу со своими настройками сегментов. Настройки сохраняются в метаданных таблицы
+     *
+     * @param segmentSize           размер сегмента в байтах
+     * @param segmentRolloverMillis время в миллисекундах, через которое сегмент сменяется, даже если не заполнен.
+     *                              Значение не больше нуля отключает смену по времени
+     */
+    CompletableFuture<String> createTable(String tableName, long segmentSize, long segmentRolloverMillis);
+
+    /**
+     * Создает таблицу, которая хранит сегменты упорядоченными по ключу и поддерживает {@link #scan}
+     * (см. {@link KvsClient#createTable(String, long, long, boolean)})
+     */
+    CompletableFuture<String> createTable(String tableName, long segmentSize, long segmentRolloverMillis, boolean sortedSegments);
+
+    CompletableFuture<String> get(String tableName, String key);
+
+    CompletableFuture<String> set(String tableName, String key, String value);
+
+    /**
+     * @return значение как есть, без перекодирования в строку. Null, если ключа нет
+     */
+    CompletableFuture<byte[]> getBytes(String tableName, String key);
+
+    /**
+     * Записывает значение как есть, без перекодирования
+     *
+     * @return предыдущее значение. Null, если его не было
+     */
+    CompletableFuture<byte[]> set(String tableName, String key, byte[] value);
+
+    /**
+     * Записывает байты буфера от его позиции до лимита, не копируя их
+     *
+     * @return предыдущее значение. Null, если его не было
+     */
+    CompletableFuture<byte[]> set(String tableName, String key, ByteBuffer value);
+
+    CompletableFuture<String> delete(String tableName, String key);
+
+    /**
+     * Записывает значение, не запрашивая предыдущее: сервер не читает его с диска
+     */
+    CompletableFuture<Void> put(String tableName, String key, String value);
+
+    /**
+     * Записывает значение как есть, не запрашивая предыдущее
+     */
+    CompletableFuture<Void> put(String tableName, String key, byte[] value);
+
+    /**
+     * Удаляет ключ, не запрашивая удаленное значение
+     */
+    CompletableFuture<Void> remove(String tableName, String key);
+
+    /**
+     * @return статистика кэша таблицы в текстовом виде: попадания, промахи, вытеснения, размер и время чтения
+     */
+    CompletableFuture<String> cacheStats(String tableName);
+
+    /**
+     * @return значения ключей в том же порядке. Null, если ключа нет
+     */
+    CompletableFuture<List<String>> mget(String tableName, List<String> keys);
+
+    /**
+     * @return количество записанных ключей
+     */
+    CompletableFuture<String> mset(String tableName, Map<String, String> values);
+
+    /**
+     * @return количество удаленных ключей. Ключи, которых нет в таблице, пропускаются
+     */
+    CompletableFuture<String> mdelete(String tableName, List<String> keys);
+
+    /**
+     * Читает страницу ключей из полуинтервала [fromKey, toKey) (см. {@link KvsClient#scan(String, String, String, int)})
+     *
+     * @return ключи и значения в порядке ключей и ключ, с которого начинается следующая страница
+     */
+    CompletableFuture<ScanResult> scan(String tableName, String fromKey, String toKey, int limit);
+}
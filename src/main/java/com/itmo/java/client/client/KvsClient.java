@@ -2,6 +2,10 @@ package com.itmo.java.client.client;
 
 import com.itmo.java.client.exception.DatabaseExecutionException;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Клиент для доступа к БД
  */
@@ -10,9 +14,108 @@ public interface KvsClient {
 
     String createTable(String tableName) throws DatabaseExecutionException;
 
+    /**
+     * Создает таблицу со своими настройками сегментов. Настройки сохраняются в метаданных таблицы
+     *
+     * @param segmentSize           размер сегмента в байтах
+     * @param segmentRolloverMillis время в миллисекундах, через которое сегмент сменяется, даже если не заполнен.
+     *                              Значение не больше нуля отключает смену по времени
+     */
+    String createTable(String tableName, long segmentSize, long segmentRolloverMillis) throws DatabaseExecutionException;
+
+    /**
+     * Создает таблицу, которая хранит сегменты упорядоченными по ключу и поддерживает {@link #scan}
+     *
+     * @param segmentSize           размер сегмента в байтах - у такой таблицы это размер таблицы в памяти,
+     *                              после которого она сбрасывается в сегмент
+     * @param segmentRolloverMillis время смены сегмента, такой таблицей не используется
+     * @param sortedSegments        хранить сегменты, упорядоченные по ключу
+     */
+    String createTable(String tableName, long segmentSize, long segmentRolloverMillis, boolean sortedSegments)
+            throws DatabaseExecutionException;
+
     String get(String tableName, String key) throws DatabaseExecutionException;
 
     String set(String tableName, String key, String value) throws DatabaseExecutionException;
 
+    /**
+     * @return значение как есть, без перекодирования в строку. Null, если ключа нет
+     */
+    byte[] getBytes(String tableName, String key) throws DatabaseExecutionException;
+
+    /**
+     * Записывает значение как есть, без перекодирования - например, сериализованный protobuf
+     *
+     * @return предыдущее значение. Null, если его не было
+     */
+    byte[] set(String tableName, String key, byte[] value) throws DatabaseExecutionException;
+
+    /**
+     * Записывает байты буфера от его позиции до лимита, не копируя их
+     *
+     * @return предыдущее значение. Null, если его не было
+     */
+    byte[] set(String tableName, String key, ByteBuffer value) throws DatabaseExecutionException;
+
     String delete(String tableName, String key) throws DatabaseExecutionException;
+
+    /**
+     * Записывает значение, не запрашивая предыдущее: сервер не читает его с диска
+     */
+    void put(String tableName, String key, String value) throws DatabaseExecutionException;
+
+    /**
+     * Записывает значение как есть, не запрашивая предыдущее
+     */
+    void put(String tableName, String key, byte[] value) throws DatabaseExecutionException;
+
+    /**
+     * Удаляет ключ, не запрашивая удаленное значение
+     */
+    void remove(String tableName, String key) throws DatabaseExecutionException;
+
+    /**
+     * @return статистика кэша таблицы в текстовом виде: попадания, промахи, вытеснения, размер и время чтения
+     */
+    String cacheStats(String tableName) throws DatabaseExecutionException;
+
+    /**
+     * @return значения ключей в том же порядке. Null, если ключа нет
+     */
+    List<String> mget(String tableName, List<String> keys) throws DatabaseExecutionException;
+
+    /**
+     * @return количество записанных ключей
+     */
+    String mset(String tableName, Map<String, String> values) throws DatabaseExecutionException;
+
+    /**
+     * @return количество удаленных ключей. Ключи, которых нет в таблице, пропускаются
+     */
+    String mdelete(String tableName, List<String> keys) throws DatabaseExecutionException;
+
+    /**
+     * Читает страницу ключей из полуинтервала [fromKey, toKey). Ключи с префиксом читаются диапазоном
+     * от префикса до {@link #prefixEnd(String)}. Весь диапазон читается запросами страниц, начиная каждую
+     * с {@link ScanResult#getNextKey()} предыдущей, пока он не станет null
+     *
+     * @param toKey ключ, перед которым диапазон заканчивается, null - до конца таблицы
+     * @param limit наибольшее число ключей в странице, не больше нуля - ограничение сервера по умолчанию.
+     *              Сервер не отдает в одной странице больше своего наибольшего лимита, даже если запрошено больше
+     * @return ключи и значения в порядке ключей и ключ, с которого начинается следующая страница
+     */
+    ScanResult scan(String tableName, String fromKey, String toKey, int limit) throws DatabaseExecutionException;
+
+    /**
+     * @return первый ключ после всех ключей с префиксом или null, если такого ключа нет
+     */
+    static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char last = prefix.charAt(i);
+            if (last != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (last + 1);
+            }
+        }
+        return null;
+    }
 }
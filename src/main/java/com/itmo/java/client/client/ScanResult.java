@@ -0,0 +1,37 @@
+package com.itmo.java.client.client;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Страница сканирования диапазона ключей (см. {@link KvsClient#scan(String, String, String, int)})
+ */
+public class ScanResult {
+    private final Map<String, String> entries;
+    private final String nextKey;
+
+    /**
+     * @param entries ключи и значения в порядке ключей
+     * @param nextKey ключ, с которого начинается следующая страница, null - диапазон прочитан до конца
+     */
+    public ScanResult(Map<String, String> entries, String nextKey) {
+        this.entries = Collections.unmodifiableMap(entries);
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * @return ключи и значения страницы в порядке ключей
+     */
+    public Map<String, String> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Следующую страницу нужно запросить с тем же концом диапазона, передав этот ключ как первый ключ диапазона
+     *
+     * @return ключ, с которого начинается следующая страница, null - диапазон прочитан до конца
+     */
+    public String getNextKey() {
+        return nextKey;
+    }
+}
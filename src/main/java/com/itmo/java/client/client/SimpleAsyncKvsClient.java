@@ -0,0 +1,151 @@
+package com.itmo.java.client.client;
+
+import com.itmo.java.client.command.*;
+import com.itmo.java.client.connection.KvsConnection;
+import com.itmo.java.client.exception.DatabaseExecutionException;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+public class SimpleAsyncKvsClient implements AsyncKvsClient {
+    private final String databaseName;
+    private final Supplier<KvsConnection> connectionSupplier;
+
+    /**
+     * Конструктор
+     *
+     * @param databaseName       имя базы, с которой работает
+     * @param connectionSupplier метод создания подключения к базе
+     */
+    public SimpleAsyncKvsClient(String databaseName, Supplier<KvsConnection> connectionSupplier) {
+        this.databaseName = databaseName;
+        this.connectionSupplier = connectionSupplier;
+    }
+
+    @Override
+    public CompletableFuture<String> createDatabase() {
+        return getResult(new CreateDatabaseKvsCommand(databaseName));
+    }
+
+    @Override
+    public CompletableFuture<String> createTable(String tableName) {
+        return getResult(new CreateTableKvsCommand(databaseName, tableName));
+    }
+
+    @Override
+    public CompletableFuture<String> createTable(String tableName, long segmentSize, long segmentRolloverMillis) {
+        return getResult(new CreateTableKvsCommand(databaseName, tableName, segmentSize, segmentRolloverMillis));
+    }
+
+    @Override
+    public CompletableFuture<String> createTable(String tableName, long segmentSize, long segmentRolloverMillis, boolean sortedSegments) {
+        return getResult(new CreateTableKvsCommand(databaseName, tableName, segmentSize, segmentRolloverMillis, sortedSegments));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String tableName, String key) {
+        return getResult(new GetKvsCommand(databaseName, tableName, key));
+    }
+
+    @Override
+    public CompletableFuture<String> set(String tableName, String key, String value) {
+        return getResult(new SetKvsCommand(databaseName, tableName, key, value));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getBytes(String tableName, String key) {
+        return send(new GetKvsCommand(databaseName, tableName, key)).thenApply(RespObject::asBytes);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> set(String tableName, String key, byte[] value) {
+        return send(new SetKvsCommand(databaseName, tableName, key, value)).thenApply(RespObject::asBytes);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> set(String tableName, String key, ByteBuffer value) {
+        return send(new SetKvsCommand(databaseName, tableName, key, value)).thenApply(RespObject::asBytes);
+    }
+
+    @Override
+    public CompletableFuture<String> delete(String tableName, String key) {
+        return getResult(new DeleteKvsCommand(databaseName, tableName, key));
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String tableName, String key, String value) {
+        return send(new PutKvsCommand(databaseName, tableName, key, value)).thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String tableName, String key, byte[] value) {
+        return send(new PutKvsCommand(databaseName, tableName, key, value)).thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(String tableName, String key) {
+        return send(new RemoveKvsCommand(databaseName, tableName, key)).thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<String> cacheStats(String tableName) {
+        return getResult(new CacheStatsKvsCommand(databaseName, tableName));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String tableName, List<String> keys) {
+        return send(new MGetKvsCommand(databaseName, tableName, keys)).thenApply(result -> {
+            try {
+                return SimpleKvsClient.asStrings(result);
+            } catch (DatabaseExecutionException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> mset(String tableName, Map<String, String> values) {
+        return getResult(new MSetKvsCommand(databaseName, tableName, values));
+    }
+
+    @Override
+    public CompletableFuture<String> mdelete(String tableName, List<String> keys) {
+        return getResult(new MDeleteKvsCommand(databaseName, tableName, keys));
+    }
+
+    @Override
+    public CompletableFuture<ScanResult> scan(String tableName, String fromKey, String toKey, int limit) {
+        return send(new ScanKvsCommand(databaseName, tableName, fromKey, toKey, limit)).thenApply(result -> {
+            try {
+                return SimpleKvsClient.asScanResult(result);
+            } catch (DatabaseExecutionException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private CompletableFuture<String> getResult(KvsCommand command) {
+        return send(command).thenApply(RespObject::asString);
+    }
+
+    private CompletableFuture<RespObject> send(KvsCommand command) {
+        return connectionSupplier.get().sendAsync(command.getCommandId(), command.serialize())
+                .handle((result, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause()
+                                : failure;
+                        throw new CompletionException(new DatabaseExecutionException(cause.getMessage(), cause));
+                    }
+                    if (result.isError()) {
+                        throw new CompletionException(new DatabaseExecutionException(result.asString()));
+                    }
+                    return result;
+                });
+    }
+}
@@ -4,8 +4,14 @@ import com.itmo.java.client.command.*;
 import com.itmo.java.client.connection.KvsConnection;
 import com.itmo.java.client.exception.ConnectionException;
 import com.itmo.java.client.exception.DatabaseExecutionException;
+import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespObject;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public class SimpleKvsClient implements KvsClient {
@@ -32,6 +38,17 @@ public class SimpleKvsClient implements KvsClient {
         return getResult(new CreateTableKvsCommand(databaseName, tableName));
     }
 
+    @Override
+    public String createTable(String tableName, long segmentSize, long segmentRolloverMillis) throws DatabaseExecutionException {
+        return getResult(new CreateTableKvsCommand(databaseName, tableName, segmentSize, segmentRolloverMillis));
+    }
+
+    @Override
+    public String createTable(String tableName, long segmentSize, long segmentRolloverMillis, boolean sortedSegments)
+            throws DatabaseExecutionException {
+        return getResult(new CreateTableKvsCommand(databaseName, tableName, segmentSize, segmentRolloverMillis, sortedSegments));
+    }
+
     @Override
     public String get(String tableName, String key) throws DatabaseExecutionException {
         return getResult(new GetKvsCommand(databaseName, tableName, key));
@@ -42,20 +59,113 @@ public class SimpleKvsClient implements KvsClient {
         return getResult(new SetKvsCommand(databaseName, tableName, key, value));
     }
 
+    @Override
+    public byte[] getBytes(String tableName, String key) throws DatabaseExecutionException {
+        return send(new GetKvsCommand(databaseName, tableName, key)).asBytes();
+    }
+
+    @Override
+    public byte[] set(String tableName, String key, byte[] value) throws DatabaseExecutionException {
+        return send(new SetKvsCommand(databaseName, tableName, key, value)).asBytes();
+    }
+
+    @Override
+    public byte[] set(String tableName, String key, ByteBuffer value) throws DatabaseExecutionException {
+        return send(new SetKvsCommand(databaseName, tableName, key, value)).asBytes();
+    }
+
     @Override
     public String delete(String tableName, String key) throws DatabaseExecutionException {
         return getResult(new DeleteKvsCommand(databaseName, tableName, key));
     }
 
+    @Override
+    public void put(String tableName, String key, String value) throws DatabaseExecutionException {
+        send(new PutKvsCommand(databaseName, tableName, key, value));
+    }
+
+    @Override
+    public void put(String tableName, String key, byte[] value) throws DatabaseExecutionException {
+        send(new PutKvsCommand(databaseName, tableName, key, value));
+    }
+
+    @Override
+    public void remove(String tableName, String key) throws DatabaseExecutionException {
+        send(new RemoveKvsCommand(databaseName, tableName, key));
+    }
+
+    @Override
+    public String cacheStats(String tableName) throws DatabaseExecutionException {
+        return getResult(new CacheStatsKvsCommand(databaseName, tableName));
+    }
+
+    @Override
+    public List<String> mget(String tableName, List<String> keys) throws DatabaseExecutionException {
+        return asStrings(send(new MGetKvsCommand(databaseName, tableName, keys)));
+    }
+
+    @Override
+    public String mset(String tableName, Map<String, String> values) throws DatabaseExecutionException {
+        return getResult(new MSetKvsCommand(databaseName, tableName, values));
+    }
+
+    @Override
+    public String mdelete(String tableName, List<String> keys) throws DatabaseExecutionException {
+        return getResult(new MDeleteKvsCommand(databaseName, tableName, keys));
+    }
+
+    @Override
+    public ScanResult scan(String tableName, String fromKey, String toKey, int limit) throws DatabaseExecutionException {
+        return asScanResult(send(new ScanKvsCommand(databaseName, tableName, fromKey, toKey, limit)));
+    }
+
     private String getResult(KvsCommand command) throws DatabaseExecutionException {
+        return send(command).asString();
+    }
+
+    private RespObject send(KvsCommand command) throws DatabaseExecutionException {
         try {
             RespObject result = connectionSupplier.get().send(command.getCommandId(), command.serialize());
             if (result.isError()) {
                 throw new DatabaseExecutionException(result.asString());
             }
-            return result.asString();
+            return result;
         } catch (ConnectionException e) {
             throw new DatabaseExecutionException(e.getMessage(), e);
         }
     }
+
+    /**
+     * Разбирает ответ пакетной команды - массив значений
+     */
+    static List<String> asStrings(RespObject result) throws DatabaseExecutionException {
+        if (!(result instanceof RespArray)) {
+            throw new DatabaseExecutionException("Unexpected response " + result.asString());
+        }
+
+        List<RespObject> objects = ((RespArray) result).getObjects();
+        List<String> values = new ArrayList<>(objects.size());
+        for (RespObject object : objects) {
+            values.add(object.asString());
+        }
+        return values;
+    }
+
+    /**
+     * Разбирает ответ сканирования - массив из ключа следующей страницы, затем ключей и значений вперемешку
+     *
+     * @return ключи и значения в порядке ответа и ключ следующей страницы
+     */
+    static ScanResult asScanResult(RespObject result) throws DatabaseExecutionException {
+        List<String> objects = asStrings(result);
+        if (objects.size() % 2 != 1) {
+            throw new DatabaseExecutionException("Unexpected response of " + objects.size() + " objects");
+        }
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 1; i < objects.size(); i += 2) {
+            entries.put(objects.get(i), objects.get(i + 1));
+        }
+        return new ScanResult(entries, objects.get(0));
+    }
 }
@@ -0,0 +1,43 @@
+package com.itmo.java.client.command;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Команда для получения статистики кэша таблицы
+ */
+public class CacheStatsKvsCommand implements KvsCommand {
+    private static final String COMMAND_NAME = "CACHE_STATS";
+    private final String databaseName;
+    private final String tableName;
+    private final int id;
+
+    public CacheStatsKvsCommand(String databaseName, String tableName) {
+        this.databaseName = databaseName;
+        this.tableName = tableName;
+        id = idGen.getAndIncrement();
+    }
+
+    /**
+     * Возвращает RESP объект. {@link RespArray} с {@link RespCommandId}, именем команды, аргументами в виде {@link RespBulkString}
+     *
+     * @return объект
+     */
+    @Override
+    public RespArray serialize() {
+        return new RespArray(
+                new RespCommandId(id),
+                new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Override
+    public int getCommandId() {
+        return id;
+    }
+}
@@ -3,8 +3,11 @@ package com.itmo.java.client.command;
 import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespBulkString;
 import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespObject;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Команда для создания таблицы
@@ -13,11 +16,40 @@ public class CreateTableKvsCommand implements KvsCommand {
     private static final String COMMAND_NAME = "CREATE_TABLE";
     private final String databaseName;
     private final String tableName;
+    private final Long segmentSize;
+    private final Long segmentRolloverMillis;
+    private final boolean sortedSegments;
     private final int id;
 
     public CreateTableKvsCommand(String databaseName, String tableName) {
+        this(databaseName, tableName, null, null, false);
+    }
+
+    /**
+     * @param segmentSize           размер сегмента таблицы в байтах
+     * @param segmentRolloverMillis время смены сегмента в миллисекундах, не больше нуля - без смены по времени
+     */
+    public CreateTableKvsCommand(String databaseName, String tableName, long segmentSize, long segmentRolloverMillis) {
+        this(databaseName, tableName, (Long) segmentSize, (Long) segmentRolloverMillis, false);
+    }
+
+    /**
+     * @param segmentSize           размер сегмента таблицы в байтах
+     * @param segmentRolloverMillis время смены сегмента в миллисекундах, не больше нуля - без смены по времени
+     * @param sortedSegments        хранить сегменты, упорядоченные по ключу - такая таблица поддерживает сканирование
+     */
+    public CreateTableKvsCommand(String databaseName, String tableName, long segmentSize, long segmentRolloverMillis,
+                                 boolean sortedSegments) {
+        this(databaseName, tableName, (Long) segmentSize, (Long) segmentRolloverMillis, sortedSegments);
+    }
+
+    private CreateTableKvsCommand(String databaseName, String tableName, Long segmentSize, Long segmentRolloverMillis,
+                                  boolean sortedSegments) {
         this.databaseName = databaseName;
         this.tableName = tableName;
+        this.segmentSize = segmentSize;
+        this.segmentRolloverMillis = segmentRolloverMillis;
+        this.sortedSegments = sortedSegments;
         id = idGen.getAndIncrement();
     }
 
@@ -28,12 +60,19 @@ public class CreateTableKvsCommand implements KvsCommand {
      */
     @Override
     public RespArray serialize() {
-        return new RespArray(
+        List<RespObject> objects = new ArrayList<>(List.of(
                 new RespCommandId(id),
                 new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)),
                 new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
-                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8))
-        );
+                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8))));
+        if (segmentSize != null) {
+            objects.add(new RespBulkString(String.valueOf(segmentSize).getBytes(StandardCharsets.UTF_8)));
+            objects.add(new RespBulkString(String.valueOf(segmentRolloverMillis).getBytes(StandardCharsets.UTF_8)));
+        }
+        if (sortedSegments) {
+            objects.add(new RespBulkString(String.valueOf(true).getBytes(StandardCharsets.UTF_8)));
+        }
+        return new RespArray(objects.toArray(new RespObject[0]));
     }
 
     @Override
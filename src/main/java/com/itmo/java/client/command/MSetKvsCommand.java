@@ -0,0 +1,52 @@
+package com.itmo.java.client.command;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MSetKvsCommand implements KvsCommand {
+    private static final String COMMAND_NAME = "MSET";
+    private final String databaseName;
+    private final String tableName;
+    private final Map<String, String> values;
+    private final int id;
+
+    public MSetKvsCommand(String databaseName, String tableName, Map<String, String> values) {
+        this.databaseName = databaseName;
+        this.tableName = tableName;
+        this.values = new LinkedHashMap<>(values);
+        id = idGen.getAndIncrement();
+    }
+
+    /**
+     * Возвращает RESP объект. {@link RespArray} с {@link RespCommandId}, именем команды, аргументами в виде {@link RespBulkString}.
+     * Ключи и значения идут парами
+     *
+     * @return объект
+     */
+    @Override
+    public RespArray serialize() {
+        List<RespObject> objects = new ArrayList<>(4 + 2 * values.size());
+        objects.add(new RespCommandId(id));
+        objects.add(new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)));
+        objects.add(new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)));
+        objects.add(new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8)));
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            objects.add(new RespBulkString(value.getKey().getBytes(StandardCharsets.UTF_8)));
+            objects.add(new RespBulkString(value.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        return new RespArray(objects.toArray(new RespObject[0]));
+    }
+
+    @Override
+    public int getCommandId() {
+        return id;
+    }
+}
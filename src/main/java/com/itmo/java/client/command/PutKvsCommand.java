@@ -0,0 +1,59 @@
+package com.itmo.java.client.command;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class PutKvsCommand implements KvsCommand {
+    private static final String COMMAND_NAME = "PUT_KEY";
+    private final String databaseName;
+    private final String tableName;
+    private final String key;
+    private final ByteBuffer value;
+    private final int id;
+
+    public PutKvsCommand(String databaseName, String tableName, String key, String value) {
+        this(databaseName, tableName, key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public PutKvsCommand(String databaseName, String tableName, String key, byte[] value) {
+        this(databaseName, tableName, key, ByteBuffer.wrap(value));
+    }
+
+    /**
+     * @param value значение - байты буфера от его позиции до лимита. Не копируется, поэтому его нельзя менять,
+     *              пока команда не отправлена
+     */
+    public PutKvsCommand(String databaseName, String tableName, String key, ByteBuffer value) {
+        this.databaseName = databaseName;
+        this.tableName = tableName;
+        this.key = key;
+        this.value = value.slice();
+        id = idGen.getAndIncrement();
+    }
+
+    /**
+     * Возвращает RESP объект. {@link RespArray} с {@link RespCommandId}, именем команды, аргументами в виде {@link RespBulkString}
+     *
+     * @return объект
+     */
+    @Override
+    public RespArray serialize() {
+        return new RespArray(
+                new RespCommandId(id),
+                new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(key.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(value)
+        );
+    }
+
+    @Override
+    public int getCommandId() {
+        return id;
+    }
+}
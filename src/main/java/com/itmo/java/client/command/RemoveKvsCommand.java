@@ -0,0 +1,44 @@
+package com.itmo.java.client.command;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+
+import java.nio.charset.StandardCharsets;
+
+public class RemoveKvsCommand implements KvsCommand {
+    private static final String COMMAND_NAME = "REMOVE_KEY";
+    private final String databaseName;
+    private final String tableName;
+    private final String key;
+    private final int id;
+
+
+    public RemoveKvsCommand(String databaseName, String tableName, String key) {
+        this.databaseName = databaseName;
+        this.tableName = tableName;
+        this.key = key;
+        id = idGen.getAndIncrement();
+    }
+
+    /**
+     * Возвращает RESP объект. {@link RespArray} с {@link RespCommandId}, именем команды, аргументами в виде {@link RespBulkString}
+     *
+     * @return объект
+     */
+    @Override
+    public RespArray serialize() {
+        return new RespArray(
+                new RespCommandId(id),
+                new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(key.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Override
+    public int getCommandId() {
+        return id;
+    }
+}
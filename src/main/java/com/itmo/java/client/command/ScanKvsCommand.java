@@ -0,0 +1,58 @@
+package com.itmo.java.client.command;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Команда для чтения диапазона ключей таблицы в порядке ключей
+ */
+public class ScanKvsCommand implements KvsCommand {
+    private static final String COMMAND_NAME = "SCAN";
+    private final String databaseName;
+    private final String tableName;
+    private final String fromKey;
+    private final String toKey;
+    private final int limit;
+    private final int id;
+
+    /**
+     * @param fromKey первый ключ диапазона
+     * @param toKey   ключ, перед которым диапазон заканчивается, null - до конца таблицы
+     * @param limit   наибольшее число ключей в странице, не больше нуля - ограничение сервера по умолчанию
+     */
+    public ScanKvsCommand(String databaseName, String tableName, String fromKey, String toKey, int limit) {
+        this.databaseName = databaseName;
+        this.tableName = tableName;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.limit = limit;
+        id = idGen.getAndIncrement();
+    }
+
+    /**
+     * Возвращает RESP объект. {@link RespArray} с {@link RespCommandId}, именем команды, аргументами в виде {@link RespBulkString}.
+     * Отсутствие верхней границы передается пустой строкой
+     *
+     * @return объект
+     */
+    @Override
+    public RespArray serialize() {
+        return new RespArray(
+                new RespCommandId(id),
+                new RespBulkString(COMMAND_NAME.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(fromKey.getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString((toKey == null ? "" : toKey).getBytes(StandardCharsets.UTF_8)),
+                new RespBulkString(String.valueOf(limit).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public int getCommandId() {
+        return id;
+    }
+}
@@ -4,6 +4,7 @@ import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespBulkString;
 import com.itmo.java.protocol.model.RespCommandId;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class SetKvsCommand implements KvsCommand {
@@ -11,14 +12,26 @@ public class SetKvsCommand implements KvsCommand {
     private final String databaseName;
     private final String tableName;
     private final String key;
-    private final String value;
+    private final ByteBuffer value;
     private final int id;
 
     public SetKvsCommand(String databaseName, String tableName, String key, String value) {
+        this(databaseName, tableName, key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SetKvsCommand(String databaseName, String tableName, String key, byte[] value) {
+        this(databaseName, tableName, key, ByteBuffer.wrap(value));
+    }
+
+    /**
+     * @param value значение - байты буфера от его позиции до лимита. Не копируется, поэтому его нельзя менять,
+     *              пока команда не отправлена
+     */
+    public SetKvsCommand(String databaseName, String tableName, String key, ByteBuffer value) {
         this.databaseName = databaseName;
         this.tableName = tableName;
         this.key = key;
-        this.value = value;
+        this.value = value.slice();
         id = idGen.getAndIncrement();
     }
 
@@ -35,7 +48,7 @@ public class SetKvsCommand implements KvsCommand {
                 new RespBulkString(databaseName.getBytes(StandardCharsets.UTF_8)),
                 new RespBulkString(tableName.getBytes(StandardCharsets.UTF_8)),
                 new RespBulkString(key.getBytes(StandardCharsets.UTF_8)),
-                new RespBulkString(value.getBytes(StandardCharsets.UTF_8))
+                new RespBulkString(value)
         );
     }
 
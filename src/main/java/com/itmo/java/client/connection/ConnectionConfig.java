@@ -0,0 +1,24 @@
+package com.itmo.java.client.connection;
+
+/**
+ * Адрес сервера, к которому подключается клиент
+ */
+public class ConnectionConfig {
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 8080;
+    private final String host;
+    private final int port;
+
+    public ConnectionConfig(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+}
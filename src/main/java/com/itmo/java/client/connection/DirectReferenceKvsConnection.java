@@ -1,12 +1,15 @@
 package com.itmo.java.client.connection;
 
 import com.itmo.java.basics.DatabaseServer;
+import com.itmo.java.basics.console.DatabaseCommandResult;
 import com.itmo.java.client.exception.ConnectionException;
 import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespObject;
 
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Реализация подключения, когда есть прямая ссылка на объект
@@ -28,6 +31,15 @@ public class DirectReferenceKvsConnection implements KvsConnection {
         }
     }
 
+    @Override
+    public CompletableFuture<RespObject> sendAsync(int commandId, RespArray command) {
+        try {
+            return connectingDatabaseServer.executeNextCommand(command).thenApply(DatabaseCommandResult::serialize);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ConnectionException(e.getMessage(), e));
+        }
+    }
+
     /**
      * Ничего не делает ¯\_(ツ)_/¯
      */
@@ -4,7 +4,7 @@ import com.itmo.java.client.exception.ConnectionException;
 import com.itmo.java.protocol.model.RespArray;
 import com.itmo.java.protocol.model.RespObject;
 
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Определяет интерфейс подключения к key value storage
@@ -19,4 +19,14 @@ public interface KvsConnection extends AutoCloseable {
      * @throws ConnectionException если не удалось прочитать ответ
      */
     RespObject send(int commandId, RespArray command) throws ConnectionException;
+
+    /**
+     * Отправляет команду к серверу, не дожидаясь результата
+     *
+     * @param commandId id команды (номер)
+     * @param command   команда
+     * @return future с результатом исполнения. Если не удалось отправить команду или прочитать ответ,
+     * future завершается с {@link ConnectionException}
+     */
+    CompletableFuture<RespObject> sendAsync(int commandId, RespArray command);
 }
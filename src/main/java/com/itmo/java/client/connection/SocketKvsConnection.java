@@ -0,0 +1,222 @@
+package com.itmo.java.client.connection;
+
+import com.itmo.java.client.exception.ConnectionException;
+import com.itmo.java.protocol.RespReader;
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Подключение к серверу по TCP.
+ *
+ * Команды отправляются сразу, не дожидаясь ответов на предыдущие (pipelining): одним подключением
+ * могут одновременно пользоваться несколько потоков, а {@link #sendAsync(int, RespArray)} позволяет
+ * отправить много команд подряд. Сервер отвечает по мере готовности, в любом порядке, помечая ответ id команды.
+ *
+ * В сокет пишет и из него читает по отдельному потоку подключения: вызывающий поток только ставит команду
+ * в очередь и никогда не блокируется на сокете. Команды, накопившиеся в очереди, пишутся одним системным вызовом
+ */
+public class SocketKvsConnection implements KvsConnection {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_GATHERED_WRITES = 64;
+
+    private final SocketChannel channel;
+    private final String address;
+    private final Map<Integer, CompletableFuture<RespObject>> pendingResponses = new ConcurrentHashMap<>();
+    private final BlockingQueue<ByteBuffer> outgoing = new LinkedBlockingQueue<>();
+    private final Thread responseReader;
+    private final Thread commandWriter;
+    private volatile ConnectionException failure;
+
+    /**
+     * Подключается к серверу
+     *
+     * @param config адрес сервера
+     * @throws ConnectionException если не удалось подключиться
+     */
+    public SocketKvsConnection(ConnectionConfig config) throws ConnectionException {
+        address = config.getHost() + ":" + config.getPort();
+        try {
+            channel = SocketChannel.open(new InetSocketAddress(config.getHost(), config.getPort()));
+            channel.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            throw new ConnectionException("Cannot connect to " + address, e);
+        }
+
+        commandWriter = new Thread(this::writeCommands, "kvs-connection-writer-" + address);
+        commandWriter.setDaemon(true);
+        responseReader = new Thread(this::readResponses, "kvs-connection-reader-" + address);
+        responseReader.setDaemon(true);
+        commandWriter.start();
+        responseReader.start();
+    }
+
+    /**
+     * Отправляет команду на сервер и ждет ответа
+     *
+     * @param commandId id команды (номер)
+     * @param command   команда
+     * @return результат исполнения
+     * @throws ConnectionException если не удалось отправить команду или прочитать ответ
+     */
+    @Override
+    public RespObject send(int commandId, RespArray command) throws ConnectionException {
+        try {
+            return sendAsync(commandId, command).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for response to command " + commandId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConnectionException) {
+                throw (ConnectionException) e.getCause();
+            }
+            throw new ConnectionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ставит команду в очередь на отправку и сразу возвращает управление
+     *
+     * @param commandId id команды, уникальный среди неотвеченных команд подключения
+     * @param command   команда
+     * @return future, которое завершится ответом сервера или {@link ConnectionException}
+     */
+    @Override
+    public CompletableFuture<RespObject> sendAsync(int commandId, RespArray command) {
+        CompletableFuture<RespObject> response = new CompletableFuture<>();
+        if (pendingResponses.putIfAbsent(commandId, response) != null) {
+            response.completeExceptionally(new ConnectionException("Command " + commandId + " is already waiting for response", null));
+            return response;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            command.write(bytes);
+            checkNotFailed();
+            outgoing.add(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            pendingResponses.remove(commandId, response);
+            response.completeExceptionally(new ConnectionException("IOException while serializing command " + commandId, e));
+        } catch (ConnectionException e) {
+            pendingResponses.remove(commandId, response);
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws ConnectionException {
+        fail(new ConnectionException("Connection to " + address + " is closed", null));
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ConnectionException("IOException while closing connection", e);
+        }
+    }
+
+    private void writeCommands() {
+        List<ByteBuffer> batch = new ArrayList<>(MAX_GATHERED_WRITES);
+        try {
+            while (failure == null) {
+                batch.add(outgoing.take());
+                outgoing.drainTo(batch, MAX_GATHERED_WRITES - 1);
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                ByteBuffer last = buffers[buffers.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(buffers);
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            fail(new ConnectionException("IOException while sending commands to " + address, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readResponses() {
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        RespReader reader = new RespReader();
+        try {
+            while (true) {
+                readBuffer.clear();
+                if (channel.read(readBuffer) < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+                readBuffer.flip();
+                // Ответы ссылаются на буфер, из которого разобраны, поэтому каждое чтение получает свой буфер
+                ByteBuffer received = ByteBuffer.allocate(readBuffer.remaining());
+                received.put(readBuffer).flip();
+
+                Optional<RespObject> response;
+                while ((response = reader.readObject(received)).isPresent()) {
+                    complete(response.get());
+                }
+            }
+        } catch (IOException e) {
+            fail(new ConnectionException("IOException while reading responses from " + address, e));
+        }
+    }
+
+    /**
+     * Завершает future команды, id которой указан в ответе. Ответ без id - ошибка всего подключения
+     */
+    private void complete(RespObject response) throws IOException {
+        if (response.isError()) {
+            throw new IOException("Server rejected the connection: " + response.asString());
+        }
+        if (!(response instanceof RespArray)) {
+            throw new IOException("Unexpected response " + response.asString());
+        }
+
+        List<RespObject> objects = ((RespArray) response).getObjects();
+        if (objects.size() != 2 || !(objects.get(0) instanceof RespCommandId)) {
+            throw new IOException("Response should contain a command id and a result");
+        }
+
+        CompletableFuture<RespObject> pendingResponse = pendingResponses.remove(((RespCommandId) objects.get(0)).getCommandId());
+        if (pendingResponse != null) {
+            pendingResponse.complete(objects.get(1));
+        }
+    }
+
+    private void checkNotFailed() throws ConnectionException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized void fail(ConnectionException exception) {
+        if (failure == null) {
+            failure = exception;
+            commandWriter.interrupt();
+        }
+        outgoing.clear();
+        for (Integer commandId : pendingResponses.keySet()) {
+            CompletableFuture<RespObject> pendingResponse = pendingResponses.remove(commandId);
+            if (pendingResponse != null) {
+                pendingResponse.completeExceptionally(failure);
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+}
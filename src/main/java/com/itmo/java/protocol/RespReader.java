@@ -0,0 +1,398 @@
+package com.itmo.java.protocol;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespBulkString;
+import com.itmo.java.protocol.model.RespCommandId;
+import com.itmo.java.protocol.model.RespError;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Optional;
+
+/**
+ * Потоковый декодер RESP объектов. Данные подаются частями (например, по мере чтения из сокета),
+ * объект может быть разрезан между частями в любом месте: декодер запоминает, на чем остановился,
+ * и продолжает с этого места при следующем вызове, не разбирая уже прочитанное заново.
+ *
+ * Строки ({@link RespBulkString}), целиком лежащие в поданном буфере, не копируются, а ссылаются на его содержимое.
+ * Поэтому буфер нельзя перезаписывать, пока прочитанные объекты используются.
+ * Копируются только строки, которые пришли по частям
+ *
+ * Размеры массивов и строк берутся из заголовков, которым нельзя доверять: массив длиннее {@value #MAX_ARRAY_SIZE}
+ * элементов или строка длиннее {@value #MAX_BULK_STRING_SIZE} байт считаются некорректными, а память под элементы
+ * массива и под строку, пришедшую по частям, выделяется по мере прихода данных, а не по заголовку
+ *
+ * Экземпляр хранит состояние одного потока данных и не потокобезопасен
+ */
+public class RespReader {
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final int MAX_BULK_STRING_SIZE = 512 * 1024 * 1024;
+    private static final int MAX_ARRAY_SIZE = 1 << 20;
+    private static final int INITIAL_LINE_LENGTH = 16;
+    private static final int INITIAL_ARRAY_CAPACITY = 16;
+    private static final int INITIAL_BULK_STRING_CAPACITY = 64 * 1024;
+
+    private enum State {
+        TYPE, LINE, BULK_STRING, COMMAND_ID, CRLF
+    }
+
+    /**
+     * Массив, элементы которого еще читаются
+     */
+    private static final class ArrayFrame {
+        final int expectedSize;
+        RespObject[] objects;
+        int size;
+
+        ArrayFrame(int expectedSize) {
+            this.expectedSize = expectedSize;
+            objects = new RespObject[Math.min(expectedSize, INITIAL_ARRAY_CAPACITY)];
+        }
+
+        /**
+         * @return {@code true} - если добавлен последний элемент массива
+         */
+        boolean add(RespObject object) {
+            if (size == objects.length) {
+                objects = Arrays.copyOf(objects, (int) Math.min(expectedSize, 2L * objects.length));
+            }
+            objects[size++] = object;
+            return size == expectedSize;
+        }
+    }
+
+    private final Deque<ArrayFrame> arrays = new ArrayDeque<>();
+    private State state = State.TYPE;
+    private byte type;
+    private byte[] line;
+    private int lineLength;
+    private byte[] bulkString;
+    private int bulkStringSize;
+    private int bulkStringRead;
+    private int commandId;
+    private int commandIdBytesRead;
+    private int crlfBytesRead;
+    private RespObject completedObject;
+
+    /**
+     * Читает из буфера следующий объект верхнего уровня
+     *
+     * @param buffer буфер в режиме чтения
+     * @return прочитанный объект - позиция буфера стоит сразу за ним, в буфере могут остаться следующие объекты.
+     * {@code Optional.empty()}, если объект еще не пришел целиком - тогда буфер прочитан до конца
+     * @throws IOException если данные не являются корректным RESP
+     */
+    public Optional<RespObject> readObject(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            RespObject object = null;
+            switch (state) {
+                case TYPE:
+                    if (buffer.hasArray() && readWholeElement(buffer)) {
+                        object = completedObject;
+                        completedObject = null;
+                    } else {
+                        readType(buffer);
+                    }
+                    break;
+                case LINE:
+                    if (readLine(buffer)) {
+                        object = onLine(buffer);
+                    }
+                    break;
+                case BULK_STRING:
+                    readBulkString(buffer);
+                    break;
+                case COMMAND_ID:
+                    readCommandId(buffer);
+                    break;
+                case CRLF:
+                    object = readCrlf(buffer);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown reader state " + state);
+            }
+
+            if (object != null) {
+                RespObject topLevelObject = complete(object);
+                if (topLevelObject != null) {
+                    return Optional.of(topLevelObject);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return {@code true} - если начало следующего объекта уже прочитано, а конец еще не пришел
+     */
+    public boolean hasPartialObject() {
+        return state != State.TYPE || !arrays.isEmpty();
+    }
+
+    /**
+     * Быстрый путь для элемента, который целиком лежит в буфере: разбирает его прямо из массива буфера,
+     * минуя посимвольный автомат. Прочитанный объект кладется в {@code completedObject}
+     * (null - если прочитан заголовок непустого массива)
+     *
+     * @return {@code false} - если элемент пришел не целиком или некорректен. Позиция буфера тогда не меняется,
+     * и элемент разбирается обычным путем
+     */
+    private boolean readWholeElement(ByteBuffer buffer) {
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset();
+        int start = offset + buffer.position();
+        int end = offset + buffer.limit();
+        byte code = array[start];
+
+        if (code == RespCommandId.CODE) {
+            if (end - start < 1 + Integer.BYTES + 2 || array[start + 5] != CR || array[start + 6] != LF) {
+                return false;
+            }
+            int id = (array[start + 1] & 0xFF) << 24 | (array[start + 2] & 0xFF) << 16
+                    | (array[start + 3] & 0xFF) << 8 | (array[start + 4] & 0xFF);
+            buffer.position(start + 7 - offset);
+            completedObject = new RespCommandId(id);
+            return true;
+        }
+        if (code != RespArray.CODE && code != RespBulkString.CODE) {
+            return false;
+        }
+
+        int i = start + 1;
+        boolean negative = i < end && array[i] == '-';
+        if (negative) {
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < end && array[i] >= '0' && array[i] <= '9') {
+            value = value * 10 + (array[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return false;
+            }
+            i++;
+        }
+        if (i == digitsStart || i + 1 >= end || array[i] != CR || array[i + 1] != LF) {
+            return false;
+        }
+        int size = (int) (negative ? -value : value);
+        int dataStart = i + 2;
+
+        if (code == RespArray.CODE) {
+            if (size < 0 || size > MAX_ARRAY_SIZE) {
+                return false;
+            }
+            buffer.position(dataStart - offset);
+            if (size == 0) {
+                completedObject = new RespArray();
+            } else {
+                arrays.push(new ArrayFrame(size));
+            }
+            return true;
+        }
+
+        if (size == RespBulkString.NULL_STRING_SIZE) {
+            buffer.position(dataStart - offset);
+            completedObject = new RespBulkString((byte[]) null);
+            return true;
+        }
+        if (size < 0 || end - dataStart < size + 2 || array[dataStart + size] != CR || array[dataStart + size + 1] != LF) {
+            return false;
+        }
+        buffer.position(dataStart + size + 2 - offset);
+        completedObject = new RespBulkString(ByteBuffer.wrap(array, dataStart, size));
+        return true;
+    }
+
+    private void readType(ByteBuffer buffer) throws IOException {
+        type = buffer.get();
+        switch (type) {
+            case RespArray.CODE:
+            case RespBulkString.CODE:
+            case RespError.CODE:
+                lineLength = 0;
+                state = State.LINE;
+                break;
+            case RespCommandId.CODE:
+                commandId = 0;
+                commandIdBytesRead = 0;
+                state = State.COMMAND_ID;
+                break;
+            default:
+                throw new IOException("Unknown RESP type code " + (char) type);
+        }
+    }
+
+    /**
+     * Дочитывает строку до CRLF
+     *
+     * @return {@code true} - если строка прочитана целиком
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        if (line == null) {
+            line = new byte[INITIAL_LINE_LENGTH];
+        }
+
+        while (buffer.hasRemaining()) {
+            byte next = buffer.get();
+            if (next == LF && lineLength > 0 && line[lineLength - 1] == CR) {
+                lineLength--;
+                return true;
+            }
+            if (lineLength == line.length) {
+                if (line.length >= MAX_LINE_LENGTH) {
+                    throw new IOException("RESP line is longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = next;
+        }
+        return false;
+    }
+
+    private RespObject onLine(ByteBuffer buffer) throws IOException {
+        state = State.TYPE;
+        switch (type) {
+            case RespError.CODE:
+                return new RespError(Arrays.copyOf(line, lineLength));
+            case RespArray.CODE: {
+                int size = parseSize();
+                if (size < 0) {
+                    throw new IOException("Negative RESP array size " + size);
+                }
+                if (size > MAX_ARRAY_SIZE) {
+                    throw new IOException("RESP array has more than " + MAX_ARRAY_SIZE + " elements");
+                }
+                if (size == 0) {
+                    return new RespArray();
+                }
+                arrays.push(new ArrayFrame(size));
+                return null;
+            }
+            case RespBulkString.CODE: {
+                int size = parseSize();
+                if (size == RespBulkString.NULL_STRING_SIZE) {
+                    return new RespBulkString((byte[]) null);
+                }
+                if (size < 0) {
+                    throw new IOException("Negative RESP bulk string size " + size);
+                }
+                if (size > MAX_BULK_STRING_SIZE) {
+                    throw new IOException("RESP bulk string is larger than " + MAX_BULK_STRING_SIZE + " bytes");
+                }
+                if (buffer.remaining() >= size) {
+                    ByteBuffer data = buffer.slice();
+                    data.limit(size);
+                    buffer.position(buffer.position() + size);
+                    expectCrlf(new RespBulkString(data));
+                } else {
+                    bulkString = new byte[Math.min(size, Math.max(INITIAL_BULK_STRING_CAPACITY, buffer.remaining()))];
+                    bulkStringSize = size;
+                    bulkStringRead = 0;
+                    state = State.BULK_STRING;
+                }
+                return null;
+            }
+            default:
+                throw new IllegalStateException("Unexpected line of RESP type " + (char) type);
+        }
+    }
+
+    /**
+     * Дочитывает строку, пришедшую по частям. Буфер строки растет вдвое, когда очередная часть в него не помещается
+     */
+    private void readBulkString(ByteBuffer buffer) {
+        int length = Math.min(buffer.remaining(), bulkStringSize - bulkStringRead);
+        if (bulkStringRead + length > bulkString.length) {
+            int capacity = (int) Math.min(bulkStringSize, Math.max(2L * bulkString.length, bulkStringRead + length));
+            bulkString = Arrays.copyOf(bulkString, capacity);
+        }
+        buffer.get(bulkString, bulkStringRead, length);
+        bulkStringRead += length;
+        if (bulkStringRead == bulkStringSize) {
+            RespBulkString object = new RespBulkString(bulkString);
+            bulkString = null;
+            expectCrlf(object);
+        }
+    }
+
+    private void readCommandId(ByteBuffer buffer) {
+        while (buffer.hasRemaining() && commandIdBytesRead < Integer.BYTES) {
+            commandId = (commandId << 8) | (buffer.get() & 0xFF);
+            commandIdBytesRead++;
+        }
+        if (commandIdBytesRead == Integer.BYTES) {
+            expectCrlf(new RespCommandId(commandId));
+        }
+    }
+
+    private void expectCrlf(RespObject object) {
+        completedObject = object;
+        crlfBytesRead = 0;
+        state = State.CRLF;
+    }
+
+    private RespObject readCrlf(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && crlfBytesRead < 2) {
+            byte expected = crlfBytesRead == 0 ? CR : LF;
+            if (buffer.get() != expected) {
+                throw new IOException("RESP object is not terminated with CRLF");
+            }
+            crlfBytesRead++;
+        }
+        if (crlfBytesRead < 2) {
+            return null;
+        }
+
+        RespObject object = completedObject;
+        completedObject = null;
+        state = State.TYPE;
+        return object;
+    }
+
+    /**
+     * Добавляет прочитанный объект в незаконченные массивы
+     *
+     * @return объект верхнего уровня, если он закончился, иначе null
+     */
+    private RespObject complete(RespObject object) {
+        while (!arrays.isEmpty()) {
+            ArrayFrame frame = arrays.peek();
+            if (!frame.add(object)) {
+                return null;
+            }
+            arrays.pop();
+            object = new RespArray(frame.objects);
+        }
+        return object;
+    }
+
+    private int parseSize() throws IOException {
+        if (lineLength == 0) {
+            throw new IOException("Empty RESP size");
+        }
+
+        boolean negative = line[0] == '-';
+        if (negative && lineLength == 1) {
+            throw new IOException("Malformed RESP size -");
+        }
+
+        long value = 0;
+        for (int i = negative ? 1 : 0; i < lineLength; i++) {
+            if (line[i] < '0' || line[i] > '9') {
+                throw new IOException("Malformed RESP size " + new String(line, 0, lineLength));
+            }
+            value = value * 10 + (line[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("RESP size is too large");
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+}
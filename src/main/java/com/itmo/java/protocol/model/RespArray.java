@@ -43,6 +43,14 @@ public class RespArray implements RespObject {
         return respObjects.stream().map(RespObject::asString).collect(Collectors.joining(" "));
     }
 
+    /**
+     * @return строковое представление {@link #asString()} в UTF-8
+     */
+    @Override
+    public byte[] asBytes() {
+        return asString().getBytes(StandardCharsets.UTF_8);
+    }
+
     @Override
     public void write(OutputStream os) throws IOException {
         os.write(CODE);
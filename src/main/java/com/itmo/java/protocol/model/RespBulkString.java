@@ -2,6 +2,7 @@ package com.itmo.java.protocol.model;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -15,10 +16,22 @@ public class RespBulkString implements RespObject {
 
     public static final int NULL_STRING_SIZE = -1;
 
-    private final byte[] data;
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
+    private final ByteBuffer data;
 
     public RespBulkString(byte[] data) {
-        this.data = data;
+        this.data = data == null ? null : ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Создает строку, которая ссылается на содержимое буфера от его позиции до лимита, не копируя его.
+     * Пока строка используется, эту часть буфера нельзя менять
+     *
+     * @param data данные строки
+     */
+    public RespBulkString(ByteBuffer data) {
+        this.data = data == null ? null : data.slice();
     }
 
     /**
@@ -42,7 +55,30 @@ public class RespBulkString implements RespObject {
             return null;
         }
 
-        return new String(data);
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + data.position(), data.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(data.duplicate()).toString();
+    }
+
+    /**
+     * Байты строки. Если строка занимает весь массив, из которого создана, возвращается сам массив без копирования.
+     * Срез большего буфера копируется, чтобы значение не удерживало в памяти весь буфер
+     *
+     * @return байты строки, если данные есть. Если нет - null
+     */
+    @Override
+    public byte[] asBytes() {
+        if (dataSize() == NULL_STRING_SIZE) {
+            return null;
+        }
+
+        if (data.hasArray() && data.arrayOffset() + data.position() == 0 && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
     }
 
     @Override
@@ -52,7 +88,17 @@ public class RespBulkString implements RespObject {
         os.write(CRLF);
 
         if (data != null) {
-            os.write(data);
+            if (data.hasArray()) {
+                os.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            } else {
+                ByteBuffer source = data.duplicate();
+                byte[] chunk = new byte[Math.min(WRITE_CHUNK_SIZE, source.remaining())];
+                while (source.hasRemaining()) {
+                    int length = Math.min(chunk.length, source.remaining());
+                    source.get(chunk, 0, length);
+                    os.write(chunk, 0, length);
+                }
+            }
             os.write(CRLF);
         }
     }
@@ -62,6 +108,6 @@ public class RespBulkString implements RespObject {
             return NULL_STRING_SIZE;
         }
 
-        return data.length;
+        return data.remaining();
     }
 }
@@ -30,11 +30,20 @@ public class RespCommandId implements RespObject {
         return false;
     }
 
+    public int getCommandId() {
+        return commandId;
+    }
+
     @Override
     public String asString() {
         return String.valueOf(commandId);
     }
 
+    @Override
+    public byte[] asBytes() {
+        return asString().getBytes(StandardCharsets.UTF_8);
+    }
+
     @Override
     public void write(OutputStream os) throws IOException {
         os.write(CODE);
@@ -31,6 +31,9 @@ public class RespError implements RespObject {
     @Override
     public String asString() { return new String(message); }
 
+    @Override
+    public byte[] asBytes() { return message; }
+
     @Override
     public void write(OutputStream os) throws IOException {
         os.write(CODE);
@@ -25,6 +25,13 @@ public interface RespObject {
      */
     String asString();
 
+    /**
+     * @return байты значения (не в RESP, без специальных символов), без перекодирования в строку.
+     * Например, для {@link RespBulkString} - ровно те байты, что в ней лежат. Массив может быть общим
+     * с объектом, поэтому менять его нельзя
+     */
+    byte[] asBytes();
+
     /**
      * Сериализует данный объект в RESP и записывает байты в переданный OutputStream.
      */
@@ -0,0 +1,150 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.impl.TableImpl;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Замер памяти и задержки поиска для индексов таблицы: {@link MapBasedTableIndex} ({@code heap}),
+ * {@link OffHeapTableIndex} ({@code offheap}) и {@link UnifiedTableIndex} ({@code unified}).
+ * <p>
+ * В таблицу без кэша пишется заданное число ключей, затем каждый второй ключ перезаписывается.
+ * Ключи для записи создаются заново, как при разборе команд, поэтому в куче учитываются и ключи,
+ * которые держит сам индекс, и ключи в индексах сегментов. Память кучи - разница занятой кучи после сборки мусора
+ * до и после загрузки, память вне кучи - прирост direct буферов. Задержка поиска измеряется для случайных
+ * существующих ключей (среднее и перцентили) и для отсутствующих ключей.
+ * <p>
+ * Запуск: {@code mvn test-compile}, затем
+ * {@code java -Xmx4g -cp target/classes:target/test-classes com.itmo.java.basics.index.impl.TableIndexBenchmark [число ключей] [индексы...]}.
+ * Точнее всего память видна, если запускать каждый индекс в отдельной JVM
+ */
+public class TableIndexBenchmark {
+    private static final int DEFAULT_KEY_COUNT = 1_000_000;
+    private static final String[] DEFAULT_MODES = {"heap", "offheap", "unified"};
+    private static final int VALUE_SIZE = 16;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_KEY_COUNT;
+        String[] modes = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : DEFAULT_MODES;
+
+        System.out.printf("%-8s %10s %10s %10s %10s %8s %8s %8s %8s %10s%n", "index", "keys", "heap MB", "direct MB",
+                "write ns", "avg ns", "p50 ns", "p99 ns", "p999 ns", "absent ns");
+        for (String mode : modes) {
+            measure(mode, keyCount);
+        }
+        System.exit(0);
+    }
+
+    private static void measure(String mode, int keyCount) throws Exception {
+        TableConfig tableConfig = new TableConfig();
+        tableConfig.setOffHeapIndex(mode.equals("offheap"));
+        tableConfig.setUnifiedIndex(mode.equals("unified"));
+        if (!mode.equals("heap") && !tableConfig.isOffHeapIndex() && !tableConfig.isUnifiedIndex()) {
+            throw new IllegalArgumentException("Unknown index " + mode + ", expected heap, offheap or unified");
+        }
+        tableConfig.setCacheCapacity(0);
+        tableConfig.setSegmentSize(16L << 20);
+        tableConfig.setCompactionGarbageRatio(0);
+
+        Path directory = Files.createTempDirectory("index-benchmark");
+        byte[] value = new byte[VALUE_SIZE];
+        long heapBefore = usedHeap();
+        long directBefore = usedDirectMemory();
+
+        TableIndex tableIndex = TableIndex.create(tableConfig);
+        Table table = TableImpl.create("t", directory, tableIndex, tableConfig);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < keyCount; i++) {
+                table.write(keyOf(i), value);
+            }
+            long writeNanos = System.nanoTime() - start;
+            for (int i = 0; i < keyCount; i += 2) {
+                table.write(keyOf(i), value);
+            }
+
+            long heap = usedHeap() - heapBefore;
+            long direct = usedDirectMemory() - directBefore;
+
+            Random random = new Random(7);
+            String[] lookupKeys = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                lookupKeys[i] = keyOf(random.nextInt(keyCount));
+            }
+            long[] latencies = new long[LOOKUPS];
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    long lookupStart = System.nanoTime();
+                    if (table.read(lookupKeys[i]).isEmpty()) {
+                        throw new IllegalStateException("Key " + lookupKeys[i] + " was not found");
+                    }
+                    latencies[i] = System.nanoTime() - lookupStart;
+                }
+            }
+            Arrays.sort(latencies);
+            long latencySum = 0;
+            for (long latency : latencies) {
+                latencySum += latency;
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (table.read("absent" + i).isPresent()) {
+                    throw new IllegalStateException("Absent key was found");
+                }
+            }
+            long absentNanos = System.nanoTime() - start;
+
+            System.out.printf("%-8s %10d %10d %10d %10d %8d %8d %8d %8d %10d%n", mode, keyCount, heap >> 20, direct >> 20,
+                    writeNanos / keyCount, latencySum / LOOKUPS, latencies[LOOKUPS / 2],
+                    latencies[LOOKUPS / 100 * 99], latencies[LOOKUPS / 1000 * 999], absentNanos / LOOKUPS);
+        } finally {
+            table.close();
+            deleteDirectory(directory);
+        }
+    }
+
+    private static String keyOf(int i) {
+        return "key:" + i;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirectMemory() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.itmo.java.basics.index.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.initialization.impl.DatabaseInitializationContextImpl;
+import com.itmo.java.basics.initialization.impl.InitializationContextImpl;
+import com.itmo.java.basics.initialization.impl.SegmentInitializer;
+import com.itmo.java.basics.initialization.impl.TableInitializationContextImpl;
+import com.itmo.java.basics.initialization.impl.TableInitializer;
+import com.itmo.java.basics.logic.Segment;
+import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.impl.SegmentImpl;
+import com.itmo.java.basics.logic.impl.TableImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UnifiedTableIndexTest {
+    private static final String TABLE = "t";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final UnifiedTableIndex index = new UnifiedTableIndex();
+    private Path tablePath;
+
+    @Before
+    public void setUp() throws IOException {
+        tablePath = folder.getRoot().toPath().resolve(TABLE);
+        Files.createDirectories(tablePath);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void keyMovedToNewerSegmentIsDroppedFromPreviousSegment() throws Exception {
+        Segment older = segment("t_1");
+        write(older, "k", "old");
+        Segment newer = segment("t_2");
+        write(newer, "k", "new");
+
+        assertEquals(Optional.empty(), older.findRecord("k"));
+        assertEquals(1, older.getDroppedKeyCount());
+        assertEquals(0, newer.getDroppedKeyCount());
+        assertLocation("k", newer, "new");
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void keyRewrittenInSameSegmentIsNotDropped() throws Exception {
+        Segment segment = segment("t_1");
+        write(segment, "k", "first");
+        write(segment, "k", "second");
+
+        assertEquals(0, segment.getDroppedKeyCount());
+        assertLocation("k", segment, "second");
+    }
+
+    /**
+     * Слияние переносит ключ в новый сегмент. Слитый сегмент удаляется целиком, поэтому ключ из него не убирается
+     */
+    @Test
+    public void compactionMovesKeyToOutputSegment() throws Exception {
+        Segment merged = segment("t_1");
+        write(merged, "k", "value");
+        Segment output = segment("t_1_compacted");
+        assertTrue(output.write("k", "value".getBytes()));
+
+        assertTrue(index.replaceIfMatches("k", merged, output));
+
+        assertLocation("k", output, "value");
+        assertEquals(0, merged.getDroppedKeyCount());
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Ключ, перезаписанный во время слияния, остается в новом сегменте: копия ключа в сегменте слияния
+     * вытеснена, и таблица убирает ее из индекса этого сегмента
+     */
+    @Test
+    public void keyRewrittenDuringCompactionIsNotMovedToOutputSegment() throws Exception {
+        Segment merged = segment("t_1");
+        write(merged, "k", "old");
+        Segment output = segment("t_1_compacted");
+        assertTrue(output.write("k", "old".getBytes()));
+        Segment active = segment("t_2");
+        write(active, "k", "new");
+
+        assertFalse(index.replaceIfMatches("k", merged, output));
+
+        assertLocation("k", active, "new");
+        assertTrue(output.dropKey("k"));
+        assertEquals(1, output.getDroppedKeyCount());
+    }
+
+    @Test
+    public void compactionRemovesDeletedKey() throws Exception {
+        Segment merged = segment("t_1");
+        assertTrue(merged.delete("k"));
+        index.onIndexedEntityUpdated("k", merged);
+        Segment active = segment("t_2");
+        write(active, "other", "value");
+
+        assertFalse(index.removeIfMatches("other", merged));
+        assertTrue(index.removeIfMatches("k", merged));
+
+        assertEquals(Optional.empty(), index.searchForRecord("k"));
+        assertLocation("other", active, "value");
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Сквозная проверка: таблица с единым индексом сливает сегменты с перезаписанными и удаленными ключами,
+     * а после перезапуска читает последние значения
+     */
+    @Test
+    public void tableReadsLatestValuesAfterCompactionAndRestart() throws Exception {
+        TableConfig config = new TableConfig();
+        config.setUnifiedIndex(true);
+        config.setSegmentSize(512);
+        config.setCompactionSegmentThreshold(3);
+        config.setCompactionGarbageRatio(0);
+        Path databasePath = tablePath.getParent();
+
+        Table table = TableImpl.create(TABLE, databasePath, new UnifiedTableIndex(), config);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                table.write("key" + i, ("value" + round + "-" + i).getBytes());
+            }
+        }
+        for (int i = 0; i < 50; i += 5) {
+            table.delete("key" + i);
+        }
+        assertTableValues(table);
+        table.close();
+
+        // без слияний записи заняли бы 11 сегментов. Сколько слияний успеет пройти, зависит от фонового потока
+        try (Stream<Path> files = Files.list(tablePath)) {
+            assertTrue(files.filter(file -> SegmentImpl.isSegmentFileName(TABLE, file.getFileName().toString())).count() < 11);
+        }
+
+        DatabaseInitializationContextImpl databaseContext = new DatabaseInitializationContextImpl("db", databasePath.getParent());
+        new TableInitializer(new SegmentInitializer()).perform(new InitializationContextImpl(null, databaseContext,
+                new TableInitializationContextImpl(TABLE, databasePath, new UnifiedTableIndex(), new TableConfig()), null));
+        Table restarted = databaseContext.getTables().get(TABLE);
+        try {
+            assertTableValues(restarted);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private Segment segment(String name) throws Exception {
+        TableConfig config = new TableConfig();
+        config.setSegmentSize(1024 * 1024);
+        Segment segment = SegmentImpl.create(name, tablePath, config);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void write(Segment segment, String key, String value) throws IOException {
+        assertTrue(segment.write(key, value.getBytes()));
+        index.onIndexedEntityUpdated(key, segment);
+    }
+
+    private void assertLocation(String key, Segment segment, String value) throws IOException {
+        RecordLocation location = index.searchForRecord(key).orElseThrow();
+        assertSame(segment, location.getSegment());
+        assertEquals(segment.findOffset(key).orElseThrow(), location.getOffset());
+        assertEquals(value.length(), location.getValueSize());
+        assertArrayEquals(value.getBytes(),
+                segment.readRecord(location.getOffset(), key, location.getValueSize()).orElseThrow());
+    }
+
+    private static void assertTableValues(Table table) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            Optional<byte[]> value = table.read("key" + i);
+            if (i % 5 == 0) {
+                assertEquals(Optional.empty(), value);
+            } else {
+                assertArrayEquals(("value4-" + i).getBytes(), value.orElseThrow());
+            }
+        }
+    }
+}
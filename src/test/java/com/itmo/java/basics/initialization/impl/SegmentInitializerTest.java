@@ -0,0 +1,187 @@
+package com.itmo.java.basics.initialization.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.index.impl.SegmentIndex;
+import com.itmo.java.basics.logic.Segment;
+import com.itmo.java.basics.logic.impl.SegmentImpl;
+import com.itmo.java.basics.logic.impl.SetDatabaseRecord;
+import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+import com.itmo.java.basics.logic.io.SegmentBloomFile;
+import com.itmo.java.basics.logic.io.SegmentHintFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentInitializerTest {
+    private static final String TABLE = "t";
+    private static final String SEGMENT = "t_1";
+    private static final int KEYS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Segment> openedSegments = new ArrayList<>();
+    private Path databasePath;
+    private Path segmentPath;
+    private TableConfig config;
+
+    /**
+     * Заполняет сегмент: каждый ключ записан дважды, каждый десятый затем удален. Закрытие сегмента дожидается
+     * фоновой записи подсказки и фильтра Блума. Размер сегмента в настройках затем уменьшается до размера файла,
+     * чтобы при загрузке сегмент был заполненным
+     */
+    @Before
+    public void setUp() throws Exception {
+        databasePath = folder.getRoot().toPath();
+        Path tablePath = databasePath.resolve(TABLE);
+        Files.createDirectories(tablePath);
+        segmentPath = tablePath.resolve(SEGMENT);
+        config = new TableConfig();
+        config.setSegmentSize(1024 * 1024);
+
+        Segment segment = SegmentImpl.create(SEGMENT, tablePath, config);
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(segment.write("key" + i, ("first" + i).getBytes()));
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(segment.write("key" + i, ("value" + i).getBytes()));
+        }
+        for (int i = 0; i < KEYS; i += 10) {
+            assertTrue(segment.delete("key" + i));
+        }
+        segment.markReadOnly();
+        segment.close();
+        config.setSegmentSize(Files.size(segmentPath));
+
+        assertTrue(Files.exists(SegmentHintFile.pathFor(segmentPath)));
+        assertTrue(Files.exists(SegmentBloomFile.pathFor(segmentPath)));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Segment segment : openedSegments) {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void readsSegmentWithHintAndBloomFilter() throws Exception {
+        assertRecords(initialize());
+    }
+
+    @Test
+    public void scansSegmentWithoutHint() throws Exception {
+        Files.delete(SegmentHintFile.pathFor(segmentPath));
+
+        assertRecords(initialize());
+    }
+
+    /**
+     * Поврежденная подсказка отбрасывается целиком: ее записи уже попали в индекс, когда контрольная сумма
+     * не сошлась, и не должны остаться в нем после чтения сегмента
+     */
+    @Test
+    public void scansSegmentWithCorruptHint() throws Exception {
+        Path hintPath = SegmentHintFile.pathFor(segmentPath);
+        SegmentHintFile.write(segmentPath, Files.size(segmentPath),
+                List.of(new SegmentHintFile.Entry("ghost".getBytes(), 0, 20, false)));
+        flipByte(hintPath, Files.size(hintPath) - 1);
+
+        Segment segment = initialize();
+        assertRecords(segment);
+        assertEquals(Optional.empty(), segment.read("ghost"));
+    }
+
+    /**
+     * Подсказка, записанная для более короткого файла, не знает о дописанных после нее записях
+     */
+    @Test
+    public void ignoresHintOfAnotherSegmentSize() throws Exception {
+        try (DatabaseOutputStream output = new DatabaseOutputStream(new FileOutputStream(segmentPath.toFile(), true))) {
+            output.write(new SetDatabaseRecord("key1".getBytes(), "rewritten".getBytes()));
+        }
+        config.setSegmentSize(Files.size(segmentPath));
+
+        Segment segment = initialize();
+        assertArrayEquals("rewritten".getBytes(), segment.read("key1").orElseThrow());
+        assertArrayEquals("value2".getBytes(), segment.read("key2").orElseThrow());
+    }
+
+    @Test
+    public void rebuildsMissingBloomFilter() throws Exception {
+        Path bloomPath = SegmentBloomFile.pathFor(segmentPath);
+        Files.delete(bloomPath);
+
+        Segment segment = initialize();
+        assertRecords(segment);
+        assertTrue(segment.getBloomFilterSize() > 0);
+        assertTrue(Files.exists(bloomPath));
+    }
+
+    /**
+     * Обнуленные слова фильтра дали бы ложноотрицательные ответы: такой файл не должен пройти проверку
+     */
+    @Test
+    public void rebuildsCorruptBloomFilter() throws Exception {
+        Path bloomPath = SegmentBloomFile.pathFor(segmentPath);
+        try (RandomAccessFile file = new RandomAccessFile(bloomPath.toFile(), "rw")) {
+            int headerSize = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+            file.seek(headerSize);
+            file.write(new byte[(int) file.length() - headerSize - Long.BYTES]);
+        }
+
+        Segment segment = initialize();
+        assertRecords(segment);
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(segment.mightContain("key" + i));
+        }
+        assertTrue(SegmentBloomFile.read(segmentPath, Files.size(segmentPath)).isPresent());
+    }
+
+    private Segment initialize() throws Exception {
+        TableInitializationContextImpl tableContext = new TableInitializationContextImpl(TABLE, databasePath, null, config);
+        new SegmentInitializer().perform(new InitializationContextImpl(null, null, tableContext,
+                new SegmentInitializationContextImpl(SEGMENT, segmentPath, 0, new SegmentIndex())));
+
+        Segment segment = tableContext.getCurrentSegment();
+        openedSegments.add(segment);
+        return segment;
+    }
+
+    private static void assertRecords(Segment segment) throws IOException {
+        assertTrue(segment.isReadOnly());
+        for (int i = 0; i < KEYS; i++) {
+            Optional<byte[]> value = segment.read("key" + i);
+            if (i % 10 == 0) {
+                assertEquals(Optional.empty(), value);
+            } else {
+                assertArrayEquals(("value" + i).getBytes(), value.orElseThrow());
+            }
+        }
+        assertEquals(KEYS, segment.getKeys().size());
+    }
+
+    private static void flipByte(Path path, long position) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.config.FsyncPolicy;
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.exceptions.DatabaseException;
+import com.itmo.java.basics.logic.Database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Замер пропускной способности записи при каждой {@link FsyncPolicy}.
+ * <p>
+ * Для каждой политики и каждого числа писателей создается новая база во временной директории, и писатели
+ * в течение {@value #MEASURE_MILLIS} мс пишут в одну таблицу разные ключи со значениями по {@value #VALUE_SIZE} байт.
+ * Замер повторяется для обычной таблицы и для таблицы с упорядоченными сегментами. При {@link FsyncPolicy#ALWAYS}
+ * число записей в секунду растет с числом писателей: их записи сбрасываются на диск общими пачками.
+ * <p>
+ * Запуск: {@code mvn test-compile}, затем
+ * {@code java -cp target/classes:target/test-classes com.itmo.java.basics.logic.impl.FsyncPolicyBenchmark [директория] [числа писателей...]}.
+ * Результат зависит от диска: мерить нужно на том диске, где будут лежать данные
+ */
+public class FsyncPolicyBenchmark {
+    private static final int[] DEFAULT_WRITER_COUNTS = {1, 4, 16, 64};
+    private static final long FSYNC_INTERVAL_MILLIS = 100;
+    private static final long WARMUP_MILLIS = 1000;
+    private static final long MEASURE_MILLIS = 3000;
+    private static final int VALUE_SIZE = 100;
+
+    public static void main(String[] args) throws Exception {
+        Path root = args.length > 0 ? Path.of(args[0]) : Path.of(System.getProperty("java.io.tmpdir"));
+        int[] writerCounts = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_WRITER_COUNTS;
+
+        System.out.printf("%-8s %-8s %8s %14s%n", "table", "policy", "writers", "writes/s");
+        for (boolean sortedSegments : new boolean[]{false, true}) {
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                for (int writers : writerCounts) {
+                    double writesPerSecond = measure(root, policy, sortedSegments, writers);
+                    System.out.printf("%-8s %-8s %8d %14.0f%n",
+                            sortedSegments ? "sorted" : "append", policy, writers, writesPerSecond);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return число записей в секунду
+     */
+    private static double measure(Path root, FsyncPolicy policy, boolean sortedSegments, int writers) throws Exception {
+        Path directory = Files.createTempDirectory(root, "fsync-benchmark");
+        TableConfig tableConfig = new TableConfig();
+        tableConfig.setCacheCapacity(0);
+        tableConfig.setFsyncPolicy(policy);
+        tableConfig.setFsyncIntervalMillis(FSYNC_INTERVAL_MILLIS);
+        tableConfig.setSortedSegments(sortedSegments);
+        tableConfig.setSegmentSize(16L << 20);
+
+        Database database = DatabaseImpl.create("db", directory, tableConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            database.createTableIfNotExists("t");
+            byte[] value = new byte[VALUE_SIZE];
+            Arrays.fill(value, (byte) 'v');
+
+            long measureStart = System.nanoTime() + WARMUP_MILLIS * 1_000_000;
+            long measureEnd = measureStart + MEASURE_MILLIS * 1_000_000;
+            List<Future<Long>> writes = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String keyPrefix = "w" + writer + ":";
+                writes.add(executor.submit(() -> write(database, keyPrefix, value, measureStart, measureEnd)));
+            }
+
+            long total = 0;
+            for (Future<Long> writerWrites : writes) {
+                total += writerWrites.get();
+            }
+            return total * 1000.0 / MEASURE_MILLIS;
+        } finally {
+            executor.shutdown();
+            database.close();
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Пишет ключи, пока не закончится замер
+     *
+     * @return число записей, завершившихся во время замера
+     */
+    private static long write(Database database, String keyPrefix, byte[] value,
+                              long measureStart, long measureEnd) throws DatabaseException {
+        long measured = 0;
+        for (long i = 0; ; i++) {
+            database.write("t", keyPrefix + i, value);
+            long now = System.nanoTime();
+            if (now >= measureEnd) {
+                return measured;
+            }
+            if (now >= measureStart) {
+                measured++;
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.exceptions.DatabaseException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GroupCommitTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Записи, пришедшие, пока лидер сбрасывает свою пачку, не попадают в нее и не подтверждаются раньше,
+     * чем сброшена их собственная пачка. Пачка сохраняет порядок поступления записей
+     */
+    @Test(timeout = 30_000)
+    public void commitReturnsOnlyAfterItsBatchIsDurable() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<List<String>> durableBatches = Collections.synchronizedList(new ArrayList<>());
+        GroupCommit groupCommit = new GroupCommit(records -> {
+            if (durableBatches.isEmpty()) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            durableBatches.add(new ArrayList<>(records.keySet()));
+        });
+
+        CommitThread leader = CommitThread.start(groupCommit, durableBatches, "a");
+        assertTrue(firstBatchStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CommitThread second = CommitThread.start(groupCommit, durableBatches, "b");
+        awaitWaiting(second.thread);
+        CommitThread third = CommitThread.start(groupCommit, durableBatches, "c");
+        awaitWaiting(third.thread);
+
+        assertFalse(leader.result.isDone());
+        assertFalse(second.result.isDone());
+        releaseFirstBatch.countDown();
+
+        assertTrue(leader.result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(second.result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(third.result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a"), List.of("b", "c")), durableBatches);
+    }
+
+    @Test(timeout = 30_000)
+    public void failureIsReportedToEveryWriterOfTheBatch() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<List<String>> durableBatches = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean firstBatch = new AtomicBoolean(true);
+        GroupCommit groupCommit = new GroupCommit(records -> {
+            if (firstBatch.getAndSet(false)) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+                durableBatches.add(new ArrayList<>(records.keySet()));
+                return;
+            }
+            throw new DatabaseException("disk is full");
+        });
+
+        CommitThread leader = CommitThread.start(groupCommit, durableBatches, "a");
+        assertTrue(firstBatchStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CommitThread second = CommitThread.start(groupCommit, durableBatches, "b");
+        awaitWaiting(second.thread);
+        CommitThread third = CommitThread.start(groupCommit, durableBatches, "c");
+        awaitWaiting(third.thread);
+        releaseFirstBatch.countDown();
+
+        assertTrue(leader.result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFailed(second.result);
+        assertFailed(third.result);
+        assertEquals(List.of(List.of("a")), durableBatches);
+    }
+
+    @Test
+    public void batchKeepsRecordsInArrivalOrder() throws Exception {
+        List<Map<String, byte[]>> batches = new ArrayList<>();
+        GroupCommit groupCommit = new GroupCommit(batches::add);
+
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        records.put("k", "v".getBytes());
+        records.put("removed", null);
+        groupCommit.commit(records);
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of("k", "removed"), new ArrayList<>(batches.get(0).keySet()));
+        assertNull(batches.get(0).get("removed"));
+    }
+
+    /**
+     * Поток, который пишет один ключ и по возвращении проверяет, что пачка с ключом уже сброшена
+     */
+    private static final class CommitThread {
+        private final Thread thread;
+        private final CompletableFuture<Boolean> result;
+
+        private CommitThread(Thread thread, CompletableFuture<Boolean> result) {
+            this.thread = thread;
+            this.result = result;
+        }
+
+        private static CommitThread start(GroupCommit groupCommit, List<List<String>> durableBatches, String key) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    groupCommit.commit(Map.of(key, key.getBytes()));
+                    synchronized (durableBatches) {
+                        result.complete(durableBatches.stream().anyMatch(batch -> batch.contains(key)));
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }, "commit-" + key);
+            thread.start();
+            return new CommitThread(thread, result);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Latch was not released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ждет, пока поток не встанет в очередь за лидером
+     */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                fail("Thread " + thread.getName() + " did not wait for the leader");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertFailed(CompletableFuture<Boolean> result) throws Exception {
+        try {
+            result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Commit should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DatabaseException);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.itmo.java.basics.logic.impl;
+
+import com.itmo.java.basics.config.TableConfig;
+import com.itmo.java.basics.logic.Table;
+import com.itmo.java.basics.logic.io.DatabaseOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LsmTableTest {
+    private static final String TABLE = "t";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path databasePath;
+    private Path tablePath;
+    private TableConfig config;
+
+    @Before
+    public void setUp() throws IOException {
+        databasePath = folder.getRoot().toPath();
+        tablePath = databasePath.resolve(TABLE);
+        Files.createDirectories(tablePath);
+        config = new TableConfig();
+        config.setSortedSegments(true);
+        config.setSegmentSize(1024);
+    }
+
+    /**
+     * Запись, прерванная сбоем в любом месте, пропускается, а все записи перед ней восстанавливаются
+     */
+    @Test
+    public void replaySkipsTornLastRecordOfLog() throws Exception {
+        byte[] lastRecord = record("c", "value-c");
+        for (int tornSize = 1; tornSize < lastRecord.length; tornSize++) {
+            Path logPath = tablePath.resolve(TABLE + "_5.wal");
+            try (FileOutputStream log = new FileOutputStream(logPath.toFile())) {
+                log.write(record("a", "value-a"));
+                log.write(record("b", "value-b"));
+                log.write(lastRecord, 0, tornSize);
+            }
+
+            Table table = LsmTable.initialize(TABLE, databasePath, config);
+            try {
+                assertValue(table, "a", "value-a");
+                assertValue(table, "b", "value-b");
+                assertEquals("torn at " + tornSize, Optional.empty(), table.read("c"));
+                assertFalse(Files.exists(logPath));
+            } finally {
+                table.close();
+            }
+            deleteTableFiles();
+        }
+    }
+
+    @Test
+    public void replayedRecordsSurviveNextRestart() throws Exception {
+        Table table = LsmTable.create(TABLE, databasePath, config);
+        table.write("a", "1".getBytes());
+        table.write("b", "2".getBytes());
+        table.delete("a");
+        table.close();
+
+        table = LsmTable.initialize(TABLE, databasePath, config);
+        table.write("c", "3".getBytes());
+        table.close();
+
+        table = LsmTable.initialize(TABLE, databasePath, config);
+        try {
+            assertEquals(Optional.empty(), table.read("a"));
+            assertValue(table, "b", "2");
+            assertValue(table, "c", "3");
+        } finally {
+            table.close();
+        }
+    }
+
+    /**
+     * Слияние, прерванное до удаления исходных сегментов: исходные сегменты и журналы уже сброшенных таблиц
+     * удаляются, ключи читаются из слитого сегмента
+     */
+    @Test
+    public void segmentsCoveredByMergedSegmentAreDropped() throws Exception {
+        writeSegment(1, 1, Map.of("a", "old-a"));
+        writeSegment(2, 2, Map.of("b", "old-b"));
+        writeSegment(1, 2, Map.of("a", "new-a", "b", "new-b"));
+        Path flushedLog = tablePath.resolve(TABLE + "_2.wal");
+        try (FileOutputStream log = new FileOutputStream(flushedLog.toFile())) {
+            log.write(record("a", "stale-a"));
+        }
+
+        Table table = LsmTable.initialize(TABLE, databasePath, config);
+        try {
+            assertValue(table, "a", "new-a");
+            assertValue(table, "b", "new-b");
+        } finally {
+            table.close();
+        }
+
+        assertFalse(Files.exists(segmentPath(1, 1)));
+        assertFalse(Files.exists(segmentPath(2, 2)));
+        assertTrue(Files.exists(segmentPath(1, 2)));
+        assertFalse(Files.exists(flushedLog));
+    }
+
+    /**
+     * Под слитыми сегментами остается более старый сегмент со значением ключа, поэтому удаление
+     * должно пережить слияние
+     */
+    @Test
+    public void tombstoneIsKeptWhenRunDoesNotIncludeOldestSegment() throws Exception {
+        TreeMap<String, String> oldestRecords = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            oldestRecords.put(String.format("key%04d", i), "value" + i);
+        }
+        oldestRecords.put("x", "old-x");
+        writeSegment(1, 1, oldestRecords);
+        writeSegment(2, 2, Map.of("x", ""), "x");
+        writeSegment(3, 3, Map.of("y", "new-y"));
+        config.setCompactionSegmentThreshold(2);
+
+        Table table = LsmTable.initialize(TABLE, databasePath, config);
+        try {
+            awaitCompaction();
+            assertEquals(Optional.empty(), table.read("x"));
+            assertValue(table, "y", "new-y");
+            assertValue(table, "key0001", "value1");
+        } finally {
+            table.close();
+        }
+
+        assertTrue(Files.exists(segmentPath(1, 1)));
+        assertFalse(Files.exists(segmentPath(2, 2)));
+        assertFalse(Files.exists(segmentPath(3, 3)));
+        try (SortedSegment merged = SortedSegment.open(segmentPath(2, 3), 2, 3, config)) {
+            assertSame(Memtable.TOMBSTONE, merged.get("x"));
+            assertEquals(2, merged.getRecordCount());
+        }
+    }
+
+    @Test
+    public void tombstoneIsDroppedWhenRunIncludesOldestSegment() throws Exception {
+        writeSegment(1, 1, Map.of("x", "old-x", "z", "old-z"));
+        writeSegment(2, 2, Map.of("x", "", "y", "new-y"), "x");
+        config.setCompactionSegmentThreshold(2);
+
+        Table table = LsmTable.initialize(TABLE, databasePath, config);
+        try {
+            awaitCompaction();
+            assertEquals(Optional.empty(), table.read("x"));
+            assertValue(table, "y", "new-y");
+            assertValue(table, "z", "old-z");
+        } finally {
+            table.close();
+        }
+
+        assertFalse(Files.exists(segmentPath(1, 1)));
+        assertFalse(Files.exists(segmentPath(2, 2)));
+        try (SortedSegment merged = SortedSegment.open(segmentPath(1, 2), 1, 2, config)) {
+            assertNull(merged.get("x"));
+            assertEquals(2, merged.getRecordCount());
+        }
+    }
+
+    /**
+     * Слияния таблиц идут в одном потоке: задача, поставленная после слияния, выполнится, когда оно закончится
+     */
+    private static void awaitCompaction() throws Exception {
+        SegmentCompactor.executor().submit(() -> {
+        }).get();
+    }
+
+    /**
+     * @param removedKeys ключи, которые записываются как удаленные
+     */
+    private void writeSegment(long firstSequence, long sequence, Map<String, String> records, String... removedKeys)
+            throws IOException {
+        TreeMap<String, String> sortedRecords = new TreeMap<>(records);
+        try (SortedSegment.Writer writer = new SortedSegment.Writer(segmentPath(firstSequence, sequence),
+                firstSequence, sequence, sortedRecords.size(), config)) {
+            for (Map.Entry<String, String> record : sortedRecords.entrySet()) {
+                boolean removed = List.of(removedKeys).contains(record.getKey());
+                writer.write(record.getKey(), removed ? Memtable.TOMBSTONE : record.getValue().getBytes());
+            }
+            writer.finish().close();
+        }
+    }
+
+    private Path segmentPath(long firstSequence, long sequence) {
+        return tablePath.resolve(TABLE + "_" + firstSequence + "-" + sequence + SortedSegment.EXTENSION);
+    }
+
+    private void deleteTableFiles() throws IOException {
+        try (var files = Files.list(tablePath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static byte[] record(String key, String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DatabaseOutputStream output = new DatabaseOutputStream(bytes)) {
+            output.write(new SetDatabaseRecord(key.getBytes(), value.getBytes()));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertValue(Table table, String key, String value) throws Exception {
+        Optional<byte[]> actual = table.read(key);
+        assertTrue("no value of " + key, actual.isPresent());
+        assertArrayEquals(value.getBytes(), actual.get());
+    }
+}
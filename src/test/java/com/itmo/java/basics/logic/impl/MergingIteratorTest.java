@@ -0,0 +1,91 @@
+package com.itmo.java.basics.logic.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class MergingIteratorTest {
+    @Test
+    public void mergesSourcesInKeyOrder() {
+        MergingIterator records = new MergingIterator(List.of(
+                source("b", "1", "d", "1"),
+                source("a", "2", "c", "2", "e", "2")));
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), keys(records));
+    }
+
+    @Test
+    public void newestSourceWinsForDuplicateKeys() {
+        MergingIterator records = new MergingIterator(List.of(
+                source("k", "newest"),
+                source("k", "middle", "z", "middle"),
+                source("a", "oldest", "k", "oldest", "z", "oldest")));
+
+        assertEntry(records.next(), "a", "oldest");
+        assertEntry(records.next(), "k", "newest");
+        assertEntry(records.next(), "z", "middle");
+        assertFalse(records.hasNext());
+    }
+
+    @Test
+    public void tombstoneOfNewerSourceHidesOlderValue() {
+        TreeMap<String, byte[]> newest = new TreeMap<>();
+        newest.put("k", Memtable.TOMBSTONE);
+
+        MergingIterator records = new MergingIterator(List.of(
+                newest.entrySet().iterator(),
+                source("k", "old", "m", "old")));
+
+        Map.Entry<String, byte[]> removed = records.next();
+        assertEquals("k", removed.getKey());
+        assertSame(Memtable.TOMBSTONE, removed.getValue());
+        assertEntry(records.next(), "m", "old");
+        assertFalse(records.hasNext());
+    }
+
+    @Test
+    public void emptySourcesAreSkipped() {
+        MergingIterator records = new MergingIterator(List.of(source(), source("a", "1"), source()));
+
+        assertEquals(List.of("a"), keys(records));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextAfterLastRecordThrows() {
+        MergingIterator records = new MergingIterator(List.of(source("a", "1")));
+        records.next();
+        records.next();
+    }
+
+    /**
+     * @param keysAndValues ключи и значения вперемешку
+     */
+    private static Iterator<Map.Entry<String, byte[]>> source(String... keysAndValues) {
+        TreeMap<String, byte[]> records = new TreeMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            records.put(keysAndValues[i], keysAndValues[i + 1].getBytes());
+        }
+        return records.entrySet().iterator();
+    }
+
+    private static List<String> keys(Iterator<Map.Entry<String, byte[]>> records) {
+        List<String> keys = new ArrayList<>();
+        records.forEachRemaining(record -> keys.add(record.getKey()));
+        return keys;
+    }
+
+    private static void assertEntry(Map.Entry<String, byte[]> record, String key, String value) {
+        assertEquals(key, record.getKey());
+        assertArrayEquals(value.getBytes(), record.getValue());
+    }
+}
@@ -0,0 +1,111 @@
+package com.itmo.java.protocol;
+
+import com.itmo.java.protocol.model.RespArray;
+import com.itmo.java.protocol.model.RespObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Замер пропускной способности {@link RespReader} на конвейере команд.
+ * <p>
+ * Корпус - команды, записанные подряд так, как их отправляет клиент: SET_KEY, GET_KEY, MSET, MGET и DELETE_KEY
+ * со значениями от 16 байт до 4 КБ ({@code pipelined-commands.resp} рядом с классом). Корпус повторяется,
+ * пока не наберется {@value #STREAM_SIZE} байт, и подается декодеру частями заданного размера.
+ * Каждая часть копируется в новый буфер, как при чтении из сокета в {@link com.itmo.java.basics.connector.JavaSocketServerConnector},
+ * поэтому команды регулярно разрезаются между частями.
+ * <p>
+ * Запуск: {@code mvn test-compile}, затем
+ * {@code java -cp target/classes:target/test-classes com.itmo.java.protocol.RespReaderBenchmark [корпус] [размеры частей...]}
+ */
+public class RespReaderBenchmark {
+    private static final String CORPUS_RESOURCE = "pipelined-commands.resp";
+    private static final int STREAM_SIZE = 64 * 1024 * 1024;
+    private static final int[] DEFAULT_CHUNK_SIZES = {1460, 16 * 1024, 64 * 1024};
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        byte[] corpus = args.length > 0 ? Files.readAllBytes(Paths.get(args[0])) : readCorpusResource();
+        int[] chunkSizes = DEFAULT_CHUNK_SIZES;
+        if (args.length > 1) {
+            chunkSizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                chunkSizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        int commandsInCorpus = decode(corpus, corpus.length, 1);
+        int repeats = Math.max(1, STREAM_SIZE / corpus.length);
+        long streamSize = (long) corpus.length * repeats;
+        long commands = (long) commandsInCorpus * repeats;
+        System.out.printf("corpus: %d bytes, %d commands, repeated %d times%n", corpus.length, commandsInCorpus, repeats);
+
+        for (int chunkSize : chunkSizes) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                decode(corpus, chunkSize, repeats);
+            }
+
+            long bestNanos = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = System.nanoTime();
+                long decoded = decode(corpus, chunkSize, repeats);
+                bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                if (decoded != commands) {
+                    throw new IllegalStateException("Decoded " + decoded + " commands instead of " + commands);
+                }
+            }
+
+            double seconds = bestNanos / 1e9;
+            System.out.printf("chunk %6d B: %8.1f MB/s %8.2f M commands/s%n",
+                    chunkSize, streamSize / seconds / 1e6, commands / seconds / 1e6);
+        }
+    }
+
+    /**
+     * Подает декодеру корпус {@code repeats} раз частями по {@code chunkSize} байт
+     *
+     * @return число прочитанных команд
+     */
+    private static int decode(byte[] corpus, int chunkSize, int repeats) throws IOException {
+        RespReader reader = new RespReader();
+        int commands = 0;
+        long streamSize = (long) corpus.length * repeats;
+        for (long streamOffset = 0; streamOffset < streamSize; ) {
+            ByteBuffer received = ByteBuffer.allocate((int) Math.min(chunkSize, streamSize - streamOffset));
+            while (received.hasRemaining()) {
+                int offset = (int) (streamOffset % corpus.length);
+                int length = Math.min(received.remaining(), corpus.length - offset);
+                received.put(corpus, offset, length);
+                streamOffset += length;
+            }
+            received.flip();
+
+            Optional<RespObject> command;
+            while ((command = reader.readObject(received)).isPresent()) {
+                if (!(command.get() instanceof RespArray)) {
+                    throw new IllegalStateException("Command should be a RESP array");
+                }
+                commands++;
+            }
+        }
+
+        if (reader.hasPartialObject()) {
+            throw new IllegalStateException("Corpus ends with an incomplete command");
+        }
+        return commands;
+    }
+
+    private static byte[] readCorpusResource() throws IOException {
+        try (InputStream corpus = RespReaderBenchmark.class.getResourceAsStream(CORPUS_RESOURCE)) {
+            if (corpus == null) {
+                throw new IOException("Corpus " + CORPUS_RESOURCE + " is not on the classpath");
+            }
+            return corpus.readAllBytes();
+        }
+    }
+}